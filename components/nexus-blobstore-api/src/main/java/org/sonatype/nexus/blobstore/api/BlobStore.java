@@ -64,6 +64,9 @@ public interface BlobStore
    * Removes a blob from the blob store.  This may not immediately delete the blob from the underlying storage
    * mechanism, but will make it immediately unavailable to future calls to {@link BlobStore#get(BlobId)}.
    *
+   * Blob stores deduplicating content may return same blob for several {@link #create} calls, in that case each
+   * deletion removes a single reference, and the blob is removed once all references are removed.
+   *
    * @return {@code true} if the blob has been deleted, {@code false} if no blob was found by that ID.
    */
   boolean delete(BlobId blobId);
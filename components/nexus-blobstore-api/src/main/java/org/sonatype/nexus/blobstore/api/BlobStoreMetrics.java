@@ -35,4 +35,16 @@ public interface BlobStoreMetrics
    * may return a value set by a policy rather than some hard storage limit.
    */
   long getAvailableSpace();
+
+  /**
+   * Get the count of created blobs that were not stored, as the blob store already held same content. Always zero for
+   * blob stores not deduplicating content.
+   */
+  long getDeduplicatedCount();
+
+  /**
+   * Get the total size in bytes of created blobs that were not stored, as the blob store already held same content.
+   * Always zero for blob stores not deduplicating content.
+   */
+  long getDeduplicatedSize();
 }
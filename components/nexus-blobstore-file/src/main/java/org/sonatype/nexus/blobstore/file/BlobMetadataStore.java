@@ -12,6 +12,8 @@
  */
 package org.sonatype.nexus.blobstore.file;
 
+import java.util.List;
+
 import javax.annotation.Nullable;
 
 import org.sonatype.nexus.blobstore.api.BlobId;
@@ -43,6 +45,36 @@ public interface BlobMetadataStore
    */
   AutoClosableIterable<BlobId> findWithState(BlobState state);
 
+  /**
+   * Returns at most {@code limit} blob-ids in the given state, in ascending order, starting after the given blob-id
+   * (or from the first one, if {@code null}). Allows processing of large states in bounded batches, without keeping
+   * a snapshot open meanwhile.
+   */
+  List<BlobId> findWithState(BlobState state, @Nullable BlobId after, int limit);
+
+  /**
+   * Links an alive blob to its content, identified by content SHA1 hash and size, for content addressed storage. If
+   * another alive blob with same content is linked already, a reference is added to that blob and its id is returned,
+   * otherwise the given blob becomes the linked blob with single reference, and its id is returned.
+   */
+  BlobId link(BlobId blobId, String sha1, long size);
+
+  /**
+   * Removes a reference from a blob and returns the count of remaining references. A blob not linked to its content
+   * has single reference. Once no references remain, the blob is unlinked from its content.
+   */
+  long unlink(BlobId blobId);
+
+  /**
+   * Returns the count of blobs that were not stored, as they were linked to same existing content.
+   */
+  long getDeduplicatedCount();
+
+  /**
+   * Returns the total size of blobs that were not stored, as they were linked to same existing content.
+   */
+  long getDeduplicatedSize();
+
   long getBlobCount();
 
   long getTotalSize();
@@ -0,0 +1,101 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.file;
+
+/**
+ * Progress and result of a {@link FileBlobStore} compaction run.
+ *
+ * @since 3.0
+ */
+public class CompactionResult
+{
+  private long deletedBlobs;
+
+  private long abandonedBlobs;
+
+  private long orphanedFiles;
+
+  private long reclaimedBytes;
+
+  private long durationMillis;
+
+  private boolean complete;
+
+  /**
+   * Count of hard deleted blobs that were marked for deletion.
+   */
+  public long getDeletedBlobs() {
+    return deletedBlobs;
+  }
+
+  /**
+   * Count of reclaimed blobs left in {@link BlobState#CREATING} state by failed or interrupted creation.
+   */
+  public long getAbandonedBlobs() {
+    return abandonedBlobs;
+  }
+
+  /**
+   * Count of deleted content files that had no metadata.
+   */
+  public long getOrphanedFiles() {
+    return orphanedFiles;
+  }
+
+  public long getReclaimedBytes() {
+    return reclaimedBytes;
+  }
+
+  public long getDurationMillis() {
+    return durationMillis;
+  }
+
+  /**
+   * Returns {@code true} if the run processed everything, {@code false} if it was stopped at a checkpoint.
+   */
+  public boolean isComplete() {
+    return complete;
+  }
+
+  void deleted(final long bytes) {
+    deletedBlobs++;
+    reclaimedBytes += bytes;
+  }
+
+  void abandoned(final long bytes) {
+    abandonedBlobs++;
+    reclaimedBytes += bytes;
+  }
+
+  void orphaned(final long bytes) {
+    orphanedFiles++;
+    reclaimedBytes += bytes;
+  }
+
+  void finished(final long durationMillis, final boolean complete) {
+    this.durationMillis = durationMillis;
+    this.complete = complete;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" +
+        "deletedBlobs=" + deletedBlobs +
+        ", abandonedBlobs=" + abandonedBlobs +
+        ", orphanedFiles=" + orphanedFiles +
+        ", reclaimedBytes=" + reclaimedBytes +
+        ", durationMillis=" + durationMillis +
+        ", complete=" + complete +
+        '}';
+  }
+}
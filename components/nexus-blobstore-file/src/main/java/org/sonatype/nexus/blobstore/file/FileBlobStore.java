@@ -14,10 +14,25 @@ package org.sonatype.nexus.blobstore.file;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
 import java.nio.file.FileStore;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.annotation.Nullable;
 
@@ -30,18 +45,30 @@ import org.sonatype.nexus.blobstore.api.BlobStoreException;
 import org.sonatype.nexus.blobstore.api.BlobStoreListener;
 import org.sonatype.nexus.blobstore.api.BlobStoreMetrics;
 import org.sonatype.nexus.blobstore.file.FileOperations.StreamMetrics;
-import org.sonatype.nexus.common.collect.AutoClosableIterable;
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
 import org.sonatype.sisu.goodies.lifecycle.LifecycleSupport;
 
-import com.google.common.base.Throwables;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.RateLimiter;
 import org.joda.time.DateTime;
 
+import static com.codahale.metrics.MetricRegistry.name;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * A {@link BlobStore} that stores its content on the file system, and metadata in a {@link BlobMetadataStore}.
  *
+ * Deleted blobs are only marked for deletion, their space is reclaimed by {@link #compact(int, double,
+ * CompactionMonitor)}, that also reclaims blobs abandoned by failed or interrupted creation and orphaned content files.
+ *
+ * When {@link #CONTENT_ADDRESSED_KEY} attribute is set, the store is content addressed: a created blob having same
+ * content (by SHA1 hash and size) as an existing one is not kept, instead a reference is added to the existing blob,
+ * that is returned. Deleting such blob removes a reference, and the blob is deleted only once no references remain.
+ *
  * @since 3.0
  */
 public class FileBlobStore
@@ -50,6 +77,37 @@ public class FileBlobStore
 {
   public static final String BLOB_CONTENT_SUFFIX = ".blob";
 
+  /**
+   * Key of {@link BlobStoreConfiguration#getAttributes()} holding file blob store attributes.
+   */
+  public static final String CONFIG_KEY = "file";
+
+  /**
+   * Attribute enabling content addressed storage, with value {@code true}.
+   */
+  public static final String CONTENT_ADDRESSED_KEY = "contentAddressed";
+
+  public static final int DEFAULT_COMPACTION_BATCH_SIZE = 1000;
+
+  /**
+   * File in root directory holding the compaction checkpoint.
+   */
+  static final String COMPACTION_CHECKPOINT_FILE = "compaction.properties";
+
+  private static final String SWEEP_CHECKPOINT_KEY = "sweep.directory";
+
+  /**
+   * Count of reclaimed blobs after which the metadata store is compacted.
+   */
+  private static final long METADATA_COMPACTION_THRESHOLD = SystemPropertiesHelper.getLong(
+      FileBlobStore.class.getName() + ".metadataCompactionThreshold", 10000L);
+
+  /**
+   * Content files without metadata are considered orphaned only if not modified for this long (in milliseconds).
+   */
+  private static final long ORPHAN_MIN_AGE = SystemPropertiesHelper.getLong(
+      FileBlobStore.class.getName() + ".orphanMinAge", TimeUnit.HOURS.toMillis(1));
+
   private final Path root;
 
   private final LocationStrategy locationStrategy;
@@ -60,8 +118,25 @@ public class FileBlobStore
 
   private final BlobStoreConfiguration blobStoreConfiguration;
 
+  private final boolean contentAddressed;
+
   private volatile BlobStoreListener listener;
 
+  /**
+   * Blobs being created, to tell them apart from ones abandoned in {@link BlobState#CREATING} state.
+   */
+  private final Set<BlobId> creating = Sets.newConcurrentHashSet();
+
+  /**
+   * Guards {@link #creating} against compaction: creations share the lock while registering new blob, compaction
+   * holds it exclusively while looking up abandoned blobs.
+   */
+  private final ReadWriteLock creationLock = new ReentrantReadWriteLock();
+
+  private final Object compactionLock = new Object();
+
+  private final AtomicLong reclaimedSinceMetadataCompaction = new AtomicLong();
+
   public FileBlobStore(final Path root,
                        final LocationStrategy locationStrategy,
                        final FileOperations fileOperations,
@@ -73,6 +148,16 @@ public class FileBlobStore
     this.fileOperations = checkNotNull(fileOperations);
     this.metadataStore = checkNotNull(metadataStore);
     this.blobStoreConfiguration = checkNotNull(blobStoreConfiguration);
+    this.contentAddressed = isContentAddressed(blobStoreConfiguration);
+  }
+
+  private static boolean isContentAddressed(final BlobStoreConfiguration configuration) {
+    final Map<String, Map<String, Object>> attributes = configuration.getAttributes();
+    if (attributes == null || attributes.get(CONFIG_KEY) == null) {
+      return false;
+    }
+    final Object value = attributes.get(CONFIG_KEY).get(CONTENT_ADDRESSED_KEY);
+    return value != null && Boolean.parseBoolean(value.toString());
   }
 
   @Override
@@ -117,7 +202,14 @@ public class FileBlobStore
     try {
       // If the storing of bytes fails, we record a reminder to clean up afterwards
       final BlobMetadata metadata = new BlobMetadata(BlobState.CREATING, headers);
-      blobId = metadataStore.add(metadata);
+      creationLock.readLock().lock();
+      try {
+        blobId = metadataStore.add(metadata);
+        creating.add(blobId);
+      }
+      finally {
+        creationLock.readLock().unlock();
+      }
 
       final Path path = pathFor(blobId);
       log.debug("Writing blob {} to {}", blobId, path);
@@ -126,20 +218,52 @@ public class FileBlobStore
       final BlobMetrics metrics = new BlobMetrics(new DateTime(), streamMetrics.getSHA1(), streamMetrics.getSize());
       final FileBlob blob = new FileBlob(blobId, headers, path, metrics);
 
-      if (listener != null) {
-        listener.blobCreated(blob, "Blob: " + blobId + " written to: " + path);
-      }
-
       metadata.setMetrics(metrics);
       // Storing the content went fine, so we can now unmark this for deletion
       metadata.setBlobState(BlobState.ALIVE);
       metadataStore.update(blobId, metadata);
 
+      if (contentAddressed) {
+        final BlobId linkedId = metadataStore.link(blobId, metrics.getSHA1Hash(), metrics.getContentSize());
+        if (!linkedId.equals(blobId)) {
+          // same content is stored already, share it and discard the new copy
+          log.debug("Blob {} deduplicated to {}", blobId, linkedId);
+          fileOperations.delete(path);
+          metadataStore.delete(blobId);
+          return linked(linkedId, blobId);
+        }
+      }
+
+      if (listener != null) {
+        listener.blobCreated(blob, "Blob: " + blobId + " written to: " + path);
+      }
+
       return blob;
     }
     catch (IOException e) {
       throw new BlobStoreException(e, blobId);
     }
+    finally {
+      if (blobId != null) {
+        creating.remove(blobId);
+      }
+    }
+  }
+
+  /**
+   * Returns the existing blob a created blob was linked to, with its persisted headers and metrics.
+   */
+  private Blob linked(final BlobId linkedId, final BlobId blobId) {
+    final BlobMetadata metadata = metadataStore.get(linkedId);
+    if (metadata == null || !metadata.isAlive()) {
+      throw new BlobStoreException("Deduplicated blob " + blobId + " linked to missing blob " + linkedId, linkedId);
+    }
+    final Path path = pathFor(linkedId);
+    final FileBlob blob = new FileBlob(linkedId, metadata.getHeaders(), path, metadata.getMetrics());
+    if (listener != null) {
+      listener.blobCreated(blob, "Blob: " + blobId + " deduplicated to: " + linkedId + " at: " + path);
+    }
+    return blob;
   }
 
   @Nullable
@@ -181,6 +305,14 @@ public class FileBlobStore
       return false;
     }
 
+    if (contentAddressed) {
+      final long references = metadataStore.unlink(blobId);
+      if (references > 0) {
+        log.debug("Removed reference to blob {}, {} references remain", blobId, references);
+        return true;
+      }
+    }
+
     metadata.setBlobState(BlobState.MARKED_FOR_DELETION);
     // TODO: Handle concurrent modification of metadata
     metadataStore.update(blobId, metadata);
@@ -212,6 +344,7 @@ public class FileBlobStore
       }
 
       metadataStore.delete(blobId);
+      reclaimedSinceMetadataCompaction.incrementAndGet();
 
       return blobDeleted;
     }
@@ -244,28 +377,267 @@ public class FileBlobStore
           throw new BlobStoreException(e, null);
         }
       }
+
+      @Override
+      public long getDeduplicatedCount() {
+        return metadataStore.getDeduplicatedCount();
+      }
+
+      @Override
+      public long getDeduplicatedSize() {
+        return metadataStore.getDeduplicatedSize();
+      }
     };
   }
 
+  /**
+   * Compacts the blob store with default batch size and without throttling.
+   */
   @Override
   public void compact() {
-    log.debug("Compacting");
+    compact(DEFAULT_COMPACTION_BATCH_SIZE, 0, null);
+  }
 
-    try {
-      int count = 0;
-      try (AutoClosableIterable<BlobId> iter = metadataStore.findWithState(BlobState.MARKED_FOR_DELETION)) {
-        for (BlobId blobId : iter) {
+  /**
+   * Compacts the blob store incrementally, in batches of given size. A run hard deletes blobs marked for deletion,
+   * reclaims blobs abandoned in {@link BlobState#CREATING} state and sweeps content directories for orphaned files,
+   * that have no metadata. The sweep is resumed from the last completed directory of a stopped run. The metadata store
+   * itself is compacted only once enough blobs were reclaimed since its last compaction.
+   *
+   * @param batchSize      maximum count of blobs processed between checkpoints.
+   * @param blobsPerSecond maximum rate of processed blobs, not throttled if not positive.
+   * @param monitor        optional monitor consulted at each checkpoint, may stop the run.
+   */
+  public CompactionResult compact(final int batchSize,
+                                  final double blobsPerSecond,
+                                  @Nullable final CompactionMonitor monitor)
+  {
+    checkArgument(batchSize > 0, "Batch size must be positive");
+
+    final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate("nexus");
+    final String storeName = blobStoreConfiguration.getName();
+    final Compaction compaction = new Compaction(
+        batchSize, blobsPerSecond > 0 ? RateLimiter.create(blobsPerSecond) : null, monitor);
+
+    synchronized (compactionLock) {
+      log.debug("Compacting, batch size: {}, blobs per second: {}", batchSize, blobsPerSecond);
+      final Timer.Context ctx = metricRegistry.timer(name(FileBlobStore.class, storeName, "compaction")).time();
+      boolean complete = false;
+      try {
+        complete = deleteMarked(compaction) && reclaimAbandoned(compaction) && sweepOrphans(compaction);
+        if (complete && reclaimedSinceMetadataCompaction.get() >= METADATA_COMPACTION_THRESHOLD) {
+          log.debug("Compacting metadata");
+          metadataStore.compact();
+          reclaimedSinceMetadataCompaction.set(0);
+        }
+      }
+      catch (IOException e) {
+        throw new BlobStoreException(e, null);
+      }
+      finally {
+        compaction.result.finished(TimeUnit.NANOSECONDS.toMillis(ctx.stop()), complete);
+        metricRegistry.meter(name(FileBlobStore.class, storeName, "reclaimedBytes"))
+            .mark(compaction.result.getReclaimedBytes());
+      }
+      log.debug("Compacted: {}", compaction.result);
+      return compaction.result;
+    }
+  }
+
+  /**
+   * Hard deletes blobs marked for deletion.
+   */
+  private boolean deleteMarked(final Compaction compaction) {
+    BlobId after = null;
+    List<BlobId> batch;
+    do {
+      batch = metadataStore.findWithState(BlobState.MARKED_FOR_DELETION, after, compaction.batchSize);
+      for (BlobId blobId : batch) {
+        compaction.acquire();
+        final BlobMetadata metadata = metadataStore.get(blobId);
+        if (metadata != null && metadata.getBlobState() == BlobState.MARKED_FOR_DELETION) {
+          final long size = metadata.getMetrics() != null ? metadata.getMetrics().getContentSize() : 0;
           deleteHard(blobId);
-          count++;
+          compaction.result.deleted(size);
+        }
+        after = blobId;
+      }
+      if (!compaction.checkpoint()) {
+        return false;
+      }
+    }
+    while (batch.size() == compaction.batchSize);
+    return true;
+  }
+
+  /**
+   * Reclaims blobs left in {@link BlobState#CREATING} state by failed creation or crash, skipping the ones still
+   * being created.
+   */
+  private boolean reclaimAbandoned(final Compaction compaction) throws IOException {
+    BlobId after = null;
+    List<BlobId> batch;
+    do {
+      final List<BlobId> abandoned = new ArrayList<>();
+      creationLock.writeLock().lock();
+      try {
+        batch = metadataStore.findWithState(BlobState.CREATING, after, compaction.batchSize);
+        for (BlobId blobId : batch) {
+          if (!creating.contains(blobId)) {
+            abandoned.add(blobId);
+          }
+        }
+      }
+      finally {
+        creationLock.writeLock().unlock();
+      }
+      for (BlobId blobId : abandoned) {
+        compaction.acquire();
+        final Path path = pathFor(blobId);
+        final long size = sizeOf(path);
+        fileOperations.delete(path);
+        metadataStore.delete(blobId);
+        reclaimedSinceMetadataCompaction.incrementAndGet();
+        compaction.result.abandoned(size);
+        log.debug("Reclaimed abandoned blob {}", blobId);
+      }
+      if (!batch.isEmpty()) {
+        after = batch.get(batch.size() - 1);
+      }
+      if (!compaction.checkpoint()) {
+        return false;
+      }
+    }
+    while (batch.size() == compaction.batchSize);
+    return true;
+  }
+
+  /**
+   * Sweeps content directories in order for orphaned content files, resuming after the directory recorded in
+   * checkpoint. The checkpoint is cleared once all directories are swept.
+   */
+  private boolean sweepOrphans(final Compaction compaction) throws IOException {
+    if (!Files.isDirectory(root)) {
+      return true;
+    }
+    final String checkpoint = readSweepCheckpoint();
+    for (Map.Entry<String, Path> entry : contentDirectories().entrySet()) {
+      if (checkpoint != null && entry.getKey().compareTo(checkpoint) <= 0) {
+        continue;
+      }
+      sweepDirectory(entry.getValue(), compaction);
+      writeSweepCheckpoint(entry.getKey());
+      if (!compaction.checkpoint()) {
+        return false;
+      }
+    }
+    writeSweepCheckpoint(null);
+    return true;
+  }
+
+  /**
+   * Returns all directories below root, keyed and sorted by their relative path.
+   */
+  private TreeMap<String, Path> contentDirectories() throws IOException {
+    final TreeMap<String, Path> directories = new TreeMap<>();
+    Files.walkFileTree(root, new SimpleFileVisitor<Path>()
+    {
+      @Override
+      public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) {
+        if (!dir.equals(root)) {
+          directories.put(root.relativize(dir).toString(), dir);
+        }
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    return directories;
+  }
+
+  private void sweepDirectory(final Path directory, final Compaction compaction) throws IOException {
+    final long modifiedBefore = System.currentTimeMillis() - ORPHAN_MIN_AGE;
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + BLOB_CONTENT_SUFFIX)) {
+      for (Path file : files) {
+        final String filename = file.getFileName().toString();
+        final BlobId blobId = new BlobId(filename.substring(0, filename.length() - BLOB_CONTENT_SUFFIX.length()));
+        if (!file.equals(pathFor(blobId))) {
+          // not a content file of this store, or the blob-id can not be told from the filename
+          continue;
+        }
+        final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        if (!attributes.isRegularFile() || attributes.lastModifiedTime().toMillis() > modifiedBefore) {
+          continue;
+        }
+        compaction.acquire();
+        if (metadataStore.get(blobId) == null && fileOperations.delete(file)) {
+          compaction.result.orphaned(attributes.size());
+          log.debug("Deleted orphaned content file {}", file);
         }
       }
+    }
+  }
+
+  @Nullable
+  private String readSweepCheckpoint() throws IOException {
+    final Path file = root.resolve(COMPACTION_CHECKPOINT_FILE);
+    if (!Files.exists(file)) {
+      return null;
+    }
+    final Properties properties = new Properties();
+    try (InputStream in = Files.newInputStream(file)) {
+      properties.load(in);
+    }
+    return properties.getProperty(SWEEP_CHECKPOINT_KEY);
+  }
+
+  private void writeSweepCheckpoint(@Nullable final String directory) throws IOException {
+    final Properties properties = new Properties();
+    if (directory != null) {
+      properties.setProperty(SWEEP_CHECKPOINT_KEY, directory);
+    }
+    try (OutputStream out = Files.newOutputStream(root.resolve(COMPACTION_CHECKPOINT_FILE))) {
+      properties.store(out, null);
+    }
+  }
 
-      metadataStore.compact();
+  private static long sizeOf(final Path path) throws IOException {
+    try {
+      return Files.size(path);
+    }
+    catch (NoSuchFileException e) {
+      return 0;
+    }
+  }
 
-      log.debug("Deleted {} blobs", count);
+  /**
+   * State of a single compaction run.
+   */
+  private static class Compaction
+  {
+    private final int batchSize;
+
+    private final RateLimiter rateLimiter;
+
+    private final CompactionMonitor monitor;
+
+    private final CompactionResult result = new CompactionResult();
+
+    private Compaction(final int batchSize,
+                       @Nullable final RateLimiter rateLimiter,
+                       @Nullable final CompactionMonitor monitor)
+    {
+      this.batchSize = batchSize;
+      this.rateLimiter = rateLimiter;
+      this.monitor = monitor;
     }
-    catch (Exception e) {
-      throw Throwables.propagate(e);
+
+    private void acquire() {
+      if (rateLimiter != null) {
+        rateLimiter.acquire();
+      }
+    }
+
+    private boolean checkpoint() {
+      return monitor == null || monitor.proceed(result);
     }
   }
 
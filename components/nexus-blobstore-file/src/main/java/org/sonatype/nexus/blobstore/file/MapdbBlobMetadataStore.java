@@ -20,7 +20,9 @@ import java.io.ObjectOutput;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableSet;
 import java.util.Objects;
@@ -44,6 +46,7 @@ import org.mapdb.TxBlock;
 import org.mapdb.TxMaker;
 import org.mapdb.TxRollbackException;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static org.sonatype.nexus.blobstore.file.internal.ExternalizationHelper.readNullableLong;
@@ -115,6 +118,42 @@ public class MapdbBlobMetadataStore
     return db.getTreeSet("state_" + state.name());
   }
 
+  /**
+   * Index of linked blobs by their content key.
+   */
+  private HTreeMap<String, BlobId> contents(final DB db) {
+    return db.getHashMap("contents");
+  }
+
+  /**
+   * Reference counts of linked blobs.
+   */
+  private HTreeMap<BlobId, Long> references(final DB db) {
+    return db.getHashMap("references");
+  }
+
+  private Atomic.Long deduplicatedCount(final DB db) {
+    return db.getAtomicLong("deduplicated_count");
+  }
+
+  private Atomic.Long deduplicatedSize(final DB db) {
+    return db.getAtomicLong("deduplicated_size");
+  }
+
+  private static String contentKey(final String sha1, final long size) {
+    return sha1 + ':' + size;
+  }
+
+  /**
+   * Removes the reference count and content index entry of a blob.
+   */
+  private void unlink(final DB db, final BlobId id, final MetadataRecord record) {
+    references(db).remove(id);
+    if (record.sha1 != null && record.size != null) {
+      contents(db).remove(contentKey(record.sha1, record.size), id);
+    }
+  }
+
   /**
    * Metadata record for internal storage in MapDB.
    */
@@ -359,6 +398,7 @@ public class MapdbBlobMetadataStore
 
         // remove state
         states(db, prev.state).remove(id);
+        unlink(db, id, prev);
       }
     });
   }
@@ -402,6 +442,109 @@ public class MapdbBlobMetadataStore
     };
   }
 
+  @Override
+  public List<BlobId> findWithState(final BlobState state, @Nullable final BlobId after, final int limit) {
+    checkNotNull(state);
+    checkArgument(limit > 0, "Limit must be positive");
+    ensureStarted();
+
+    log.trace("Find with state: {}, after: {}, limit: {}", state, after, limit);
+
+    DB db = database.makeTx();
+    try {
+      final NavigableSet<BlobId> ids = states(db, state);
+      final List<BlobId> result = new ArrayList<>(Math.min(limit, 1024));
+      for (BlobId id : after == null ? ids : ids.tailSet(after, false)) {
+        result.add(id);
+        if (result.size() == limit) {
+          break;
+        }
+      }
+      return result;
+    }
+    finally {
+      db.close();
+    }
+  }
+
+  @Override
+  public BlobId link(final BlobId id, final String sha1, final long size) {
+    checkNotNull(id);
+    checkNotNull(sha1);
+    ensureStarted();
+
+    final String key = contentKey(sha1, size);
+    return database.execute(new Fun.Function1<BlobId, DB>()
+    {
+      @Override
+      public BlobId run(final DB db) {
+        final BlobId linked = contents(db).get(key);
+        if (linked != null && !linked.equals(id)) {
+          final MetadataRecord record = entries(db).get(linked);
+          if (record != null && record.state == BlobState.ALIVE) {
+            final Long count = references(db).get(linked);
+            references(db).put(linked, count == null ? 2L : count + 1);
+            deduplicatedCount(db).incrementAndGet();
+            deduplicatedSize(db).addAndGet(size);
+            log.trace("Link: {} -> {}", id, linked);
+            return linked;
+          }
+        }
+        contents(db).put(key, id);
+        references(db).put(id, 1L);
+        log.trace("Link: {} -> {}", key, id);
+        return id;
+      }
+    });
+  }
+
+  @Override
+  public long unlink(final BlobId id) {
+    checkNotNull(id);
+    ensureStarted();
+
+    return database.execute(new Fun.Function1<Long, DB>()
+    {
+      @Override
+      public Long run(final DB db) {
+        final Long count = references(db).get(id);
+        if (count != null && count > 1) {
+          references(db).put(id, count - 1);
+          return count - 1;
+        }
+        final MetadataRecord record = entries(db).get(id);
+        if (record != null) {
+          unlink(db, id, record);
+        }
+        return 0L;
+      }
+    });
+  }
+
+  @Override
+  public long getDeduplicatedCount() {
+    ensureStarted();
+    DB db = database.makeTx();
+    try {
+      return deduplicatedCount(db).get();
+    }
+    finally {
+      db.close();
+    }
+  }
+
+  @Override
+  public long getDeduplicatedSize() {
+    ensureStarted();
+    DB db = database.makeTx();
+    try {
+      return deduplicatedSize(db).get();
+    }
+    finally {
+      db.close();
+    }
+  }
+
   private File[] listFiles() {
     File[] files = file.getParentFile().listFiles();
     if (files == null) {
@@ -14,14 +14,21 @@ package org.sonatype.nexus.blobstore.file;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.sonatype.nexus.blobstore.api.Blob;
 import org.sonatype.nexus.blobstore.api.BlobId;
 import org.sonatype.nexus.blobstore.api.BlobMetrics;
 import org.sonatype.nexus.blobstore.api.BlobStore;
 import org.sonatype.nexus.blobstore.api.BlobStoreConfiguration;
+import org.sonatype.nexus.blobstore.api.BlobStoreListener;
 import org.sonatype.nexus.blobstore.file.FileOperations.StreamMetrics;
 import org.sonatype.sisu.litmus.testsupport.TestSupport;
 
@@ -37,7 +44,9 @@ import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -151,4 +160,177 @@ public class FileBlobStoreTest
     final boolean deleted = underTest.delete(fakeId);
     assertThat(deleted, is(equalTo(false)));
   }
+
+  @Test
+  public void compactionDeletesMarkedBlobsInBatches() throws Exception {
+    final BlobId id1 = new BlobId("id1");
+    final BlobId id2 = new BlobId("id2");
+    final BlobId id3 = new BlobId("id3");
+    when(metadataStore.findWithState(BlobState.MARKED_FOR_DELETION, null, 2)).thenReturn(Arrays.asList(id1, id2));
+    when(metadataStore.findWithState(BlobState.MARKED_FOR_DELETION, id2, 2)).thenReturn(Arrays.asList(id3));
+    for (BlobId id : Arrays.asList(id1, id2, id3)) {
+      final BlobMetadata metadata = new BlobMetadata(BlobState.MARKED_FOR_DELETION, new HashMap<String, String>());
+      metadata.setMetrics(new BlobMetrics(new DateTime(), "sha1", 10L));
+      when(metadataStore.get(id)).thenReturn(metadata);
+    }
+    when(locationStrategy.location(any(BlobId.class))).thenReturn("fakePath");
+
+    final CompactionResult result = underTest.compact(2, 0, null);
+
+    verify(metadataStore).delete(id1);
+    verify(metadataStore).delete(id2);
+    verify(metadataStore).delete(id3);
+    assertThat(result.getDeletedBlobs(), is(3L));
+    assertThat(result.getReclaimedBytes(), is(30L));
+    assertThat(result.isComplete(), is(true));
+  }
+
+  @Test
+  public void compactionReclaimsAbandonedBlobsAndOrphanedFiles() throws Exception {
+    final LocationStrategy strategy = new VolumeChapterLocationStrategy();
+    underTest.stop();
+    underTest = new FileBlobStore(root, strategy, new SimpleFileOperations(), metadataStore,
+        new BlobStoreConfiguration());
+    underTest.start();
+
+    final BlobId abandoned = new BlobId("0000000000000001");
+    final BlobId orphaned = new BlobId("0000000000000002");
+    final BlobId recent = new BlobId("0000000000000003");
+    final BlobId alive = new BlobId("0000000000000004");
+    final Path abandonedPath = writeContent(strategy, abandoned, 2);
+    final Path orphanedPath = writeContent(strategy, orphaned, 2);
+    final Path recentPath = writeContent(strategy, recent, 0);
+    final Path alivePath = writeContent(strategy, alive, 2);
+
+    when(metadataStore.findWithState(BlobState.CREATING, null, 10)).thenReturn(Collections.singletonList(abandoned));
+    when(metadataStore.get(alive)).thenReturn(new BlobMetadata(BlobState.ALIVE, new HashMap<String, String>()));
+
+    final CompactionResult result = underTest.compact(10, 0, null);
+
+    verify(metadataStore).delete(abandoned);
+    verify(metadataStore, never()).delete(orphaned);
+    assertThat(Files.exists(abandonedPath), is(false));
+    assertThat(Files.exists(orphanedPath), is(false));
+    assertThat(Files.exists(recentPath), is(true));
+    assertThat(Files.exists(alivePath), is(true));
+    assertThat(result.getAbandonedBlobs(), is(1L));
+    assertThat(result.getOrphanedFiles(), is(1L));
+    assertThat(result.getReclaimedBytes(), is(200L));
+    assertThat(result.isComplete(), is(true));
+  }
+
+  @Test
+  public void stoppedCompactionResumesFromCheckpoint() throws Exception {
+    final LocationStrategy strategy = new VolumeChapterLocationStrategy();
+    underTest.stop();
+    underTest = new FileBlobStore(root, strategy, new SimpleFileOperations(), metadataStore,
+        new BlobStoreConfiguration());
+    underTest.start();
+
+    final Path orphan1 = writeContent(strategy, new BlobId("0000000000000001"), 2);
+    final Path orphan2 = writeContent(strategy, new BlobId("0000000000000002"), 2);
+
+    // stop once the first content directory was swept
+    final CompactionResult stopped = underTest.compact(10, 0, new CompactionMonitor()
+    {
+      @Override
+      public boolean proceed(final CompactionResult progress) {
+        return progress.getOrphanedFiles() == 0;
+      }
+    });
+
+    assertThat(stopped.isComplete(), is(false));
+    assertThat(stopped.getOrphanedFiles(), is(1L));
+    assertThat(Files.exists(orphan1) ^ Files.exists(orphan2), is(true));
+
+    final CompactionResult resumed = underTest.compact(10, 0, null);
+
+    assertThat(resumed.isComplete(), is(true));
+    assertThat(resumed.getOrphanedFiles(), is(1L));
+    assertThat(Files.exists(orphan1), is(false));
+    assertThat(Files.exists(orphan2), is(false));
+  }
+
+  private void contentAddressed() throws Exception {
+    final BlobStoreConfiguration configuration = new BlobStoreConfiguration();
+    configuration.setAttributes(ImmutableMap.<String, Map<String, Object>>of(
+        FileBlobStore.CONFIG_KEY, ImmutableMap.<String, Object>of(FileBlobStore.CONTENT_ADDRESSED_KEY, true)));
+    underTest.stop();
+    underTest = new FileBlobStore(root, locationStrategy, fileOps, metadataStore, configuration);
+    underTest.start();
+  }
+
+  @Test
+  public void contentAddressedCreationLinksExistingContent() throws Exception {
+    contentAddressed();
+    final BlobStoreListener listener = mock(BlobStoreListener.class);
+    underTest.setBlobStoreListener(listener);
+
+    final BlobId newId = new BlobId("newId");
+    final BlobId existingId = new BlobId("existingId");
+    final InputStream inputStream = mock(InputStream.class);
+    when(metadataStore.add(any(BlobMetadata.class))).thenReturn(newId);
+    when(locationStrategy.location(newId)).thenReturn("newPath");
+    when(locationStrategy.location(existingId)).thenReturn("existingPath");
+    final Path newPath = root.resolve("newPath" + FileBlobStore.BLOB_CONTENT_SUFFIX);
+    when(fileOps.create(newPath, inputStream)).thenReturn(new StreamMetrics(200L, "sha1"));
+    when(metadataStore.link(newId, "sha1", 200L)).thenReturn(existingId);
+    final Map<String, String> existingHeaders = ImmutableMap.of(
+        BlobStore.BLOB_NAME_HEADER, "existing blob",
+        BlobStore.CREATED_BY_HEADER, "Jane did this"
+    );
+    final BlobMetadata existing = new BlobMetadata(BlobState.ALIVE, existingHeaders);
+    existing.setMetrics(new BlobMetrics(new DateTime(), "sha1", 200L));
+    when(metadataStore.get(existingId)).thenReturn(existing);
+
+    final Blob blob = underTest.create(inputStream, ImmutableMap.of(
+        BlobStore.BLOB_NAME_HEADER, "my blob",
+        BlobStore.CREATED_BY_HEADER, "John did this"
+    ));
+
+    assertThat(blob.getId(), is(existingId));
+    assertThat(blob.getHeaders(), is(existingHeaders));
+    assertThat(blob.getMetrics().getContentSize(), is(200L));
+    verify(fileOps).delete(newPath);
+    verify(metadataStore).delete(newId);
+    verify(listener).blobCreated(eq(blob), any(String.class));
+  }
+
+  @Test
+  public void deletingDoesNotUnlinkUnlessContentAddressed() {
+    final BlobId fakeId = new BlobId("fakeId");
+    final BlobMetadata metadata = mock(BlobMetadata.class);
+    when(metadataStore.get(fakeId)).thenReturn(metadata);
+    when(metadata.isAlive()).thenReturn(true);
+
+    assertThat(underTest.delete(fakeId), is(true));
+
+    verify(metadataStore, never()).unlink(fakeId);
+    verify(metadata).setBlobState(BlobState.MARKED_FOR_DELETION);
+  }
+
+  @Test
+  public void deletingSharedBlobRemovesReference() throws Exception {
+    contentAddressed();
+    final BlobId fakeId = new BlobId("fakeId");
+    final BlobMetadata metadata = mock(BlobMetadata.class);
+    when(metadataStore.get(fakeId)).thenReturn(metadata);
+    when(metadata.isAlive()).thenReturn(true);
+    when(metadataStore.unlink(fakeId)).thenReturn(1L);
+
+    assertThat(underTest.delete(fakeId), is(true));
+
+    verify(metadata, never()).setBlobState(BlobState.MARKED_FOR_DELETION);
+  }
+
+  private Path writeContent(final LocationStrategy strategy, final BlobId blobId, final int ageHours)
+      throws Exception
+  {
+    final Path path = root.resolve(strategy.location(blobId) + FileBlobStore.BLOB_CONTENT_SUFFIX);
+    Files.createDirectories(path.getParent());
+    Files.write(path, new byte[100]);
+    Files.setLastModifiedTime(path,
+        FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(ageHours)));
+    return path;
+  }
 }
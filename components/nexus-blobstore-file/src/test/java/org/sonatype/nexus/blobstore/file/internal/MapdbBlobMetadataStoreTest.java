@@ -16,6 +16,7 @@ import java.io.File;
 import java.util.List;
 
 import org.sonatype.nexus.blobstore.api.BlobId;
+import org.sonatype.nexus.blobstore.api.BlobMetrics;
 import org.sonatype.nexus.blobstore.file.BlobMetadata;
 import org.sonatype.nexus.blobstore.file.BlobMetadataStore;
 import org.sonatype.nexus.blobstore.file.BlobState;
@@ -25,6 +26,7 @@ import org.sonatype.sisu.litmus.testsupport.TestSupport;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import org.joda.time.DateTime;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -32,6 +34,7 @@ import org.junit.Test;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.emptyIterable;
+import static org.hamcrest.Matchers.is;
 
 /**
  * Tests for {@link MapdbBlobMetadataStore}.
@@ -142,6 +145,36 @@ public class MapdbBlobMetadataStoreTest
     underTest.compact();
   }
 
+  @Test
+  public void linkedContentReferenceCounting() throws Exception {
+    BlobId first = addAlive("abc", 10L);
+    BlobId second = addAlive("abc", 10L);
+    BlobId other = addAlive("abc", 20L);
+
+    assertThat(underTest.link(first, "abc", 10L), is(first));
+    assertThat(underTest.link(second, "abc", 10L), is(first));
+    assertThat(underTest.link(other, "abc", 20L), is(other));
+    assertThat(underTest.getDeduplicatedCount(), is(1L));
+    assertThat(underTest.getDeduplicatedSize(), is(10L));
+
+    assertThat(underTest.unlink(first), is(1L));
+    assertThat(underTest.unlink(first), is(0L));
+
+    // content without references is linked anew
+    assertThat(underTest.link(second, "abc", 10L), is(second));
+
+    // deleted blob is unlinked
+    underTest.delete(other);
+    BlobId replacement = addAlive("abc", 20L);
+    assertThat(underTest.link(replacement, "abc", 20L), is(replacement));
+  }
+
+  private BlobId addAlive(final String sha1, final long size) {
+    BlobMetadata md = new BlobMetadata(BlobState.ALIVE, ImmutableMap.of("foo", "bar"));
+    md.setMetrics(new BlobMetrics(new DateTime(), sha1, size));
+    return underTest.add(md);
+  }
+
   private void dumpStates() throws Exception {
     for (BlobState state : BlobState.values()) {
       log(state);
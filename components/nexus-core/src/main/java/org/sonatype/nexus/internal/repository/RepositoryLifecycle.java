@@ -21,6 +21,7 @@ import org.sonatype.nexus.proxy.events.NexusStartedEvent;
 import org.sonatype.nexus.proxy.events.NexusStoppedEvent;
 import org.sonatype.nexus.repository.config.ConfigurationStore;
 import org.sonatype.nexus.repository.manager.RepositoryManager;
+import org.sonatype.nexus.repository.search.SearchService;
 import org.sonatype.sisu.goodies.eventbus.EventBus;
 import org.sonatype.sisu.goodies.lifecycle.LifecycleManagerImpl;
 
@@ -45,17 +46,21 @@ public class RepositoryLifecycle
 
   private final Provider<ConfigurationStore> configurationStore;
 
+  private final Provider<SearchService> searchService;
+
   private final Provider<RepositoryManager> repositoryManager;
 
   @Inject
   public RepositoryLifecycle(final EventBus eventBus,
                              final Provider<BlobStoreManager> blobStoreManager,
                              final Provider<ConfigurationStore> configurationStore,
+                             final Provider<SearchService> searchService,
                              final Provider<RepositoryManager> repositoryManager)
   {
     this.eventBus = checkNotNull(eventBus);
     this.blobStoreManager = checkNotNull(blobStoreManager);
     this.configurationStore = checkNotNull(configurationStore);
+    this.searchService = checkNotNull(searchService);
     this.repositoryManager = checkNotNull(repositoryManager);
 
     eventBus.register(this);
@@ -65,6 +70,7 @@ public class RepositoryLifecycle
   public void on(final NexusStartedEvent event) throws Exception {
     add(blobStoreManager.get());
     add(configurationStore.get());
+    add(searchService.get());
     add(repositoryManager.get());
     start();
   }
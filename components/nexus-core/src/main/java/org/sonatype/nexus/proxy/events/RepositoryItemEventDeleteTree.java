@@ -0,0 +1,69 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.events;
+
+import java.util.List;
+
+import org.sonatype.nexus.proxy.item.StorageCollectionItem;
+import org.sonatype.nexus.proxy.item.StorageItem;
+import org.sonatype.nexus.proxy.repository.Repository;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The event fired once on delete of a collection, announcing the deletion of the whole tree below it. Subscribers
+ * interested in the tree as a whole, like caches keyed by path, should handle this event instead of the per item
+ * {@link RepositoryItemEventDeleteItem} events. Per item detail is obtained lazily by {@link #getItems()}, which walks
+ * the tree once on first invocation, shared by all subscribers. This event is fired before actual deletion is made,
+ * hence {@link #getItems()} must be invoked while the event is being dispatched, not by asynchronous subscribers.
+ *
+ * @since 3.0
+ */
+public class RepositoryItemEventDeleteTree
+    extends RepositoryEvent
+{
+  private final StorageCollectionItem root;
+
+  private final Supplier<List<StorageItem>> items;
+
+  public RepositoryItemEventDeleteTree(final Repository repository,
+                                       final StorageCollectionItem root,
+                                       final Supplier<List<StorageItem>> items)
+  {
+    super(repository);
+    this.root = checkNotNull(root);
+    this.items = Suppliers.memoize(checkNotNull(items));
+  }
+
+  /**
+   * Returns the collection being deleted.
+   */
+  public StorageCollectionItem getRoot() {
+    return root;
+  }
+
+  /**
+   * Returns all non-collection items of the tree being deleted.
+   */
+  public List<StorageItem> getItems() {
+    return items.get();
+  }
+
+  public String toString() {
+    return String.format("%s(sender=%s, %s)", getClass().getSimpleName(), getRepository().getId(),
+        root.getRepositoryItemUid().toString());
+  }
+}
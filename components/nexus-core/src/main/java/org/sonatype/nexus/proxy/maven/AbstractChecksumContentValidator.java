@@ -12,25 +12,63 @@
  */
 package org.sonatype.nexus.proxy.maven;
 
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.sonatype.nexus.proxy.LocalStorageException;
 import org.sonatype.nexus.proxy.ResourceStoreRequest;
 import org.sonatype.nexus.proxy.events.RepositoryItemValidationEvent;
 import org.sonatype.nexus.proxy.item.AbstractStorageItem;
-import org.sonatype.nexus.proxy.repository.ItemContentValidator;
+import org.sonatype.nexus.proxy.item.AbstractWrappingContentLocator;
+import org.sonatype.nexus.proxy.item.ContentLocator;
+import org.sonatype.nexus.proxy.item.StorageFileItem;
+import org.sonatype.nexus.proxy.repository.InvalidItemContentException;
 import org.sonatype.nexus.proxy.repository.ProxyRepository;
+import org.sonatype.nexus.proxy.repository.StreamingItemContentValidator;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 
 public abstract class AbstractChecksumContentValidator
     extends ComponentSupport
-    implements ItemContentValidator
+    implements StreamingItemContentValidator
 {
+  /**
+   * Key of item context entry holding the {@link Future} of remote hash, when it is fetched concurrently with the
+   * item content.
+   */
+  private static final String CTX_REMOTE_HASH = AbstractChecksumContentValidator.class.getName() + ".remoteHash";
 
   public AbstractChecksumContentValidator() {
     super();
   }
 
+  @Override
+  public void prepareRemoteItemContentValidation(final ProxyRepository proxy, final ResourceStoreRequest req,
+                                                 final String baseUrl,
+                                                 final AbstractStorageItem item,
+                                                 final List<RepositoryItemValidationEvent> events)
+      throws LocalStorageException
+  {
+    final ChecksumPolicy checksumPolicy = getEffectiveChecksumPolicy(proxy, req, item);
+    if (checksumPolicy == null || !checksumPolicy.shouldCheckChecksum() || !(item instanceof StorageFileItem)) {
+      return;
+    }
+
+    final Future<RemoteHashResponse> remoteHash = prefetchRemoteHash(item, proxy, baseUrl);
+    if (remoteHash == null) {
+      return;
+    }
+    item.getItemContext().put(CTX_REMOTE_HASH, remoteHash);
+
+    final StorageFileItem file = (StorageFileItem) item;
+    file.setContentLocator(
+        new ValidatingContentLocator(file.getContentLocator(), proxy, item, checksumPolicy, remoteHash, events));
+  }
+
   @Override
   public boolean isRemoteItemContentValid(final ProxyRepository proxy, final ResourceStoreRequest req,
                                           final String baseUrl,
@@ -38,69 +76,115 @@ public abstract class AbstractChecksumContentValidator
                                           final List<RepositoryItemValidationEvent> events)
       throws LocalStorageException
   {
-    ChecksumPolicy checksumPolicy = getChecksumPolicy(proxy, item);
+    final ChecksumPolicy checksumPolicy = getEffectiveChecksumPolicy(proxy, req, item);
+    if (checksumPolicy == null || !checksumPolicy.shouldCheckChecksum()) {
+      return true;
+    }
 
-    final ChecksumPolicy requestChecksumPolicy =
-        (ChecksumPolicy) req.getRequestContext().get(ChecksumPolicy.REQUEST_CHECKSUM_POLICY_KEY);
-    if (requestChecksumPolicy != null) {
-      // found, it overrides the repository-set checksum policy then
-      checksumPolicy = requestChecksumPolicy;
+    final RemoteHashResponse remoteHash;
+    @SuppressWarnings("unchecked")
+    final Future<RemoteHashResponse> prefetched = (Future<RemoteHashResponse>) item.getItemContext()
+        .get(CTX_REMOTE_HASH);
+    if (prefetched != null) {
+      try {
+        remoteHash = getPrefetchedRemoteHash(prefetched);
+      }
+      catch (IOException e) {
+        throw new LocalStorageException(e);
+      }
+      storeRemoteHash(proxy, item, remoteHash);
+    }
+    else {
+      remoteHash = retrieveRemoteHash(item, proxy, baseUrl);
     }
 
-    if (checksumPolicy == null || !checksumPolicy.shouldCheckChecksum()) {
+    final String localHash = remoteHash == null ? null : retrieveLocalHash(item, remoteHash.getInspector());
+    final String msg = validate(item, checksumPolicy, remoteHash, localHash);
+    if (msg == null) {
+      // remote hash exists and matches item content
       return true;
     }
 
-    RemoteHashResponse remoteHash = retrieveRemoteHash(item, proxy, baseUrl);
+    final boolean contentValid = isContentValid(checksumPolicy, remoteHash, localHash);
+    if (!contentValid) {
+      log.debug("Validation failed due: " + msg);
+    }
 
-    // let compiler make sure I did not forget to populate validation results
-    String msg;
-    boolean contentValid;
+    events.add(newChechsumFailureEvent(proxy, item, msg));
 
-    if (remoteHash == null && ChecksumPolicy.STRICT.equals(checksumPolicy)) {
-      msg =
-          "The artifact " + item.getPath() + " has no remote checksum in repository " + item.getRepositoryId()
-              + "! The checksumPolicy of repository forbids downloading of it.";
+    cleanup(proxy, remoteHash, contentValid);
 
-      contentValid = false;
+    return contentValid;
+  }
+
+  /**
+   * Returns the message describing the outcome of validation, or {@code null} if remote hash exists and matches the
+   * item content.
+   */
+  private String validate(final AbstractStorageItem item, final ChecksumPolicy checksumPolicy,
+                          final RemoteHashResponse remoteHash, final String localHash)
+  {
+    if (remoteHash == null && ChecksumPolicy.STRICT.equals(checksumPolicy)) {
+      return "The artifact " + item.getPath() + " has no remote checksum in repository " + item.getRepositoryId()
+          + "! The checksumPolicy of repository forbids downloading of it.";
     }
     else if (remoteHash == null) {
-      msg =
-          "Warning, the artifact " + item.getPath() + " has no remote checksum in repository "
-              + item.getRepositoryId() + "!";
-
-      contentValid = true; // policy is STRICT_IF_EXIST or WARN
+      return "Warning, the artifact " + item.getPath() + " has no remote checksum in repository "
+          + item.getRepositoryId() + "!";
     }
-    else if (remoteHash.getRemoteHash().equals(retrieveLocalHash(item, remoteHash.getInspector()))) {
-      // remote hash exists and matches item content
-      return true;
+    else if (remoteHash.getRemoteHash().equals(localHash)) {
+      return null;
     }
     else if (ChecksumPolicy.WARN.equals(checksumPolicy)) {
-      msg =
-          "Warning, the artifact " + item.getPath() + " and it's remote checksums does not match in repository "
-              + item.getRepositoryId() + "!";
-
-      contentValid = true;
+      return "Warning, the artifact " + item.getPath() + " and it's remote checksums does not match in repository "
+          + item.getRepositoryId() + "!";
     }
     else
     // STRICT or STRICT_IF_EXISTS
     {
-      msg =
-          "The artifact " + item.getPath() + " and it's remote checksums does not match in repository "
-              + item.getRepositoryId() + "! The checksumPolicy of repository forbids downloading of it.";
-
-      contentValid = false;
+      return "The artifact " + item.getPath() + " and it's remote checksums does not match in repository "
+          + item.getRepositoryId() + "! The checksumPolicy of repository forbids downloading of it.";
     }
+  }
 
-    if (!contentValid) {
-      log.debug("Validation failed due: " + msg);
+  private boolean isContentValid(final ChecksumPolicy checksumPolicy, final RemoteHashResponse remoteHash,
+                                 final String localHash)
+  {
+    if (remoteHash == null) {
+      // policy is STRICT_IF_EXIST or WARN are fine without remote hash
+      return !ChecksumPolicy.STRICT.equals(checksumPolicy);
     }
+    return ChecksumPolicy.WARN.equals(checksumPolicy) || remoteHash.getRemoteHash().equals(localHash);
+  }
 
-    events.add(newChechsumFailureEvent(proxy, item, msg));
+  private ChecksumPolicy getEffectiveChecksumPolicy(final ProxyRepository proxy, final ResourceStoreRequest req,
+                                                    final AbstractStorageItem item)
+      throws LocalStorageException
+  {
+    ChecksumPolicy checksumPolicy = getChecksumPolicy(proxy, item);
 
-    cleanup(proxy, remoteHash, contentValid);
+    final ChecksumPolicy requestChecksumPolicy =
+        (ChecksumPolicy) req.getRequestContext().get(ChecksumPolicy.REQUEST_CHECKSUM_POLICY_KEY);
+    if (requestChecksumPolicy != null) {
+      // found, it overrides the repository-set checksum policy then
+      checksumPolicy = requestChecksumPolicy;
+    }
+    return checksumPolicy;
+  }
 
-    return contentValid;
+  private RemoteHashResponse getPrefetchedRemoteHash(final Future<RemoteHashResponse> remoteHash)
+      throws IOException
+  {
+    try {
+      return remoteHash.get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for remote hash");
+    }
+    catch (ExecutionException e) {
+      throw new IOException("Could not retrieve remote hash", e.getCause());
+    }
   }
 
   protected String retrieveLocalHash(AbstractStorageItem item, String inspector) {
@@ -114,6 +198,27 @@ public abstract class AbstractChecksumContentValidator
                                                            String baseUrl)
       throws LocalStorageException;
 
+  /**
+   * Starts retrieving the remote hash of a remote item that is about to be cached, to have it ready by the time its
+   * content is fully read. Returns {@code null} if not supported, in which case remote hash is retrieved using
+   * {@link #retrieveRemoteHash(AbstractStorageItem, ProxyRepository, String)} once the item is cached.
+   */
+  protected Future<RemoteHashResponse> prefetchRemoteHash(AbstractStorageItem item, ProxyRepository proxy,
+                                                          String baseUrl)
+      throws LocalStorageException
+  {
+    return null;
+  }
+
+  /**
+   * Persists the prefetched remote hash (that might be {@code null}, if remote has none) of cached item.
+   */
+  protected void storeRemoteHash(ProxyRepository proxy, AbstractStorageItem item, RemoteHashResponse remoteHash)
+      throws LocalStorageException
+  {
+    // nothing
+  }
+
   protected abstract ChecksumPolicy getChecksumPolicy(ProxyRepository proxy, AbstractStorageItem item)
       throws LocalStorageException;
 
@@ -123,4 +228,68 @@ public abstract class AbstractChecksumContentValidator
     return new MavenChecksumContentValidationEventFailed(proxy, item, msg);
   }
 
-}
\ No newline at end of file
+  // ==
+
+  /**
+   * Wraps the remote content, and when it is closed after being fully read, compares the digest calculated by local
+   * storage while storing it to the prefetched remote hash. Invalid content is rejected by throwing
+   * {@link InvalidItemContentException}, before local storage commits it. Content found valid, or accepted with a
+   * warning, is validated again (without any remote access nor reading the content) once cached, as usual.
+   */
+  private class ValidatingContentLocator
+      extends AbstractWrappingContentLocator
+  {
+    private final ProxyRepository proxy;
+
+    private final AbstractStorageItem item;
+
+    private final ChecksumPolicy checksumPolicy;
+
+    private final Future<RemoteHashResponse> remoteHash;
+
+    private final List<RepositoryItemValidationEvent> events;
+
+    private ValidatingContentLocator(final ContentLocator content, final ProxyRepository proxy,
+                                     final AbstractStorageItem item, final ChecksumPolicy checksumPolicy,
+                                     final Future<RemoteHashResponse> remoteHash,
+                                     final List<RepositoryItemValidationEvent> events)
+    {
+      super(content);
+      this.proxy = proxy;
+      this.item = item;
+      this.checksumPolicy = checksumPolicy;
+      this.remoteHash = remoteHash;
+      this.events = events;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+      return new FilterInputStream(getTarget().getContent())
+      {
+        @Override
+        public void close() throws IOException {
+          super.close();
+          validate();
+        }
+      };
+    }
+
+    private void validate() throws IOException {
+      // digests are calculated by local storage while storing, and are present only if content was fully read
+      if (!item.getItemContext().containsKey(StorageFileItem.DIGEST_SHA1_KEY, false)) {
+        return;
+      }
+      final RemoteHashResponse response = getPrefetchedRemoteHash(remoteHash);
+      final String localHash = response == null ? null
+          : (String) item.getItemContext().get(response.getInspector(), false);
+      if (isContentValid(checksumPolicy, response, localHash)) {
+        return;
+      }
+      final String msg = AbstractChecksumContentValidator.this.validate(item, checksumPolicy, response, localHash);
+      log.debug("Validation failed due: " + msg);
+      events.add(newChechsumFailureEvent(proxy, item, msg));
+      cleanup(proxy, response, false);
+      throw new InvalidItemContentException(msg);
+    }
+  }
+}
@@ -13,7 +13,10 @@
 package org.sonatype.nexus.proxy.maven;
 
 import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
+import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
@@ -33,8 +36,11 @@ import org.sonatype.nexus.proxy.item.StorageItem;
 import org.sonatype.nexus.proxy.item.StringContentLocator;
 import org.sonatype.nexus.proxy.repository.ItemContentValidator;
 import org.sonatype.nexus.proxy.repository.ProxyRepository;
+import org.sonatype.nexus.proxy.repository.threads.ThreadPoolManager;
 import org.sonatype.nexus.proxy.storage.UnsupportedStorageOperationException;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
 /**
  * Maven checksum content validator.
  *
@@ -80,6 +86,13 @@ public class ChecksumContentValidator
    */
   public static final String ATTR_NO_REMOTE_MD5 = "remote.no-md5";
 
+  private final ThreadPoolManager threadPoolManager;
+
+  @Inject
+  public ChecksumContentValidator(final ThreadPoolManager threadPoolManager) {
+    this.threadPoolManager = checkNotNull(threadPoolManager);
+  }
+
   @Override
   protected void cleanup(ProxyRepository proxy, RemoteHashResponse remoteHash, boolean contentValid)
       throws LocalStorageException
@@ -160,6 +173,78 @@ public class ChecksumContentValidator
     return response;
   }
 
+  /**
+   * Fetches the remote SHA1 (or MD5 if no SHA1) of artifact using repository thread pool, so it is transferred
+   * while the artifact content is being cached. No locks are taken, and no attributes are stored here, as the
+   * artifact is being cached under exclusive lock by the requesting thread, see
+   * {@link #storeRemoteHash(ProxyRepository, AbstractStorageItem, RemoteHashResponse)}.
+   */
+  @Override
+  protected Future<RemoteHashResponse> prefetchRemoteHash(final AbstractStorageItem item,
+                                                          final ProxyRepository proxy,
+                                                          final String baseUrl)
+  {
+    return threadPoolManager.getRepositoryThreadPool(proxy).submit(new Callable<RemoteHashResponse>()
+    {
+      @Override
+      public RemoteHashResponse call() throws Exception {
+        final ResourceStoreRequest request = new ResourceStoreRequest(item);
+        final String path = item.getRepositoryItemUid().getPath();
+        // we prefer SHA1 ...
+        RemoteHashResponse response = doFetchRemoteHash(proxy, request, item, path + SUFFIX_SHA1,
+            DigestCalculatingInspector.DIGEST_SHA1_KEY);
+        if (response == null) {
+          // ... but MD5 will do too
+          response = doFetchRemoteHash(proxy, request, item, path + SUFFIX_MD5,
+              DigestCalculatingInspector.DIGEST_MD5_KEY);
+        }
+        if (response == null) {
+          log.debug("Item checksums (SHA1, MD5) remotely unavailable " + item.getRepositoryItemUid());
+        }
+        return response;
+      }
+    });
+  }
+
+  @Override
+  protected void storeRemoteHash(final ProxyRepository proxy, final AbstractStorageItem item,
+                                 final RemoteHashResponse remoteHash)
+      throws LocalStorageException
+  {
+    try {
+      if (remoteHash != null && DigestCalculatingInspector.DIGEST_SHA1_KEY.equals(remoteHash.getInspector())) {
+        doStoreChechsumItem(proxy, item, ATTR_REMOTE_SHA1, ATTR_NO_REMOTE_SHA1, remoteHash.getRemoteHash());
+      }
+      else {
+        doStoreChechsumItem(proxy, item, ATTR_REMOTE_SHA1, ATTR_NO_REMOTE_SHA1, null);
+        doStoreChechsumItem(proxy, item, ATTR_REMOTE_MD5, ATTR_NO_REMOTE_MD5,
+            remoteHash == null ? null : remoteHash.getRemoteHash());
+      }
+    }
+    catch (IOException e) {
+      throw new LocalStorageException(e);
+    }
+  }
+
+  private static RemoteHashResponse doFetchRemoteHash(final ProxyRepository proxy,
+                                                      final ResourceStoreRequest request,
+                                                      final StorageItem artifact, final String hashPath,
+                                                      final String inspector)
+      throws IOException
+  {
+    request.pushRequestPath(hashPath);
+    try {
+      final String hash = fetchRemoteHash(proxy, request);
+      if (hash != null) {
+        return new RemoteHashResponse(inspector, hash, newHashItem(proxy, request, artifact, hash));
+      }
+      return null;
+    }
+    finally {
+      request.popRequestPath();
+    }
+  }
+
   private boolean isChecksum(String path) {
     return path.endsWith(SUFFIX_SHA1) || path.endsWith(SUFFIX_MD5);
   }
@@ -200,22 +285,7 @@ public class ChecksumContentValidator
 
       String hash = attributes.get(attrname);
       if (hash == null || request.isRequestAsExpired()) {
-        try {
-          final StorageFileItem remoteItem =
-              (StorageFileItem) proxy.getRemoteStorage().retrieveItem(proxy, request, proxy.getRemoteUrl());
-          hash = MUtils.readDigestFromFileItem(remoteItem); // closes http input stream
-        }
-        catch (ItemNotFoundException e) {
-          // fall through
-        }
-        catch (RemoteAccessException e) {
-          // fall through
-        }
-        catch (RemoteStorageException e) {
-          // this is (potentially) transient network or remote server problem will be cached
-          // there is no automatic retry for this hash time
-          // either expire the artifact or request the hash asExpired to retry
-        }
+        hash = fetchRemoteHash(proxy, request);
 
         doStoreChechsumItem(proxy, artifact, attrname, noattrname, hash);
       }
@@ -235,6 +305,32 @@ public class ChecksumContentValidator
     }
   }
 
+  /**
+   * Retrieves the hash file on request path from remote storage, and returns the hash it contains, or {@code null}
+   * if not present or not retrievable.
+   */
+  private static String fetchRemoteHash(final ProxyRepository proxy, final ResourceStoreRequest request)
+      throws IOException
+  {
+    try {
+      final StorageFileItem remoteItem =
+          (StorageFileItem) proxy.getRemoteStorage().retrieveItem(proxy, request, proxy.getRemoteUrl());
+      return MUtils.readDigestFromFileItem(remoteItem); // closes http input stream
+    }
+    catch (ItemNotFoundException e) {
+      // fall through
+    }
+    catch (RemoteAccessException e) {
+      // fall through
+    }
+    catch (RemoteStorageException e) {
+      // this is (potentially) transient network or remote server problem will be cached
+      // there is no automatic retry for this hash time
+      // either expire the artifact or request the hash asExpired to retry
+    }
+    return null;
+  }
+
   public static void doStoreSHA1(ProxyRepository proxy, StorageItem artifact, StorageFileItem hash)
       throws LocalStorageException
   {
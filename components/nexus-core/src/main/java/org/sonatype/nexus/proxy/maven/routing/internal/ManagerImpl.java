@@ -16,8 +16,9 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -28,11 +29,13 @@ import javax.inject.Provider;
 import javax.inject.Singleton;
 
 import org.sonatype.nexus.SystemStatus;
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
 import org.sonatype.nexus.configuration.ApplicationConfiguration;
 import org.sonatype.nexus.proxy.access.Action;
 import org.sonatype.nexus.proxy.events.NexusStartedEvent;
 import org.sonatype.nexus.proxy.events.NexusStoppedEvent;
 import org.sonatype.nexus.proxy.events.RepositoryItemEvent;
+import org.sonatype.nexus.proxy.events.RepositoryRegistryEventRemove;
 import org.sonatype.nexus.proxy.item.RepositoryItemUidLock;
 import org.sonatype.nexus.proxy.item.StorageFileItem;
 import org.sonatype.nexus.proxy.item.StorageItem;
@@ -78,11 +81,15 @@ import org.sonatype.sisu.goodies.common.ComponentSupport;
 import org.sonatype.sisu.goodies.common.SimpleFormat;
 import org.sonatype.sisu.goodies.eventbus.EventBus;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
 import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.eventbus.AllowConcurrentEvents;
 import com.google.common.eventbus.Subscribe;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -121,6 +128,18 @@ public class ManagerImpl
     extends ComponentSupport
     implements Manager
 {
+  /**
+   * Count of updater threads, hence the count of discoveries that may run in parallel.
+   */
+  private static final int UPDATER_THREADS = SystemPropertiesHelper.getInteger(
+      Config.class.getName() + ".updaterThreads", 5);
+
+  /**
+   * Count of remote discoveries that may run in parallel against same remote host.
+   */
+  private static final int REMOTE_HOST_CONCURRENCY = SystemPropertiesHelper.getInteger(
+      Config.class.getName() + ".remoteHostConcurrency", 2);
+
   private final EventBus eventBus;
 
   private final Provider<SystemStatus> systemStatusProvider;
@@ -154,6 +173,13 @@ public class ManagerImpl
    */
   private final ConstrainedExecutor constrainedExecutor;
 
+  /**
+   * Limits concurrent remote discoveries per remote host, as proxies usually share few upstream hosts.
+   */
+  private final RemoteHostThrottle remoteHostThrottle;
+
+  private final MetricRegistry metricRegistry;
+
   /**
    * Da constructor.
    */
@@ -174,10 +200,12 @@ public class ManagerImpl
     this.remoteContentDiscoverer = checkNotNull(remoteContentDiscoverer);
     this.quickRemoteStrategy = checkNotNull(quickRemoteStrategy);
     final ScheduledThreadPoolExecutor target =
-        new ScheduledThreadPoolExecutor(5, new NexusThreadFactory("ar", "AR-Updater"),
+        new ScheduledThreadPoolExecutor(UPDATER_THREADS, new NexusThreadFactory("ar", "AR-Updater"),
             new ThreadPoolExecutor.AbortPolicy());
     this.executor = NexusScheduledExecutorService.forFixedSubject(target, FakeAlmightySubject.TASK_SUBJECT);
     this.constrainedExecutor = new ConstrainedExecutorImpl(executor);
+    this.remoteHostThrottle = new RemoteHostThrottle(REMOTE_HOST_CONCURRENCY);
+    this.metricRegistry = SharedMetricRegistries.getOrCreate("nexus");
     // register event dispatcher
     this.eventDispatcher = new EventDispatcher(this);
     this.eventBus.register(this);
@@ -275,7 +303,8 @@ public class ManagerImpl
    */
   protected void mayUpdateAllProxyPrefixFiles() {
     log.trace("mayUpdateAllProxyPrefixFiles started");
-    for (MavenRepository mavenRepository : repositoryRegistry.getRepositoriesWithFacet(MavenRepository.class)) {
+    for (MavenRepository mavenRepository : interleaveByRemoteHost(
+        repositoryRegistry.getRepositoriesWithFacet(MavenRepository.class))) {
       if (isMavenRepositorySupported(mavenRepository)) {
         try {
           final FilePrefixSource prefixSource = getPrefixSourceFor(mavenRepository);
@@ -304,6 +333,39 @@ public class ManagerImpl
     }
   }
 
+  /**
+   * Orders repositories so that non-proxies come first, followed by proxies taken round-robin by their remote host.
+   * This way, the updater threads are spread across remote hosts, instead of all queueing on throttle of same host.
+   */
+  @VisibleForTesting
+  static List<MavenRepository> interleaveByRemoteHost(final List<MavenRepository> mavenRepositories) {
+    final List<MavenRepository> result = Lists.newArrayListWithCapacity(mavenRepositories.size());
+    final Map<String, List<MavenRepository>> proxiesByHost = new LinkedHashMap<String, List<MavenRepository>>();
+    for (MavenRepository mavenRepository : mavenRepositories) {
+      final MavenProxyRepository mavenProxyRepository = mavenRepository.adaptToFacet(MavenProxyRepository.class);
+      if (mavenProxyRepository == null || mavenProxyRepository.getRemoteUrl() == null) {
+        result.add(mavenRepository);
+      }
+      else {
+        final String host = RemoteHostThrottle.hostOf(mavenProxyRepository.getRemoteUrl());
+        List<MavenRepository> proxies = proxiesByHost.get(host);
+        if (proxies == null) {
+          proxies = Lists.newArrayList();
+          proxiesByHost.put(host, proxies);
+        }
+        proxies.add(mavenRepository);
+      }
+    }
+    for (int i = 0; result.size() < mavenRepositories.size(); i++) {
+      for (List<MavenRepository> proxies : proxiesByHost.values()) {
+        if (i < proxies.size()) {
+          result.add(proxies.get(i));
+        }
+      }
+    }
+    return result;
+  }
+
   /**
    * Method meant to be invoked on regular periods (like hourly, as we defined "resolution" of prefix list update
    * period in hours too), and will perform prefix list update on proxy repository only if needed (prefix list is
@@ -573,12 +635,21 @@ public class ManagerImpl
     final DiscoveryConfig config = getRemoteDiscoveryConfig(mavenProxyRepository);
     if (config.isEnabled()) {
       final DiscoveryResult<MavenProxyRepository> discoveryResult;
-      if (null == remoteStrategies) {
-        discoveryResult = remoteContentDiscoverer.discoverRemoteContent(mavenProxyRepository);
+      final String remoteUrl = mavenProxyRepository.getRemoteUrl();
+      remoteHostThrottle.acquire(remoteUrl);
+      final Timer.Context timer = metricRegistry.timer(discoveryTimerName(mavenProxyRepository.getId())).time();
+      try {
+        if (null == remoteStrategies) {
+          discoveryResult = remoteContentDiscoverer.discoverRemoteContent(mavenProxyRepository);
+        }
+        else {
+          discoveryResult =
+              remoteContentDiscoverer.discoverRemoteContent(mavenProxyRepository, remoteStrategies);
+        }
       }
-      else {
-        discoveryResult =
-            remoteContentDiscoverer.discoverRemoteContent(mavenProxyRepository, remoteStrategies);
+      finally {
+        timer.stop();
+        remoteHostThrottle.release(remoteUrl);
       }
 
       log.debug("Results of {} remote discovery: {}", mavenProxyRepository,
@@ -652,8 +723,9 @@ public class ManagerImpl
     checkUpdateConditions(mavenGroupRepository);
     PrefixSource prefixSource = null;
     // save merged prefix list into group's local storage (if all members has prefix list)
+    // merged list is union of member prefix tries, covered (more specific) entries are dropped
     boolean allMembersHavePublished = true;
-    final LinkedHashSet<String> entries = new LinkedHashSet<String>();
+    final PrefixTrie.Builder entries = new PrefixTrie.Builder();
     for (Repository member : mavenGroupRepository.getMemberRepositories()) {
       if (member.getRepositoryKind().isFacetAvailable(MavenRepository.class)) {
         // neglect completely out of service members
@@ -677,7 +749,7 @@ public class ManagerImpl
       }
     }
     if (allMembersHavePublished) {
-      prefixSource = new ArrayListPrefixSource(new ArrayList<String>(entries));
+      prefixSource = new ArrayListPrefixSource(entries.build().getEntries());
     }
     return prefixSource;
   }
@@ -985,6 +1057,10 @@ public class ManagerImpl
         && config.getLocalPrefixFilePath().equals(evt.getItem().getPath());
   }
 
+  private static String discoveryTimerName(final String repositoryId) {
+    return MetricRegistry.name(ManagerImpl.class, repositoryId, "discovery");
+  }
+
   // ==
 
   /**
@@ -1002,4 +1078,13 @@ public class ManagerImpl
   public void onNexusStoppedEvent(final NexusStoppedEvent evt) {
     shutdown();
   }
+
+  /**
+   * Event handler: removes the discovery timer of removed repository.
+   */
+  @Subscribe
+  @AllowConcurrentEvents
+  public void onRepositoryRegistryEventRemove(final RepositoryRegistryEventRemove evt) {
+    metricRegistry.remove(discoveryTimerName(evt.getRepository().getId()));
+  }
 }
@@ -14,24 +14,19 @@ package org.sonatype.nexus.proxy.maven.routing.internal;
 
 import java.util.List;
 
-import org.sonatype.nexus.proxy.utils.Node;
-import org.sonatype.nexus.proxy.utils.PathUtils;
-import org.sonatype.nexus.proxy.walker.ParentOMatic;
-import org.sonatype.nexus.proxy.walker.ParentOMatic.Payload;
-
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
- * A path matcher, that performs "path matching" using the prefix list entries. Implemented using {@link ParentOMatic},
- * and performs matching by building a maximized (capped) tree in memory out of path entries.
+ * A path matcher, that performs "path matching" using the prefix list entries. Implemented using {@link PrefixTrie},
+ * and performs matching by building a maximized (capped) compact tree in memory out of path entries.
  *
  * @author cstamas
  * @since 2.4
  */
 public class PathMatcher
 {
-  private final Node<Payload> root;
+  private final PrefixTrie trie;
 
   /**
    * Constructor.
@@ -45,7 +40,16 @@ public class PathMatcher
    */
   public PathMatcher(final List<String> entries, final int maxDepth) {
     checkArgument(maxDepth >= 2);
-    this.root = buildRoot(checkNotNull(entries), maxDepth);
+    this.trie = new PrefixTrie.Builder(maxDepth).addAll(checkNotNull(entries)).build();
+  }
+
+  /**
+   * Constructor using already built trie.
+   *
+   * @since 3.0
+   */
+  public PathMatcher(final PrefixTrie trie) {
+    this.trie = checkNotNull(trie);
   }
 
   /**
@@ -56,21 +60,9 @@ public class PathMatcher
    * @return {@code true} if path is matched, {@code false} otherwise.
    */
   public boolean matches(final String path) {
-    final List<String> pathElements = PathUtils.elementsOf(path);
-    Node<Payload> currentNode = root;
-    for (String pathElement : pathElements) {
-      currentNode = currentNode.getChildByLabel(pathElement);
-      if (currentNode == null || currentNode.isLeaf()) {
-        break;
-      }
-    }
-    // since we add marked paths, and keepMarkedNodesOnly=true, all the marked paths will be leafs anyway.
-    // also, after tree cutting, the longer nodes are also leafs (that had some marked sibling), so check for leafs
-    // only, see buildRoot
-    return currentNode != null && (currentNode.isLeaf());
+    return trie.matches(path);
   }
 
-
   /**
    * Performs a match against passed in path, and returns {@code true} if it matches (same behavior as
    * {@link #matches(String)} ), or passed in path is a "parent" (prefix) that is contained in one or more paths used
@@ -79,31 +71,15 @@ public class PathMatcher
    * @return {@code true} if path is contained, {@code false} otherwise.
    */
   public boolean contains(final String path) {
-    final List<String> pathElements = PathUtils.elementsOf(path);
-    Node<Payload> currentNode = root;
-    for (String pathElement : pathElements) {
-      currentNode = currentNode.getChildByLabel(pathElement);
-      if (currentNode == null || currentNode.isLeaf()) {
-        break;
-      }
-    }
-    // This returns leafs but also parents. If not is not null, it means "we are on right path", like in case of
-    // one entry "/com/sonatype", contains("/com") would return true.
-    return currentNode != null;
+    return trie.contains(path);
   }
 
-  // ==
-
-  protected Node<Payload> buildRoot(final List<String> entries, final int maxDepth) {
-    // no rule B!
-    final ParentOMatic parentOMatic = new ParentOMatic(true, true, false);
-    for (String entry : entries) {
-      parentOMatic.addAndMarkPath(entry);
-    }
-    if (maxDepth != Integer.MAX_VALUE) {
-      // cut the tree to maxDepth
-      parentOMatic.cutNodesDeeperThan(maxDepth);
-    }
-    return parentOMatic.getRoot();
+  /**
+   * Returns the trie this matcher uses.
+   *
+   * @since 3.0
+   */
+  public PrefixTrie getTrie() {
+    return trie;
   }
 }
@@ -0,0 +1,323 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.maven.routing.internal;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.sonatype.nexus.proxy.utils.PathUtils;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Immutable, array backed prefix tree of prefix list entries. Prefix entries are "least specific wins": if an entry
+ * is a prefix of another entry, the longer entry is absorbed by the shorter one. Hence, every leaf of the tree is a
+ * prefix entry, and a path "matches" when walking it down the tree ends up on a leaf.
+ * <p>
+ * Nodes are numbered in breadth-first order, so children of every node are stored contiguously and sorted by label,
+ * and are looked up using binary search directly against the path characters, without splitting the path or
+ * allocating anything. Labels are interned, so tries of several repositories share the common path segments.
+ * <p>
+ * Instances are built using {@link Builder}, that is also used to perform unions of several tries.
+ *
+ * @since 3.0
+ */
+public class PrefixTrie
+{
+  private static final Interner<String> LABELS = Interners.newWeakInterner();
+
+  private static final int ROOT = 0;
+
+  private static final char SEPARATOR = '/';
+
+  /**
+   * Label of node, root has empty label.
+   */
+  private final String[] labels;
+
+  /**
+   * Index of first child of node, meaningless if node is leaf.
+   */
+  private final int[] firstChild;
+
+  /**
+   * Count of children of node, zero for leafs.
+   */
+  private final int[] childCount;
+
+  /**
+   * Is root itself an entry (the "/" prefix), to tell it apart from an empty trie.
+   */
+  private final boolean rootEntry;
+
+  private PrefixTrie(final String[] labels, final int[] firstChild, final int[] childCount, final boolean rootEntry) {
+    this.labels = labels;
+    this.firstChild = firstChild;
+    this.childCount = childCount;
+    this.rootEntry = rootEntry;
+  }
+
+  /**
+   * Returns {@code true} if the path is matched by any prefix entry, that is, walking the path ends on (or passes
+   * through) a leaf node. Root is a leaf of an empty trie too, but only matches if it is an entry itself, so an empty
+   * trie matches nothing.
+   */
+  public boolean matches(final String path) {
+    final int node = walk(path);
+    return node != -1 && isLeaf(node) && (node != ROOT || rootEntry);
+  }
+
+  /**
+   * Returns {@code true} if the path is matched (see {@link #matches(String)}), or is a parent of one or more prefix
+   * entries.
+   */
+  public boolean contains(final String path) {
+    return !isEmpty() && walk(path) != -1;
+  }
+
+  /**
+   * Returns {@code true} if this trie has no prefix entries.
+   */
+  public boolean isEmpty() {
+    return isLeaf(ROOT) && !rootEntry;
+  }
+
+  /**
+   * Returns the count of nodes in this trie.
+   */
+  public int size() {
+    return labels.length;
+  }
+
+  /**
+   * Returns the prefix entries (all the leaf paths) of this trie, in depth-first, sorted order.
+   */
+  public List<String> getEntries() {
+    final List<String> result = new ArrayList<String>();
+    if (rootEntry) {
+      result.add(String.valueOf(SEPARATOR));
+    }
+    else {
+      collectEntries(ROOT, new StringBuilder(), result);
+    }
+    return result;
+  }
+
+  // ==
+
+  /**
+   * Walks the path down the tree, and returns the index of node where walk ended (a leaf, or the node of last path
+   * element), or -1 if path element not present in tree encountered.
+   */
+  private int walk(final String path) {
+    int node = ROOT;
+    final int length = path.length();
+    int start = 0;
+    while (start < length && !isLeaf(node)) {
+      int end = path.indexOf(SEPARATOR, start);
+      if (end == -1) {
+        end = length;
+      }
+      if (end > start) {
+        node = findChild(node, path, start, end);
+        if (node == -1) {
+          return -1;
+        }
+      }
+      start = end + 1;
+    }
+    return node;
+  }
+
+  private int findChild(final int node, final String path, final int start, final int end) {
+    int low = firstChild[node];
+    int high = low + childCount[node] - 1;
+    while (low <= high) {
+      final int mid = (low + high) >>> 1;
+      final int cmp = compare(labels[mid], path, start, end);
+      if (cmp < 0) {
+        low = mid + 1;
+      }
+      else if (cmp > 0) {
+        high = mid - 1;
+      }
+      else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Compares label to a region of path, using same ordering as {@link String#compareTo(String)}.
+   */
+  private static int compare(final String label, final String path, final int start, final int end) {
+    final int labelLength = label.length();
+    final int regionLength = end - start;
+    final int min = Math.min(labelLength, regionLength);
+    for (int i = 0; i < min; i++) {
+      final char c1 = label.charAt(i);
+      final char c2 = path.charAt(start + i);
+      if (c1 != c2) {
+        return c1 - c2;
+      }
+    }
+    return labelLength - regionLength;
+  }
+
+  private boolean isLeaf(final int node) {
+    return childCount[node] == 0;
+  }
+
+  private void collectEntries(final int node, final StringBuilder path, final List<String> result) {
+    final int first = firstChild[node];
+    for (int child = first; child < first + childCount[node]; child++) {
+      final int length = path.length();
+      path.append(SEPARATOR).append(labels[child]);
+      if (isLeaf(child)) {
+        result.add(path.toString());
+      }
+      else {
+        collectEntries(child, path, result);
+      }
+      path.setLength(length);
+    }
+  }
+
+  // ==
+
+  /**
+   * Builder of {@link PrefixTrie} instances.
+   */
+  public static class Builder
+  {
+    private final int maxDepth;
+
+    private final BuilderNode root = new BuilderNode("");
+
+    /**
+     * Builder without depth limit.
+     */
+    public Builder() {
+      this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Builder that cuts entries to {@code maxDepth} path elements.
+     */
+    public Builder(final int maxDepth) {
+      checkArgument(maxDepth >= 1);
+      this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Adds a prefix entry.
+     */
+    public Builder add(final String entry) {
+      final List<String> elements = PathUtils.elementsOf(checkNotNull(entry));
+      BuilderNode node = root;
+      if (node.prefix) {
+        return this;
+      }
+      final int depth = Math.min(elements.size(), maxDepth);
+      for (int i = 0; i < depth; i++) {
+        node = node.child(elements.get(i));
+        if (node.prefix) {
+          // a shorter entry already covers this one
+          return this;
+        }
+      }
+      // this entry absorbs all the longer entries below it
+      node.prefix = true;
+      node.children = null;
+      return this;
+    }
+
+    /**
+     * Adds all prefix entries.
+     */
+    public Builder addAll(final Iterable<String> entries) {
+      for (String entry : entries) {
+        add(entry);
+      }
+      return this;
+    }
+
+    /**
+     * Adds all prefix entries of passed in trie, making the built trie an union of all added tries.
+     */
+    public Builder addAll(final PrefixTrie trie) {
+      return addAll(trie.getEntries());
+    }
+
+    public PrefixTrie build() {
+      // breadth-first numbering, so children of a node are adjacent
+      final List<BuilderNode> nodes = new ArrayList<BuilderNode>();
+      final ArrayDeque<BuilderNode> queue = new ArrayDeque<BuilderNode>();
+      queue.add(root);
+      while (!queue.isEmpty()) {
+        final BuilderNode node = queue.poll();
+        nodes.add(node);
+        if (node.children != null) {
+          queue.addAll(node.children.values());
+        }
+      }
+
+      final String[] labels = new String[nodes.size()];
+      final int[] firstChild = new int[nodes.size()];
+      final int[] childCount = new int[nodes.size()];
+      int next = 1;
+      for (int i = 0; i < nodes.size(); i++) {
+        final BuilderNode node = nodes.get(i);
+        labels[i] = LABELS.intern(node.label);
+        firstChild[i] = next;
+        childCount[i] = node.children == null ? 0 : node.children.size();
+        next += childCount[i];
+      }
+      return new PrefixTrie(labels, firstChild, childCount, root.prefix);
+    }
+  }
+
+  private static class BuilderNode
+  {
+    private final String label;
+
+    private boolean prefix;
+
+    private Map<String, BuilderNode> children;
+
+    private BuilderNode(final String label) {
+      this.label = label;
+    }
+
+    private BuilderNode child(final String childLabel) {
+      if (children == null) {
+        // keeps children sorted, as required by binary search of built trie
+        children = new TreeMap<String, BuilderNode>();
+      }
+      BuilderNode child = children.get(childLabel);
+      if (child == null) {
+        child = new BuilderNode(childLabel);
+        children.put(childLabel, child);
+      }
+      return child;
+    }
+  }
+}
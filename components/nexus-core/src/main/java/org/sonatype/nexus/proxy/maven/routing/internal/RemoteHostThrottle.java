@@ -0,0 +1,91 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.maven.routing.internal;
+
+import java.io.InterruptedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Limits the count of concurrent remote discoveries hitting same remote host. Many proxy repositories usually point
+ * to same few upstream hosts, and running their discoveries unconstrained in parallel would hammer those.
+ *
+ * @since 3.0
+ */
+public class RemoteHostThrottle
+{
+  private final int permitsPerHost;
+
+  private final ConcurrentMap<String, Semaphore> semaphores = new ConcurrentHashMap<String, Semaphore>();
+
+  public RemoteHostThrottle(final int permitsPerHost) {
+    checkArgument(permitsPerHost >= 1);
+    this.permitsPerHost = permitsPerHost;
+  }
+
+  /**
+   * Acquires a permit for host of passed in remote URL, blocking until one is available. Callers must pair this call
+   * with {@link #release(String)} in finally block.
+   */
+  public void acquire(final String remoteUrl) throws InterruptedIOException {
+    try {
+      semaphoreFor(remoteUrl).acquire();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for remote host " + hostOf(remoteUrl));
+    }
+  }
+
+  /**
+   * Releases a permit for host of passed in remote URL.
+   */
+  public void release(final String remoteUrl) {
+    semaphoreFor(remoteUrl).release();
+  }
+
+  private Semaphore semaphoreFor(final String remoteUrl) {
+    final String host = hostOf(remoteUrl);
+    Semaphore semaphore = semaphores.get(host);
+    if (semaphore == null) {
+      final Semaphore newSemaphore = new Semaphore(permitsPerHost, true);
+      semaphore = semaphores.putIfAbsent(host, newSemaphore);
+      if (semaphore == null) {
+        semaphore = newSemaphore;
+      }
+    }
+    return semaphore;
+  }
+
+  /**
+   * Returns the "host:port" key of remote URL, or the URL itself if it cannot be parsed.
+   */
+  public static String hostOf(final String remoteUrl) {
+    checkNotNull(remoteUrl);
+    try {
+      final URL url = new URL(remoteUrl);
+      final int port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+      return url.getHost().toLowerCase(Locale.ENGLISH) + ":" + port;
+    }
+    catch (MalformedURLException e) {
+      return remoteUrl;
+    }
+  }
+}
@@ -12,16 +12,23 @@
  */
 package org.sonatype.nexus.proxy.maven.routing.internal;
 
+import java.io.File;
 import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
+import org.sonatype.nexus.httpclient.HttpClientFactory;
 import org.sonatype.nexus.proxy.IllegalOperationException;
 import org.sonatype.nexus.proxy.ItemNotFoundException;
+import org.sonatype.nexus.proxy.LocalStorageException;
 import org.sonatype.nexus.proxy.ResourceStoreRequest;
 import org.sonatype.nexus.proxy.access.Action;
 import org.sonatype.nexus.proxy.item.RepositoryItemUid;
@@ -30,6 +37,8 @@ import org.sonatype.nexus.proxy.item.StorageItem;
 import org.sonatype.nexus.proxy.maven.ChecksumPolicy;
 import org.sonatype.nexus.proxy.maven.MavenProxyRepository;
 import org.sonatype.nexus.proxy.maven.routing.Config;
+import org.sonatype.nexus.proxy.maven.routing.DiscoveryStatus;
+import org.sonatype.nexus.proxy.maven.routing.DiscoveryStatus.DStatus;
 import org.sonatype.nexus.proxy.maven.routing.Manager;
 import org.sonatype.nexus.proxy.maven.routing.PrefixSource;
 import org.sonatype.nexus.proxy.maven.routing.discovery.RemoteStrategy;
@@ -38,6 +47,14 @@ import org.sonatype.nexus.proxy.maven.routing.discovery.StrategyResult;
 import org.sonatype.nexus.proxy.maven.routing.internal.TextFilePrefixSourceMarshaller.Result;
 import org.sonatype.nexus.proxy.storage.remote.httpclient.HttpClientManager;
 
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.util.EntityUtils;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -102,7 +119,10 @@ public class RemotePrefixFileStrategy
     final RepositoryItemUid uid = mavenProxyRepository.createUid(path);
     uid.getLock().lock(Action.update);
     try {
-      item = retrieveFromRemoteIfExists(mavenProxyRepository, path);
+      item = retrieveLocalIfUnmodifiedRemotely(mavenProxyRepository, path);
+      if (item == null) {
+        item = retrieveFromRemoteIfExists(mavenProxyRepository, path);
+      }
       if (item != null) {
         log.debug("Remote prefix on {} at path {} found!", mavenProxyRepository, path);
         long prefixFileAgeInDays = (System.currentTimeMillis() - item.getModified()) / 86400000L;
@@ -133,6 +153,76 @@ public class RemotePrefixFileStrategy
 
   // ==
 
+  /**
+   * Returns the locally cached prefix file if last discovery used it successfully, and a conditional request tells
+   * it is unchanged on remote. This spares the remote the existence check and the download of a possibly big file on
+   * every periodic update. Returns {@code null} if the prefix file needs to be (re)fetched.
+   */
+  protected StorageFileItem retrieveLocalIfUnmodifiedRemotely(final MavenProxyRepository mavenProxyRepository,
+                                                              final String path) throws IOException
+  {
+    // the local file is remote one only if last discovery succeeded with this strategy, otherwise it was scraped
+    final PropfileDiscoveryStatusSource discoveryStatusSource =
+        new PropfileDiscoveryStatusSource(mavenProxyRepository);
+    if (!discoveryStatusSource.exists()) {
+      return null;
+    }
+    final DiscoveryStatus discoveryStatus = discoveryStatusSource.read();
+    if (discoveryStatus == null || discoveryStatus.getStatus() != DStatus.SUCCESSFUL
+        || !ID.equals(discoveryStatus.getLastDiscoveryStrategy())) {
+      return null;
+    }
+    final StorageFileItem localItem = new FilePrefixSource(mavenProxyRepository, path, config).getFileItem();
+    if (localItem == null) {
+      return null;
+    }
+
+    final String remoteUrl;
+    try {
+      remoteUrl = getRemoteUrlOf(mavenProxyRepository);
+    }
+    catch (MalformedURLException e) {
+      // non HTTP/HTTPS, cannot do conditional request
+      return null;
+    }
+    final HttpHead head = new HttpHead(
+        (remoteUrl.endsWith("/") ? remoteUrl.substring(0, remoteUrl.length() - 1) : remoteUrl) + path);
+    head.setHeader(HttpHeaders.IF_MODIFIED_SINCE, DateUtils.formatDate(new Date(localItem.getModified())));
+    final BasicHttpContext httpContext = new BasicHttpContext();
+    httpContext.setAttribute(HttpClientFactory.HTTP_CTX_KEY_REPOSITORY, mavenProxyRepository);
+    final HttpResponse response = createHttpClientFor(mavenProxyRepository).execute(head, httpContext);
+    try {
+      if (response.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+        log.debug("Remote prefix on {} at path {} not modified, using local copy", mavenProxyRepository, path);
+        touch(mavenProxyRepository, localItem);
+        return localItem;
+      }
+      return null;
+    }
+    finally {
+      EntityUtils.consumeQuietly(response.getEntity());
+    }
+  }
+
+  /**
+   * Marks the local prefix file as just fetched, once remote confirmed it unchanged, as its age is told by its
+   * modification time.
+   */
+  private void touch(final MavenProxyRepository mavenProxyRepository, final StorageFileItem localItem) {
+    final long now = System.currentTimeMillis();
+    localItem.getRepositoryItemAttributes().setModified(now);
+    try {
+      final URL url = mavenProxyRepository.getLocalStorage()
+          .getAbsoluteUrlFromBase(mavenProxyRepository, localItem.getResourceStoreRequest());
+      if ("file".equals(url.getProtocol()) && !new File(url.toURI()).setLastModified(now)) {
+        log.debug("Could not touch local prefix file {} of {}", url, mavenProxyRepository);
+      }
+    }
+    catch (LocalStorageException | URISyntaxException e) {
+      log.debug("Could not touch local prefix file of {}", mavenProxyRepository, e);
+    }
+  }
+
   protected StorageFileItem retrieveFromRemoteIfExists(final MavenProxyRepository mavenProxyRepository,
       final String path) throws IOException
   {
@@ -66,7 +66,9 @@ import org.sonatype.nexus.proxy.walker.DefaultWalkerContext;
 import org.sonatype.nexus.proxy.walker.WalkerException;
 import org.sonatype.nexus.proxy.walker.WalkerFilter;
 
+import com.google.common.base.Predicates;
 import com.google.common.base.Throwables;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.eventbus.Subscribe;
@@ -1305,6 +1307,29 @@ public abstract class AbstractProxyRepository
     return isValid;
   }
 
+  /**
+   * Lets the {@link StreamingItemContentValidator}s prepare the validation of <code>item</code> before it is cached,
+   * so they can run concurrently with caching, and reject the content before it is committed to local storage.
+   */
+  protected void doPrepareRemoteItemContentValidation(ResourceStoreRequest req, String baseUrl,
+                                                      AbstractStorageItem item,
+                                                      List<RepositoryItemValidationEvent> events)
+  {
+    for (Map.Entry<String, ItemContentValidator> icventry : getItemContentValidators().entrySet()) {
+      if (icventry.getValue() instanceof StreamingItemContentValidator) {
+        try {
+          ((StreamingItemContentValidator) icventry.getValue())
+              .prepareRemoteItemContentValidation(this, req, baseUrl, item, events);
+        }
+        catch (StorageException e) {
+          // not fatal, validator will validate the cached item
+          log.debug("Could not prepare content validation of {} (validator={})",
+              item.getRepositoryItemUid(), icventry.getKey(), e);
+        }
+      }
+    }
+  }
+
   /**
    * Checks for remote existence of local item.
    */
@@ -1405,6 +1430,8 @@ public abstract class AbstractProxyRepository
             AbstractStorageItem remoteItem =
                 getRemoteStorage().retrieveItem(this, request, remoteUrl);
 
+            doPrepareRemoteItemContentValidation(request, remoteUrl, remoteItem, events);
+
             remoteItem = doCacheItem(remoteItem);
 
             if (doValidateRemoteItemContent(request, remoteUrl, remoteItem, events)) {
@@ -1459,6 +1486,16 @@ public abstract class AbstractProxyRepository
             // do not switch url yet, obey the retries
           }
           catch (LocalStorageException e) {
+            if (Iterables.any(Throwables.getCausalChain(e),
+                Predicates.instanceOf(InvalidItemContentException.class))) {
+              // content rejected by validator while caching, nothing was committed to local storage
+              log.info(
+                  "Proxied item {} evaluated as INVALID during caching (sourceUrl={}): {}",
+                  itemUid, remoteUrl, e.getMessage());
+
+              continue all_urls; // retry with next url
+            }
+
             lastException = e;
 
             // debug, print all
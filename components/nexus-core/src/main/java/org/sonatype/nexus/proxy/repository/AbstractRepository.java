@@ -16,10 +16,12 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import javax.inject.Inject;
 
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
 import org.sonatype.nexus.configuration.Configurator;
 import org.sonatype.nexus.configuration.ExternalConfiguration;
 import org.sonatype.nexus.configuration.model.CRepositoryCoreConfiguration;
@@ -43,7 +45,9 @@ import org.sonatype.nexus.proxy.events.RepositoryConfigurationUpdatedEvent;
 import org.sonatype.nexus.proxy.events.RepositoryEventExpireNotFoundCaches;
 import org.sonatype.nexus.proxy.events.RepositoryEventLocalStatusChanged;
 import org.sonatype.nexus.proxy.events.RepositoryEventRecreateAttributes;
+import org.sonatype.nexus.proxy.events.RepositoryItemEventDeleteItem;
 import org.sonatype.nexus.proxy.events.RepositoryItemEventDeleteRoot;
+import org.sonatype.nexus.proxy.events.RepositoryItemEventDeleteTree;
 import org.sonatype.nexus.proxy.events.RepositoryItemEventRetrieve;
 import org.sonatype.nexus.proxy.events.RepositoryItemEventStoreCreate;
 import org.sonatype.nexus.proxy.events.RepositoryItemEventStoreUpdate;
@@ -77,6 +81,7 @@ import org.sonatype.nexus.proxy.walker.WalkerException;
 import org.sonatype.nexus.proxy.walker.WalkerFilter;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Supplier;
 import com.google.common.collect.Maps;
 import org.codehaus.plexus.util.StringUtils;
 import org.joda.time.DateTime;
@@ -105,6 +110,12 @@ public abstract class AbstractRepository
     extends ConfigurableRepository
     implements Repository
 {
+  /**
+   * Whether a {@link RepositoryItemEventDeleteItem} is fired for every file of a deleted collection, in addition to
+   * the single {@link RepositoryItemEventDeleteTree}. Disable once all subscribers handle the tree event.
+   */
+  private static final boolean PER_ITEM_DELETE_EVENTS = SystemPropertiesHelper.getBoolean(
+      AbstractRepository.class.getName() + ".perItemDeleteEvents", true);
 
   // == injected
 
@@ -920,21 +931,22 @@ public abstract class AbstractRepository
             getNotFoundCache().removeWithChildren(request.getRequestPath());
           }
 
-          // it is collection, walk it and below and fire events for all files
-          DeletionNotifierWalker dnw = new DeletionNotifierWalker(eventBus(), request);
-
-          DefaultWalkerContext ctx = new DefaultWalkerContext(this, request);
-
-          ctx.getProcessors().add(dnw);
+          // it is collection, announce the tree once, the items below are walked lazily and at most once
+          final ResourceStoreRequest walkRequest = request;
+          final RepositoryItemEventDeleteTree treeEvent = new RepositoryItemEventDeleteTree(this,
+              (StorageCollectionItem) item, new Supplier<List<StorageItem>>()
+          {
+            @Override
+            public List<StorageItem> get() {
+              return collectDeletedItems(walkRequest);
+            }
+          });
+          eventBus().post(treeEvent);
 
-          try {
-            getWalker().walk(ctx);
-          }
-          catch (WalkerException e) {
-            if (!(e.getWalkerContext().getStopCause() instanceof ItemNotFoundException)) {
-              // everything that is not ItemNotFound should be reported,
-              // otherwise just neglect it
-              throw e;
+          if (PER_ITEM_DELETE_EVENTS) {
+            // fire events for all files, for subscribers not yet handling the tree event
+            for (StorageItem deleted : treeEvent.getItems()) {
+              eventBus().post(new RepositoryItemEventDeleteItem(this, deleted));
             }
           }
         }
@@ -947,6 +959,30 @@ public abstract class AbstractRepository
     }
   }
 
+  /**
+   * Walks the collection to be deleted and returns all files below it.
+   */
+  private List<StorageItem> collectDeletedItems(final ResourceStoreRequest request) {
+    DeletedItemsCollector collector = new DeletedItemsCollector(request);
+
+    DefaultWalkerContext ctx = new DefaultWalkerContext(this, request);
+
+    ctx.getProcessors().add(collector);
+
+    try {
+      getWalker().walk(ctx);
+    }
+    catch (WalkerException e) {
+      if (!(e.getWalkerContext().getStopCause() instanceof ItemNotFoundException)) {
+        // everything that is not ItemNotFound should be reported,
+        // otherwise just neglect it
+        throw e;
+      }
+    }
+
+    return collector.getItems();
+  }
+
   /**
    * Decides should a {@link ItemNotFoundException} be neglected on
    * {@link #deleteItem(boolean, org.sonatype.nexus.proxy.ResourceStoreRequest)} method invocation or not. Nexus
@@ -12,33 +12,31 @@
  */
 package org.sonatype.nexus.proxy.repository;
 
+import java.util.List;
+
 import org.sonatype.nexus.proxy.ResourceStoreRequest;
-import org.sonatype.nexus.proxy.events.RepositoryItemEventDeleteItem;
 import org.sonatype.nexus.proxy.item.StorageCollectionItem;
 import org.sonatype.nexus.proxy.item.StorageItem;
 import org.sonatype.nexus.proxy.walker.AbstractWalkerProcessor;
 import org.sonatype.nexus.proxy.walker.WalkerContext;
-import org.sonatype.sisu.goodies.eventbus.EventBus;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 
 /**
- * WalkerProcessor performing a "notification" (by firing corresponding events) of items about to be deleted as part of
- * a delete operation invoked against collection item. It handles all item types except collections.
+ * WalkerProcessor collecting the items about to be deleted as part of a delete operation invoked against collection
+ * item, to be announced by delete events. It collects all item types except collections.
  *
  * @author cstamas
  */
-public class DeletionNotifierWalker
+public class DeletedItemsCollector
     extends AbstractWalkerProcessor
 {
-  private final EventBus eventBus;
-
   private final ResourceStoreRequest request;
 
-  public DeletionNotifierWalker(final EventBus eventBus,
-                                final ResourceStoreRequest request)
-  {
-    this.eventBus = Preconditions.checkNotNull(eventBus);
+  private final List<StorageItem> items = Lists.newArrayList();
+
+  public DeletedItemsCollector(final ResourceStoreRequest request) {
     this.request = Preconditions.checkNotNull(request);
   }
 
@@ -50,8 +48,11 @@ public class DeletionNotifierWalker
       // cstamas: this should be not needed, as Walker should handle this!
       item.getItemContext().setParentContext(request.getRequestContext());
 
-      // just fire it, and someone will eventually catch it
-      eventBus.post(new RepositoryItemEventDeleteItem(context.getRepository(), item));
+      items.add(item);
     }
   }
+
+  public List<StorageItem> getItems() {
+    return items;
+  }
 }
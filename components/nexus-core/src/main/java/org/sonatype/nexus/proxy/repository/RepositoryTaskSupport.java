@@ -20,6 +20,7 @@ import org.sonatype.nexus.proxy.NoSuchRepositoryException;
 import org.sonatype.nexus.proxy.registry.RepositoryRegistry;
 import org.sonatype.nexus.scheduling.Task;
 import org.sonatype.nexus.scheduling.TaskInfo;
+import org.sonatype.nexus.scheduling.TaskResources;
 import org.sonatype.nexus.scheduling.TaskSupport;
 
 import com.google.common.base.Predicate;
@@ -80,6 +81,23 @@ public abstract class RepositoryTaskSupport<T>
     }
   }
 
+  /**
+   * Claims the repository (or if it's a group, it's transitive members) this task works on, if set. Tasks working on
+   * all repositories do not claim any.
+   */
+  @Override
+  public Set<String> getResourceClaims() {
+    final String repositoryId = getConfiguration().getRepositoryId();
+    if (repositoryId == null) {
+      return Collections.emptySet();
+    }
+    final Set<String> claims = Sets.newHashSet();
+    for (String id : transitiveHull(repositoryId)) {
+      claims.add(TaskResources.repository(id));
+    }
+    return claims;
+  }
+
   /**
    * Returns the repository's "transitive hull", all (directly or indirectly) affected repositories calculated from
    * task's repository.If tasks' repository is group, it's transitive members are pulled in recursively.
@@ -0,0 +1,50 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.repository;
+
+import java.util.List;
+
+import org.sonatype.nexus.proxy.LocalStorageException;
+import org.sonatype.nexus.proxy.ResourceStoreRequest;
+import org.sonatype.nexus.proxy.events.RepositoryItemValidationEvent;
+import org.sonatype.nexus.proxy.item.AbstractStorageItem;
+
+/**
+ * Item content validator that is able to start validation while the remote item is being streamed into local
+ * storage, instead of only after the item is cached.
+ *
+ * @since 3.0
+ */
+public interface StreamingItemContentValidator
+    extends ItemContentValidator
+{
+  /**
+   * Invoked with the remote item before it is cached. Implementations may start fetching whatever they need for
+   * validation, and may wrap the content locator of item, to reject it by throwing
+   * {@link InvalidItemContentException} from the content stream, before the content is committed into local storage.
+   * In any case, {@link #isRemoteItemContentValid(ProxyRepository, ResourceStoreRequest, String, AbstractStorageItem,
+   * List)} is still invoked with the cached item.
+   *
+   * @param proxy   repository that was used to get this item
+   * @param request request that was used to get this item
+   * @param baseUrl baseUrl that was used to get this item
+   * @param item    remote item, not yet cached
+   * @param events  list of events that might be appended to, see
+   *                {@link #isRemoteItemContentValid(ProxyRepository, ResourceStoreRequest, String,
+   *                AbstractStorageItem, List)}.
+   * @throws LocalStorageException in case of some fatal unrecoverable error (IO or other).
+   */
+  void prepareRemoteItemContentValidation(ProxyRepository proxy, ResourceStoreRequest request, String baseUrl,
+                                          AbstractStorageItem item, List<RepositoryItemValidationEvent> events)
+      throws LocalStorageException;
+}
@@ -20,9 +20,12 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Collection;
 import java.util.List;
 
@@ -257,7 +260,8 @@ public class DefaultFSPeer
       log.debug("Moving file from {} to {}", fromTarget.getAbsolutePath(), toTarget.getAbsolutePath());
     }
     try {
-      if (!DirSupport.copyDeleteMoveIfExists(fromTarget.toPath(), toTarget.toPath(), DOTTED_FILE_FILTER)) {
+      if (!renameIfPossible(repositoryBaseDir, fromTarget, toTarget)
+          && !DirSupport.copyDeleteMoveIfExists(fromTarget.toPath(), toTarget.toPath(), DOTTED_FILE_FILTER)) {
         throw new ItemNotFoundException(reasonFor(from, repository,
             "Path %s not found in local storage of repository %s", from.getRequestPath(),
             RepositoryStringUtils.getHumanizedNameString(repository)));
@@ -268,6 +272,58 @@ public class DefaultFSPeer
     }
   }
 
+  /**
+   * Moves a file or whole directory tree using one atomic rename, instead of copying it file by file and deleting it
+   * afterwards. It is possible if the target does not exist yet (so there is nothing to merge with) and is not within
+   * source, both are on same file store, and source contains no dotted folder (those are excluded from moves, see
+   * {@link #DOTTED_FILE_FILTER}, and must stay in place). Returns {@code false} if rename was not possible, and caller
+   * should fall back to copy-delete move.
+   */
+  private boolean renameIfPossible(final File repositoryBaseDir, final File fromTarget, final File toTarget)
+      throws IOException
+  {
+    final Path fromPath = fromTarget.getAbsoluteFile().toPath().normalize();
+    final Path toPath = toTarget.getAbsoluteFile().toPath().normalize();
+    // repository root always holds dotted folders, no need to look for them
+    if (fromPath.equals(repositoryBaseDir.getAbsoluteFile().toPath().normalize()) || toPath.startsWith(fromPath)
+        || !Files.exists(fromPath) || Files.exists(toPath) || containsDottedFolder(fromPath)) {
+      return false;
+    }
+    try {
+      DirSupport.mkdir(toPath.getParent());
+      Files.move(fromPath, toPath, StandardCopyOption.ATOMIC_MOVE);
+      return true;
+    }
+    catch (IOException e) {
+      // AtomicMoveNotSupportedException when on different file stores, or rename failed for some other reason
+      log.debug("Could not rename {} to {}, will copy it", fromPath, toPath, e);
+      return false;
+    }
+  }
+
+  /**
+   * Returns {@code true} if passed in path is, or contains at any depth, a folder matched by
+   * {@link #DOTTED_FILE_FILTER}.
+   */
+  private static boolean containsDottedFolder(final Path path) throws IOException {
+    if (!Files.isDirectory(path)) {
+      return false;
+    }
+    final boolean[] found = new boolean[1];
+    Files.walkFileTree(path, new SimpleFileVisitor<Path>()
+    {
+      @Override
+      public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) {
+        if (DOTTED_FILE_FILTER.apply(dir)) {
+          found[0] = true;
+          return FileVisitResult.TERMINATE;
+        }
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    return found[0];
+  }
+
   @Override
   public Collection<File> listItems(final Repository repository, final File repositoryBaseDir,
                                     final ResourceStoreRequest request, final File target)
@@ -19,6 +19,13 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -26,9 +33,11 @@ import javax.inject.Singleton;
 
 import org.sonatype.nexus.common.property.SystemPropertiesHelper;
 import org.sonatype.nexus.configuration.ApplicationDirectories;
+import org.sonatype.nexus.events.EventSubscriber;
 import org.sonatype.nexus.proxy.ItemNotFoundException;
 import org.sonatype.nexus.proxy.LocalStorageException;
 import org.sonatype.nexus.proxy.ResourceStoreRequest;
+import org.sonatype.nexus.proxy.events.NexusStoppedEvent;
 import org.sonatype.nexus.proxy.item.RepositoryItemUid;
 import org.sonatype.nexus.proxy.registry.RepositoryRegistry;
 import org.sonatype.nexus.proxy.repository.Repository;
@@ -37,9 +46,13 @@ import org.sonatype.nexus.proxy.storage.local.LocalRepositoryStorage;
 import org.sonatype.nexus.proxy.walker.AffirmativeStoreWalkerFilter;
 import org.sonatype.nexus.proxy.walker.DefaultWalkerContext;
 import org.sonatype.nexus.proxy.walker.Walker;
+import org.sonatype.nexus.threads.NexusThreadFactory;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.eventbus.Subscribe;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -47,12 +60,18 @@ import static com.google.common.base.Preconditions.checkNotNull;
 @Singleton
 public class DefaultWastebasket
     extends ComponentSupport
-    implements Wastebasket
+    implements Wastebasket, EventSubscriber
 {
   private static final String DEFAULT_DELETE_OPERATION_KEY = DefaultWastebasket.class.getName() + ".defaultDeleteOperation";
 
   private static final String TRASH_PATH_PREFIX = "/.nexus/trash";
 
+  /**
+   * Count of repositories having their trash purged in parallel by {@link #purgeAll(long)}.
+   */
+  private static final int PURGE_THREADS = SystemPropertiesHelper.getInteger(
+      DefaultWastebasket.class.getName() + ".purgeThreads", 4);
+
   protected static final long ALL = -1L;
 
   private final ApplicationDirectories applicationDirectories;
@@ -63,6 +82,11 @@ public class DefaultWastebasket
 
   private DeleteOperation deleteOperation;
 
+  /**
+   * Executor purging trash of repositories, threads are created on demand and die when idle.
+   */
+  private final ThreadPoolExecutor purgeExecutor;
+
   @Inject
   public DefaultWastebasket(final ApplicationDirectories applicationDirectories,
                             final Walker walker,
@@ -72,6 +96,11 @@ public class DefaultWastebasket
     this.walker = walker;
     this.repositoryRegistry = repositoryRegistry;
     this.deleteOperation = getDefaultDeleteOperation();
+    // purge works with local storage only, no need to associate the threads with current subject
+    final int purgeThreads = Math.max(1, PURGE_THREADS);
+    this.purgeExecutor = new ThreadPoolExecutor(purgeThreads, purgeThreads, 60L, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(), new NexusThreadFactory("wb", "Wastebasket"));
+    this.purgeExecutor.allowCoreThreadTimeOut(true);
   }
 
   protected DeleteOperation getDefaultDeleteOperation() {
@@ -141,9 +170,7 @@ public class DefaultWastebasket
   public void purgeAll(final long age)
       throws IOException
   {
-    for (Repository repository : getRepositoryRegistry().getRepositories()) {
-      purge(repository, age);
-    }
+    purgeInParallel(getRepositoryRegistry().getRepositories(), age);
 
     // NEXUS-4078: deleting "legacy" trash too for now
     // NEXUS-4468 legacy was not being cleaned up
@@ -177,6 +204,58 @@ public class DefaultWastebasket
     }
   }
 
+  /**
+   * Purges trash of repositories in parallel, as trash of each repository lives in it's own local storage. Waits for
+   * all of them to finish, and rethrows the first failure, if any.
+   */
+  private void purgeInParallel(final List<Repository> repositories, final long age)
+      throws IOException
+  {
+    final List<Future<Void>> futures = Lists.newArrayListWithCapacity(repositories.size());
+    try {
+      for (final Repository repository : repositories) {
+        futures.add(purgeExecutor.submit(new Callable<Void>()
+        {
+          @Override
+          public Void call() throws Exception {
+            purge(repository, age);
+            return null;
+          }
+        }));
+      }
+      Throwable failure = null;
+      for (Future<Void> future : futures) {
+        try {
+          future.get();
+        }
+        catch (ExecutionException e) {
+          if (failure == null) {
+            failure = e.getCause();
+          }
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted while purging trash", e);
+        }
+      }
+      if (failure != null) {
+        Throwables.propagateIfPossible(failure, IOException.class);
+        throw new IOException("Could not purge trash", failure);
+      }
+    }
+    finally {
+      // on failure or interruption, do not leave purges queued
+      for (Future<Void> future : futures) {
+        future.cancel(false);
+      }
+    }
+  }
+
+  @Subscribe
+  public void on(final NexusStoppedEvent event) {
+    purgeExecutor.shutdownNow();
+  }
+
   @Override
   public Long getSize(final Repository repository) {
     return null;
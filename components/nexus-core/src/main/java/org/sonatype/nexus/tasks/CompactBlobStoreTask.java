@@ -0,0 +1,125 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.tasks;
+
+import java.util.Collections;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.sonatype.nexus.blobstore.api.BlobStore;
+import org.sonatype.nexus.blobstore.api.BlobStoreManager;
+import org.sonatype.nexus.blobstore.file.CompactionMonitor;
+import org.sonatype.nexus.blobstore.file.CompactionResult;
+import org.sonatype.nexus.blobstore.file.FileBlobStore;
+import org.sonatype.nexus.scheduling.Cancelable;
+import org.sonatype.nexus.scheduling.TaskResources;
+import org.sonatype.nexus.scheduling.TaskSupport;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Compacts a blob store, or all blob stores, incrementally and throttled. A canceled task stops at the next
+ * checkpoint and next run resumes from there.
+ *
+ * @since 3.0
+ */
+@Named
+public class CompactBlobStoreTask
+    extends TaskSupport<Void>
+    implements Cancelable, CompactionMonitor
+{
+  public static final int DEFAULT_BLOBS_PER_SECOND = 500;
+
+  private final BlobStoreManager blobStoreManager;
+
+  @Inject
+  public CompactBlobStoreTask(final BlobStoreManager blobStoreManager) {
+    this.blobStoreManager = checkNotNull(blobStoreManager);
+  }
+
+  public String getBlobStoreName() {
+    return Strings.emptyToNull(getConfiguration().getString(CompactBlobStoreTaskDescriptor.BLOB_STORE_NAME_FIELD_ID));
+  }
+
+  public int getBatchSize() {
+    return getConfiguration().getInteger(CompactBlobStoreTaskDescriptor.BATCH_SIZE_FIELD_ID,
+        FileBlobStore.DEFAULT_COMPACTION_BATCH_SIZE);
+  }
+
+  public int getBlobsPerSecond() {
+    return getConfiguration().getInteger(CompactBlobStoreTaskDescriptor.BLOBS_PER_SECOND_FIELD_ID,
+        DEFAULT_BLOBS_PER_SECOND);
+  }
+
+  /**
+   * Claims the compacted blob store, to not compact it concurrently with other heavy users of it.
+   */
+  @Override
+  public Set<String> getResourceClaims() {
+    final String blobStoreName = getBlobStoreName();
+    if (blobStoreName == null) {
+      return Collections.emptySet();
+    }
+    return Collections.singleton(TaskResources.blobStore(blobStoreName));
+  }
+
+  @Override
+  protected Void execute() throws Exception {
+    final String blobStoreName = getBlobStoreName();
+    final Iterable<BlobStore> blobStores;
+    if (blobStoreName == null) {
+      blobStores = blobStoreManager.browse();
+    }
+    else {
+      final BlobStore blobStore = blobStoreManager.get(blobStoreName);
+      checkArgument(blobStore != null, "Unknown blob store: %s", blobStoreName);
+      blobStores = ImmutableList.of(blobStore);
+    }
+
+    for (BlobStore blobStore : blobStores) {
+      if (isCanceled()) {
+        break;
+      }
+      final String name = blobStore.getBlobStoreConfiguration().getName();
+      if (blobStore instanceof FileBlobStore) {
+        final CompactionResult result = ((FileBlobStore) blobStore).compact(getBatchSize(), getBlobsPerSecond(), this);
+        log.info("Compacted blob store {}: {}", name, result);
+      }
+      else {
+        log.info("Compacting blob store {}", name);
+        blobStore.compact();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Proceeds with compaction unless task was canceled.
+   */
+  @Override
+  public boolean proceed(final CompactionResult progress) {
+    return !isCanceled();
+  }
+
+  @Override
+  public String getMessage() {
+    final String blobStoreName = getBlobStoreName();
+    return blobStoreName == null ? "Compacting blob stores" : "Compacting blob store " + blobStoreName;
+  }
+}
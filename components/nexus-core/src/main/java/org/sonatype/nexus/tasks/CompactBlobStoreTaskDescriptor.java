@@ -0,0 +1,59 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.tasks;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.nexus.blobstore.file.FileBlobStore;
+import org.sonatype.nexus.formfields.FormField;
+import org.sonatype.nexus.formfields.NumberTextFormField;
+import org.sonatype.nexus.formfields.StringTextFormField;
+import org.sonatype.nexus.scheduling.TaskDescriptorSupport;
+
+/**
+ * @since 3.0
+ */
+@Named
+@Singleton
+public class CompactBlobStoreTaskDescriptor
+    extends TaskDescriptorSupport
+{
+  public static final String BLOB_STORE_NAME_FIELD_ID = "blobStoreName";
+
+  public static final String BATCH_SIZE_FIELD_ID = "batchSize";
+
+  public static final String BLOBS_PER_SECOND_FIELD_ID = "blobsPerSecond";
+
+  public CompactBlobStoreTaskDescriptor() {
+    super(CompactBlobStoreTask.class, "Compact Blob Store",
+        new StringTextFormField(
+            BLOB_STORE_NAME_FIELD_ID,
+            "Blob store",
+            "Name of the blob store to compact, leave empty to compact all blob stores",
+            FormField.OPTIONAL),
+        new NumberTextFormField(
+            BATCH_SIZE_FIELD_ID,
+            "Batch size",
+            "Maximum count of blobs processed between checkpoints",
+            FormField.OPTIONAL
+        ).withInitialValue(FileBlobStore.DEFAULT_COMPACTION_BATCH_SIZE),
+        new NumberTextFormField(
+            BLOBS_PER_SECOND_FIELD_ID,
+            "Blobs per second",
+            "Maximum count of blobs processed per second, zero for no limit",
+            FormField.OPTIONAL
+        ).withInitialValue(CompactBlobStoreTask.DEFAULT_BLOBS_PER_SECOND)
+    );
+  }
+}
@@ -18,6 +18,8 @@ import java.util.List;
 import org.sonatype.nexus.proxy.events.RepositoryItemEventDelete;
 import org.sonatype.nexus.proxy.events.RepositoryItemEventDeleteItem;
 import org.sonatype.nexus.proxy.events.RepositoryItemEventDeleteRoot;
+import org.sonatype.nexus.proxy.events.RepositoryItemEventDeleteTree;
+import org.sonatype.nexus.proxy.item.StorageItem;
 import org.sonatype.nexus.proxy.repository.ProxyRepository;
 
 import com.google.common.eventbus.Subscribe;
@@ -70,6 +72,31 @@ public class DeleteEventsTest
         equalTo(RepositoryItemEventDeleteItem.class.getName()));
   }
 
+  @Test
+  public void deleteCollectionFiresTreeEventOnce()
+      throws Exception
+  {
+    final ProxyRepository repo1 = getRepositoryRegistry().getRepositoryWithFacet("repo1", ProxyRepository.class);
+    repo1.retrieveItem(new ResourceStoreRequest("/org/slf4j/slf4j-api/1.4.3/slf4j-api-1.4.3.pom"));
+
+    // install listener
+    final DeleteEventsListener listener = new DeleteEventsListener();
+    eventBus().register(listener);
+
+    // perform delete
+    repo1.deleteItem(new ResourceStoreRequest("/org"));
+
+    // 1 tree event, announcing the collection and carrying the same 2 non-collections (POM + SHA1)
+    assertThat(listener.getTreeEvents().size(), equalTo(1));
+    final RepositoryItemEventDeleteTree treeEvent = listener.getTreeEvents().get(0);
+    assertThat(treeEvent.getRoot().getPath(), equalTo("/org"));
+    assertThat(listener.getTreeItems().size(), equalTo(2));
+    for (int i = 0; i < 2; i++) {
+      assertThat(listener.getTreeItems().get(i),
+          sameInstance(listener.getDeleteEvents().get(i + 1).getItem()));
+    }
+  }
+
   @Test
   public void deleteEmptyCollection()
       throws Exception
@@ -124,14 +151,33 @@ public class DeleteEventsTest
       this.deleteEvents = new ArrayList<RepositoryItemEventDelete>();
     }
 
+    private final List<RepositoryItemEventDeleteTree> treeEvents = new ArrayList<RepositoryItemEventDeleteTree>();
+
+    private final List<StorageItem> treeItems = new ArrayList<StorageItem>();
+
     public List<RepositoryItemEventDelete> getDeleteEvents() {
       return deleteEvents;
     }
 
+    public List<RepositoryItemEventDeleteTree> getTreeEvents() {
+      return treeEvents;
+    }
+
+    public List<StorageItem> getTreeItems() {
+      return treeItems;
+    }
+
     @Subscribe
     public void onEvent(RepositoryItemEventDelete evt) {
       deleteEvents.add((RepositoryItemEventDelete) evt);
     }
+
+    @Subscribe
+    public void onTreeEvent(RepositoryItemEventDeleteTree evt) {
+      treeEvents.add(evt);
+      // items are only available while the event is dispatched
+      treeItems.addAll(evt.getItems());
+    }
   }
 
 }
@@ -0,0 +1,283 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.maven;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.sonatype.nexus.proxy.LocalStorageException;
+import org.sonatype.nexus.proxy.RequestContext;
+import org.sonatype.nexus.proxy.ResourceStoreRequest;
+import org.sonatype.nexus.proxy.attributes.Attributes;
+import org.sonatype.nexus.proxy.events.RepositoryItemValidationEvent;
+import org.sonatype.nexus.proxy.item.AbstractStorageItem;
+import org.sonatype.nexus.proxy.item.ContentLocator;
+import org.sonatype.nexus.proxy.item.DefaultStorageFileItem;
+import org.sonatype.nexus.proxy.item.StorageFileItem;
+import org.sonatype.nexus.proxy.item.StringContentLocator;
+import org.sonatype.nexus.proxy.repository.InvalidItemContentException;
+import org.sonatype.nexus.proxy.repository.ProxyRepository;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for streaming validation of {@link AbstractChecksumContentValidator}: the remote hash is prefetched while
+ * content is stored, and content not matching it is rejected when its stream is closed, before it is committed.
+ */
+public class AbstractChecksumContentValidatorTest
+    extends TestSupport
+{
+  private static final String CONTENT = "artifact content";
+
+  private static final String CONTENT_SHA1 = "1cf80df7d11d9e5e5fe9e8cfb19fcd767b3b78bc";
+
+  @Mock
+  private ProxyRepository proxy;
+
+  @Mock
+  private DefaultStorageFileItem item;
+
+  @Mock
+  private Attributes attributes;
+
+  private RequestContext itemContext;
+
+  private ResourceStoreRequest request;
+
+  private List<RepositoryItemValidationEvent> events;
+
+  private TestValidator underTest;
+
+  @Before
+  public void setUp() {
+    request = new ResourceStoreRequest("/g/a/1.0/a-1.0.jar");
+    itemContext = new RequestContext();
+    events = Lists.newArrayList();
+    when(item.getItemContext()).thenReturn(itemContext);
+    when(item.getContentLocator()).thenReturn(new StringContentLocator(CONTENT));
+    when(item.getPath()).thenReturn("/g/a/1.0/a-1.0.jar");
+    when(item.getRepositoryId()).thenReturn("central");
+    when(item.getRepositoryItemAttributes()).thenReturn(attributes);
+    underTest = new TestValidator();
+  }
+
+  /**
+   * Prepares streaming validation, and returns the content locator wrapped by validator.
+   */
+  private ContentLocator prepare() throws Exception {
+    underTest.prepareRemoteItemContentValidation(proxy, request, "http://localhost/", item, events);
+    final ArgumentCaptor<ContentLocator> locator = ArgumentCaptor.forClass(ContentLocator.class);
+    verify(item).setContentLocator(locator.capture());
+    return locator.getValue();
+  }
+
+  /**
+   * Stores content the way local storage does: the stream is fully read, the digest is put into item context, and
+   * then the stream is closed.
+   */
+  private void store(final ContentLocator locator) throws IOException {
+    try (InputStream in = locator.getContent()) {
+      ByteStreams.toByteArray(in);
+      itemContext.put(StorageFileItem.DIGEST_SHA1_KEY, CONTENT_SHA1);
+    }
+  }
+
+  private static RemoteHashResponse sha1(final String hash) {
+    return new RemoteHashResponse(StorageFileItem.DIGEST_SHA1_KEY, hash, null);
+  }
+
+  @Test
+  public void matchingRemoteHashAccepted() throws Exception {
+    underTest.remoteHash = Futures.immediateFuture(sha1(CONTENT_SHA1));
+    store(prepare());
+
+    when(attributes.get(StorageFileItem.DIGEST_SHA1_KEY)).thenReturn(CONTENT_SHA1);
+    assertThat(underTest.isRemoteItemContentValid(proxy, request, "http://localhost/", item, events), is(true));
+    assertThat(events, hasSize(0));
+    assertThat(underTest.stored, is(true));
+    assertThat(underTest.retrieved, is(false));
+  }
+
+  @Test
+  public void mismatchingRemoteHashRejectedBeforeCommit() throws Exception {
+    underTest.remoteHash = Futures.immediateFuture(sha1("0000000000000000000000000000000000000000"));
+    try {
+      store(prepare());
+      fail("Content should have been rejected");
+    }
+    catch (InvalidItemContentException e) {
+      // expected
+    }
+    assertThat(events, hasSize(1));
+    assertThat(events.get(0), instanceOf(MavenChecksumContentValidationEventFailed.class));
+    assertThat(underTest.cleanedUp, is(true));
+  }
+
+  @Test
+  public void mismatchingRemoteHashWarnedOnly() throws Exception {
+    underTest.policy = ChecksumPolicy.WARN;
+    underTest.remoteHash = Futures.immediateFuture(sha1("0000000000000000000000000000000000000000"));
+    store(prepare());
+    assertThat(events, hasSize(0));
+  }
+
+  @Test
+  public void missingRemoteHashRejectedWhenStrict() throws Exception {
+    underTest.policy = ChecksumPolicy.STRICT;
+    underTest.remoteHash = Futures.immediateFuture(null);
+    try {
+      store(prepare());
+      fail("Content should have been rejected");
+    }
+    catch (InvalidItemContentException e) {
+      // expected
+    }
+    assertThat(events, hasSize(1));
+  }
+
+  @Test
+  public void missingRemoteHashAcceptedWhenStrictIfExists() throws Exception {
+    underTest.remoteHash = Futures.immediateFuture(null);
+    store(prepare());
+    assertThat(events, hasSize(0));
+
+    // cached item is accepted too, with a warning
+    assertThat(underTest.isRemoteItemContentValid(proxy, request, "http://localhost/", item, events), is(true));
+    assertThat(events, hasSize(1));
+    assertThat(underTest.retrieved, is(false));
+  }
+
+  @Test
+  public void lateRemoteHashAwaitedOnClose() throws Exception {
+    final SettableFuture<RemoteHashResponse> remoteHash = SettableFuture.create();
+    underTest.remoteHash = remoteHash;
+    final ContentLocator locator = prepare();
+    final Thread remote = new Thread("remote-hash")
+    {
+      @Override
+      public void run() {
+        try {
+          TimeUnit.MILLISECONDS.sleep(200);
+        }
+        catch (InterruptedException e) {
+          // ignore
+        }
+        remoteHash.set(sha1("0000000000000000000000000000000000000000"));
+      }
+    };
+    remote.start();
+    try {
+      store(locator);
+      fail("Content should have been rejected");
+    }
+    catch (InvalidItemContentException e) {
+      // expected
+    }
+    assertThat(remoteHash.isDone(), is(true));
+    remote.join();
+  }
+
+  @Test
+  public void partiallyReadContentNotValidated() throws Exception {
+    final SettableFuture<RemoteHashResponse> remoteHash = SettableFuture.create();
+    underTest.remoteHash = remoteHash;
+    // no digest is calculated for aborted transfers, and remote hash is not awaited
+    prepare().getContent().close();
+    assertThat(events, hasSize(0));
+  }
+
+  @Test
+  public void unsupportedPrefetchLeavesContentUnwrapped() throws Exception {
+    underTest.remoteHash = null;
+    underTest.prepareRemoteItemContentValidation(proxy, request, "http://localhost/", item, events);
+    verify(item, never()).setContentLocator(any(ContentLocator.class));
+
+    when(attributes.get(StorageFileItem.DIGEST_SHA1_KEY)).thenReturn(CONTENT_SHA1);
+    underTest.retrievedHash = sha1(CONTENT_SHA1);
+    assertThat(underTest.isRemoteItemContentValid(proxy, request, "http://localhost/", item, events), is(true));
+    assertThat(underTest.retrieved, is(true));
+  }
+
+  private static class TestValidator
+      extends AbstractChecksumContentValidator
+  {
+    private ChecksumPolicy policy = ChecksumPolicy.STRICT_IF_EXISTS;
+
+    private Future<RemoteHashResponse> remoteHash;
+
+    private RemoteHashResponse retrievedHash;
+
+    private boolean retrieved;
+
+    private boolean stored;
+
+    private boolean cleanedUp;
+
+    @Override
+    protected ChecksumPolicy getChecksumPolicy(final ProxyRepository proxy, final AbstractStorageItem item) {
+      return policy;
+    }
+
+    @Override
+    protected Future<RemoteHashResponse> prefetchRemoteHash(final AbstractStorageItem item,
+                                                            final ProxyRepository proxy,
+                                                            final String baseUrl)
+    {
+      return remoteHash;
+    }
+
+    @Override
+    protected RemoteHashResponse retrieveRemoteHash(final AbstractStorageItem item, final ProxyRepository proxy,
+                                                    final String baseUrl)
+    {
+      retrieved = true;
+      return retrievedHash;
+    }
+
+    @Override
+    protected void storeRemoteHash(final ProxyRepository proxy, final AbstractStorageItem item,
+                                   final RemoteHashResponse remoteHash)
+    {
+      stored = true;
+    }
+
+    @Override
+    protected void cleanup(final ProxyRepository proxy, final RemoteHashResponse remoteHash,
+                           final boolean contentValid)
+        throws LocalStorageException
+    {
+      cleanedUp = true;
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.maven.routing.internal;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+public class PrefixTrieTest
+{
+  @Test
+  public void entriesAreSortedAndLeastSpecificWins() {
+    final PrefixTrie trie = new PrefixTrie.Builder()
+        .addAll(Arrays.asList("/org/sonatype/nexus", "/com/sonatype", "/org/sonatype", "/org/apache/maven/plugins"))
+        .build();
+    assertThat(trie.getEntries(), contains("/com/sonatype", "/org/apache/maven/plugins", "/org/sonatype"));
+  }
+
+  @Test
+  public void shorterEntryAddedLaterAbsorbsLongerOnes() {
+    final PrefixTrie trie = new PrefixTrie.Builder()
+        .addAll(Arrays.asList("/a/b/c/d", "/a/b/x", "/a")).build();
+    assertThat(trie.getEntries(), contains("/a"));
+    assertThat(trie.matches("/a/anything/else"), is(true));
+    assertThat(trie.size(), is(2));
+  }
+
+  @Test
+  public void maxDepthCutsEntries() {
+    final PrefixTrie trie = new PrefixTrie.Builder(2)
+        .addAll(Arrays.asList("/a/b/c/d", "/a/c/d")).build();
+    assertThat(trie.getEntries(), contains("/a/b", "/a/c"));
+  }
+
+  @Test
+  public void matchingHandlesSlashes() {
+    final PrefixTrie trie = new PrefixTrie.Builder().add("/org/sonatype").build();
+    assertThat(trie.matches("/org/sonatype"), is(true));
+    assertThat(trie.matches("/org/sonatype/"), is(true));
+    assertThat(trie.matches("org//sonatype/nexus/"), is(true));
+    assertThat(trie.matches("/org/sonatypes"), is(false));
+    assertThat(trie.matches("/org/sonatyp"), is(false));
+    assertThat(trie.matches("/org"), is(false));
+    assertThat(trie.contains("/org/"), is(true));
+    assertThat(trie.contains("/com"), is(false));
+    assertThat(trie.matches("/"), is(false));
+  }
+
+  @Test
+  public void union() {
+    final PrefixTrie trie1 = new PrefixTrie.Builder().addAll(Arrays.asList("/org/sonatype/nexus", "/com/foo")).build();
+    final PrefixTrie trie2 = new PrefixTrie.Builder().addAll(Arrays.asList("/org/sonatype", "/eu/flatwhite")).build();
+    final PrefixTrie union = new PrefixTrie.Builder().addAll(trie1).addAll(trie2).build();
+    assertThat(union.getEntries(), contains("/com/foo", "/eu/flatwhite", "/org/sonatype"));
+    assertThat(union.matches("/org/sonatype/aether"), is(true));
+    assertThat(union.matches("/com/foo/bar"), is(true));
+    assertThat(union.matches("/com/bar"), is(false));
+  }
+
+  @Test
+  public void emptyAndRoot() {
+    final PrefixTrie none = new PrefixTrie.Builder().build();
+    assertThat(none.getEntries(), is(empty()));
+    assertThat(none.isEmpty(), is(true));
+    assertThat(none.matches("/"), is(false));
+    assertThat(none.matches("/org/sonatype"), is(false));
+    assertThat(none.contains("/org"), is(false));
+
+    final PrefixTrie root = new PrefixTrie.Builder().addAll(Arrays.asList("/org/sonatype", "/")).build();
+    assertThat(root.getEntries(), contains("/"));
+    assertThat(root.isEmpty(), is(false));
+    assertThat(root.matches("/"), is(true));
+    assertThat(root.matches("/whatever"), is(true));
+  }
+
+  @Test
+  public void emptyTrieMatchesNothing() {
+    final PrefixTrie none = new PrefixTrie.Builder().addAll(new PrefixTrie.Builder().build()).build();
+    assertThat(none.matches("/org/sonatype/nexus"), is(false));
+    assertThat(none.contains("/"), is(false));
+
+    final PrefixTrie one = new PrefixTrie.Builder().addAll(none).add("/org").build();
+    assertThat(one.matches("/org/sonatype"), is(true));
+    assertThat(one.matches("/com"), is(false));
+  }
+}
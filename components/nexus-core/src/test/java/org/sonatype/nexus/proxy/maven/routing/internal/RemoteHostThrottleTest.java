@@ -0,0 +1,64 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.maven.routing.internal;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+public class RemoteHostThrottleTest
+{
+  @Test
+  public void hostKeyIgnoresPathAndDefaultsPort() {
+    assertThat(RemoteHostThrottle.hostOf("https://Repo1.maven.org/maven2/"), equalTo("repo1.maven.org:443"));
+    assertThat(RemoteHostThrottle.hostOf("http://localhost:8081/nexus/content/"), equalTo("localhost:8081"));
+    assertThat(RemoteHostThrottle.hostOf("not-an-url"), equalTo("not-an-url"));
+  }
+
+  @Test
+  public void permitsAreLimitedPerHost() throws Exception {
+    final RemoteHostThrottle throttle = new RemoteHostThrottle(1);
+    throttle.acquire("http://host-a/repo1/");
+    // other host is not affected
+    throttle.acquire("http://host-b/repo1/");
+
+    final AtomicBoolean acquired = new AtomicBoolean();
+    final Thread thread = new Thread()
+    {
+      @Override
+      public void run() {
+        try {
+          throttle.acquire("http://host-a/repo2/");
+          acquired.set(true);
+          throttle.release("http://host-a/repo2/");
+        }
+        catch (Exception e) {
+          // ignore
+        }
+      }
+    };
+    thread.start();
+    thread.join(TimeUnit.MILLISECONDS.toMillis(200));
+    assertThat(acquired.get(), is(false));
+
+    throttle.release("http://host-a/repo1/");
+    thread.join(TimeUnit.SECONDS.toMillis(5));
+    assertThat(acquired.get(), is(true));
+    throttle.release("http://host-b/repo1/");
+  }
+}
@@ -14,6 +14,7 @@ package org.sonatype.nexus.proxy.storage.local.fs;
 
 import java.io.File;
 
+import org.sonatype.nexus.proxy.ResourceStoreRequest;
 import org.sonatype.nexus.proxy.item.StorageFileItem;
 
 import org.apache.commons.io.FileUtils;
@@ -128,4 +129,68 @@ public class DefaultFSPeerTest
     assertThat(FileUtils.readFileToString(target), equalTo(PAYLOAD));
   }
 
+  @Test
+  public void moveTreeIntoTrash()
+      throws Exception
+  {
+    final DefaultFSPeer subject = new DefaultFSPeer();
+    final File repoBase = new File("target/repoId-move");
+    FileUtils.deleteDirectory(repoBase);
+
+    final File from = new File(repoBase, "foo");
+    FileUtils.write(new File(from, "1.0/foo-1.0.txt"), "one");
+    FileUtils.write(new File(from, "2.0/foo-2.0.txt"), "two");
+    final File to = new File(repoBase, ".nexus/trash/foo");
+
+    subject.moveItem(null, repoBase, new ResourceStoreRequest("/foo"), from, new ResourceStoreRequest(
+        "/.nexus/trash/foo"), to);
+
+    assertThat(from, not(exists()));
+    assertThat(FileUtils.readFileToString(new File(to, "1.0/foo-1.0.txt")), equalTo("one"));
+    assertThat(FileUtils.readFileToString(new File(to, "2.0/foo-2.0.txt")), equalTo("two"));
+  }
+
+  @Test
+  public void moveTreeIntoTrashMergesWithExisting()
+      throws Exception
+  {
+    final DefaultFSPeer subject = new DefaultFSPeer();
+    final File repoBase = new File("target/repoId-merge");
+    FileUtils.deleteDirectory(repoBase);
+
+    final File from = new File(repoBase, "foo");
+    FileUtils.write(new File(from, "2.0/foo-2.0.txt"), "two");
+    final File to = new File(repoBase, ".nexus/trash/foo");
+    FileUtils.write(new File(to, "1.0/foo-1.0.txt"), "one");
+
+    subject.moveItem(null, repoBase, new ResourceStoreRequest("/foo"), from, new ResourceStoreRequest(
+        "/.nexus/trash/foo"), to);
+
+    assertThat(new File(from, "2.0/foo-2.0.txt"), not(exists()));
+    assertThat(FileUtils.readFileToString(new File(to, "1.0/foo-1.0.txt")), equalTo("one"));
+    assertThat(FileUtils.readFileToString(new File(to, "2.0/foo-2.0.txt")), equalTo("two"));
+  }
+
+  @Test
+  public void moveTreeWithDottedFolderLeavesItInPlace()
+      throws Exception
+  {
+    final DefaultFSPeer subject = new DefaultFSPeer();
+    final File repoBase = new File("target/repoId-dotted");
+    FileUtils.deleteDirectory(repoBase);
+
+    final File from = new File(repoBase, "foo");
+    FileUtils.write(new File(from, "1.0/foo-1.0.txt"), "one");
+    FileUtils.write(new File(from, "1.0/.meta/foo-1.0.txt"), "meta");
+    final File to = new File(repoBase, ".nexus/trash/foo");
+
+    subject.moveItem(null, repoBase, new ResourceStoreRequest("/foo"), from, new ResourceStoreRequest(
+        "/.nexus/trash/foo"), to);
+
+    // dotted folders are excluded from moves at any depth, so tree is not renamed as whole
+    assertThat(new File(from, "1.0/foo-1.0.txt"), not(exists()));
+    assertThat(FileUtils.readFileToString(new File(from, "1.0/.meta/foo-1.0.txt")), equalTo("meta"));
+    assertThat(FileUtils.readFileToString(new File(to, "1.0/foo-1.0.txt")), equalTo("one"));
+    assertThat(new File(to, "1.0/.meta"), not(exists()));
+  }
 }
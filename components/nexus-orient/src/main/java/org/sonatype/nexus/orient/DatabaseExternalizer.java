@@ -12,6 +12,7 @@
  */
 package org.sonatype.nexus.orient;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -43,6 +44,22 @@ public interface DatabaseExternalizer
    */
   void restore(InputStream input) throws IOException;
 
+  /**
+   * Online backup of database into a directory, stalling database writes only briefly. Output is a set of compressed
+   * storage files along with a manifest of their checksums. Files unchanged since a previous backup into the same
+   * directory are not written again.
+   *
+   * @see #restore(File)
+   */
+  void backup(File directory) throws IOException;
+
+  /**
+   * Restore database from an online backup, verifying the checksum of each restored file.
+   *
+   * @see #backup(File)
+   */
+  void restore(File directory) throws IOException;
+
   //
   // Export and Import
   //
@@ -18,10 +18,43 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
 import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.common.io.DirSupport;
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.orientechnologies.orient.core.command.OCommandOutputListener;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.db.tool.ODatabaseExport;
@@ -45,6 +78,52 @@ public class DatabaseExternalizerImpl
 
   public static final int BACKUP_COMPRESSION_LEVEL = 9;
 
+  /**
+   * Name of the manifest of online backups, listing the checksum of each backed up storage file, followed by its size
+   * and modification time when backed up, if these can be relied upon.
+   */
+  public static final String BACKUP_MANIFEST = "backup.properties";
+
+  /**
+   * Maximum rate (in bytes per second) of online backup I/O, once the database is released, not throttled if not
+   * positive.
+   */
+  private static final long BACKUP_BYTES_PER_SECOND = SystemPropertiesHelper.getLong(
+      DatabaseExternalizerImpl.class.getName() + ".backupBytesPerSecond", 32L * 1024 * 1024);
+
+  /**
+   * Count of threads restoring storage files of an online backup in parallel.
+   */
+  private static final int RESTORE_THREADS = SystemPropertiesHelper.getInteger(
+      DatabaseExternalizerImpl.class.getName() + ".restoreThreads", Runtime.getRuntime().availableProcessors());
+
+  private static final String PLOCAL_PREFIX = "plocal:";
+
+  private static final String WAL_SUFFIX = ".wal";
+
+  private static final String BACKUP_SUFFIX = ".gz";
+
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  /**
+   * Backup files, and their temporary files, named by the SHA1 of their content.
+   */
+  private static final Pattern BACKUP_FILE = Pattern.compile(".+\\.[0-9a-f]{40}" + Pattern.quote(BACKUP_SUFFIX)
+      + "(" + Pattern.quote(TEMP_SUFFIX) + ")?");
+
+  /**
+   * Modification times of storage files are only relied upon when older than this (in milliseconds) at backup, as file
+   * systems record them coarsely: a file written again within the same tick would look unchanged.
+   */
+  private static final long MODIFICATION_TIME_GRANULARITY = 2000;
+
+  /**
+   * Locks of online backups, by database name. Externalizers are created per call, and concurrent backups of a database
+   * would delete the staging directory and backup files of each other, so backups of a database are serialized by
+   * these locks, shared by all externalizers.
+   */
+  private static final ConcurrentMap<String, Lock> BACKUP_LOCKS = Maps.newConcurrentMap();
+
   private final DatabaseManager databaseManager;
 
   private final String name;
@@ -110,6 +189,331 @@ public class DatabaseExternalizerImpl
     }
   }
 
+  /**
+   * Online backup of a {@code plocal} database. Storage is frozen only while the files changed since the previous
+   * backup into same directory, by size and modification time, are copied to a staging directory next to it, so
+   * writes stall for the time of a local copy of changed files. Staged files are then compressed into the backup
+   * directory at a throttled rate, each named by the SHA1 of its content. The manifest is replaced last, so an
+   * interrupted backup leaves the previous one intact; staging directories and backup files left by interrupted
+   * backups are dropped by the next one.
+   */
+  @Override
+  public void backup(final File directory) throws IOException {
+    checkNotNull(directory);
+
+    Lock lock = backupLock(name);
+    lock.lock();
+    try {
+      backupOnline(directory);
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  private static Lock backupLock(final String name) {
+    Lock lock = BACKUP_LOCKS.get(name);
+    if (lock == null) {
+      Lock created = new ReentrantLock();
+      lock = BACKUP_LOCKS.putIfAbsent(name, created);
+      if (lock == null) {
+        lock = created;
+      }
+    }
+    return lock;
+  }
+
+  private void backupOnline(final File directory) throws IOException {
+    log.debug("Online backup of database: {} to: {}", name, directory);
+
+    DirSupport.mkdir(directory);
+    Path backupDir = directory.toPath();
+    Properties previous = readManifest(backupDir);
+    Properties manifest = new Properties();
+    Map<String, BasicFileAttributes> staged = Maps.newHashMap();
+    long backupTime;
+    Path staging = null;
+    try {
+      try (ODatabaseDocumentTx db = openDb()) {
+        checkState(db.exists(), "Database does not exist: %s", name);
+        Path storageDir = storageDir(db);
+        deleteStaging(storageDir.getParent());
+        staging = Files.createTempDirectory(storageDir.getParent(), name + "-backup-");
+
+        backupTime = System.currentTimeMillis();
+        Stopwatch frozen = Stopwatch.createStarted();
+        db.freeze();
+        try {
+          // WAL is not needed, storage files are consistent while frozen
+          for (Path file : storageFiles(storageDir)) {
+            String fileName = file.getFileName().toString();
+            if (fileName.endsWith(WAL_SUFFIX)) {
+              continue;
+            }
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            String entry = previous != null ? previous.getProperty(fileName) : null;
+            if (entry != null && isUnchanged(entry, attributes)
+                && Files.exists(backupDir.resolve(backupFileName(fileName, checksum(entry))))) {
+              manifest.setProperty(fileName, entry);
+            }
+            else {
+              Files.copy(file, staging.resolve(fileName));
+              staged.put(fileName, attributes);
+            }
+          }
+        }
+        finally {
+          db.release();
+        }
+        log.info("Database {} was frozen for {} while staging {} changed files", name, frozen, staged.size());
+      }
+
+      RateLimiter rateLimiter = BACKUP_BYTES_PER_SECOND > 0 ? RateLimiter.create(BACKUP_BYTES_PER_SECOND) : null;
+      int written = 0;
+      for (Entry<String, BasicFileAttributes> entry : staged.entrySet()) {
+        String fileName = entry.getKey();
+        Path file = staging.resolve(fileName);
+        String checksum;
+        try (InputStream input = Files.newInputStream(file)) {
+          HashingInputStream hashing = new HashingInputStream(Hashing.sha1(), input);
+          copy(hashing, null, rateLimiter);
+          checksum = hashing.hash().toString();
+        }
+        manifest.setProperty(fileName, manifestEntry(checksum, entry.getValue(), backupTime));
+
+        Path target = backupDir.resolve(backupFileName(fileName, checksum));
+        if (!Files.exists(target)) {
+          Path temp = backupDir.resolve(target.getFileName() + TEMP_SUFFIX);
+          try (InputStream input = Files.newInputStream(file);
+               OutputStream output = new GZIPOutputStream(Files.newOutputStream(temp), BACKUP_BUFFER_SIZE)) {
+            copy(input, output, rateLimiter);
+          }
+          Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+          written++;
+        }
+      }
+      writeManifest(backupDir, manifest);
+      log.info("Backed up database {}: {} files, {} changed since previous backup", name, manifest.size(), written);
+
+      deleteUnreferenced(backupDir, manifest);
+    }
+    finally {
+      if (staging != null) {
+        DirSupport.deleteIfExists(staging);
+      }
+    }
+  }
+
+  /**
+   * Deletes staging directories of database left by interrupted backups.
+   */
+  private void deleteStaging(final Path dir) throws IOException {
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, name + "-backup-*")) {
+      for (Path staging : stream) {
+        if (Files.isDirectory(staging)) {
+          log.info("Deleting staging directory of interrupted backup: {}", staging);
+          DirSupport.deleteIfExists(staging);
+        }
+      }
+    }
+  }
+
+  /**
+   * Deletes backup files not referenced by manifest: files of previous backups, and files left by interrupted ones.
+   */
+  private void deleteUnreferenced(final Path backupDir, final Properties manifest) throws IOException {
+    Set<String> referenced = Sets.newHashSet();
+    for (String fileName : manifest.stringPropertyNames()) {
+      referenced.add(backupFileName(fileName, checksum(manifest.getProperty(fileName))));
+    }
+    for (Path file : storageFiles(backupDir)) {
+      String fileName = file.getFileName().toString();
+      if (BACKUP_FILE.matcher(fileName).matches() && !referenced.contains(fileName)) {
+        log.debug("Deleting unreferenced backup file: {}", file);
+        Files.deleteIfExists(file);
+      }
+    }
+  }
+
+  /**
+   * Returns the manifest entry of a backed up file: its checksum, followed by its size and modification time unless
+   * it was modified too recently for these to tell whether it changes.
+   */
+  private static String manifestEntry(final String checksum,
+                                      final BasicFileAttributes attributes,
+                                      final long backupTime)
+  {
+    long lastModified = attributes.lastModifiedTime().toMillis();
+    if (backupTime - lastModified < MODIFICATION_TIME_GRANULARITY) {
+      return checksum;
+    }
+    return checksum + "," + attributes.size() + "," + lastModified;
+  }
+
+  private static String checksum(final String entry) {
+    int end = entry.indexOf(',');
+    return end < 0 ? entry : entry.substring(0, end);
+  }
+
+  /**
+   * Returns whether file of given attributes has the size and modification time recorded by manifest entry.
+   */
+  private static boolean isUnchanged(final String entry, final BasicFileAttributes attributes) {
+    String[] parts = entry.split(",");
+    return parts.length == 3
+        && parts[1].equals(String.valueOf(attributes.size()))
+        && parts[2].equals(String.valueOf(attributes.lastModifiedTime().toMillis()));
+  }
+
+  /**
+   * Restores a {@code plocal} database from an online backup. Storage files are decompressed in parallel, each
+   * verified against the checksum recorded in the backup manifest.
+   */
+  @Override
+  public void restore(final File directory) throws IOException {
+    checkNotNull(directory);
+
+    log.debug("Restoring database: {} from: {}", name, directory);
+
+    final Path backupDir = directory.toPath();
+    Properties manifest = readManifest(backupDir);
+    checkState(manifest != null, "Missing backup manifest: %s", backupDir.resolve(BACKUP_MANIFEST));
+
+    final Path storageDir;
+    ODatabaseDocumentTx db = openDb();
+    try {
+      checkState(!db.exists(), "Database already exists: %s", name);
+      storageDir = storageDir(db);
+    }
+    finally {
+      if (!db.isClosed()) {
+        db.close();
+      }
+    }
+    DirSupport.mkdir(storageDir);
+
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, RESTORE_THREADS),
+        new ThreadFactoryBuilder().setNameFormat("restore-" + name + "-%d").setDaemon(true).build());
+    boolean complete = false;
+    try {
+      List<Future<Void>> restored = Lists.newArrayList();
+      for (final String fileName : manifest.stringPropertyNames()) {
+        final String checksum = checksum(manifest.getProperty(fileName));
+        restored.add(executor.submit(new Callable<Void>()
+        {
+          @Override
+          public Void call() throws Exception {
+            restoreFile(backupDir.resolve(backupFileName(fileName, checksum)), storageDir.resolve(fileName),
+                checksum);
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> future : restored) {
+        future.get();
+      }
+      complete = true;
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted restoring database: " + name, e);
+    }
+    catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause(), IOException.class);
+      throw Throwables.propagate(e.getCause());
+    }
+    finally {
+      executor.shutdownNow();
+      if (!complete) {
+        // do not leave a partially restored database behind
+        DirSupport.deleteIfExists(storageDir);
+      }
+    }
+    log.info("Restored database {}: {} files in {}", name, manifest.size(), stopwatch);
+  }
+
+  private void restoreFile(final Path source, final Path target, final String checksum) throws IOException {
+    String actual;
+    try (InputStream input = new GZIPInputStream(Files.newInputStream(source), BACKUP_BUFFER_SIZE);
+         OutputStream output = Files.newOutputStream(target)) {
+      HashingInputStream hashing = new HashingInputStream(Hashing.sha1(), input);
+      copy(hashing, output, null);
+      actual = hashing.hash().toString();
+    }
+    if (!checksum.equals(actual)) {
+      throw new IOException("Checksum mismatch of restored file: " + source + ", expected: " + checksum
+          + ", actual: " + actual);
+    }
+    log.debug("Restored: {}", target);
+  }
+
+  /**
+   * Returns the storage directory of a {@code plocal} database.
+   */
+  private Path storageDir(final ODatabaseDocumentTx db) {
+    String url = db.getURL();
+    checkState(url.startsWith(PLOCAL_PREFIX), "Online backup requires a plocal database: %s", url);
+    return new File(url.substring(PLOCAL_PREFIX.length())).toPath();
+  }
+
+  private static List<Path> storageFiles(final Path dir) throws IOException {
+    List<Path> files = Lists.newArrayList();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+      for (Path file : stream) {
+        if (Files.isRegularFile(file)) {
+          files.add(file);
+        }
+      }
+    }
+    return files;
+  }
+
+  private static String backupFileName(final String fileName, @Nullable final String checksum) {
+    return fileName + "." + checksum + BACKUP_SUFFIX;
+  }
+
+  /**
+   * Copies input to output, if given, acquiring a permit for each byte if rate limited.
+   */
+  private static void copy(final InputStream input,
+                           @Nullable final OutputStream output,
+                           @Nullable final RateLimiter rateLimiter) throws IOException
+  {
+    byte[] buffer = new byte[BACKUP_BUFFER_SIZE];
+    int read;
+    while ((read = input.read(buffer)) != -1) {
+      if (rateLimiter != null) {
+        rateLimiter.acquire(read);
+      }
+      if (output != null) {
+        output.write(buffer, 0, read);
+      }
+    }
+  }
+
+  @Nullable
+  private static Properties readManifest(final Path dir) throws IOException {
+    Path file = dir.resolve(BACKUP_MANIFEST);
+    if (!Files.exists(file)) {
+      return null;
+    }
+    Properties properties = new Properties();
+    try (InputStream input = Files.newInputStream(file)) {
+      properties.load(input);
+    }
+    return properties;
+  }
+
+  private static void writeManifest(final Path dir, final Properties manifest) throws IOException {
+    Path temp = dir.resolve(BACKUP_MANIFEST + TEMP_SUFFIX);
+    try (OutputStream output = Files.newOutputStream(temp)) {
+      manifest.store(output, null);
+    }
+    Files.move(temp, dir.resolve(BACKUP_MANIFEST), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
   @Override
   public void export(final OutputStream output) throws IOException {
     checkNotNull(output);
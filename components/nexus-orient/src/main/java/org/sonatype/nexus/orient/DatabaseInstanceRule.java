@@ -12,8 +12,11 @@
  */
 package org.sonatype.nexus.orient;
 
+import java.io.File;
 import java.util.List;
 
+import javax.annotation.Nullable;
+
 import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
 import org.junit.rules.ExternalResource;
@@ -42,14 +45,25 @@ public class DatabaseInstanceRule
 
   private final String name;
 
+  @Nullable
+  private final File directory;
+
   private MinimalDatabaseServer server;
 
-  private MemoryDatabaseManager manager;
+  private DatabaseManagerSupport manager;
 
   private DatabaseInstance instance;
 
   public DatabaseInstanceRule(final String name) {
+    this(name, null);
+  }
+
+  /**
+   * Rule of an in-memory database, or of a {@code plocal} database in given directory if any.
+   */
+  public DatabaseInstanceRule(final String name, @Nullable final File directory) {
     this.name = checkNotNull(name);
+    this.directory = directory;
   }
 
   public MinimalDatabaseServer getServer() {
@@ -57,7 +71,7 @@ public class DatabaseInstanceRule
     return server;
   }
 
-  public MemoryDatabaseManager getManager() {
+  public DatabaseManagerSupport getManager() {
     checkState(manager != null);
     return manager;
   }
@@ -74,7 +88,7 @@ public class DatabaseInstanceRule
     server = new MinimalDatabaseServer();
     server.start();
 
-    manager = new MemoryDatabaseManager();
+    manager = directory != null ? new LocalDatabaseManager(directory) : new MemoryDatabaseManager();
     manager.start();
 
     instance = manager.instance(name);
@@ -120,4 +134,22 @@ public class DatabaseInstanceRule
 
     log.info("Database instance cleaned up");
   }
+
+  /**
+   * Manager of {@code plocal} databases in a directory.
+   */
+  private static class LocalDatabaseManager
+      extends DatabaseManagerSupport
+  {
+    private final File directory;
+
+    private LocalDatabaseManager(final File directory) {
+      this.directory = checkNotNull(directory);
+    }
+
+    @Override
+    protected String connectionUri(final String name) {
+      return "plocal:" + new File(directory, name).getAbsolutePath();
+    }
+  }
 }
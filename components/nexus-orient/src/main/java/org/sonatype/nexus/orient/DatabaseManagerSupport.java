@@ -20,7 +20,6 @@ import org.sonatype.sisu.goodies.lifecycle.Lifecycles;
 
 import com.google.common.base.Throwables;
 import com.google.common.collect.Maps;
-import com.orientechnologies.orient.core.db.OPartitionedDatabasePool;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -204,13 +203,11 @@ public abstract class DatabaseManagerSupport
   }
 
   private DatabasePoolImpl createPool(final String name) {
-    // TODO: refine more control over how pool settings are configured per-database or globally
-
     String uri = connectionUri(name);
-    OPartitionedDatabasePool underlying = new OPartitionedDatabasePool(uri, SYSTEM_USER, SYSTEM_PASSWORD, 25);
 
     // TODO: Do not allow shared pool() to be closed by users, only by ourselves
-    DatabasePoolImpl pool = new DatabasePoolImpl(underlying, name);
+    DatabasePoolImpl pool = new DatabasePoolImpl(uri, name, SYSTEM_USER, SYSTEM_PASSWORD,
+        DatabasePoolImpl.maxConnections(name));
     Lifecycles.start(pool);
     return pool;
   }
@@ -12,30 +12,184 @@
  */
 package org.sonatype.nexus.orient;
 
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
 import org.sonatype.sisu.goodies.lifecycle.LifecycleSupport;
 import org.sonatype.sisu.goodies.lifecycle.Lifecycles;
 
-import com.orientechnologies.orient.core.db.OPartitionedDatabasePool;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Sets;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 
+import static com.codahale.metrics.MetricRegistry.name;
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
 /**
  * Default {@link DatabasePool} implementation.
  *
+ * Each acquire leases its own connection, rather than reusing the connection the thread already holds, so closing or
+ * rolling back a nested acquire never affects the transaction of an enclosing one, and the connection previously
+ * current on the thread is restored when the nested one is closed. Callers rely on nested acquires running their own
+ * transactions, which a shared connection could not provide.
+ *
+ * The count of leased connections is limited per database, threads acquiring beyond the limit wait for a connection
+ * to be released. Nested acquires, by a thread already holding a connection of the pool, must not wait on outermost
+ * connections, as they could deadlock waiting on the enclosing one. First level nested acquires take a connection of
+ * a separate, smaller reserve instead, and deeper ones are bounded by a maximum nesting depth, so the total count of
+ * leased connections stays bounded. Idle connections are capped, and closed once idle for too long.
+ *
+ * Acquire latency, leased (active) and idle connections are exposed as metrics per database, and connections leased
+ * for too long, or by terminated threads, are reported as leaks.
+ *
+ * Pools are sized by system properties, {@code org.sonatype.nexus.orient.DatabasePoolImpl.maxConnections} for all
+ * databases, overridden by {@code org.sonatype.nexus.orient.DatabasePoolImpl.<database>.maxConnections}.
+ *
  * @since 3.0
  */
 public class DatabasePoolImpl
   extends LifecycleSupport
   implements DatabasePool
 {
+  private static final String CONFIG_PREFIX = DatabasePoolImpl.class.getName() + ".";
+
+  /**
+   * Default maximum count of leased connections per database: the default maximum of request threads, so requests do
+   * not wait on the pool, as request threads often wait on remote and blob I/O while holding a connection.
+   */
+  public static final int DEFAULT_MAX_CONNECTIONS = SystemPropertiesHelper.getInteger(
+      CONFIG_PREFIX + "maxConnections", 200);
+
+  /**
+   * Maximum count of idle connections kept per database, connections released beyond it are closed.
+   */
+  private static final int MAX_IDLE_CONNECTIONS = SystemPropertiesHelper.getInteger(
+      CONFIG_PREFIX + "maxIdleConnections", 20);
+
+  /**
+   * Maximum depth of nested acquires by a thread, below its outermost acquire.
+   */
+  private static final int MAX_NESTING = SystemPropertiesHelper.getInteger(CONFIG_PREFIX + "maxNesting", 4);
+
+  /**
+   * Default maximum time (in seconds) to wait for a connection to be released.
+   */
+  private static final long ACQUIRE_TIMEOUT = SystemPropertiesHelper.getLong(CONFIG_PREFIX + "acquireTimeout", 60);
+
+  /**
+   * Default time (in seconds) connections may be leased, before being reported as leaks.
+   */
+  private static final long LEAK_THRESHOLD = SystemPropertiesHelper.getLong(CONFIG_PREFIX + "leakThreshold", 300);
+
+  /**
+   * Default time (in seconds) connections are kept idle, before being closed.
+   */
+  private static final long IDLE_TIMEOUT = SystemPropertiesHelper.getLong(CONFIG_PREFIX + "idleTimeout", 300);
+
+  private final String uri;
+
   private final String name;
 
-  private final OPartitionedDatabasePool delegate;
+  private final String user;
+
+  private final String password;
+
+  private final int maxConnections;
+
+  private final int maxIdleConnections;
+
+  private final long acquireTimeoutMillis;
+
+  private final long leakThresholdMillis;
+
+  private final long idleTimeoutMillis;
 
-  public DatabasePoolImpl(final OPartitionedDatabasePool pool, final String name) {
-    this.delegate = checkNotNull(pool);
+  private final Semaphore permits;
+
+  /**
+   * Permits of first level nested acquires.
+   */
+  private final Semaphore nestedPermits;
+
+  private final BlockingDeque<PooledDatabase> idle = new LinkedBlockingDeque<>();
+
+  private final Set<PooledDatabase> leased = Sets.newConcurrentHashSet();
+
+  private final AtomicInteger created = new AtomicInteger();
+
+  private final ThreadLocal<PooledDatabase> current = new ThreadLocal<>();
+
+  private final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate("nexus");
+
+  private final Timer acquireTimer;
+
+  private final Meter leakMeter;
+
+  private Gauge<Integer> activeGauge;
+
+  private Gauge<Integer> idleGauge;
+
+  public DatabasePoolImpl(final String uri,
+                          final String name,
+                          final String user,
+                          final String password,
+                          final int maxConnections)
+  {
+    this(uri, name, user, password, maxConnections, Math.max(1, maxConnections / 4),
+        Math.min(maxConnections, MAX_IDLE_CONNECTIONS), TimeUnit.SECONDS.toMillis(ACQUIRE_TIMEOUT),
+        TimeUnit.SECONDS.toMillis(LEAK_THRESHOLD), TimeUnit.SECONDS.toMillis(IDLE_TIMEOUT));
+  }
+
+  @VisibleForTesting
+  DatabasePoolImpl(final String uri,
+                   final String name,
+                   final String user,
+                   final String password,
+                   final int maxConnections,
+                   final int maxNestedConnections,
+                   final int maxIdleConnections,
+                   final long acquireTimeoutMillis,
+                   final long leakThresholdMillis,
+                   final long idleTimeoutMillis)
+  {
+    this.uri = checkNotNull(uri);
     this.name = checkNotNull(name);
+    this.user = checkNotNull(user);
+    this.password = checkNotNull(password);
+    checkArgument(maxConnections > 0, "Max connections must be positive");
+    checkArgument(maxNestedConnections > 0, "Max nested connections must be positive");
+    this.maxConnections = maxConnections;
+    this.maxIdleConnections = maxIdleConnections;
+    this.acquireTimeoutMillis = acquireTimeoutMillis;
+    this.leakThresholdMillis = leakThresholdMillis;
+    this.idleTimeoutMillis = idleTimeoutMillis;
+    this.permits = new Semaphore(maxConnections, true);
+    this.nestedPermits = new Semaphore(maxNestedConnections, true);
+    this.acquireTimer = metricRegistry.timer(name(DatabasePool.class, name, "acquire"));
+    this.leakMeter = metricRegistry.meter(name(DatabasePool.class, name, "leaks"));
+  }
+
+  /**
+   * Returns the configured maximum count of leased connections of database.
+   */
+  public static int maxConnections(final String name) {
+    return SystemPropertiesHelper.getInteger(CONFIG_PREFIX + name + ".maxConnections", DEFAULT_MAX_CONNECTIONS);
   }
 
   @Override
@@ -43,22 +197,267 @@ public class DatabasePoolImpl
     return name;
   }
 
+  public int getMaxConnections() {
+    return maxConnections;
+  }
+
+  public int getActiveConnections() {
+    return leased.size();
+  }
+
+  public int getIdleConnections() {
+    return idle.size();
+  }
+
   // promote to public
   @Override
   public boolean isStarted() {
     return super.isStarted();
   }
 
+  @Override
+  protected void doStart() throws Exception {
+    activeGauge = register("active", new Gauge<Integer>()
+    {
+      @Override
+      public Integer getValue() {
+        return getActiveConnections();
+      }
+    });
+    idleGauge = register("idle", new Gauge<Integer>()
+    {
+      @Override
+      public Integer getValue() {
+        return getIdleConnections();
+      }
+    });
+  }
+
+  private Gauge<Integer> register(final String metric, final Gauge<Integer> gauge) {
+    // last started pool of database wins, for non-shared pools
+    String gaugeName = name(DatabasePool.class, name, metric);
+    metricRegistry.remove(gaugeName);
+    return metricRegistry.register(gaugeName, gauge);
+  }
+
   @Override
   protected void doStop() throws Exception {
-    delegate.close();
+    unregister("active", activeGauge);
+    unregister("idle", idleGauge);
+
+    if (!leased.isEmpty()) {
+      log.warn("Closing pool {} with {} leased connections", name, leased.size());
+      checkLeaks();
+    }
+    PooledDatabase db;
+    while ((db = idle.poll()) != null) {
+      db.closeConnection();
+    }
+  }
+
+  private void unregister(final String metric, final Gauge<Integer> gauge) {
+    String gaugeName = name(DatabasePool.class, name, metric);
+    if (metricRegistry.getGauges().get(gaugeName) == gauge) {
+      metricRegistry.remove(gaugeName);
+    }
   }
 
   @Override
   public ODatabaseDocumentTx acquire() {
     ensureStarted();
 
-    return delegate.acquire();
+    trimIdle();
+
+    PooledDatabase outer = current.get();
+    boolean nested = outer != null && outer.owner == Thread.currentThread() && leased.contains(outer);
+    int depth = nested ? outer.depth + 1 : 0;
+    if (depth > MAX_NESTING) {
+      throw new IllegalStateException("Acquire of pool " + name + " nested deeper than " + MAX_NESTING);
+    }
+    Semaphore permit = permitOf(depth);
+    if (permit != null) {
+      waitForPermit(permit);
+    }
+
+    ODatabaseDocumentInternal previous = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
+    PooledDatabase db;
+    try {
+      db = idle.pollFirst();
+      if (db == null || db.isClosed()) {
+        db = new PooledDatabase(uri);
+        db.open(user, password);
+        log.debug("Opened connection {} of pool {}", created.incrementAndGet(), name);
+      }
+      else {
+        ODatabaseRecordThreadLocal.INSTANCE.set(db);
+      }
+    }
+    catch (RuntimeException e) {
+      restore(previous);
+      if (permit != null) {
+        permit.release();
+      }
+      throw e;
+    }
+    db.lease(nested ? outer : null, depth, previous);
+    leased.add(db);
+    current.set(db);
+    return db;
+  }
+
+  /**
+   * Returns the permits limiting connections acquired at given nesting depth, {@code null} if only limited by
+   * {@link #MAX_NESTING}. Holders of nested permits never wait for another permit, so they can not deadlock.
+   */
+  @Nullable
+  private Semaphore permitOf(final int depth) {
+    return depth == 0 ? permits : depth == 1 ? nestedPermits : null;
+  }
+
+  private void waitForPermit(final Semaphore permit) {
+    Timer.Context ctx = acquireTimer.time();
+    try {
+      if (!permit.tryAcquire()) {
+        log.debug("Waiting for connection of pool {}, {} leased", name, leased.size());
+        checkLeaks();
+        if (!permit.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+          throw new IllegalStateException(
+              "Timed out waiting for connection of pool " + name + ", " + leased.size() + " leased");
+        }
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted waiting for connection of pool " + name, e);
+    }
+    finally {
+      ctx.stop();
+    }
+  }
+
+  /**
+   * Makes given database current on the calling thread again, if still open.
+   */
+  private static void restore(@Nullable final ODatabaseDocumentInternal previous) {
+    if (previous != null && !previous.isClosed()) {
+      ODatabaseRecordThreadLocal.INSTANCE.set(previous);
+    }
+    else {
+      ODatabaseRecordThreadLocal.INSTANCE.remove();
+    }
+  }
+
+  /**
+   * Returns a connection to the pool, rolling back its pending transaction, and restores the connection current on
+   * the thread when it was acquired.
+   */
+  private void release(final PooledDatabase db) {
+    if (db.owner == null) {
+      // closed already
+      return;
+    }
+    boolean owned = db.owner == Thread.currentThread();
+    ODatabaseDocumentInternal previous = db.previous;
+    if (owned && current.get() == db) {
+      if (db.outer != null) {
+        current.set(db.outer);
+      }
+      else {
+        current.remove();
+      }
+    }
+    if (!leased.remove(db)) {
+      // already reclaimed as leak
+      db.owner = null;
+      return;
+    }
+    Semaphore permit = permitOf(db.depth);
+    try {
+      if (isStarted() && !db.isClosed() && !db.getStorage().isClosed() && idle.size() < maxIdleConnections) {
+        ODatabaseRecordThreadLocal.INSTANCE.set(db);
+        if (db.getTransaction().isActive()) {
+          db.rollback();
+        }
+        db.getLocalCache().clear();
+        db.unlease();
+        db.idleSince = System.nanoTime();
+        idle.offerFirst(db);
+      }
+      else {
+        db.unlease();
+        db.closeConnection();
+      }
+    }
+    catch (RuntimeException e) {
+      log.warn("Discarding connection of pool {}", name, e);
+      db.unlease();
+      db.closeConnection();
+    }
+    finally {
+      if (owned) {
+        restore(previous);
+      }
+      else {
+        ODatabaseRecordThreadLocal.INSTANCE.remove();
+      }
+      if (permit != null) {
+        permit.release();
+      }
+    }
+  }
+
+  /**
+   * Closes connections idle for longer than the idle timeout. Idle connections are reused most recently released
+   * first, so the ones idle for longest are at the tail.
+   */
+  private void trimIdle() {
+    long idleBefore = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+    PooledDatabase db = idle.peekLast();
+    if (db == null || db.idleSince >= idleBefore) {
+      return;
+    }
+    ODatabaseDocumentInternal previous = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
+    try {
+      while ((db = idle.peekLast()) != null && db.idleSince < idleBefore) {
+        if (idle.removeLastOccurrence(db)) {
+          log.debug("Closing connection of pool {} idle for more than {} ms", name, idleTimeoutMillis);
+          db.closeConnection();
+        }
+      }
+    }
+    finally {
+      restore(previous);
+    }
+  }
+
+  /**
+   * Reports connections leased longer than the leak threshold, and reclaims the permits of connections leased by
+   * terminated threads.
+   */
+  private void checkLeaks() {
+    long leakedBefore = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(leakThresholdMillis);
+    for (PooledDatabase db : leased) {
+      Thread owner = db.owner;
+      if (owner != null && !owner.isAlive()) {
+        if (leased.remove(db)) {
+          leakMeter.mark();
+          log.warn("Reclaiming connection of pool {} leaked by terminated thread {}", name, owner.getName(),
+              db.acquiredAt);
+          Semaphore permit = permitOf(db.depth);
+          db.unlease();
+          db.closeConnection();
+          if (permit != null) {
+            permit.release();
+          }
+        }
+      }
+      else if (!db.reported && db.leasedAt < leakedBefore) {
+        db.reported = true;
+        leakMeter.mark();
+        log.warn("Connection of pool {} leased by thread {} for more than {} ms", name,
+            owner != null ? owner.getName() : null, leakThresholdMillis, db.acquiredAt);
+      }
+    }
   }
 
   @Override
@@ -70,6 +469,87 @@ public class DatabasePoolImpl
   public String toString() {
     return getClass().getSimpleName() + "{" +
         "name='" + name + '\'' +
+        ", maxConnections=" + maxConnections +
         '}';
   }
+
+  /**
+   * Pooled connection, that returns to pool when closed.
+   */
+  private class PooledDatabase
+      extends ODatabaseDocumentTx
+  {
+    private volatile Thread owner;
+
+    /**
+     * Connection of this pool leased by the thread when this one was acquired, {@code null} if none.
+     */
+    @Nullable
+    private PooledDatabase outer;
+
+    /**
+     * Nesting depth of this lease, 0 for outermost.
+     */
+    private int depth;
+
+    /**
+     * Database current on the thread when this one was acquired, {@code null} if none.
+     */
+    @Nullable
+    private ODatabaseDocumentInternal previous;
+
+    private long leasedAt;
+
+    private long idleSince;
+
+    private volatile boolean reported;
+
+    /**
+     * Acquisition site, only recorded when debugging.
+     */
+    @Nullable
+    private Exception acquiredAt;
+
+    private PooledDatabase(final String uri) {
+      super(uri);
+    }
+
+    private void lease(@Nullable final PooledDatabase outer,
+                       final int depth,
+                       @Nullable final ODatabaseDocumentInternal previous)
+    {
+      checkState(owner == null);
+      this.owner = Thread.currentThread();
+      this.outer = outer;
+      this.depth = depth;
+      this.previous = previous;
+      leasedAt = System.nanoTime();
+      reported = false;
+      acquiredAt = log.isDebugEnabled() ? new Exception("Acquired by " + owner.getName()) : null;
+    }
+
+    private void unlease() {
+      owner = null;
+      outer = null;
+      depth = 0;
+      previous = null;
+      acquiredAt = null;
+    }
+
+    @Override
+    public void close() {
+      release(this);
+    }
+
+    private void closeConnection() {
+      try {
+        if (!isClosed()) {
+          super.close();
+        }
+      }
+      catch (RuntimeException e) {
+        log.debug("Failed to close connection of pool {}", name, e);
+      }
+    }
+  }
 }
@@ -0,0 +1,194 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.orient;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.fail;
+import static org.sonatype.nexus.orient.DatabaseExternalizerImpl.BACKUP_MANIFEST;
+
+/**
+ * Tests for online backup and restore of {@link DatabaseExternalizerImpl}.
+ */
+public class DatabaseExternalizerImplTest
+    extends TestSupport
+{
+  private final File databases = util.createTempDir("databases");
+
+  @Rule
+  public DatabaseInstanceRule database = new DatabaseInstanceRule("test", databases);
+
+  private File backupDir;
+
+  @Before
+  public void setUp() {
+    backupDir = util.createTempDir("backup");
+  }
+
+  private void populate(final int count) {
+    try (ODatabaseDocumentTx db = database.getInstance().connect()) {
+      if (!db.getMetadata().getSchema().existsClass("Item")) {
+        db.getMetadata().getSchema().createClass("Item");
+      }
+      for (int i = 0; i < count; i++) {
+        db.save(new ODocument("Item").field("name", "item-" + i));
+      }
+    }
+  }
+
+  private void backup() throws IOException {
+    database.getInstance().externalizer().backup(backupDir);
+  }
+
+  private long restoredItems() throws IOException {
+    database.getManager().externalizer("restored").restore(backupDir);
+    try (ODatabaseDocumentTx db = database.getManager().connect("restored", false)) {
+      return db.countClass("Item");
+    }
+  }
+
+  private Properties manifest() throws IOException {
+    Properties manifest = new Properties();
+    try (InputStream input = new FileInputStream(new File(backupDir, BACKUP_MANIFEST))) {
+      manifest.load(input);
+    }
+    return manifest;
+  }
+
+  private File backupFile(final Properties manifest, final String fileName) {
+    String checksum = manifest.getProperty(fileName).split(",")[0];
+    return new File(backupDir, fileName + "." + checksum + ".gz");
+  }
+
+  @Test
+  public void backupAndRestore() throws Exception {
+    populate(100);
+
+    backup();
+
+    Properties manifest = manifest();
+    assertThat(manifest.isEmpty(), equalTo(false));
+    for (String fileName : manifest.stringPropertyNames()) {
+      assertThat(fileName, backupFile(manifest, fileName).isFile(), equalTo(true));
+    }
+    assertThat(restoredItems(), equalTo(100L));
+  }
+
+  @Test
+  public void concurrentBackupsAreSerialized() throws Exception {
+    populate(100);
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      List<Future<Void>> backups = Lists.newArrayList();
+      for (int i = 0; i < 2; i++) {
+        backups.add(executor.submit(new Callable<Void>()
+        {
+          @Override
+          public Void call() throws Exception {
+            // each call gets its own externalizer
+            backup();
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> backup : backups) {
+        backup.get();
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+
+    Properties manifest = manifest();
+    for (String fileName : manifest.stringPropertyNames()) {
+      assertThat(fileName, backupFile(manifest, fileName).isFile(), equalTo(true));
+    }
+    assertThat(restoredItems(), equalTo(100L));
+  }
+
+  @Test
+  public void backupDropsLeftoversOfInterruptedBackups() throws Exception {
+    populate(10);
+    backup();
+
+    Path staging = databases.toPath().resolve("test-backup-123");
+    Files.createDirectories(staging);
+    Files.write(staging.resolve("item.pcl"), "staged".getBytes(UTF_8));
+    String checksum = Strings.repeat("a", 40);
+    Path orphan = backupDir.toPath().resolve("item.pcl." + checksum + ".gz");
+    Path orphanTemp = backupDir.toPath().resolve("item.pcl." + checksum + ".gz.tmp");
+    Path unrelated = backupDir.toPath().resolve("README.txt");
+    for (Path file : new Path[]{orphan, orphanTemp, unrelated}) {
+      Files.write(file, "leftover".getBytes(UTF_8));
+    }
+
+    populate(10);
+    backup();
+
+    assertThat(Files.exists(staging), equalTo(false));
+    assertThat(Files.exists(orphan), equalTo(false));
+    assertThat(Files.exists(orphanTemp), equalTo(false));
+    assertThat(Files.exists(unrelated), equalTo(true));
+    assertThat(restoredItems(), equalTo(20L));
+  }
+
+  @Test
+  public void restoreFailsOnChecksumMismatch() throws Exception {
+    populate(10);
+    backup();
+
+    Properties manifest = manifest();
+    String fileName = manifest.stringPropertyNames().iterator().next();
+    try (OutputStream output = new GZIPOutputStream(new FileOutputStream(backupFile(manifest, fileName)))) {
+      output.write("corrupted".getBytes(UTF_8));
+    }
+
+    try {
+      restoredItems();
+      fail();
+    }
+    catch (IOException e) {
+      assertThat(e.getMessage(), containsString("Checksum mismatch"));
+    }
+    assertThat(database.getManager().connect("restored", false).exists(), equalTo(false));
+  }
+}
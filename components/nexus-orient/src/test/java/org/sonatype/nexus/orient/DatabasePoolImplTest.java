@@ -0,0 +1,300 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.orient;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.sonatype.sisu.goodies.lifecycle.Lifecycles;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.fail;
+import static org.sonatype.nexus.orient.DatabaseManagerSupport.SYSTEM_PASSWORD;
+import static org.sonatype.nexus.orient.DatabaseManagerSupport.SYSTEM_USER;
+
+/**
+ * Tests for {@link DatabasePoolImpl}.
+ */
+public class DatabasePoolImplTest
+    extends TestSupport
+{
+  @Rule
+  public DatabaseInstanceRule database = new DatabaseInstanceRule("test");
+
+  private final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate("nexus");
+
+  private ExecutorService executor;
+
+  private DatabasePoolImpl underTest;
+
+  @Before
+  public void setUp() {
+    try (ODatabaseDocumentTx db = database.getInstance().connect()) {
+      db.getMetadata().getSchema().createClass("Item");
+    }
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+    if (underTest != null) {
+      underTest.close();
+      underTest = null;
+    }
+  }
+
+  /**
+   * Starts a pool of one connection, named as the test so metrics are not shared by tests.
+   */
+  private DatabasePoolImpl pool(final String name, final long leakThresholdMillis) {
+    return pool(name, 1, 1, leakThresholdMillis, 60000);
+  }
+
+  private DatabasePoolImpl pool(final String name,
+                                final int maxConnections,
+                                final int maxIdleConnections,
+                                final long leakThresholdMillis,
+                                final long idleTimeoutMillis)
+  {
+    underTest = new DatabasePoolImpl("memory:test", name, SYSTEM_USER, SYSTEM_PASSWORD, maxConnections, 1,
+        maxIdleConnections, 200, leakThresholdMillis, idleTimeoutMillis);
+    Lifecycles.start(underTest);
+    return underTest;
+  }
+
+  private ODatabaseDocumentTx acquireOnOtherThread() throws Exception {
+    return executor.submit(new Callable<ODatabaseDocumentTx>()
+    {
+      @Override
+      public ODatabaseDocumentTx call() {
+        return underTest.acquire();
+      }
+    }).get();
+  }
+
+  private long countItems() {
+    try (ODatabaseDocumentTx db = underTest.acquire()) {
+      return db.countClass("Item");
+    }
+  }
+
+  @Test
+  public void nestedAcquireDoesNotAffectEnclosingTransaction() {
+    pool("nesting", 60000);
+
+    ODatabaseDocumentTx outer = underTest.acquire();
+    outer.begin();
+    outer.save(new ODocument("Item").field("name", "outer"));
+
+    // beyond the limit of one connection, without waiting
+    ODatabaseDocumentTx inner = underTest.acquire();
+    assertThat(inner, not(sameInstance(outer)));
+    assertThat(ODatabaseRecordThreadLocal.INSTANCE.get(), sameInstance((Object) inner));
+    inner.begin();
+    inner.rollback();
+    inner.close();
+
+    assertThat(ODatabaseRecordThreadLocal.INSTANCE.get(), sameInstance((Object) outer));
+    assertThat(outer.getTransaction().isActive(), equalTo(true));
+    outer.commit();
+    outer.close();
+
+    assertThat(countItems(), equalTo(1L));
+    assertThat(underTest.getActiveConnections(), equalTo(0));
+  }
+
+  @Test
+  public void nestingIsBoundedInDepth() {
+    pool("depth", 60000);
+
+    Deque<ODatabaseDocumentTx> acquired = new ArrayDeque<>();
+    try {
+      // outermost, and default maximum nesting depth
+      for (int i = 0; i < 5; i++) {
+        acquired.push(underTest.acquire());
+      }
+      try {
+        underTest.acquire();
+        fail();
+      }
+      catch (IllegalStateException e) {
+        // expected
+      }
+    }
+    finally {
+      while (!acquired.isEmpty()) {
+        acquired.pop().close();
+      }
+    }
+    assertThat(underTest.getActiveConnections(), equalTo(0));
+  }
+
+  @Test
+  public void nestedAcquiresAreBoundedByReserve() throws Exception {
+    pool("reserve", 2, 2, 60000, 60000);
+
+    ODatabaseDocumentTx outer = underTest.acquire();
+    ODatabaseDocumentTx inner = underTest.acquire();
+    try {
+      executor.submit(new Callable<Void>()
+      {
+        @Override
+        public Void call() {
+          try (ODatabaseDocumentTx otherOuter = underTest.acquire()) {
+            underTest.acquire().close();
+          }
+          return null;
+        }
+      }).get();
+      fail();
+    }
+    catch (ExecutionException e) {
+      assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+    }
+    inner.close();
+    outer.close();
+    assertThat(underTest.getActiveConnections(), equalTo(0));
+  }
+
+  @Test
+  public void idleConnectionsAreCappedAndClosedWhenIdleTooLong() throws Exception {
+    pool("idle", 2, 1, 60000, 50);
+
+    ODatabaseDocumentTx db1 = underTest.acquire();
+    ODatabaseDocumentTx db2 = underTest.acquire();
+    db2.close();
+    db1.close();
+    assertThat(underTest.getIdleConnections(), equalTo(1));
+
+    Thread.sleep(100);
+    ODatabaseDocumentTx db = underTest.acquire();
+    assertThat(underTest.getIdleConnections(), equalTo(0));
+    assertThat(db.isClosed(), equalTo(false));
+    db.close();
+  }
+
+  @Test
+  public void closingReleasesPendingTransaction() {
+    pool("rollback", 60000);
+
+    ODatabaseDocumentTx db = underTest.acquire();
+    db.begin();
+    db.save(new ODocument("Item").field("name", "pending"));
+    db.close();
+
+    assertThat(countItems(), equalTo(0L));
+  }
+
+  @Test
+  public void acquireBeyondLimitTimesOut() throws Exception {
+    pool("timeout", 60000);
+
+    ODatabaseDocumentTx db = underTest.acquire();
+    try {
+      acquireOnOtherThread();
+      fail();
+    }
+    catch (ExecutionException e) {
+      assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+    }
+
+    db.close();
+    acquireOnOtherThread().close();
+  }
+
+  @Test
+  public void connectionLeakedByTerminatedThreadIsReclaimed() throws Exception {
+    pool("reclaim", 60000);
+    long leaks = metricRegistry.meter(name(DatabasePool.class, "reclaim", "leaks")).getCount();
+
+    Thread thread = new Thread()
+    {
+      @Override
+      public void run() {
+        underTest.acquire();
+      }
+    };
+    thread.start();
+    thread.join();
+    assertThat(underTest.getActiveConnections(), equalTo(1));
+
+    underTest.acquire().close();
+
+    assertThat(underTest.getActiveConnections(), equalTo(0));
+    assertThat(metricRegistry.meter(name(DatabasePool.class, "reclaim", "leaks")).getCount(), equalTo(leaks + 1));
+  }
+
+  @Test
+  public void connectionLeasedBeyondThresholdIsReported() throws Exception {
+    pool("leak", 0);
+    long leaks = metricRegistry.meter(name(DatabasePool.class, "leak", "leaks")).getCount();
+
+    ODatabaseDocumentTx db = underTest.acquire();
+    Thread.sleep(5);
+    try {
+      acquireOnOtherThread();
+      fail();
+    }
+    catch (ExecutionException e) {
+      assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+    }
+    db.close();
+
+    assertThat(metricRegistry.meter(name(DatabasePool.class, "leak", "leaks")).getCount(), equalTo(leaks + 1));
+  }
+
+  @Test
+  public void metrics() throws Exception {
+    pool("metrics", 60000);
+    long acquires = metricRegistry.timer(name(DatabasePool.class, "metrics", "acquire")).getCount();
+
+    ODatabaseDocumentTx db = underTest.acquire();
+    assertThat(gauge("metrics", "active"), equalTo((Object) 1));
+    assertThat(gauge("metrics", "idle"), equalTo((Object) 0));
+
+    db.close();
+    assertThat(gauge("metrics", "active"), equalTo((Object) 0));
+    assertThat(gauge("metrics", "idle"), equalTo((Object) 1));
+    assertThat(metricRegistry.timer(name(DatabasePool.class, "metrics", "acquire")).getCount(),
+        equalTo(acquires + 1));
+
+    underTest.close();
+    underTest = null;
+    assertThat(metricRegistry.getGauges().containsKey(name(DatabasePool.class, "metrics", "active")), equalTo(false));
+  }
+
+  private Object gauge(final String pool, final String metric) {
+    return metricRegistry.getGauges().get(name(DatabasePool.class, pool, metric)).getValue();
+  }
+}
@@ -29,6 +29,7 @@ import org.sonatype.nexus.repository.Repository;
 import org.sonatype.nexus.repository.config.Configuration;
 import org.sonatype.nexus.repository.config.ConfigurationFacet;
 import org.sonatype.nexus.repository.config.ConfigurationStore;
+import org.sonatype.nexus.repository.storage.BucketDeleter;
 import org.sonatype.nexus.repository.view.ViewFacet;
 import org.sonatype.sisu.goodies.eventbus.EventBus;
 
@@ -62,6 +63,8 @@ public class RepositoryManagerImpl
 
   private final RepositoryAdminSecurityConfigurationResource securityResource;
 
+  private final BucketDeleter bucketDeleter;
+
   private final Map<String, Repository> repositories = Maps.newHashMap();
 
   @Inject
@@ -70,7 +73,8 @@ public class RepositoryManagerImpl
                                final RepositoryFactory factory,
                                final Provider<ConfigurationFacet> configFacet,
                                final Map<String, Recipe> recipes,
-                               final RepositoryAdminSecurityConfigurationResource securityResource)
+                               final RepositoryAdminSecurityConfigurationResource securityResource,
+                               final BucketDeleter bucketDeleter)
   {
     this.eventBus = checkNotNull(eventBus);
     this.store = checkNotNull(store);
@@ -78,6 +82,7 @@ public class RepositoryManagerImpl
     this.configFacet = checkNotNull(configFacet);
     this.recipes = checkNotNull(recipes);
     this.securityResource = checkNotNull(securityResource);
+    this.bucketDeleter = checkNotNull(bucketDeleter);
   }
 
   /**
@@ -147,6 +152,7 @@ public class RepositoryManagerImpl
     List<Configuration> configurations = store.list();
     if (configurations.isEmpty()) {
       log.debug("No repositories configured");
+      bucketDeleter.start();
       return;
     }
 
@@ -166,10 +172,15 @@ public class RepositoryManagerImpl
 
       eventBus.post(new RepositoryRestoredEvent(repository));
     }
+
+    // resume deletion of buckets of deleted repositories
+    bucketDeleter.start();
   }
 
   @Override
   protected void doStop() throws Exception {
+    bucketDeleter.stop();
+
     if (repositories.isEmpty()) {
       log.debug("No repositories defined");
       return;
@@ -21,6 +21,11 @@ import org.elasticsearch.index.query.FilterBuilders;
 public class CustomFilterBuilders
 {
 
+  /**
+   * Filters components by the repository view permission of current user, evaluating a script per hit. Searches done
+   * by {@link SearchService} are already restricted to repositories the current user may browse, so this filter is
+   * only needed by queries run directly against the search server.
+   */
   public static FilterBuilder visibleToCurrentUserFilter() {
     return FilterBuilders.scriptFilter("bridge").lang("native").addParam("name", VisibleToCurrentUserScriptFactory.NAME);
   }
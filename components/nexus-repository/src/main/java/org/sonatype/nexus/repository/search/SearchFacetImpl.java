@@ -52,6 +52,12 @@ public class SearchFacetImpl
     searchService.delete(getRepository(), id);
   }
 
+  @Override
+  @Guarded(by = STARTED)
+  public void rebuildIndex() {
+    searchService.rebuildIndex(getRepository());
+  }
+
   @Override
   protected void doStart() throws Exception {
     searchService.createIndex(getRepository());
@@ -12,25 +12,37 @@
  */
 package org.sonatype.nexus.repository.search;
 
+import java.util.List;
+import java.util.Map;
+
 import org.sonatype.nexus.repository.Repository;
+import org.sonatype.sisu.goodies.lifecycle.Lifecycle;
 
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.search.SearchHit;
 
 /**
- * Search service.
+ * Search service. Index rebuilds in progress are stopped when the service is stopped.
  *
  * @since 3.0
  */
 public interface SearchService
+    extends Lifecycle
 {
 
   /**
-   * Create component metadata index for specified repository, if does not already exits.
+   * Create component metadata index for specified repository, if does not already exits. An index created with
+   * different settings is rebuilt in background.
    */
   void createIndex(Repository repository);
 
+  /**
+   * Rebuilds component metadata index of specified repository from storage, in background. The current index keeps
+   * serving searches until the rebuilt one replaces it.
+   */
+  void rebuildIndex(Repository repository);
+
   /**
    * Deletes component metadata index for specified repository.
    */
@@ -47,18 +59,36 @@ public interface SearchService
   void delete(Repository repository, String id);
 
   /**
-   * Search component metadata and browse results.
+   * Search component metadata and browse results. Results are streamed in unsorted windows, that are fetched as the
+   * iteration proceeds.
    */
   Iterable<SearchHit> browse(QueryBuilder query);
 
   /**
-   * Search component metadata and browse results (paged).
+   * Search component metadata and browse results (paged). Pages are limited to shallow results, deeper results are to
+   * be browsed with {@link #browse(QueryBuilder)}.
+   *
+   * @throws IllegalArgumentException if the page is beyond the maximum result window.
    */
   Iterable<SearchHit> browse(QueryBuilder query, int from, int size);
 
   /**
-   * Search component metadata and browse results (paged).
+   * Search component metadata and browse results (paged). Pages are limited to shallow results, deeper results are to
+   * be browsed with {@link #browse(QueryBuilder)}.
+   *
+   * @throws IllegalArgumentException if the page is beyond the maximum result window.
    */
   SearchResponse search(QueryBuilder query, int from, int size);
 
+  /**
+   * Counts matching components per repository name. Counting is done by the search server.
+   */
+  Map<String, Long> countByRepository(QueryBuilder query);
+
+  /**
+   * Returns the versions of matching components, per component, keyed by {@code group:name}, or {@code name} for
+   * formats without groups. Aggregation is done by the search server.
+   */
+  Map<String, List<String>> versionsByComponent(QueryBuilder query);
+
 }
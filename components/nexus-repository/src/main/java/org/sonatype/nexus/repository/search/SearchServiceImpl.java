@@ -19,50 +19,134 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.concurrent.TimeUnit;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
 import org.sonatype.nexus.repository.Repository;
 import org.sonatype.nexus.repository.manager.RepositoryManager;
 import org.sonatype.nexus.repository.security.BreadActions;
 import org.sonatype.nexus.repository.security.RepositoryViewPermission;
+import org.sonatype.nexus.repository.storage.StorageFacet;
+import org.sonatype.nexus.repository.storage.StorageTx;
 import org.sonatype.nexus.repository.view.ViewFacet;
 import org.sonatype.nexus.security.SecurityHelper;
+import org.sonatype.sisu.goodies.lifecycle.LifecycleSupport;
 
+import com.google.common.base.Stopwatch;
 import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
 import com.google.common.io.Resources;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.tinkerpop.blueprints.impls.orient.OrientVertex;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest.OpType;
+import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.action.search.ShardSearchFailure;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.client.IndicesAdminClient;
+import org.elasticsearch.cluster.metadata.MappingMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.common.collect.ImmutableOpenMap;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.indices.IndexMissingException;
+import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.aggregations.AbstractAggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.bucket.missing.Missing;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
 import org.elasticsearch.search.internal.InternalSearchResponse;
 
 import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static org.sonatype.nexus.repository.storage.StorageFacet.P_GROUP;
+import static org.sonatype.nexus.repository.storage.StorageFacet.P_NAME;
 import static org.sonatype.nexus.repository.storage.StorageFacet.P_REPOSITORY_NAME;
+import static org.sonatype.nexus.repository.storage.StorageFacet.P_VERSION;
 
 /**
  * Default {@link SearchService} implementation.
  *
+ * Each repository has versioned indexes, named as the repository followed by their creation time, behind an alias
+ * named as the repository. The repository name and the checksum of index source are recorded in index mapping
+ * {@code _meta}, so indexes built with outdated mappings or settings are detected on repository start, and rebuilt
+ * from storage in background, while the current index keeps serving searches. The alias is swapped to the rebuilt
+ * index atomically.
+ *
  * @since 3.0
  */
 @Named
 @Singleton
 public class SearchServiceImpl
+    extends LifecycleSupport
     implements SearchService
 {
 
   public static final String TYPE = "component";
 
+  /**
+   * Approximate count of hits fetched by each scroll request of {@link #browse(QueryBuilder)}. Scan scrolls fetch a
+   * window of hits from every shard searched, so the window is divided among the shards.
+   */
+  private static final int SCROLL_SIZE = SystemPropertiesHelper.getInteger(
+      SearchServiceImpl.class.getName() + ".scrollSize", 1000);
+
+  /**
+   * Time (in seconds) scroll contexts of {@link #browse(QueryBuilder)} are kept between scroll requests.
+   */
+  private static final TimeValue SCROLL_KEEP_ALIVE = TimeValue.timeValueSeconds(SystemPropertiesHelper.getInteger(
+      SearchServiceImpl.class.getName() + ".scrollKeepAlive", 60));
+
+  /**
+   * Maximum of {@code from + size} of paged searches. Paging costs grow with the offset, as each shard sorts
+   * {@code from + size} hits, so deeper results are to be streamed by {@link #browse(QueryBuilder)}.
+   */
+  private static final int MAX_RESULT_WINDOW = SystemPropertiesHelper.getInteger(
+      SearchServiceImpl.class.getName() + ".maxResultWindow", 10000);
+
+  /**
+   * Suffix of not analyzed sub-fields.
+   */
+  private static final String RAW = ".raw";
+
+  private static final String NO_GROUP = "no_group";
+
+  /**
+   * Count of components indexed per bulk request, when rebuilding an index.
+   */
+  private static final int BULK_SIZE = SystemPropertiesHelper.getInteger(
+      SearchServiceImpl.class.getName() + ".bulkSize", 500);
+
+  /**
+   * Key of index source checksum in index mapping {@code _meta}.
+   */
+  private static final String CHECKSUM = "checksum";
+
+  /**
+   * Key of repository name in index mapping {@code _meta}.
+   */
+  private static final String REPOSITORY = "repository";
+
   private final Provider<Client> client;
 
   private final RepositoryManager repositoryManager;
@@ -71,71 +155,433 @@ public class SearchServiceImpl
 
   private final List<IndexSettingsContributor> indexSettingsContributors;
 
+  private final ComponentMetadataFactory componentMetadataFactory;
+
+  /**
+   * Index state of repositories, by repository name. States are replaced while holding the lock of this service, and
+   * read without locking.
+   */
+  private final ConcurrentMap<String, IndexState> states = Maps.newConcurrentMap();
+
+  /**
+   * Executor of index rebuilds, created on first rebuild and shut down when service is stopped.
+   */
+  private ExecutorService executor;
+
   @Inject
   public SearchServiceImpl(final Provider<Client> client,
                            final RepositoryManager repositoryManager,
                            final SecurityHelper securityHelper,
-                           final List<IndexSettingsContributor> indexSettingsContributors)
+                           final List<IndexSettingsContributor> indexSettingsContributors,
+                           final ComponentMetadataFactory componentMetadataFactory)
   {
     this.client = checkNotNull(client);
     this.repositoryManager = checkNotNull(repositoryManager);
     this.securityHelper = checkNotNull(securityHelper);
     this.indexSettingsContributors = checkNotNull(indexSettingsContributors);
+    this.componentMetadataFactory = checkNotNull(componentMetadataFactory);
   }
 
+  /**
+   * Cancels the rebuilds in progress and shuts down their executor. Indexes of canceled rebuilds are dropped when their
+   * tasks end, or as stale when the index of repository is created on next start.
+   */
   @Override
-  public void createIndex(final Repository repository) {
-    checkNotNull(repository);
-    // TODO we should calculate the checksum of index settings and compare it with a value stored in index _meta tags
-    // in case that they not match (settings changed) we should drop the index, recreate it and re-index all components
-    if (!client.get().admin().indices().prepareExists(repository.getName()).execute().actionGet().isExists()) {
-      try {
-        String source = Resources.toString(Resources.getResource(getClass(), "es-mapping.json"), UTF_8);
-        for (IndexSettingsContributor contributor : indexSettingsContributors) {
-          String contributed = contributor.getIndexSettings(repository);
-          if (contributed != null) {
-            source = JsonUtils.merge(source, contributed);
-          }
-        }
-        client.get().admin().indices().prepareCreate(repository.getName())
-            .setSource(source)
-            .execute()
-            .actionGet();
-      }
-      catch (IOException e) {
-        throw Throwables.propagate(e);
+  protected synchronized void doStop() throws Exception {
+    for (IndexState state : states.values()) {
+      if (state.rebuild != null) {
+        state.rebuild.canceled = true;
       }
     }
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
   }
 
+  /**
+   * Creates the index of repository if missing. If the repository index was created with different settings, the
+   * index is rebuilt from storage in background. Indexes left by rebuilds interrupted by shutdown are dropped.
+   */
   @Override
-  public void deleteIndex(final Repository repository) {
+  public synchronized void createIndex(final Repository repository) {
     checkNotNull(repository);
-    if (client.get().admin().indices().prepareExists(repository.getName()).execute().actionGet().isExists()) {
-      client.get().admin().indices().prepareDelete(repository.getName()).execute().actionGet();
+    String name = repository.getName();
+    String source = indexSource(repository);
+    String checksum = checksum(source);
+    String current = currentIndex(name);
+    dropStaleIndexes(name, current);
+    if (current == null) {
+      // new repository, or index lost; fill it from storage, which is cheap if the repository is empty
+      String index = newIndex(name, source, checksum);
+      indices().prepareAliases().addAlias(index, name).execute().actionGet();
+      rebuild(repository, index, null);
     }
+    else if (!checksum.equals(indexChecksum(current))) {
+      log.info("Index settings of repository {} changed, rebuilding index {}", name, current);
+      rebuild(repository, newIndex(name, source, checksum), current);
+    }
+    else {
+      setState(name, new IndexState(current, null));
+    }
+  }
+
+  @Override
+  public synchronized void rebuildIndex(final Repository repository) {
+    checkNotNull(repository);
+    String name = repository.getName();
+    String current = currentIndex(name);
+    checkState(current != null, "Missing index of repository %s", name);
+    String source = indexSource(repository);
+    log.info("Rebuilding index {} of repository {}", current, name);
+    rebuild(repository, newIndex(name, source, checksum(source)), current);
   }
 
+  @Override
+  public synchronized void deleteIndex(final Repository repository) {
+    checkNotNull(repository);
+    String name = repository.getName();
+    setState(name, null);
+    List<String> indexes = repositoryIndexes(name);
+    if (!indexes.isEmpty()) {
+      indices().prepareDelete(indexes.toArray(new String[indexes.size()])).execute().actionGet();
+    }
+  }
+
+  /**
+   * Writes component metadata to the current index of repository, and to the index being rebuilt if any.
+   */
   @Override
   public void put(final Repository repository, final ComponentMetadata componentMetadata) {
     checkNotNull(repository);
     checkNotNull(componentMetadata);
+    String json = toJson(repository, componentMetadata);
+    for (String index : writeIndexes(repository.getName(), null)) {
+      client.get().prepareIndex(index, TYPE, componentMetadata.getId()).setSource(json).execute();
+    }
+  }
+
+  /**
+   * Deletes component metadata from the current index of repository, and from the index being rebuilt if any.
+   */
+  @Override
+  public void delete(final Repository repository, final String id) {
+    checkNotNull(repository);
+    checkNotNull(id);
+    for (String index : writeIndexes(repository.getName(), id)) {
+      client.get().prepareDelete(index, TYPE, id).execute();
+    }
+  }
+
+  /**
+   * Returns the indexes writes of repository go to. If an index is being rebuilt, deleted id is recorded, to be
+   * deleted again once the rebuild indexed all components.
+   */
+  private List<String> writeIndexes(final String name, @Nullable final String deletedId) {
+    IndexState state = states.get(name);
+    if (state == null) {
+      return Collections.singletonList(name);
+    }
+    List<String> indexes = Lists.newArrayListWithCapacity(2);
+    indexes.add(state.current);
+    if (state.rebuild != null) {
+      if (deletedId != null) {
+        state.rebuild.deletedIds.add(deletedId);
+      }
+      if (!state.rebuild.index.equals(state.current)) {
+        indexes.add(state.rebuild.index);
+      }
+    }
+    return indexes;
+  }
+
+  /**
+   * Replaces the index state of repository, canceling the rebuild of replaced state, unless it goes on in new state.
+   * The index of canceled rebuild is dropped once its rebuild task ends, see {@link #dropCanceled}.
+   */
+  private void setState(final String name, @Nullable final IndexState state) {
+    IndexState previous = state != null ? states.put(name, state) : states.remove(name);
+    if (previous != null && previous.rebuild != null && (state == null || state.rebuild != previous.rebuild)) {
+      previous.rebuild.canceled = true;
+    }
+  }
+
+  private String toJson(final Repository repository, final ComponentMetadata componentMetadata) {
     try {
       Map<String, Object> additional = Maps.newHashMap();
       additional.put(P_REPOSITORY_NAME, repository.getName());
-      String json = JsonUtils.merge(componentMetadata.toJson(), JsonUtils.from(additional));
-      client.get().prepareIndex(repository.getName(), TYPE, componentMetadata.getId()).setSource(json).execute();
+      return JsonUtils.merge(componentMetadata.toJson(), JsonUtils.from(additional));
     }
     catch (IOException e) {
       throw Throwables.propagate(e);
     }
   }
 
-  @Override
-  public void delete(final Repository repository, final String id) {
-    checkNotNull(repository);
-    checkNotNull(id);
-    client.get().prepareDelete(repository.getName(), TYPE, id).execute();
+  /**
+   * Returns the index source of repository: the mappings, merged with settings of {@link IndexSettingsContributor}s.
+   */
+  private String indexSource(final Repository repository) {
+    try {
+      String source = Resources.toString(Resources.getResource(getClass(), "es-mapping.json"), UTF_8);
+      for (IndexSettingsContributor contributor : indexSettingsContributors) {
+        String contributed = contributor.getIndexSettings(repository);
+        if (contributed != null) {
+          source = JsonUtils.merge(source, contributed);
+        }
+      }
+      return source;
+    }
+    catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  private static String checksum(final String source) {
+    return Hashing.sha1().hashString(source, UTF_8).toString();
+  }
+
+  /**
+   * Creates a new index of repository, recording the repository name and the checksum of index source in mapping
+   * {@code _meta}.
+   */
+  private String newIndex(final String name, final String source, final String checksum) {
+    String index = name + "-" + System.currentTimeMillis();
+    try {
+      Map<String, Object> meta = Maps.newHashMap();
+      meta.put(REPOSITORY, name);
+      meta.put(CHECKSUM, checksum);
+      Map<String, Object> type = Maps.newHashMap();
+      type.put("_meta", meta);
+      Map<String, Object> mappings = Maps.newHashMap();
+      mappings.put(TYPE, type);
+      Map<String, Object> additional = Maps.newHashMap();
+      additional.put("mappings", mappings);
+      indices().prepareCreate(index)
+          .setSource(JsonUtils.merge(source, JsonUtils.from(additional)))
+          .execute()
+          .actionGet();
+    }
+    catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+    log.debug("Created index {} of repository {}", index, name);
+    return index;
+  }
+
+  /**
+   * Returns the index the alias of repository points to, or the index named as repository for indexes created before
+   * aliases were used, or {@code null} if repository has no index.
+   */
+  @Nullable
+  private String currentIndex(final String name) {
+    Iterator<String> aliased = indices().prepareGetAliases(name).execute().actionGet().getAliases().keysIt();
+    if (aliased.hasNext()) {
+      return aliased.next();
+    }
+    if (indices().prepareExists(name).execute().actionGet().isExists()) {
+      return name;
+    }
+    return null;
+  }
+
+  /**
+   * Returns the checksum of index source recorded in index mapping, or {@code null} if there is none.
+   */
+  @Nullable
+  private String indexChecksum(final String index) {
+    ImmutableOpenMap<String, MappingMetaData> mappings = indices().prepareGetMappings(index).setTypes(TYPE).execute()
+        .actionGet().getMappings().get(index);
+    return mappings != null ? indexMeta(mappings.get(TYPE), CHECKSUM) : null;
+  }
+
+  /**
+   * Returns the value recorded under given key in index mapping {@code _meta}, or {@code null} if there is none.
+   */
+  @Nullable
+  private static String indexMeta(@Nullable final MappingMetaData mapping, final String key) {
+    try {
+      if (mapping != null) {
+        Object meta = mapping.sourceAsMap().get("_meta");
+        if (meta instanceof Map) {
+          return (String) ((Map) meta).get(key);
+        }
+      }
+      return null;
+    }
+    catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  /**
+   * Returns all indexes of repository: the ones recording the repository name in mapping {@code _meta}, and the index
+   * named as repository, created before aliases were used.
+   */
+  private List<String> repositoryIndexes(final String name) {
+    ImmutableOpenMap<String, ImmutableOpenMap<String, MappingMetaData>> mappings = indices().prepareGetMappings()
+        .setTypes(TYPE).execute().actionGet().getMappings();
+    List<String> indexes = Lists.newArrayList();
+    for (Iterator<String> i = mappings.keysIt(); i.hasNext(); ) {
+      String index = i.next();
+      if (index.equals(name) || name.equals(indexMeta(mappings.get(index).get(TYPE), REPOSITORY))) {
+        indexes.add(index);
+      }
+    }
+    return indexes;
+  }
+
+  private void dropStaleIndexes(final String name, @Nullable final String current) {
+    List<String> stale = repositoryIndexes(name);
+    stale.remove(current);
+    if (!stale.isEmpty()) {
+      log.info("Dropping stale indexes of repository {}: {}", name, stale);
+      indices().prepareDelete(stale.toArray(new String[stale.size()])).execute().actionGet();
+    }
+  }
+
+  private IndicesAdminClient indices() {
+    return client.get().admin().indices();
+  }
+
+  /**
+   * Schedules the rebuild of repository index. Live writes go to both indexes from now on.
+   *
+   * @param index   the index to be filled from storage
+   * @param current the current index, replaced by rebuilt one, {@code null} if index is current already
+   */
+  private void rebuild(final Repository repository, final String index, @Nullable final String current) {
+    final Rebuild rebuild = new Rebuild(repository, index, current);
+    setState(repository.getName(), new IndexState(current != null ? current : index, rebuild));
+    if (executor == null) {
+      executor = Executors.newSingleThreadExecutor(
+          new ThreadFactoryBuilder().setNameFormat("search-index-rebuild").setDaemon(true).build());
+    }
+    executor.submit(new Runnable()
+    {
+      @Override
+      public void run() {
+        try {
+          fill(rebuild);
+          complete(rebuild);
+        }
+        catch (Exception e) {
+          log.warn("Failed to rebuild index {} of repository {}", rebuild.index, rebuild.repository.getName(), e);
+          abandon(rebuild);
+        }
+      }
+    });
+  }
+
+  /**
+   * Indexes all components of repository into the rebuilt index, with bulk requests. Components are created only, so
+   * documents written live since the rebuild started are not overwritten.
+   */
+  private void fill(final Rebuild rebuild) {
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    int count = 0;
+    try (StorageTx tx = rebuild.repository.facet(StorageFacet.class).openTx()) {
+      BulkRequestBuilder bulk = client.get().prepareBulk();
+      for (OrientVertex component : tx.browseComponents(tx.getBucket())) {
+        if (rebuild.canceled) {
+          return;
+        }
+        ComponentMetadata metadata = componentMetadataFactory.from(component);
+        bulk.add(client.get().prepareIndex(rebuild.index, TYPE, metadata.getId())
+            .setSource(toJson(rebuild.repository, metadata))
+            .setOpType(OpType.CREATE));
+        count++;
+        if (bulk.numberOfActions() >= BULK_SIZE) {
+          execute(bulk);
+          bulk = client.get().prepareBulk();
+        }
+      }
+      if (bulk.numberOfActions() > 0) {
+        execute(bulk);
+      }
+    }
+    log.info("Indexed {} components of repository {} into {} in {}", count, rebuild.repository.getName(),
+        rebuild.index, stopwatch);
+  }
+
+  private void execute(final BulkRequestBuilder bulk) {
+    BulkResponse response = bulk.execute().actionGet();
+    if (response.hasFailures()) {
+      for (BulkItemResponse item : response.getItems()) {
+        // conflicts are documents written live in the meantime
+        if (item.isFailed() && item.getFailure().getStatus() != RestStatus.CONFLICT) {
+          log.warn("Failed to index component {}: {}", item.getId(), item.getFailureMessage());
+        }
+      }
+    }
+  }
+
+  /**
+   * Deletes again components deleted during the rebuild, then atomically points the alias of repository to rebuilt
+   * index, and drops the replaced index.
+   */
+  private synchronized void complete(final Rebuild rebuild) {
+    String name = rebuild.repository.getName();
+    if (rebuild.canceled) {
+      dropCanceled(rebuild);
+      return;
+    }
+    for (String id : rebuild.deletedIds) {
+      client.get().prepareDelete(rebuild.index, TYPE, id).execute().actionGet();
+    }
+    setState(name, new IndexState(rebuild.index, null));
+    if (rebuild.current != null) {
+      if (rebuild.current.equals(name)) {
+        // index created before aliases were used, alias can not be added while it exists
+        indices().prepareDelete(name).execute().actionGet();
+        indices().prepareAliases().addAlias(rebuild.index, name).execute().actionGet();
+      }
+      else {
+        indices().prepareAliases()
+            .removeAlias(rebuild.current, name)
+            .addAlias(rebuild.index, name)
+            .execute()
+            .actionGet();
+        indices().prepareDelete(rebuild.current).execute().actionGet();
+      }
+      log.info("Rebuilt index of repository {}, replaced {} with {}", name, rebuild.current, rebuild.index);
+    }
+  }
+
+  /**
+   * Drops the index of a failed rebuild, unless it is the current index already.
+   */
+  private synchronized void abandon(final Rebuild rebuild) {
+    String name = rebuild.repository.getName();
+    IndexState state = states.get(name);
+    if (state == null || state.rebuild != rebuild) {
+      if (rebuild.canceled) {
+        dropCanceled(rebuild);
+      }
+      return;
+    }
+    setState(name, new IndexState(state.current, null));
+    if (rebuild.current != null) {
+      indices().prepareDelete(rebuild.index).execute().actionGet();
+    }
+  }
+
+  /**
+   * Drops the index filled by a canceled rebuild, which nothing writes to anymore, unless it is the current index of
+   * repository. The index may be gone already, if the repository was deleted.
+   */
+  private void dropCanceled(final Rebuild rebuild) {
+    String name = rebuild.repository.getName();
+    IndexState state = states.get(name);
+    if (state != null && rebuild.index.equals(state.current)) {
+      return;
+    }
+    try {
+      indices().prepareDelete(rebuild.index).execute().actionGet();
+      log.info("Dropped index {} of canceled rebuild of repository {}", rebuild.index, name);
+    }
+    catch (IndexMissingException e) {
+      log.debug("Index {} of canceled rebuild of repository {} already dropped", rebuild.index, name);
+    }
   }
 
   @Override
@@ -160,40 +606,56 @@ public class SearchServiceImpl
       public Iterator<SearchHit> iterator() {
         return new Iterator<SearchHit>()
         {
+          private String scrollId;
 
-          private SearchResponse response;
-
-          private Iterator<SearchHit> iterator;
+          private Iterator<SearchHit> iterator = Collections.emptyIterator();
 
           private boolean noMoreHits = false;
 
           @Override
           public boolean hasNext() {
+            if (iterator.hasNext()) {
+              return true;
+            }
             if (noMoreHits) {
               return false;
             }
-            if (response == null) {
-              response = client.get().prepareSearch(searchableIndexes)
+            if (scrollId == null) {
+              // scan: hits are not sorted, and each scroll fetches a window of hits from every shard
+              SearchResponse response = client.get().prepareSearch(searchableIndexes)
                   .setTypes(TYPE)
                   .setQuery(query)
-                  .setScroll(new TimeValue(1, TimeUnit.MINUTES))
-                  .setSize(100)
+                  .setSearchType(SearchType.SCAN)
+                  .setScroll(SCROLL_KEEP_ALIVE)
+                  .setSize(scrollSizePerShard(searchableIndexes))
                   .execute()
                   .actionGet();
-              iterator = Arrays.asList(response.getHits().getHits()).iterator();
-              noMoreHits = !iterator.hasNext();
+              scrollId = response.getScrollId();
+              if (response.getHits().getTotalHits() == 0) {
+                finish();
+                return false;
+              }
             }
-            else if (!iterator.hasNext()) {
-              response = client.get().prepareSearchScroll(response.getScrollId())
-                  .setScroll(new TimeValue(1, TimeUnit.MINUTES))
-                  .execute()
-                  .actionGet();
-              iterator = Arrays.asList(response.getHits().getHits()).iterator();
-              noMoreHits = !iterator.hasNext();
+            SearchResponse response = client.get().prepareSearchScroll(scrollId)
+                .setScroll(SCROLL_KEEP_ALIVE)
+                .execute()
+                .actionGet();
+            scrollId = response.getScrollId();
+            iterator = Arrays.asList(response.getHits().getHits()).iterator();
+            if (!iterator.hasNext()) {
+              finish();
             }
             return iterator.hasNext();
           }
 
+          /**
+           * Releases the scroll context right away, instead of waiting for it to expire.
+           */
+          private void finish() {
+            noMoreHits = true;
+            client.get().prepareClearScroll().addScrollId(scrollId).execute();
+          }
+
           @Override
           public SearchHit next() {
             if (!hasNext()) {
@@ -211,6 +673,24 @@ public class SearchServiceImpl
     };
   }
 
+  /**
+   * Returns the scroll window per shard, so scrolls over given indexes fetch about {@link #SCROLL_SIZE} hits.
+   */
+  private int scrollSizePerShard(final String[] indexes) {
+    MetaData metaData = client.get().admin().cluster().prepareState()
+        .setMetaData(true)
+        .setIndices(indexes)
+        .execute()
+        .actionGet()
+        .getState()
+        .getMetaData();
+    int shards = 0;
+    for (String index : metaData.concreteAllIndices()) {
+      shards += metaData.index(index).getNumberOfShards();
+    }
+    return Math.max(1, SCROLL_SIZE / Math.max(1, shards));
+  }
+
   @Override
   public Iterable<SearchHit> browse(final QueryBuilder query, final int from, final int size) {
     SearchResponse response = search(query, from, size);
@@ -220,6 +700,11 @@ public class SearchServiceImpl
   @Override
   public SearchResponse search(final QueryBuilder query, final int from, final int size) {
     checkNotNull(query);
+    checkArgument(from >= 0 && size >= 0, "Negative from or size");
+    if (from + size > MAX_RESULT_WINDOW) {
+      throw new IllegalArgumentException("Result window is too large, from + size must be less than or equal to "
+          + MAX_RESULT_WINDOW + ", browse deeper results instead");
+    }
     try {
       if (!client.get().admin().indices().prepareValidateQuery().setQuery(query).execute().actionGet().isValid()) {
         throw new IllegalArgumentException("Invalid query");
@@ -242,6 +727,91 @@ public class SearchServiceImpl
         .actionGet();
   }
 
+  @Override
+  public Map<String, Long> countByRepository(final QueryBuilder query) {
+    Map<String, Long> counts = Maps.newHashMap();
+    SearchResponse response = aggregate(query,
+        AggregationBuilders.terms(P_REPOSITORY_NAME).field(P_REPOSITORY_NAME).size(0)
+    );
+    if (response != null) {
+      Terms repositories = response.getAggregations().get(P_REPOSITORY_NAME);
+      for (Terms.Bucket repository : repositories.getBuckets()) {
+        counts.put(repository.getKey(), repository.getDocCount());
+      }
+    }
+    return counts;
+  }
+
+  @Override
+  public Map<String, List<String>> versionsByComponent(final QueryBuilder query) {
+    Map<String, List<String>> versions = Maps.newTreeMap();
+    SearchResponse response = aggregate(query,
+        AggregationBuilders.terms(P_GROUP).field(P_GROUP + RAW).size(0).subAggregation(versionsByName()),
+        AggregationBuilders.missing(NO_GROUP).field(P_GROUP + RAW).subAggregation(versionsByName())
+    );
+    if (response != null) {
+      Terms groups = response.getAggregations().get(P_GROUP);
+      for (Terms.Bucket group : groups.getBuckets()) {
+        collectVersions(group.getKey() + ":", group.getAggregations(), versions);
+      }
+      Missing noGroup = response.getAggregations().get(NO_GROUP);
+      collectVersions("", noGroup.getAggregations(), versions);
+    }
+    return versions;
+  }
+
+  private static AbstractAggregationBuilder versionsByName() {
+    return AggregationBuilders.terms(P_NAME).field(P_NAME + RAW).size(0)
+        .subAggregation(AggregationBuilders.terms(P_VERSION).field(P_VERSION).size(0).order(Terms.Order.term(true)));
+  }
+
+  private static void collectVersions(final String prefix,
+                                      final Aggregations aggregations,
+                                      final Map<String, List<String>> versions)
+  {
+    Terms names = aggregations.get(P_NAME);
+    for (Terms.Bucket name : names.getBuckets()) {
+      List<String> nameVersions = Lists.newArrayList();
+      Terms versionTerms = name.getAggregations().get(P_VERSION);
+      for (Terms.Bucket version : versionTerms.getBuckets()) {
+        nameVersions.add(version.getKey());
+      }
+      versions.put(prefix + name.getKey(), nameVersions);
+    }
+  }
+
+  /**
+   * Runs aggregations over matching components, without fetching any hits.
+   *
+   * @return the response holding the aggregations, or {@code null} if there is nothing to search.
+   */
+  @Nullable
+  private SearchResponse aggregate(final QueryBuilder query, final AbstractAggregationBuilder... aggregations) {
+    checkNotNull(query);
+    final String[] searchableIndexes = getSearchableIndexes();
+    if (searchableIndexes.length == 0) {
+      return null;
+    }
+    SearchRequestBuilder request = client.get().prepareSearch(searchableIndexes)
+        .setTypes(TYPE)
+        .setQuery(query)
+        .setSearchType(SearchType.COUNT);
+    for (AbstractAggregationBuilder aggregation : aggregations) {
+      request.addAggregation(aggregation);
+    }
+    try {
+      return request.execute().actionGet();
+    }
+    catch (IndexMissingException e) {
+      // no repositories were created yet, so there is no point in searching
+      return null;
+    }
+  }
+
+  /**
+   * Returns the indexes of online repositories the current subject may browse. Searches are restricted to these
+   * indexes, so matching components are visible to the subject without checking each hit.
+   */
   private String[] getSearchableIndexes() {
     List<String> indexes = Lists.newArrayList();
     for (Repository repository : repositoryManager.browse()) {
@@ -253,4 +823,43 @@ public class SearchServiceImpl
     return indexes.toArray(new String[indexes.size()]);
   }
 
+  /**
+   * Indexes of a repository: the current index, and the rebuild in progress if any. Immutable, so writes see both
+   * consistently while a rebuild starts or completes.
+   */
+  private static class IndexState
+  {
+    private final String current;
+
+    @Nullable
+    private final Rebuild rebuild;
+
+    private IndexState(final String current, @Nullable final Rebuild rebuild) {
+      this.current = checkNotNull(current);
+      this.rebuild = rebuild;
+    }
+  }
+
+  /**
+   * Rebuild of a repository index.
+   */
+  private static class Rebuild
+  {
+    private final Repository repository;
+
+    private final String index;
+
+    private final String current;
+
+    private final Set<String> deletedIds = Sets.newConcurrentHashSet();
+
+    private volatile boolean canceled;
+
+    private Rebuild(final Repository repository, final String index, @Nullable final String current) {
+      this.repository = checkNotNull(repository);
+      this.index = checkNotNull(index);
+      this.current = current;
+    }
+  }
+
 }
@@ -13,8 +13,8 @@
 package org.sonatype.nexus.repository.storage;
 
 import java.io.InputStream;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import javax.annotation.Nullable;
 
@@ -23,7 +23,7 @@ import org.sonatype.nexus.blobstore.api.BlobRef;
 import org.sonatype.nexus.blobstore.api.BlobStore;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 
-import com.google.common.collect.Sets;
+import com.google.common.collect.Lists;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -31,6 +31,9 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * Keeps track of added and to-be-deleted blobs so they can be deleted as appropriate when the transaction ends,
  * via commit or rollback.
  *
+ * Blobs are tracked per reference: content deduplicating blob stores may return same blob for several creations, and
+ * each creation and deletion request then stands for a single reference to be removed.
+ *
  * @since 3.0
  */
 class BlobTx
@@ -38,9 +41,9 @@ class BlobTx
 {
   private final BlobStore blobStore;
 
-  private final Set<BlobRef> newlyCreatedBlobs = Sets.newHashSet();
+  private final List<BlobRef> newlyCreatedBlobs = Lists.newArrayList();
 
-  private final Set<BlobRef> deletionRequests = Sets.newHashSet();
+  private final List<BlobRef> deletionRequests = Lists.newArrayList();
 
   public BlobTx(final BlobStore blobStore) {
     this.blobStore = checkNotNull(blobStore);
@@ -72,7 +75,7 @@ class BlobTx
     clearState();
   }
 
-  private void doDeletions(Set<BlobRef> blobRefs, String failureMessage) {
+  private void doDeletions(List<BlobRef> blobRefs, String failureMessage) {
     for (BlobRef blobRef : blobRefs) {
       try {
         blobStore.delete(blobRef.getBlobId());
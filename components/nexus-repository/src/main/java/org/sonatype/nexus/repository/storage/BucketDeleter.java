@@ -0,0 +1,341 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.storage;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.sonatype.nexus.blobstore.api.BlobRef;
+import org.sonatype.nexus.blobstore.api.BlobStore;
+import org.sonatype.nexus.blobstore.api.BlobStoreManager;
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
+import org.sonatype.nexus.orient.DatabaseInstance;
+import org.sonatype.nexus.orient.graph.GraphTx;
+import org.sonatype.sisu.goodies.common.ComponentSupport;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.orient.OrientVertex;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static org.sonatype.nexus.repository.storage.StorageFacet.E_OWNS_ASSET;
+import static org.sonatype.nexus.repository.storage.StorageFacet.E_OWNS_COMPONENT;
+import static org.sonatype.nexus.repository.storage.StorageFacet.P_BLOB_REF;
+import static org.sonatype.nexus.repository.storage.StorageFacet.P_BLOB_STORE_NAME;
+import static org.sonatype.nexus.repository.storage.StorageFacet.P_PENDING_BLOB_REFS;
+import static org.sonatype.nexus.repository.storage.StorageFacet.P_PENDING_DELETION;
+import static org.sonatype.nexus.repository.storage.StorageFacet.P_REPOSITORY_NAME;
+import static org.sonatype.nexus.repository.storage.StorageFacet.V_ASSET;
+import static org.sonatype.nexus.repository.storage.StorageFacet.V_BUCKET;
+import static org.sonatype.nexus.repository.storage.StorageFacet.V_COMPONENT;
+
+/**
+ * Deletes buckets of deleted repositories in background.
+ *
+ * A bucket is first detached: its repository name is replaced, so the bucket is no longer found by repository, and
+ * it is marked as pending deletion. Its assets (with their blobs) and components are then deleted in chunks, at a
+ * throttled rate, on a single background thread, and finally the bucket itself. Search documents are not touched, as
+ * the search index of the repository is deleted along with the repository. Deletions pending on shutdown are resumed
+ * on start.
+ *
+ * Blob references of each chunk of assets are recorded on the bucket in the same transaction the assets are deleted
+ * in, and cleared once the blobs are deleted. If blob deletion fails, or the deletion is interrupted by a crash, the
+ * recorded blobs are deleted when the deletion of bucket is resumed. A blob may thus be deleted more than once, but
+ * is not leaked.
+ *
+ * @since 3.0
+ */
+@Named
+@Singleton
+public class BucketDeleter
+    extends ComponentSupport
+{
+  /**
+   * Count of vertices deleted per transaction.
+   */
+  private static final int CHUNK_SIZE = SystemPropertiesHelper.getInteger(
+      BucketDeleter.class.getName() + ".chunkSize", 100);
+
+  /**
+   * Maximum count of vertices deleted per second, not throttled if not positive.
+   */
+  private static final int VERTICES_PER_SECOND = SystemPropertiesHelper.getInteger(
+      BucketDeleter.class.getName() + ".verticesPerSecond", 500);
+
+  /**
+   * Progress is logged each time this count of chunks is deleted.
+   */
+  private static final int PROGRESS_INTERVAL = 100;
+
+  private static final String DETACHED_PREFIX = "$deleted$";
+
+  private final Provider<DatabaseInstance> databaseInstanceProvider;
+
+  private final BlobStoreManager blobStoreManager;
+
+  private ExecutorService executor;
+
+  @Inject
+  public BucketDeleter(final @Named(ComponentDatabase.NAME) Provider<DatabaseInstance> databaseInstanceProvider,
+                       final BlobStoreManager blobStoreManager)
+  {
+    this.databaseInstanceProvider = checkNotNull(databaseInstanceProvider);
+    this.blobStoreManager = checkNotNull(blobStoreManager);
+  }
+
+  /**
+   * Starts the background thread, resuming the deletion of buckets still pending deletion.
+   */
+  public synchronized void start() {
+    if (executor != null) {
+      return;
+    }
+    executor = Executors.newSingleThreadExecutor(
+        new ThreadFactoryBuilder().setNameFormat("bucket-deleter").setDaemon(true).build());
+
+    List<Object> pending = pendingBuckets();
+    if (!pending.isEmpty()) {
+      log.info("Resuming deletion of {} buckets", pending.size());
+      for (Object bucketId : pending) {
+        submit(bucketId);
+      }
+    }
+  }
+
+  /**
+   * Stops the background thread. Deletion of current bucket stops after the chunk being deleted.
+   */
+  public synchronized void stop() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  /**
+   * Detaches the bucket, then schedules the deletion of its contents.
+   *
+   * @param blobStoreName name of blob store holding the blobs of bucket assets.
+   */
+  public void delete(final Object bucketId, final String blobStoreName) {
+    checkNotNull(bucketId);
+    checkNotNull(blobStoreName);
+
+    try (GraphTx graphTx = openGraphTx()) {
+      OrientVertex bucket = graphTx.getVertex(bucketId);
+      checkState(bucket != null, "Missing bucket: %s", bucketId);
+      log.info("Detaching bucket {} of repository {}", bucketId, bucket.getProperty(P_REPOSITORY_NAME));
+      bucket.setProperty(P_REPOSITORY_NAME, DETACHED_PREFIX + bucketId);
+      bucket.setProperty(P_BLOB_STORE_NAME, blobStoreName);
+      bucket.setProperty(P_PENDING_DELETION, true);
+      graphTx.commit();
+    }
+    submit(bucketId);
+  }
+
+  private synchronized void submit(final Object bucketId) {
+    if (executor == null) {
+      log.info("Deletion of bucket {} deferred until start", bucketId);
+      return;
+    }
+    executor.execute(new Runnable()
+    {
+      @Override
+      public void run() {
+        try {
+          deleteBucket(bucketId);
+        }
+        catch (InterruptedException e) {
+          log.info("Deletion of bucket {} stopped, will be resumed on start", bucketId);
+        }
+        catch (Exception e) {
+          log.warn("Deletion of bucket {} failed, will be retried on start", bucketId, e);
+        }
+      }
+    });
+  }
+
+  private List<Object> pendingBuckets() {
+    List<Object> bucketIds = Lists.newArrayList();
+    try (GraphTx graphTx = openGraphTx()) {
+      if (graphTx.getVertexType(V_BUCKET) == null) {
+        // no schema yet
+        return bucketIds;
+      }
+      Iterable<OrientVertex> buckets = graphTx.command(new OCommandSQL(
+          String.format("select from %s where %s = true", V_BUCKET, P_PENDING_DELETION))).execute();
+      for (OrientVertex bucket : buckets) {
+        bucketIds.add(bucket.getId());
+      }
+    }
+    return bucketIds;
+  }
+
+  private void deleteBucket(final Object bucketId) throws InterruptedException {
+    String blobStoreName;
+    try (GraphTx graphTx = openGraphTx()) {
+      OrientVertex bucket = graphTx.getVertex(bucketId);
+      if (bucket == null) {
+        log.debug("Bucket {} already deleted", bucketId);
+        return;
+      }
+      blobStoreName = bucket.getProperty(P_BLOB_STORE_NAME);
+    }
+    BlobStore blobStore = blobStoreName != null ? blobStoreManager.get(blobStoreName) : null;
+    if (blobStore == null) {
+      log.warn("Missing blob store {} of bucket {}, blobs will not be deleted", blobStoreName, bucketId);
+    }
+    RateLimiter rateLimiter = VERTICES_PER_SECOND > 0 ? RateLimiter.create(VERTICES_PER_SECOND) : null;
+
+    log.info("Deleting bucket {}", bucketId);
+    deletePendingBlobs(bucketId, blobStore);
+    long assets = deleteAll(bucketId, V_ASSET, E_OWNS_ASSET, blobStore, rateLimiter);
+    long components = deleteAll(bucketId, V_COMPONENT, E_OWNS_COMPONENT, null, rateLimiter);
+    try (GraphTx graphTx = openGraphTx()) {
+      OrientVertex bucket = graphTx.getVertex(bucketId);
+      if (bucket != null) {
+        graphTx.removeVertex(bucket);
+        graphTx.commit();
+      }
+    }
+    log.info("Deleted bucket {}: {} assets, {} components", bucketId, assets, components);
+  }
+
+  /**
+   * Deletes all vertices of class owned by the bucket, following its edges of given label, chunk by chunk, along with
+   * their blobs if a blob store is given. Blobs are deleted once the chunk is committed, see
+   * {@link #deletePendingBlobs}.
+   *
+   * @return count of deleted vertices.
+   */
+  private long deleteAll(final Object bucketId,
+                         final String className,
+                         final String edgeLabel,
+                         @Nullable final BlobStore blobStore,
+                         @Nullable final RateLimiter rateLimiter) throws InterruptedException
+  {
+    long count = 0;
+    long chunks = 0;
+    while (true) {
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+
+      int deleted = 0;
+      List<String> blobRefs = Lists.newArrayList();
+      try (GraphTx graphTx = openGraphTx()) {
+        OrientVertex bucket = graphTx.getVertex(bucketId);
+        if (bucket == null) {
+          log.debug("Bucket {} deleted meanwhile", bucketId);
+          return count;
+        }
+        // walk the edges of bucket, copying the chunk so it is not modified while iterated
+        List<Vertex> vertices = Lists.newArrayList(Iterables.limit(
+            bucket.getVertices(Direction.OUT, edgeLabel), CHUNK_SIZE));
+        for (Vertex vertex : vertices) {
+          if (rateLimiter != null) {
+            rateLimiter.acquire();
+          }
+          String blobRef = vertex.getProperty(P_BLOB_REF);
+          if (blobStore != null && blobRef != null) {
+            blobRefs.add(blobRef);
+          }
+          graphTx.removeVertex(vertex);
+          deleted++;
+        }
+        if (!blobRefs.isEmpty()) {
+          bucket.setProperty(P_PENDING_BLOB_REFS, blobRefs);
+        }
+        graphTx.commit();
+      }
+      if (!blobRefs.isEmpty()) {
+        deletePendingBlobs(bucketId, blobStore);
+      }
+
+      count += deleted;
+      chunks++;
+      if (chunks % PROGRESS_INTERVAL == 0) {
+        log.info("Deleting bucket {}: {} {} vertices deleted", bucketId, count, className);
+      }
+      if (deleted < CHUNK_SIZE) {
+        return count;
+      }
+    }
+  }
+
+  /**
+   * Deletes the blobs recorded as pending on the bucket, then clears them. On failure, the blobs not deleted yet stay
+   * recorded, and the deletion of bucket is aborted, to be resumed on start.
+   */
+  private void deletePendingBlobs(final Object bucketId, @Nullable final BlobStore blobStore) {
+    List<String> blobRefs;
+    try (GraphTx graphTx = openGraphTx()) {
+      OrientVertex bucket = graphTx.getVertex(bucketId);
+      blobRefs = bucket != null ? bucket.<List<String>>getProperty(P_PENDING_BLOB_REFS) : null;
+    }
+    if (blobRefs == null || blobRefs.isEmpty()) {
+      return;
+    }
+    int deleted = 0;
+    RuntimeException failure = null;
+    if (blobStore == null) {
+      log.warn("Missing blob store of bucket {}, {} pending blobs will not be deleted", bucketId, blobRefs.size());
+      deleted = blobRefs.size();
+    }
+    else {
+      for (String blobRef : blobRefs) {
+        try {
+          blobStore.delete(BlobRef.parse(blobRef).getBlobId());
+          deleted++;
+        }
+        catch (RuntimeException e) {
+          failure = e;
+          break;
+        }
+      }
+    }
+    try (GraphTx graphTx = openGraphTx()) {
+      OrientVertex bucket = graphTx.getVertex(bucketId);
+      if (bucket != null) {
+        if (deleted < blobRefs.size()) {
+          bucket.setProperty(P_PENDING_BLOB_REFS, Lists.newArrayList(blobRefs.subList(deleted, blobRefs.size())));
+        }
+        else {
+          bucket.removeProperty(P_PENDING_BLOB_REFS);
+        }
+        graphTx.commit();
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private GraphTx openGraphTx() {
+    // plain graph, without the index hooks of repository storage
+    return new GraphTx(databaseInstanceProvider.get().acquire());
+  }
+}
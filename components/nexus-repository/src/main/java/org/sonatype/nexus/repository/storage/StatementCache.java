@@ -0,0 +1,155 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.storage;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
+import org.sonatype.sisu.goodies.common.ComponentSupport;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Cache of SQL statements issued by {@link StorageTx}, keyed by the shape of query they were built from. Statements
+ * are parameterized, so their text depends only on the shape, and is built once per shape. Statements have a timer
+ * recording the latency of their executions, named by the class queried and the kind of statement, shared by all
+ * cached statements of same class and kind, and removed once none of them remain cached.
+ *
+ * @since 3.0
+ */
+@Named
+@Singleton
+public class StatementCache
+    extends ComponentSupport
+{
+  private static final int MAX_SIZE = SystemPropertiesHelper.getInteger(
+      StatementCache.class.getName() + ".maxSize", 1000);
+
+  private final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate("nexus");
+
+  private final Cache<List<?>, Statement> statements;
+
+  /**
+   * Count of cached statements using each timer. Guarded by {@code this}.
+   */
+  private final Multiset<String> timerUsers = HashMultiset.create();
+
+  public StatementCache() {
+    this(MAX_SIZE);
+  }
+
+  @VisibleForTesting
+  StatementCache(final int maxSize) {
+    this.statements = CacheBuilder.newBuilder()
+        .maximumSize(maxSize)
+        .removalListener(new RemovalListener<List<?>, Statement>()
+        {
+          @Override
+          public void onRemoval(final RemovalNotification<List<?>, Statement> notification) {
+            releaseTimer(notification.getValue().timerName);
+          }
+        })
+        .build();
+  }
+
+  /**
+   * Returns the statement of given query shape, building it if needed.
+   *
+   * @param className the class queried, used in name of the timer.
+   * @param kind      the kind of statement, used in name of the timer.
+   * @param shape     the list of all inputs the statement text is built from.
+   * @param builder   builds the statement text.
+   */
+  public Statement get(final String className, final String kind, final List<?> shape, final Callable<String> builder) {
+    checkNotNull(className);
+    checkNotNull(kind);
+    checkNotNull(shape);
+    checkNotNull(builder);
+    try {
+      return statements.get(shape, new Callable<Statement>()
+      {
+        @Override
+        public Statement call() throws Exception {
+          final String sql = builder.call();
+          final String name = MetricRegistry.name(StorageTx.class, "query", className, kind);
+          log.debug("Statement {}: {}", name, sql);
+          return new Statement(sql, name, acquireTimer(name));
+        }
+      });
+    }
+    catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  private synchronized Timer acquireTimer(final String name) {
+    timerUsers.add(name);
+    return metricRegistry.timer(name);
+  }
+
+  private synchronized void releaseTimer(final String name) {
+    if (timerUsers.remove(name, 1) == 1) {
+      metricRegistry.remove(name);
+    }
+  }
+
+  /**
+   * Returns the timer of a lookup not done by SQL statement, like an index lookup.
+   */
+  public Timer timer(final String className, final String lookup) {
+    return metricRegistry.timer(MetricRegistry.name(StorageTx.class, "lookup", className, lookup));
+  }
+
+  /**
+   * Parameterized SQL statement.
+   */
+  public static class Statement
+  {
+    private final String sql;
+
+    private final String timerName;
+
+    private final Timer timer;
+
+    private Statement(final String sql, final String timerName, final Timer timer) {
+      this.sql = checkNotNull(sql);
+      this.timerName = checkNotNull(timerName);
+      this.timer = checkNotNull(timer);
+    }
+
+    public String getSql() {
+      return sql;
+    }
+
+    public Timer getTimer() {
+      return timer;
+    }
+  }
+}
@@ -37,6 +37,8 @@ public interface StorageFacet
 
   static String P_BLOB_REF = "blob_ref";
 
+  static String P_BLOB_STORE_NAME = "blob_store_name";
+
   static String P_CHECKSUM = "checksum";
 
   static String P_CONTENT_TYPE = "content_type";
@@ -51,6 +53,10 @@ public interface StorageFacet
 
   static String P_PATH = "path";
 
+  static String P_PENDING_BLOB_REFS = "pending_blob_refs";
+
+  static String P_PENDING_DELETION = "pending_deletion";
+
   static String P_REPOSITORY_NAME = "repository_name";
 
   static String P_SIZE = "size";
@@ -18,7 +18,6 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
 
-import org.sonatype.nexus.blobstore.api.BlobRef;
 import org.sonatype.nexus.blobstore.api.BlobStore;
 import org.sonatype.nexus.blobstore.api.BlobStoreManager;
 import org.sonatype.nexus.common.stateguard.Guarded;
@@ -59,14 +58,16 @@ public class StorageFacetImpl
 {
   public static final String CONFIG_KEY = "storage";
 
-  private static final long DELETE_BATCH_SIZE = 100L;
-
   private final BlobStoreManager blobStoreManager;
 
   private final Provider<DatabaseInstance> databaseInstanceProvider;
 
   private final ComponentMetadataFactory componentMetadataFactory;
 
+  private final StatementCache statementCache;
+
+  private final BucketDeleter bucketDeleter;
+
   private String blobStoreName;
 
   private Object bucketId;
@@ -74,11 +75,15 @@ public class StorageFacetImpl
   @Inject
   public StorageFacetImpl(final BlobStoreManager blobStoreManager,
                           final @Named(ComponentDatabase.NAME) Provider<DatabaseInstance> databaseInstanceProvider,
-                          final ComponentMetadataFactory componentMetadataFactory)
+                          final ComponentMetadataFactory componentMetadataFactory,
+                          final StatementCache statementCache,
+                          final BucketDeleter bucketDeleter)
   {
     this.blobStoreManager = checkNotNull(blobStoreManager);
     this.databaseInstanceProvider = checkNotNull(databaseInstanceProvider);
     this.componentMetadataFactory = checkNotNull(componentMetadataFactory);
+    this.statementCache = checkNotNull(statementCache);
+    this.bucketDeleter = checkNotNull(bucketDeleter);
   }
 
   @Override
@@ -129,6 +134,11 @@ public class StorageFacetImpl
       initEdgeType(graph, E_OWNS_ASSET, null);
       initEdgeType(graph, E_OWNS_COMPONENT, null);
       initEdgeType(graph, E_PART_OF_COMPONENT, null);
+
+      // indexes used by lookups, also created on schema of earlier versions
+      for (String key : StorageTxImpl.INDEXED_KEYS) {
+        initKeyIndex(graph, key);
+      }
     }
     finally {
       graph.shutdown();
@@ -162,6 +172,24 @@ public class StorageFacetImpl
     }
   }
 
+  /**
+   * Creates the index of given {@code class.property} key if missing.
+   */
+  @SuppressWarnings("unchecked")
+  private void initKeyIndex(CheckedGraphNoTx graph, String key) {
+    if (graph.getRawGraph().getMetadata().getIndexManager().existsIndex(key)) {
+      return;
+    }
+    String className = key.substring(0, key.indexOf('.'));
+    String propName = key.substring(className.length() + 1);
+    OrientVertexType type = graph.getVertexType(className);
+    if (type.getProperty(propName) == null) {
+      type.createProperty(propName, OType.STRING);
+    }
+    graph.createKeyIndex(propName, Vertex.class, new Parameter("class", className));
+    log.debug("Created index: {}", key);
+  }
+
   private void initBucket() {
     // get or create the bucket for the repository and set bucketId for fast lookup later
     try (GraphTx graphTx = openGraphTx()) {
@@ -178,43 +206,8 @@ public class StorageFacetImpl
 
   @Override
   protected void doDelete() throws Exception {
-    // delete all assets, blobs, components, and finally, the bucket.
-    // TODO: This could take a while for large repos.
-    //       Hide the bucket right away, but figure out a way to do the deletions asynchronously.
-    try (StorageTx tx = openStorageTx()) {
-      OrientVertex bucket = tx.getBucket();
-      deleteAll(tx, tx.browseAssets(bucket), new Predicate<OrientVertex>()
-      {
-        @Override
-        public boolean apply(final OrientVertex vertex) {
-          BlobRef blobRef = BlobRef.parse(checkNotNull((String) vertex.getProperty(P_BLOB_REF)));
-          tx.deleteBlob(blobRef);
-          return true;
-        }
-      });
-      deleteAll(tx, tx.browseComponents(bucket), null);
-      tx.deleteVertex(bucket);
-      tx.commit();
-    }
-  }
-
-  /**
-   * Deletes all given vertices in batches. If a predicate is specified, it will be executed before each delete.
-   */
-  private void deleteAll(StorageTx tx, Iterable<OrientVertex> vertices, @Nullable Predicate<OrientVertex> predicate) {
-    long count = 0;
-    for (OrientVertex vertex : vertices) {
-      if (predicate != null) {
-        predicate.apply(vertex);
-      }
-      tx.deleteVertex(vertex);
-      count++;
-      if (count == DELETE_BATCH_SIZE) {
-        tx.commit();
-        count = 0;
-      }
-    }
-    tx.commit();
+    // detach the bucket right away, its assets, blobs and components are deleted in background
+    bucketDeleter.delete(bucketId, blobStoreName);
   }
 
   @Override
@@ -225,7 +218,7 @@ public class StorageFacetImpl
 
   private StorageTx openStorageTx() {
     BlobStore blobStore = blobStoreManager.get(blobStoreName);
-    return new StorageTxImpl(new BlobTx(blobStore), openGraphTx(), bucketId);
+    return new StorageTxImpl(new BlobTx(blobStore), openGraphTx(), bucketId, statementCache);
   }
 
   private GraphTx openGraphTx() {
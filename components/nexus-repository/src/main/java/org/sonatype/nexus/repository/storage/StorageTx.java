@@ -91,6 +91,12 @@ public interface StorageTx
   @Nullable
   OrientVertex findAssetWithProperty(String propName, Object propValue, Vertex bucket);
 
+  /**
+   * Gets an asset by path, owned by the specified bucket, or {@code null} if not found. The lookup uses the path index.
+   */
+  @Nullable
+  OrientVertex findAssetWithPath(String path, Vertex bucket);
+
 
   /**
    * Returns all the assets associated with a component.
@@ -135,6 +141,20 @@ public interface StorageTx
   @Nullable
   OrientVertex findComponentWithProperty(String propName, Object propValue, Vertex bucket);
 
+  /**
+   * Gets a component by path, owned by the specified bucket, or {@code null} if not found. The lookup uses the path
+   * index.
+   */
+  @Nullable
+  OrientVertex findComponentWithPath(String path, Vertex bucket);
+
+  /**
+   * Gets a component by name and version, owned by the specified bucket, or {@code null} if not found. The lookup uses
+   * the name index.
+   */
+  @Nullable
+  OrientVertex findComponentWithNameAndVersion(String name, @Nullable String version, Vertex bucket);
+
   /**
    * Gets all component in the specified repositories that match the given where clause.
    *
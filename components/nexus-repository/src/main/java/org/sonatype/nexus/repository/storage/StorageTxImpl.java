@@ -13,8 +13,11 @@
 package org.sonatype.nexus.repository.storage;
 
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 
 import javax.annotation.Nullable;
 
@@ -28,14 +31,17 @@ import org.sonatype.nexus.common.stateguard.StateGuardAware;
 import org.sonatype.nexus.common.stateguard.Transitions;
 import org.sonatype.nexus.orient.graph.GraphTx;
 import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.storage.StatementCache.Statement;
 import org.sonatype.nexus.repository.util.NestedAttributesMap;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 
-import com.google.common.base.Function;
-import com.google.common.base.Joiner;
+import com.codahale.metrics.Timer;
+import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.hash.HashCode;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.impl.ODocument;
@@ -53,8 +59,11 @@ import static org.sonatype.nexus.repository.storage.StorageFacet.P_ATTRIBUTES;
 import static org.sonatype.nexus.repository.storage.StorageFacet.P_BLOB_REF;
 import static org.sonatype.nexus.repository.storage.StorageFacet.P_CHECKSUM;
 import static org.sonatype.nexus.repository.storage.StorageFacet.P_CONTENT_TYPE;
+import static org.sonatype.nexus.repository.storage.StorageFacet.P_NAME;
+import static org.sonatype.nexus.repository.storage.StorageFacet.P_PATH;
 import static org.sonatype.nexus.repository.storage.StorageFacet.P_REPOSITORY_NAME;
 import static org.sonatype.nexus.repository.storage.StorageFacet.P_SIZE;
+import static org.sonatype.nexus.repository.storage.StorageFacet.P_VERSION;
 import static org.sonatype.nexus.repository.storage.StorageFacet.V_ASSET;
 import static org.sonatype.nexus.repository.storage.StorageFacet.V_COMPONENT;
 import static org.sonatype.nexus.repository.storage.StorageTxImpl.State.CLOSED;
@@ -63,27 +72,53 @@ import static org.sonatype.nexus.repository.storage.StorageTxImpl.State.OPEN;
 /**
  * Default {@link StorageTx} implementation.
  *
+ * Lookups by indexed properties go straight to the index, while other queries use parameterized statements from the
+ * {@link StatementCache}.
+ *
  * @since 3.0
  */
 public class StorageTxImpl
     extends ComponentSupport
     implements StorageTx, StateGuardAware
 {
+  /**
+   * Vertex properties having an index, as {@code class.property} keys. The indexes are created by {@link
+   * StorageFacetImpl}.
+   */
+  static final Set<String> INDEXED_KEYS = ImmutableSet.of(
+      key(V_ASSET, P_PATH),
+      key(V_COMPONENT, P_PATH),
+      key(V_COMPONENT, P_NAME)
+  );
+
+  /**
+   * Prefix of parameters holding repository names, that must not be used by callers.
+   */
+  private static final String REPOSITORY_PARAMETER = "nxRepositoryName";
+
   private final BlobTx blobTx;
 
   private final GraphTx graphTx;
 
   private final Object bucketId;
 
+  private final StatementCache statementCache;
+
   private final StateGuard stateGuard = new StateGuard.Builder().initial(CLOSED).create();
 
   public StorageTxImpl(final BlobTx blobTx,
                        final GraphTx graphTx,
-                       final Object bucketId)
+                       final Object bucketId,
+                       final StatementCache statementCache)
   {
     this.blobTx = checkNotNull(blobTx);
     this.graphTx = checkNotNull(graphTx);
     this.bucketId = checkNotNull(bucketId);
+    this.statementCache = checkNotNull(statementCache);
+  }
+
+  static String key(final String className, final String propName) {
+    return className + '.' + propName;
   }
 
   public static final class State
@@ -186,6 +221,13 @@ public class StorageTxImpl
     return findWithPropertyOwnedBy(V_ASSET, propName, propValue, E_OWNS_ASSET, bucket);
   }
 
+  @Nullable
+  @Override
+  @Guarded(by = OPEN)
+  public OrientVertex findAssetWithPath(final String path, final Vertex bucket) {
+    return findWithPropertyOwnedBy(V_ASSET, P_PATH, path, E_OWNS_ASSET, bucket);
+  }
+
   @Override
   @SuppressWarnings("unchecked")
   public List<OrientVertex> findAssets(final Vertex component) {
@@ -193,19 +235,72 @@ public class StorageTxImpl
     return (List<OrientVertex>) vertices;
   }
 
-  @SuppressWarnings("unchecked")
-  private OrientVertex findWithPropertyOwnedBy(String className, String propName, Object propValue,
-                                               String edgeLabel, Vertex bucket)
+  /**
+   * Finds the first vertex with given property value owned by the bucket.
+   */
+  @Nullable
+  private OrientVertex findWithPropertyOwnedBy(final String className,
+                                               final String propName,
+                                               final Object propValue,
+                                               final String edgeLabel,
+                                               final Vertex bucket)
   {
     checkNotNull(propName);
     checkNotNull(propValue);
     checkNotNull(bucket);
 
-    Map<String, Object> parameters = ImmutableMap.of("propValue", propValue, "bucket", bucket);
-    String query = String.format("select from %s where %s = :propValue and in('%s') contains :bucket",
-        className, propName, edgeLabel);
-    Iterable<OrientVertex> vertices = graphTx.command(new OCommandSQL(query)).execute(parameters);
-    return Iterables.getFirst(vertices, null);
+    final boolean indexed = INDEXED_KEYS.contains(key(className, propName));
+    for (OrientVertex vertex : findWithProperty(className, propName, propValue, edgeLabel, bucket)) {
+      if (!indexed || bucketOwns(bucket, edgeLabel, vertex)) {
+        return vertex;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the vertices with given property value. Indexed properties are looked up in the index, and resulting
+   * vertices must be checked for bucket ownership. Otherwise a statement is executed, returning only vertices owned by
+   * the bucket.
+   */
+  private Iterable<OrientVertex> findWithProperty(final String className,
+                                                  final String propName,
+                                                  final Object propValue,
+                                                  final String edgeLabel,
+                                                  final Vertex bucket)
+  {
+    final String key = key(className, propName);
+    if (INDEXED_KEYS.contains(key)) {
+      final Timer.Context ctx = statementCache.timer(className, propName).time();
+      try {
+        // materialize, so the timer covers the index lookup
+        return Lists.newArrayList(orientVertices(graphTx.getVertices(key, propValue)));
+      }
+      finally {
+        ctx.stop();
+      }
+    }
+
+    final Statement statement = statementCache.get(className, propName, Arrays.asList(className, propName, edgeLabel),
+        new Callable<String>()
+        {
+          @Override
+          public String call() {
+            return String.format("select from %s where %s = :propValue and in('%s') contains :bucket",
+                className, propName, edgeLabel);
+          }
+        });
+    return execute(statement, ImmutableMap.of("propValue", propValue, "bucket", bucket));
+  }
+
+  private Iterable<OrientVertex> execute(final Statement statement, @Nullable final Map<String, Object> parameters) {
+    final Timer.Context ctx = statement.getTimer().time();
+    try {
+      return graphTx.command(new OCommandSQL(statement.getSql())).execute(parameters);
+    }
+    finally {
+      ctx.stop();
+    }
   }
 
   @Override
@@ -235,9 +330,11 @@ public class StorageTxImpl
                                               @Nullable Iterable<Repository> repositories,
                                               @Nullable String querySuffix)
   {
-    String query = buildQuery(className, false, whereClause, edgeLabel, repositories, querySuffix);
-    log.debug("Finding vertices with query: {}, parameters: {}", query, parameters);
-    return graphTx.command(new OCommandSQL(query)).execute(parameters);
+    List<String> repositoryNames = repositoryNames(repositories);
+    Statement statement = statement(className, false, whereClause, edgeLabel, repositoryNames.size(), querySuffix);
+    Map<String, Object> allParameters = parameters(parameters, repositoryNames);
+    log.debug("Finding vertices with query: {}, parameters: {}", statement.getSql(), allParameters);
+    return execute(statement, allParameters);
   }
 
   private long countVertices(String className,
@@ -247,18 +344,77 @@ public class StorageTxImpl
                              @Nullable Iterable<Repository> repositories,
                              @Nullable String querySuffix)
   {
-    String query = buildQuery(className, true, whereClause, edgeLabel, repositories, querySuffix);
-    log.debug("Counting vertices with query: {}, parameters: {}", query, parameters);
-    List<ODocument> results = graphTx.getRawGraph().command(new OCommandSQL(query)).execute(parameters);
-    return results.get(0).field("count");
-  }
-
-  private String buildQuery(String className,
-                            boolean isCount,
-                            @Nullable String whereClause,
-                            @Nullable String edgeLabel,
-                            @Nullable Iterable<Repository> repositories,
-                            @Nullable String querySuffix)
+    List<String> repositoryNames = repositoryNames(repositories);
+    Statement statement = statement(className, true, whereClause, edgeLabel, repositoryNames.size(), querySuffix);
+    Map<String, Object> allParameters = parameters(parameters, repositoryNames);
+    log.debug("Counting vertices with query: {}, parameters: {}", statement.getSql(), allParameters);
+    Timer.Context ctx = statement.getTimer().time();
+    try {
+      List<ODocument> results = graphTx.getRawGraph().command(new OCommandSQL(statement.getSql()))
+          .execute(allParameters);
+      return results.get(0).field("count");
+    }
+    finally {
+      ctx.stop();
+    }
+  }
+
+  private static List<String> repositoryNames(@Nullable Iterable<Repository> repositories) {
+    List<String> names = Lists.newArrayList();
+    if (repositories != null) {
+      for (Repository repository : repositories) {
+        names.add(repository.getName());
+      }
+    }
+    return names;
+  }
+
+  /**
+   * Returns the given parameters, along with the repository name parameters of statement.
+   */
+  @Nullable
+  private static Map<String, Object> parameters(@Nullable Map<String, Object> parameters,
+                                                List<String> repositoryNames)
+  {
+    if (repositoryNames.isEmpty()) {
+      return parameters;
+    }
+    Map<String, Object> allParameters = parameters == null
+        ? Maps.<String, Object>newHashMap()
+        : Maps.newHashMap(parameters);
+    for (int i = 0; i < repositoryNames.size(); i++) {
+      allParameters.put(REPOSITORY_PARAMETER + i, repositoryNames.get(i));
+    }
+    return allParameters;
+  }
+
+  private Statement statement(final String className,
+                              final boolean isCount,
+                              @Nullable final String whereClause,
+                              @Nullable final String edgeLabel,
+                              final int repositoryCount,
+                              @Nullable final String querySuffix)
+  {
+    return statementCache.get(className, isCount ? "count" : "find",
+        Arrays.asList(className, isCount, whereClause, edgeLabel, repositoryCount, querySuffix),
+        new Callable<String>()
+        {
+          @Override
+          public String call() {
+            return buildQuery(className, isCount, whereClause, edgeLabel, repositoryCount, querySuffix);
+          }
+        });
+  }
+
+  /**
+   * Builds the query, constraining results to the repositories named by {@link #REPOSITORY_PARAMETER} parameters.
+   */
+  private static String buildQuery(String className,
+                                   boolean isCount,
+                                   @Nullable String whereClause,
+                                   @Nullable String edgeLabel,
+                                   int repositoryCount,
+                                   @Nullable String querySuffix)
   {
     StringBuilder query = new StringBuilder();
     query.append("select");
@@ -270,27 +426,22 @@ public class StorageTxImpl
       query.append(" where ").append(whereClause);
     }
 
-    if (repositories != null) {
-      List<String> bucketConstraints = Lists.newArrayList(
-          Iterables.transform(repositories, new Function<Repository, String>()
-          {
-            @Override
-            public String apply(final Repository repository) {
-              return String.format("%s = '%s'", P_REPOSITORY_NAME, repository.getName());
-            }
-          }).iterator());
-      if (bucketConstraints.size() > 0) {
-        checkArgument(edgeLabel != null);
-        if (whereClause == null) {
-          query.append(" where");
-        }
-        else {
-          query.append(" and");
+    if (repositoryCount > 0) {
+      checkArgument(edgeLabel != null);
+      if (whereClause == null) {
+        query.append(" where");
+      }
+      else {
+        query.append(" and");
+      }
+      query.append(" in('").append(edgeLabel).append("') contains (");
+      for (int i = 0; i < repositoryCount; i++) {
+        if (i > 0) {
+          query.append(" or ");
         }
-        query.append(" in('").append(edgeLabel).append("') contains (");
-        query.append(Joiner.on(" or ").join(bucketConstraints));
-        query.append(")");
+        query.append(P_REPOSITORY_NAME).append(" = :").append(REPOSITORY_PARAMETER).append(i);
       }
+      query.append(")");
     }
 
     if (querySuffix != null) {
@@ -318,6 +469,31 @@ public class StorageTxImpl
     return findWithPropertyOwnedBy(V_COMPONENT, propName, propValue, E_OWNS_COMPONENT, bucket);
   }
 
+  @Nullable
+  @Override
+  @Guarded(by = OPEN)
+  public OrientVertex findComponentWithPath(final String path, final Vertex bucket) {
+    return findWithPropertyOwnedBy(V_COMPONENT, P_PATH, path, E_OWNS_COMPONENT, bucket);
+  }
+
+  @Nullable
+  @Override
+  @Guarded(by = OPEN)
+  public OrientVertex findComponentWithNameAndVersion(final String name,
+                                                      @Nullable final String version,
+                                                      final Vertex bucket)
+  {
+    checkNotNull(name);
+    checkNotNull(bucket);
+
+    for (OrientVertex vertex : findWithProperty(V_COMPONENT, P_NAME, name, E_OWNS_COMPONENT, bucket)) {
+      if (Objects.equal(version, vertex.getProperty(P_VERSION)) && bucketOwns(bucket, E_OWNS_COMPONENT, vertex)) {
+        return vertex;
+      }
+    }
+    return null;
+  }
+
   @Override
   @Guarded(by = OPEN)
   public Iterable<OrientVertex> findComponents(@Nullable String whereClause,
@@ -360,7 +536,11 @@ public class StorageTxImpl
     checkNotNull(propName);
     checkNotNull(propValue);
 
-    Iterable<OrientVertex> vertices = orientVertices(graphTx.getVertices(propName, propValue));
+    // class qualified key is looked up in the index of that class
+    String key = className != null && INDEXED_KEYS.contains(key(className, propName))
+        ? key(className, propName)
+        : propName;
+    Iterable<OrientVertex> vertices = orientVertices(graphTx.getVertices(key, propValue));
     OrientVertex vertex = Iterables.getFirst(vertices, null);
     if (vertex != null && className != null && !vertex.getProperty("@class").equals(className)) {
       return null;
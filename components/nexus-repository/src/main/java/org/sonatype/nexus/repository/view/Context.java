@@ -52,6 +52,13 @@ public class Context
 
   private ListIterator<Handler> handlers;
 
+  private final RequestTimings timings = new RequestTimings();
+
+  /**
+   * Nanoseconds spent by handlers proceeded to from the current handler.
+   */
+  private long proceededNanos;
+
   public Context(final Repository repository,
                  final Request request)
   {
@@ -71,6 +78,13 @@ public class Context
     return request;
   }
 
+  /**
+   * Returns the timings of handlers invoked so far.
+   */
+  public RequestTimings getTimings() {
+    return timings;
+  }
+
   /**
    * Invokes the next handler in the handler chain.
    *
@@ -84,11 +98,21 @@ public class Context
 
     // Invoke next handler
     Handler handler = handlers.next();
+    long outerProceededNanos = proceededNanos;
+    proceededNanos = 0;
+    // keep timings in order of invocation, handlers complete in reverse order
+    timings.record(handlerName(handler), 0);
+    long start = System.nanoTime();
     try {
       log.debug("Proceeding: {}", handler);
       return handler.handle(this);
     }
     finally {
+      // record time of handler itself, and add its total to the time of the handler proceeding to it
+      long elapsed = System.nanoTime() - start;
+      timings.record(handlerName(handler), elapsed - proceededNanos);
+      proceededNanos = outerProceededNanos + elapsed;
+
       // retain handler position in-case of re-proceed
       if (handlers.hasPrevious()) {
         handlers.previous();
@@ -96,6 +120,11 @@ public class Context
     }
   }
 
+  private static String handlerName(final Handler handler) {
+    String name = handler.getClass().getSimpleName();
+    return name.isEmpty() ? handler.getClass().getName() : name;
+  }
+
   //
   // Framework internal
   //
@@ -0,0 +1,35 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.view;
+
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+/**
+ * A {@link Matcher} that can only match request paths starting with one of a known set of literal prefixes.
+ *
+ * Used by {@link Router} to skip routes that can not match a request path, without evaluating their matchers.
+ *
+ * @since 3.0
+ */
+public interface PrefixedMatcher
+    extends Matcher
+{
+  /**
+   * Returns the literal prefixes of paths this matcher may match, or {@code null} if any path may match. Prefixes are
+   * compared ignoring case, so a matcher comparing case sensitively may return its prefixes as they are.
+   */
+  @Nullable
+  Set<String> getPathPrefixes();
+}
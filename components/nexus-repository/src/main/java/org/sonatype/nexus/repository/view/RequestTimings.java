@@ -0,0 +1,72 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.view;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Timings of a request dispatched by {@link Router}: the route taken and the time spent in each handler of the route,
+ * excluding the time of the handlers it proceeded to.
+ *
+ * Exposed as attribute of the {@link Response}, keyed by this class.
+ *
+ * @since 3.0
+ */
+public class RequestTimings
+{
+  private final Map<String, Long> handlerNanos = new LinkedHashMap<>();
+
+  private String route;
+
+  void record(final String handler, final long nanos) {
+    Long previous = handlerNanos.get(handler);
+    handlerNanos.put(handler, previous != null ? previous + nanos : nanos);
+  }
+
+  void setRoute(final String route) {
+    this.route = checkNotNull(route);
+  }
+
+  /**
+   * Label of the route taken, see {@link Router}.
+   */
+  @Nullable
+  public String getRoute() {
+    return route;
+  }
+
+  /**
+   * Nanoseconds spent in each handler, by handler name, in order of invocation.
+   */
+  public Map<String, Long> getHandlerNanos() {
+    return Collections.unmodifiableMap(handlerNanos);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder buff = new StringBuilder();
+    buff.append("route=").append(route);
+    for (Map.Entry<String, Long> entry : handlerNanos.entrySet()) {
+      buff.append(", ").append(entry.getKey()).append('=')
+          .append(TimeUnit.NANOSECONDS.toMillis(entry.getValue())).append("ms");
+    }
+    return buff.toString();
+  }
+}
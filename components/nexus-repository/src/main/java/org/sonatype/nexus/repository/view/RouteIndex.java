@@ -0,0 +1,125 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.view;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Index of routes by the literal path prefixes of their matchers, see {@link PrefixedMatcher}.
+ *
+ * The prefixes are kept in a case-insensitive trie, each node marking the routes having the prefix spelled by the path
+ * to the node. Finding a route walks the trie along the request path collecting candidate routes, then evaluates the
+ * matchers of only the candidates, in route order, so the first matching route is found as by a linear scan.
+ *
+ * @since 3.0
+ */
+class RouteIndex
+{
+  private final List<Route> routes;
+
+  /**
+   * Routes that may match any path.
+   */
+  private final BitSet unconstrained = new BitSet();
+
+  private final Node root = new Node();
+
+  RouteIndex(final List<Route> routes) {
+    this.routes = checkNotNull(routes);
+    for (int i = 0; i < routes.size(); i++) {
+      Set<String> prefixes = prefixes(routes.get(i).getMatcher());
+      if (prefixes == null) {
+        unconstrained.set(i);
+      }
+      else {
+        for (String prefix : prefixes) {
+          root.insert(prefix).routes.set(i);
+        }
+      }
+    }
+  }
+
+  @Nullable
+  private static Set<String> prefixes(final Matcher matcher) {
+    if (matcher instanceof PrefixedMatcher) {
+      return ((PrefixedMatcher) matcher).getPathPrefixes();
+    }
+    return null;
+  }
+
+  /**
+   * Returns the first route matching the context, or {@code null} if no route matches.
+   */
+  @Nullable
+  Route find(final Context context) {
+    final String path = context.getRequest().getPath();
+
+    BitSet candidates = (BitSet) unconstrained.clone();
+    candidates.or(root.routes);
+    Node node = root;
+    for (int i = 0; i < path.length() && node.children != null; i++) {
+      node = node.children.get(fold(path.charAt(i)));
+      if (node == null) {
+        break;
+      }
+      candidates.or(node.routes);
+    }
+
+    for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+      Route route = routes.get(i);
+      if (route.getMatcher().matches(context)) {
+        return route;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Folds case of character, the same way {@link String#equalsIgnoreCase} compares characters.
+   */
+  private static char fold(final char ch) {
+    return Character.toLowerCase(Character.toUpperCase(ch));
+  }
+
+  private static class Node
+  {
+    private final BitSet routes = new BitSet();
+
+    private Map<Character, Node> children;
+
+    private Node insert(final String prefix) {
+      Node node = this;
+      for (int i = 0; i < prefix.length(); i++) {
+        if (node.children == null) {
+          node.children = new HashMap<>();
+        }
+        char ch = fold(prefix.charAt(i));
+        Node child = node.children.get(ch);
+        if (child == null) {
+          child = new Node();
+          node.children.put(ch, child);
+        }
+        node = child;
+      }
+      return node;
+    }
+  }
+}
@@ -13,32 +13,60 @@
 package org.sonatype.nexus.repository.view;
 
 import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 import org.sonatype.nexus.repository.Repository;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
 import com.google.common.collect.Lists;
 
+import static com.codahale.metrics.MetricRegistry.name;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
 /**
  * View router.
  *
+ * Routes are indexed by the literal path prefixes of their matchers, so only the routes that may match the request
+ * path are evaluated, in order, see {@link RouteIndex}.
+ *
+ * Latency of requests is recorded in the {@code nexus} metric registry, per repository, per route and per handler
+ * (excluding the handlers it proceeded to). Routes are labeled by their position, or {@code default}. The timings of
+ * each request are also exposed as {@link RequestTimings} attribute of the response. Timers of deleted repositories are
+ * removed by {@link #removeMetrics(Repository)}.
+ *
  * @since 3.0
  */
 public class Router
     extends ComponentSupport
 {
-  private final List<Route> routes;
+  private final RouteIndex routeIndex;
 
   private final DefaultRoute defaultRoute;
 
+  private final Map<Route, String> routeLabels = new IdentityHashMap<>();
+
+  private final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate("nexus");
+
+  private final ConcurrentMap<String, RepositoryTimers> repositoryTimers = new ConcurrentHashMap<>();
+
   public Router(final List<Route> routes, final DefaultRoute defaultRoute) {
-    this.routes = checkNotNull(routes, "Missing routes");
+    this.routeIndex = new RouteIndex(checkNotNull(routes, "Missing routes"));
     this.defaultRoute = checkNotNull(defaultRoute, "Missing default route");
+    for (int i = 0; i < routes.size(); i++) {
+      routeLabels.put(routes.get(i), String.valueOf(i));
+    }
+    routeLabels.put(defaultRoute, "default");
   }
 
   /**
@@ -50,14 +78,94 @@ public class Router
 
     logRequest(request);
 
+    long start = System.nanoTime();
+
     // Find route and start context
     Context context = new Context(repository, request);
     Route route = findRoute(context);
-    Response response = context.start(route);
+    String routeLabel = routeLabels.get(route);
+    context.getTimings().setRoute(routeLabel);
+    try {
+      Response response = context.start(route);
+      response.getAttributes().set(RequestTimings.class, context.getTimings());
 
-    logResponse(response);
+      logResponse(response);
 
-    return response;
+      return response;
+    }
+    finally {
+      record(repository, routeLabel, context.getTimings(), System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Record request timings in the repository timers.
+   */
+  private void record(final Repository repository,
+                      final String routeLabel,
+                      final RequestTimings timings,
+                      final long elapsedNanos)
+  {
+    RepositoryTimers timers = repositoryTimers.get(repository.getName());
+    if (timers == null) {
+      timers = new RepositoryTimers(prefix(repository));
+      RepositoryTimers existing = repositoryTimers.putIfAbsent(repository.getName(), timers);
+      if (existing != null) {
+        timers = existing;
+      }
+    }
+    timers.requests.update(elapsedNanos, TimeUnit.NANOSECONDS);
+    timers.get("route", routeLabel).update(elapsedNanos, TimeUnit.NANOSECONDS);
+    for (Map.Entry<String, Long> entry : timings.getHandlerNanos().entrySet()) {
+      timers.get("handler", entry.getKey()).update(entry.getValue(), TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * Removes the timers of given repository, recorded by any router, from the {@code nexus} metric registry.
+   */
+  public static void removeMetrics(final Repository repository) {
+    final String prefix = prefix(repository);
+    SharedMetricRegistries.getOrCreate("nexus").removeMatching(new MetricFilter()
+    {
+      @Override
+      public boolean matches(final String name, final Metric metric) {
+        return name.equals(name(prefix, "requests"))
+            || name.startsWith(name(prefix, "route") + '.')
+            || name.startsWith(name(prefix, "handler") + '.');
+      }
+    });
+  }
+
+  private static String prefix(final Repository repository) {
+    return name(Router.class, repository.getFormat().getValue(), repository.getName());
+  }
+
+  /**
+   * Timers of a repository, resolved from the registry once.
+   */
+  private class RepositoryTimers
+  {
+    private final String prefix;
+
+    private final Timer requests;
+
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+    private RepositoryTimers(final String prefix) {
+      this.prefix = prefix;
+      this.requests = metricRegistry.timer(name(prefix, "requests"));
+    }
+
+    private Timer get(final String kind, final String label) {
+      String key = kind + '.' + label;
+      Timer timer = timers.get(key);
+      if (timer == null) {
+        timer = metricRegistry.timer(name(prefix, key));
+        timers.put(key, timer);
+      }
+      return timer;
+    }
   }
 
   /**
@@ -122,10 +230,9 @@ public class Router
    * Find the first matching route for the given context.
    */
   private Route findRoute(final Context context) {
-    for (Route route : routes) {
-      if (route.getMatcher().matches(context)) {
-        return route;
-      }
+    Route route = routeIndex.find(context);
+    if (route != null) {
+      return route;
     }
     return defaultRoute;
   }
@@ -12,8 +12,11 @@
  */
 package org.sonatype.nexus.repository.view.matchers;
 
+import java.util.Collections;
+import java.util.Set;
+
 import org.sonatype.nexus.repository.view.Context;
-import org.sonatype.nexus.repository.view.Matcher;
+import org.sonatype.nexus.repository.view.PrefixedMatcher;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -25,7 +28,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 public class LiteralMatcher
   extends ComponentSupport
-  implements Matcher
+  implements PrefixedMatcher
 {
   private final String literal;
 
@@ -53,6 +56,11 @@ public class LiteralMatcher
     }
   }
 
+  @Override
+  public Set<String> getPathPrefixes() {
+    return Collections.singleton(literal);
+  }
+
   @Override
   public String toString() {
     return getClass().getSimpleName() + "{" +
@@ -13,9 +13,13 @@
 package org.sonatype.nexus.repository.view.matchers.logic;
 
 import java.util.List;
+import java.util.Set;
+
+import javax.annotation.Nullable;
 
 import org.sonatype.nexus.repository.view.Context;
 import org.sonatype.nexus.repository.view.Matcher;
+import org.sonatype.nexus.repository.view.PrefixedMatcher;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -32,7 +36,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 public class AndMatcher
     extends ComponentSupport
-    implements Matcher
+    implements PrefixedMatcher
 {
   private final List<Matcher> matchers;
 
@@ -56,6 +60,23 @@ public class AndMatcher
     return true;
   }
 
+  /**
+   * Returns the prefixes of the first member having prefixes, as all members must match.
+   */
+  @Nullable
+  @Override
+  public Set<String> getPathPrefixes() {
+    for (Matcher matcher : matchers) {
+      if (matcher instanceof PrefixedMatcher) {
+        Set<String> prefixes = ((PrefixedMatcher) matcher).getPathPrefixes();
+        if (prefixes != null) {
+          return prefixes;
+        }
+      }
+    }
+    return null;
+  }
+
   @Override
   public String toString() {
     return getClass().getSimpleName() + "{" +
@@ -12,10 +12,15 @@
  */
 package org.sonatype.nexus.repository.view.matchers.logic;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+
+import javax.annotation.Nullable;
 
 import org.sonatype.nexus.repository.view.Context;
 import org.sonatype.nexus.repository.view.Matcher;
+import org.sonatype.nexus.repository.view.PrefixedMatcher;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -32,7 +37,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 public class OrMatcher
     extends ComponentSupport
-    implements Matcher
+    implements PrefixedMatcher
 {
   private final List<Matcher> matchers;
 
@@ -56,6 +61,26 @@ public class OrMatcher
     return false;
   }
 
+  /**
+   * Returns the prefixes of all members, or {@code null} if any member may match any path.
+   */
+  @Nullable
+  @Override
+  public Set<String> getPathPrefixes() {
+    Set<String> prefixes = new HashSet<>();
+    for (Matcher matcher : matchers) {
+      if (!(matcher instanceof PrefixedMatcher)) {
+        return null;
+      }
+      Set<String> memberPrefixes = ((PrefixedMatcher) matcher).getPathPrefixes();
+      if (memberPrefixes == null) {
+        return null;
+      }
+      prefixes.addAll(memberPrefixes);
+    }
+    return prefixes;
+  }
+
   @Override
   public String toString() {
     return getClass().getSimpleName() + "{" +
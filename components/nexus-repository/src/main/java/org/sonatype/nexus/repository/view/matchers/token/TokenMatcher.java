@@ -12,10 +12,15 @@
  */
 package org.sonatype.nexus.repository.view.matchers.token;
 
+import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
 
 import org.sonatype.nexus.repository.view.Context;
 import org.sonatype.nexus.repository.view.Matcher;
+import org.sonatype.nexus.repository.view.PrefixedMatcher;
 import org.sonatype.nexus.repository.view.Request;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 
@@ -31,7 +36,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 public class TokenMatcher
     extends ComponentSupport
-    implements Matcher
+    implements PrefixedMatcher
 {
   public static interface State
   {
@@ -76,4 +81,11 @@ public class TokenMatcher
     });
     return true;
   }
+
+  @Nullable
+  @Override
+  public Set<String> getPathPrefixes() {
+    String prefix = parser.getLiteralPrefix();
+    return prefix != null ? Collections.singleton(prefix) : null;
+  }
 }
@@ -53,11 +53,24 @@ public class TokenParser
 
   private final Pattern pattern;
 
+  /**
+   * Literal the pattern starts with, if any.
+   */
+  private final String literalPrefix;
+
+  /**
+   * Literal the pattern ends with, if any.
+   */
+  private final String literalSuffix;
+
   public TokenParser(final String templatePattern) {
     final List<Token> tokens = new PatternParser(templatePattern).getTokens();
     pattern = Pattern.compile(regexp(tokens));
     log.trace("Pattern: {}", pattern);
 
+    literalPrefix = literalValue(tokens.isEmpty() ? null : tokens.get(0));
+    literalSuffix = tokens.size() > 1 ? literalValue(tokens.get(tokens.size() - 1)) : null;
+
     // Separate the variable tokens
     variables = new ArrayList<>();
     for (Token token : tokens) {
@@ -74,6 +87,12 @@ public class TokenParser
    */
   @Nullable
   public Map<String, String> parse(final String path) {
+    // cheap rejection of paths not having the leading or trailing literal, before running the regexp
+    if ((literalPrefix != null && !path.startsWith(literalPrefix))
+        || (literalSuffix != null && !path.endsWith(literalSuffix))) {
+      return null;
+    }
+
     final Matcher matcher = pattern.matcher(path);
     if (!matcher.matches()) {
       return null;
@@ -106,6 +125,19 @@ public class TokenParser
     return pattern.toString();
   }
 
+  /**
+   * Returns the literal all matching paths start with, or {@code null} if the pattern starts with a variable.
+   */
+  @Nullable
+  public String getLiteralPrefix() {
+    return literalPrefix;
+  }
+
+  @Nullable
+  private static String literalValue(@Nullable final Token token) {
+    return token instanceof LiteralToken ? token.value : null;
+  }
+
   private String regexp(final List<Token> tokens) {
     StringBuilder b = new StringBuilder();
     for (Token token : tokens) {
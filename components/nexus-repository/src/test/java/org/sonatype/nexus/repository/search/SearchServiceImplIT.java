@@ -0,0 +1,387 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.search;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.manager.RepositoryManager;
+import org.sonatype.nexus.repository.storage.StorageFacet;
+import org.sonatype.nexus.repository.storage.StorageTx;
+import org.sonatype.nexus.repository.view.ViewFacet;
+import org.sonatype.nexus.security.SecurityHelper;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.inject.util.Providers;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.orient.OrientVertex;
+import org.apache.shiro.authz.Permission;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.node.Node;
+import org.elasticsearch.search.SearchHit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.elasticsearch.node.NodeBuilder.nodeBuilder;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Integration tests for {@link SearchServiceImpl}, against an embedded search node.
+ */
+public class SearchServiceImplIT
+    extends TestSupport
+{
+  private Node node;
+
+  private Client client;
+
+  private Repository repository;
+
+  private List<IndexSettingsContributor> contributors;
+
+  private ComponentMetadataFactory componentMetadataFactory;
+
+  private SearchServiceImpl underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    node = nodeBuilder()
+        .local(true)
+        .settings(ImmutableSettings.settingsBuilder()
+            .put("cluster.name", getClass().getSimpleName())
+            .put("path.home", util.createTempDir().getAbsolutePath())
+            .put("http.enabled", false)
+            .put("index.number_of_shards", 2)
+            .put("index.number_of_replicas", 0))
+        .node();
+    client = node.client();
+    client.admin().cluster().prepareHealth().setWaitForYellowStatus().execute().actionGet();
+
+    repository = repository("central");
+    contributors = Lists.newArrayList();
+    componentMetadataFactory = mock(ComponentMetadataFactory.class);
+    final RepositoryManager repositoryManager = mock(RepositoryManager.class);
+    when(repositoryManager.browse()).thenReturn(Collections.singletonList(repository));
+    final SecurityHelper securityHelper = mock(SecurityHelper.class);
+    when(securityHelper.allPermitted(Matchers.<Permission>anyVararg())).thenReturn(true);
+
+    underTest = new SearchServiceImpl(
+        Providers.of(client),
+        repositoryManager,
+        securityHelper,
+        contributors,
+        componentMetadataFactory
+    );
+  }
+
+  @After
+  public void tearDown() {
+    if (node != null) {
+      node.close();
+    }
+  }
+
+  private Repository repository(final String name, final OrientVertex... components) {
+    final Repository repository = mock(Repository.class);
+    when(repository.getName()).thenReturn(name);
+    final ViewFacet viewFacet = mock(ViewFacet.class);
+    when(viewFacet.isOnline()).thenReturn(true);
+    when(repository.facet(ViewFacet.class)).thenReturn(viewFacet);
+    final StorageTx tx = mock(StorageTx.class);
+    when(tx.browseComponents(any(Vertex.class))).thenReturn(Arrays.asList(components));
+    final StorageFacet storageFacet = mock(StorageFacet.class);
+    when(storageFacet.openTx()).thenReturn(tx);
+    when(repository.facet(StorageFacet.class)).thenReturn(storageFacet);
+    return repository;
+  }
+
+  /**
+   * Indexes given count of components through the alias of repository.
+   */
+  private void index(final String name, final int count) {
+    final BulkRequestBuilder bulk = client.prepareBulk();
+    for (int i = 0; i < count; i++) {
+      bulk.add(client.prepareIndex(name, SearchServiceImpl.TYPE, String.valueOf(i))
+          .setSource("{\"name\":\"component-" + i + "\"}"));
+    }
+    assertThat(bulk.execute().actionGet().hasFailures(), equalTo(false));
+    client.admin().indices().prepareRefresh(name).execute().actionGet();
+  }
+
+  /**
+   * Returns the index the alias of repository points to, or {@code null}.
+   */
+  private String aliasedIndex(final String name) {
+    Iterator<String> aliased = client.admin().indices().prepareGetAliases(name).execute().actionGet()
+        .getAliases().keysIt();
+    return aliased.hasNext() ? aliased.next() : null;
+  }
+
+  private String awaitAliasChange(final String name, final String index) throws Exception {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    String aliased;
+    while ((aliased = aliasedIndex(name)) == null || aliased.equals(index)) {
+      if (System.nanoTime() > deadline) {
+        fail("Alias " + name + " still points to " + index);
+      }
+      Thread.sleep(50);
+    }
+    return aliased;
+  }
+
+  private Map meta(final String index) throws Exception {
+    return (Map) client.admin().indices().prepareGetMappings(index).execute().actionGet()
+        .getMappings().get(index).get(SearchServiceImpl.TYPE).sourceAsMap().get("_meta");
+  }
+
+  private boolean exists(final String index) {
+    return client.admin().indices().prepareExists(index).execute().actionGet().isExists();
+  }
+
+  private long count(final String name) {
+    client.admin().indices().prepareRefresh(name).execute().actionGet();
+    return client.prepareCount(name).execute().actionGet().getCount();
+  }
+
+  private void contributeSettings(final String settings) {
+    contributors.clear();
+    contributors.add(new IndexSettingsContributor()
+    {
+      @Override
+      public String getIndexSettings(final Repository repository) {
+        return settings;
+      }
+    });
+  }
+
+  @Test
+  public void createIndexAliasesVersionedIndex() throws Exception {
+    underTest.createIndex(repository);
+
+    final String index = aliasedIndex("central");
+    assertThat(index, startsWith("central-"));
+    assertThat(meta(index).get("repository"), equalTo((Object) "central"));
+    assertThat(meta(index).get("checksum"), notNullValue());
+
+    underTest.deleteIndex(repository);
+
+    assertThat(exists(index), equalTo(false));
+    assertThat(aliasedIndex("central"), nullValue());
+  }
+
+  @Test
+  public void repositoryNamedLikeVersionedIndexIsLeftAlone() throws Exception {
+    final Repository other = repository("central-1");
+    underTest.createIndex(other);
+    final String otherIndex = aliasedIndex("central-1");
+
+    underTest.createIndex(repository);
+    underTest.deleteIndex(repository);
+
+    assertThat(exists(otherIndex), equalTo(true));
+    assertThat(aliasedIndex("central-1"), equalTo(otherIndex));
+  }
+
+  @Test
+  public void unchangedChecksumKeepsIndex() throws Exception {
+    contributeSettings("{\"settings\":{\"index\":{\"number_of_replicas\":0}}}");
+    underTest.createIndex(repository);
+    final String index = aliasedIndex("central");
+
+    underTest.createIndex(repository);
+
+    assertThat(aliasedIndex("central"), equalTo(index));
+  }
+
+  @Test
+  public void changedChecksumRebuildsIndex() throws Exception {
+    underTest.createIndex(repository);
+    final String index = aliasedIndex("central");
+    final Object checksum = meta(index).get("checksum");
+    // versions are creation times
+    Thread.sleep(5);
+
+    contributeSettings("{\"settings\":{\"index\":{\"refresh_interval\":\"2s\"}}}");
+    underTest.createIndex(repository);
+
+    final String rebuilt = awaitAliasChange("central", index);
+    assertThat(meta(rebuilt).get("checksum"), not(equalTo(checksum)));
+    assertThat(exists(index), equalTo(false));
+  }
+
+  @Test
+  public void rebuildIndexesComponentsOfStorage() throws Exception {
+    final OrientVertex component = mock(OrientVertex.class);
+    final ComponentMetadata metadata = mock(ComponentMetadata.class);
+    when(metadata.getId()).thenReturn("1");
+    when(metadata.toJson()).thenReturn("{\"name\":\"foo\"}");
+    when(componentMetadataFactory.from(component)).thenReturn(metadata);
+    repository = repository("central", component);
+
+    // index created before aliases were used is replaced
+    client.admin().indices().prepareCreate("central").execute().actionGet();
+    underTest.createIndex(repository);
+    final String rebuilt = awaitAliasChange("central", null);
+    assertThat(rebuilt, startsWith("central-"));
+    assertThat(count("central"), equalTo(1L));
+
+    underTest.rebuildIndex(repository);
+    assertThat(count(awaitAliasChange("central", rebuilt)), equalTo(1L));
+    assertThat(exists(rebuilt), equalTo(false));
+  }
+
+  @Test
+  public void canceledRebuildDropsItsIndex() throws Exception {
+    final OrientVertex component = mock(OrientVertex.class);
+    final ComponentMetadata metadata = mock(ComponentMetadata.class);
+    when(metadata.getId()).thenReturn("1");
+    when(metadata.toJson()).thenReturn("{\"name\":\"foo\"}");
+    when(componentMetadataFactory.from(component)).thenReturn(metadata);
+    underTest.createIndex(repository);
+    final String index = aliasedIndex("central");
+
+    // rebuilds block browsing storage until released
+    final CountDownLatch browsing = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    repository = repository("central", component);
+    final StorageTx tx = repository.facet(StorageFacet.class).openTx();
+    when(tx.browseComponents(any(Vertex.class))).thenAnswer(new Answer<Iterable<OrientVertex>>()
+    {
+      @Override
+      public Iterable<OrientVertex> answer(final InvocationOnMock invocation) throws Throwable {
+        browsing.countDown();
+        release.await();
+        return Collections.singletonList(component);
+      }
+    });
+
+    underTest.rebuildIndex(repository);
+    assertThat(browsing.await(10, TimeUnit.SECONDS), equalTo(true));
+    final Set<String> canceled = Sets.newHashSet(client.admin().indices().prepareGetMappings().execute().actionGet()
+        .getMappings().keysIt());
+    canceled.remove(index);
+    assertThat(canceled.size(), equalTo(1));
+
+    // replaces the rebuild in progress
+    underTest.rebuildIndex(repository);
+    release.countDown();
+
+    final String rebuilt = awaitAliasChange("central", index);
+    assertThat(canceled.contains(rebuilt), equalTo(false));
+    assertThat(exists(canceled.iterator().next()), equalTo(false));
+    assertThat(count(rebuilt), equalTo(1L));
+  }
+
+  private long openScrollContexts() {
+    return client.admin().indices().prepareStats().setSearch(true).execute().actionGet()
+        .getTotal().getSearch().getOpenContexts();
+  }
+
+  private void awaitNoOpenScrollContexts() throws Exception {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (openScrollContexts() > 0) {
+      if (System.nanoTime() > deadline) {
+        fail("Scroll contexts were not cleared");
+      }
+      Thread.sleep(50);
+    }
+  }
+
+  @Test
+  public void browseStreamsAllHitsInWindows() throws Exception {
+    underTest.createIndex(repository);
+    // more hits than fetched by a single scroll window
+    index("central", 2500);
+
+    final Set<String> ids = Sets.newHashSet();
+    for (SearchHit hit : underTest.browse(QueryBuilders.matchAllQuery())) {
+      ids.add(hit.getId());
+    }
+
+    assertThat(ids.size(), equalTo(2500));
+    awaitNoOpenScrollContexts();
+  }
+
+  @Test
+  public void exhaustedIteratorClearsScroll() throws Exception {
+    underTest.createIndex(repository);
+    index("central", 3);
+
+    final Iterator<SearchHit> iterator = underTest.browse(QueryBuilders.matchAllQuery()).iterator();
+    final List<SearchHit> hits = Lists.newArrayList();
+    while (iterator.hasNext()) {
+      hits.add(iterator.next());
+    }
+
+    assertThat(hits.size(), equalTo(3));
+    assertThat(iterator.hasNext(), equalTo(false));
+    try {
+      iterator.next();
+      fail();
+    }
+    catch (NoSuchElementException e) {
+      // expected
+    }
+    awaitNoOpenScrollContexts();
+  }
+
+  @Test
+  public void browseWithoutHitsClearsScroll() throws Exception {
+    underTest.createIndex(repository);
+
+    assertThat(underTest.browse(QueryBuilders.matchAllQuery()).iterator().hasNext(), equalTo(false));
+    awaitNoOpenScrollContexts();
+  }
+
+  @Test
+  public void pagedSearch() {
+    underTest.createIndex(repository);
+    index("central", 30);
+
+    assertThat(underTest.search(QueryBuilders.matchAllQuery(), 20, 20).getHits().getHits().length, equalTo(10));
+    assertThat(underTest.search(QueryBuilders.matchAllQuery(), 0, 10).getHits().getTotalHits(), equalTo(30L));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void deepPagedSearchIsRejected() {
+    underTest.createIndex(repository);
+
+    underTest.search(QueryBuilders.matchAllQuery(), 9995, 10);
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.storage;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+
+import org.sonatype.nexus.repository.storage.StatementCache.Statement;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * Tests for {@link StatementCache}.
+ */
+public class StatementCacheTest
+    extends TestSupport
+{
+  private static final String TIMER = MetricRegistry.name(StorageTx.class, "query", "TestClass", "find");
+
+  private final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate("nexus");
+
+  private final StatementCache underTest = new StatementCache(2);
+
+  private Statement get(final String sql) {
+    return underTest.get("TestClass", "find", Arrays.asList("TestClass", sql), new Callable<String>()
+    {
+      @Override
+      public String call() {
+        return sql;
+      }
+    });
+  }
+
+  @Test
+  public void statementsOfSameKindShareTimer() {
+    final Statement first = get("select from TestClass limit 10");
+    final Statement second = get("select from TestClass limit 20");
+
+    assertThat(get("select from TestClass limit 10"), sameInstance(first));
+    assertThat(second.getSql(), equalTo("select from TestClass limit 20"));
+    assertThat(second.getTimer(), sameInstance(first.getTimer()));
+    assertThat(metricRegistry.getTimers(), hasKey(TIMER));
+  }
+
+  @Test
+  public void timerIsRemovedOnceNoStatementsRemain() {
+    get("select from TestClass limit 10");
+    get("select from TestClass limit 20");
+    assertThat(metricRegistry.getTimers(), hasKey(TIMER));
+
+    // evicts both statements of kind
+    underTest.get("TestClass", "count", Arrays.asList("count"), new Callable<String>()
+    {
+      @Override
+      public String call() {
+        return "select count(*) from TestClass";
+      }
+    });
+    underTest.get("OtherClass", "find", Arrays.asList("other"), new Callable<String>()
+    {
+      @Override
+      public String call() {
+        return "select from OtherClass";
+      }
+    });
+
+    assertThat(metricRegistry.getTimers(), not(hasKey(TIMER)));
+  }
+}
@@ -16,6 +16,7 @@ package org.sonatype.nexus.repository.storage;
 import java.util.List;
 import java.util.Map;
 
+import org.sonatype.nexus.blobstore.api.BlobId;
 import org.sonatype.nexus.blobstore.api.BlobStore;
 import org.sonatype.nexus.blobstore.api.BlobStoreManager;
 import org.sonatype.nexus.orient.DatabaseInstanceRule;
@@ -29,6 +30,7 @@ import org.sonatype.sisu.litmus.testsupport.TestSupport;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.inject.util.Providers;
@@ -42,15 +44,21 @@ import org.junit.Rule;
 import org.junit.Test;
 
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sonatype.nexus.repository.storage.StorageFacet.P_ATTRIBUTES;
+import static org.sonatype.nexus.repository.storage.StorageFacet.P_BLOB_REF;
+import static org.sonatype.nexus.repository.storage.StorageFacet.P_NAME;
 import static org.sonatype.nexus.repository.storage.StorageFacet.P_PATH;
+import static org.sonatype.nexus.repository.storage.StorageFacet.P_REPOSITORY_NAME;
+import static org.sonatype.nexus.repository.storage.StorageFacet.P_VERSION;
 import static org.sonatype.nexus.repository.storage.StorageFacet.V_ASSET;
 import static org.sonatype.nexus.repository.storage.StorageFacet.V_BUCKET;
 import static org.sonatype.nexus.repository.storage.StorageFacet.V_COMPONENT;
@@ -70,14 +78,21 @@ public class StorageFacetImplIT
 
   protected Repository testRepository2 = mock(Repository.class);
 
+  protected BlobStore blobStore = mock(BlobStore.class);
+
+  protected BucketDeleter bucketDeleter;
+
   @Before
   public void setUp() throws Exception {
     BlobStoreManager mockBlobStoreManager = mock(BlobStoreManager.class);
-    when(mockBlobStoreManager.get(anyString())).thenReturn(mock(BlobStore.class));
+    when(mockBlobStoreManager.get(anyString())).thenReturn(blobStore);
+    bucketDeleter = new BucketDeleter(Providers.of(database.getInstance()), mockBlobStoreManager);
     underTest = new StorageFacetImpl(
         mockBlobStoreManager,
         Providers.of(database.getInstance()),
-        mock(ComponentMetadataFactory.class)
+        mock(ComponentMetadataFactory.class),
+        new StatementCache(),
+        bucketDeleter
     );
     underTest.installDependencies(mock(EventBus.class));
 
@@ -99,6 +114,7 @@ public class StorageFacetImplIT
   @After
   public void tearDown() throws Exception {
     underTest.stop();
+    bucketDeleter.stop();
   }
 
   @Test
@@ -240,6 +256,79 @@ public class StorageFacetImplIT
     }
   }
 
+  @Test
+  public void findWithIndexedProperties() {
+    try (StorageTx tx = underTest.openTx()) {
+      OrientVertex asset = tx.createAsset(tx.getBucket());
+      asset.setProperty(P_PATH, "a/b/c.txt");
+      OrientVertex component = tx.createComponent(tx.getBucket());
+      component.setProperty(P_PATH, "a/b");
+      component.setProperty(P_NAME, "b");
+      component.setProperty(P_VERSION, "1.0");
+      tx.commit();
+    }
+
+    underTest.init(testRepository2);
+    try (StorageTx tx = underTest.openTx()) {
+      OrientVertex component = tx.createComponent(tx.getBucket());
+      component.setProperty(P_PATH, "a/b");
+      component.setProperty(P_NAME, "b");
+      component.setProperty(P_VERSION, "2.0");
+      tx.commit();
+    }
+
+    try (StorageTx tx = underTest.openTx()) {
+      // lookups are constrained to the bucket of testRepository2
+      assertNull(tx.findAssetWithPath("a/b/c.txt", tx.getBucket()));
+      assertThat((String) tx.findComponentWithPath("a/b", tx.getBucket()).getProperty(P_VERSION), is("2.0"));
+      assertThat((String) tx.findComponentWithNameAndVersion("b", "2.0", tx.getBucket()).getProperty(P_PATH),
+          is("a/b"));
+      assertNull(tx.findComponentWithNameAndVersion("b", "1.0", tx.getBucket()));
+      assertNull(tx.findComponentWithNameAndVersion("b", null, tx.getBucket()));
+    }
+
+    underTest.init(testRepository1);
+    try (StorageTx tx = underTest.openTx()) {
+      assertNotNull(tx.findAssetWithPath("a/b/c.txt", tx.getBucket()));
+      assertNotNull(tx.findAssetWithProperty(P_PATH, "a/b/c.txt", tx.getBucket()));
+      assertNotNull(tx.findComponentWithNameAndVersion("b", "1.0", tx.getBucket()));
+    }
+  }
+
+  @Test
+  public void deleteDetachesBucketAndDeletesContentInBackground() throws Exception {
+    try (StorageTx tx = underTest.openTx()) {
+      OrientVertex asset = tx.createAsset(tx.getBucket());
+      asset.setProperty(P_BLOB_REF, "NODE@STORE:blob1");
+      tx.createComponent(tx.getBucket());
+      tx.commit();
+    }
+
+    underTest.delete();
+
+    // detached right away
+    try (StorageTx tx = underTest.openTx()) {
+      OrientVertex bucket = Iterables.getOnlyElement(tx.browseVertices(V_BUCKET));
+      assertThat((String) bucket.getProperty(P_REPOSITORY_NAME), not("test-repository-1"));
+    }
+
+    // deleted once started
+    bucketDeleter.start();
+    for (int i = 0; i < 100 && !isEmpty(V_BUCKET); i++) {
+      Thread.sleep(100);
+    }
+    assertThat(isEmpty(V_BUCKET), is(true));
+    assertThat(isEmpty(V_ASSET), is(true));
+    assertThat(isEmpty(V_COMPONENT), is(true));
+    verify(blobStore).delete(new BlobId("blob1"));
+  }
+
+  private boolean isEmpty(final String className) {
+    try (StorageTx tx = underTest.openTx()) {
+      return Iterables.isEmpty(tx.browseVertices(className));
+    }
+  }
+
   @Test
   public void mapOfMaps() {
     Map<String, String> bag1 = ImmutableMap.of("foo", "bar");
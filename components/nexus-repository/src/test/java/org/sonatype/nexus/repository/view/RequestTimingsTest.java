@@ -0,0 +1,50 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.view;
+
+import java.util.concurrent.TimeUnit;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Tests for {@link RequestTimings}.
+ */
+public class RequestTimingsTest
+    extends TestSupport
+{
+  private final RequestTimings underTest = new RequestTimings();
+
+  @Test
+  public void handlerTimesAreSummedInOrderOfInvocation() {
+    underTest.setRoute("1");
+    underTest.record("SecurityHandler", TimeUnit.MILLISECONDS.toNanos(5));
+    underTest.record("ProxyHandler", TimeUnit.MILLISECONDS.toNanos(20));
+    underTest.record("SecurityHandler", TimeUnit.MILLISECONDS.toNanos(3));
+
+    assertThat(underTest.getRoute(), equalTo("1"));
+    assertThat(underTest.getHandlerNanos().keySet(), contains("SecurityHandler", "ProxyHandler"));
+    assertThat(underTest.getHandlerNanos().get("SecurityHandler"), equalTo(TimeUnit.MILLISECONDS.toNanos(8)));
+    assertThat(underTest.toString(), equalTo("route=1, SecurityHandler=8ms, ProxyHandler=20ms"));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void handlerTimesAreReadOnly() {
+    underTest.getHandlerNanos().clear();
+  }
+}
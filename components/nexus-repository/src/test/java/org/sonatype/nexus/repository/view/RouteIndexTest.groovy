@@ -0,0 +1,75 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.view
+
+import org.junit.Test
+import org.sonatype.nexus.repository.Repository
+import org.sonatype.nexus.repository.view.matchers.AlwaysMatcher
+import org.sonatype.nexus.repository.view.matchers.LiteralMatcher
+import org.sonatype.nexus.repository.view.matchers.RegexMatcher
+import org.sonatype.nexus.repository.view.matchers.logic.LogicMatchers
+import org.sonatype.nexus.repository.view.matchers.token.TokenMatcher
+import org.sonatype.sisu.litmus.testsupport.TestSupport
+
+import static org.mockito.Mockito.mock
+
+/**
+ * Tests for {@link RouteIndex}.
+ */
+class RouteIndexTest
+  extends TestSupport
+{
+  private Context context(String path) {
+    return new Context(mock(Repository.class), new Request(path))
+  }
+
+  private Route route(Matcher matcher) {
+    return new Route(matcher, [mock(Handler.class)])
+  }
+
+  @Test
+  void 'first matching route is found'() {
+    def feed = route(LogicMatchers.or(new LiteralMatcher('/'), new LiteralMatcher('/$metadata')))
+    def packages = route(new TokenMatcher('/Packages(Id=\'{id}\',Version=\'{version}\')'))
+    def download = route(new TokenMatcher('/{id}/{version}'))
+    def any = route(new AlwaysMatcher())
+    def underTest = new RouteIndex([feed, packages, download, any])
+
+    assert underTest.find(context('/')) == feed
+    assert underTest.find(context('/$METADATA')) == feed
+    assert underTest.find(context('/Packages(Id=\'foo\',Version=\'1.0\')')) == packages
+    assert underTest.find(context('/foo/1.0')) == download
+    assert underTest.find(context('/foo')) == any
+  }
+
+  @Test
+  void 'unconstrained route keeps its order'() {
+    def regex = route(new RegexMatcher('/a.*'))
+    def literal = route(new LiteralMatcher('/a/b'))
+    def underTest = new RouteIndex([regex, literal])
+
+    assert underTest.find(context('/a/b')) == regex
+    assert underTest.find(context('/b')) == null
+  }
+
+  @Test
+  void 'logic matchers constrain by prefixes'() {
+    def and = route(LogicMatchers.and(new RegexMatcher('.*'), new TokenMatcher('/a/{name}')))
+    def not = route(LogicMatchers.not(new LiteralMatcher('/a/b')))
+    def underTest = new RouteIndex([and, not])
+
+    assert underTest.find(context('/a/b')) == and
+    assert underTest.find(context('/b/c')) == not
+    assert new RouteIndex([and]).find(context('/b/c')) == null
+  }
+}
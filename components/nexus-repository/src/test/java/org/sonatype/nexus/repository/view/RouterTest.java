@@ -0,0 +1,177 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.view;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.sonatype.nexus.repository.Format;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.http.HttpResponses;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link Router} timings and timers.
+ */
+public class RouterTest
+    extends TestSupport
+{
+  private static final long INNER_MILLIS = 50;
+
+  private static final Format RAW = new Format("raw")
+  {
+  };
+
+  private final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate("nexus");
+
+  @Mock
+  private Repository repository;
+
+  @Mock
+  private Repository otherRepository;
+
+  private Router underTest;
+
+  @Before
+  public void prepare() {
+    when(repository.getName()).thenReturn("test");
+    when(repository.getFormat()).thenReturn(RAW);
+    when(otherRepository.getName()).thenReturn("test.other");
+    when(otherRepository.getFormat()).thenReturn(RAW);
+
+    final Route route = new Route(new Matcher()
+    {
+      @Override
+      public boolean matches(final Context context) {
+        return context.getRequest().getPath().startsWith("/content");
+      }
+    }, Arrays.<Handler>asList(new Outer(), new Inner()));
+    underTest = new Router.Builder()
+        .route(route)
+        .defaultHandlers(new Inner())
+        .create();
+  }
+
+  @After
+  public void cleanup() {
+    Router.removeMetrics(repository);
+    Router.removeMetrics(otherRepository);
+  }
+
+  private String timer(final String repositoryName, final String key) {
+    return MetricRegistry.name(Router.class, "raw", repositoryName, key);
+  }
+
+  @Test
+  public void handlerTimesExcludeProceededHandlers() throws Exception {
+    final Response response = underTest.dispatch(repository, new Request("/content/foo"));
+
+    final RequestTimings timings = response.getAttributes().get(RequestTimings.class);
+    assertThat(timings.getRoute(), equalTo("0"));
+    assertThat(timings.getHandlerNanos().keySet(), contains("Outer", "Inner"));
+    assertThat(timings.getHandlerNanos().get("Inner"),
+        greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(INNER_MILLIS)));
+    assertThat(timings.getHandlerNanos().get("Outer"), lessThan(TimeUnit.MILLISECONDS.toNanos(INNER_MILLIS)));
+  }
+
+  @Test
+  public void unmatchedRequestTakesDefaultRoute() throws Exception {
+    final Response response = underTest.dispatch(repository, new Request("/other"));
+
+    assertThat(response.getAttributes().get(RequestTimings.class).getRoute(), equalTo("default"));
+    assertThat(metricRegistry.getTimers(), hasKey(timer("test", "route.default")));
+  }
+
+  @Test
+  public void timersAreRecordedPerRepositoryRouteAndHandler() throws Exception {
+    underTest.dispatch(repository, new Request("/content/foo"));
+    underTest.dispatch(repository, new Request("/content/bar"));
+
+    assertThat(metricRegistry.timer(timer("test", "requests")).getCount(), equalTo(2L));
+    assertThat(metricRegistry.timer(timer("test", "route.0")).getCount(), equalTo(2L));
+    assertThat(metricRegistry.timer(timer("test", "handler.Outer")).getCount(), equalTo(2L));
+    assertThat(metricRegistry.timer(timer("test", "handler.Inner")).getCount(), equalTo(2L));
+  }
+
+  @Test
+  public void timersOfDeletedRepositoryAreRemoved() throws Exception {
+    underTest.dispatch(repository, new Request("/content/foo"));
+    underTest.dispatch(otherRepository, new Request("/content/foo"));
+
+    Router.removeMetrics(repository);
+
+    assertThat(metricRegistry.getTimers(), not(hasKey(timer("test", "requests"))));
+    assertThat(metricRegistry.getTimers(), not(hasKey(timer("test", "route.0"))));
+    assertThat(metricRegistry.getTimers(), not(hasKey(timer("test", "handler.Inner"))));
+    // repository with name sharing the prefix is not affected
+    assertThat(metricRegistry.getTimers(), hasKey(timer("test.other", "requests")));
+    assertThat(metricRegistry.getTimers(), hasKey(timer("test.other", "handler.Inner")));
+  }
+
+  @Test
+  public void failedRequestIsTimed() throws Exception {
+    final Router failing = new Router.Builder().defaultHandlers(new Handler()
+    {
+      @Override
+      public Response handle(final Context context) throws Exception {
+        throw new IllegalStateException("failed");
+      }
+    }).create();
+
+    try {
+      failing.dispatch(repository, new Request("/content/foo"));
+      fail();
+    }
+    catch (IllegalStateException e) {
+      assertThat(e.getMessage(), equalTo("failed"));
+    }
+    assertThat(metricRegistry.timer(timer("test", "requests")).getCount(), equalTo(1L));
+    assertThat(metricRegistry.timer(timer("test", "route.default")).getCount(), equalTo(1L));
+  }
+
+  private static class Outer
+      implements Handler
+  {
+    @Override
+    public Response handle(final Context context) throws Exception {
+      return context.proceed();
+    }
+  }
+
+  private static class Inner
+      implements Handler
+  {
+    @Override
+    public Response handle(final Context context) throws Exception {
+      Thread.sleep(INNER_MILLIS);
+      return HttpResponses.ok();
+    }
+  }
+}
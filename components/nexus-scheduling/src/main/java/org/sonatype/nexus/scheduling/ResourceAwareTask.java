@@ -0,0 +1,40 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.scheduling;
+
+import java.util.Set;
+
+/**
+ * Optional interface of {@link Task}s that declares the resources task heavily uses while running, and it's
+ * priority. Executors supporting it limit the count of concurrently running tasks claiming same resource, and run
+ * queued tasks in priority order. See {@link TaskResources} for resource claim names.
+ *
+ * @since 3.0
+ */
+public interface ResourceAwareTask
+{
+  /**
+   * Default task priority.
+   */
+  int DEFAULT_PRIORITY = 0;
+
+  /**
+   * Returns the resources claimed by this task instance, never {@code null}.
+   */
+  Set<String> getResourceClaims();
+
+  /**
+   * Returns the priority of this task instance. Queued tasks with higher priority are started first.
+   */
+  int getPriority();
+}
@@ -0,0 +1,64 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.scheduling;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Resource claim names for {@link ResourceAwareTask}. Claims are in form {@code kind:name}, except for {@link
+ * #REMOTE}, and executors may limit concurrency per kind of resource.
+ *
+ * @since 3.0
+ */
+public final class TaskResources
+{
+  /**
+   * Claim of remote (network) access, like proxying or downloading remote indexes.
+   */
+  public static final String REMOTE = "remote";
+
+  public static final String REPOSITORY = "repository";
+
+  public static final String BLOB_STORE = "blobstore";
+
+  public static final String INDEX_CONTEXT = "index";
+
+  private TaskResources() {
+    // empty
+  }
+
+  public static String repository(final String repositoryId) {
+    return claim(REPOSITORY, repositoryId);
+  }
+
+  public static String blobStore(final String blobStoreName) {
+    return claim(BLOB_STORE, blobStoreName);
+  }
+
+  public static String indexContext(final String indexContextId) {
+    return claim(INDEX_CONTEXT, indexContextId);
+  }
+
+  /**
+   * Returns the kind of resource claim.
+   */
+  public static String kind(final String claim) {
+    final int idx = claim.indexOf(':');
+    return idx > 0 ? claim.substring(0, idx) : claim;
+  }
+
+  private static String claim(final String kind, final String name) {
+    checkArgument(name != null && !name.isEmpty(), "Blank %s name", kind);
+    return kind + ':' + name;
+  }
+}
@@ -12,7 +12,9 @@
  */
 package org.sonatype.nexus.scheduling;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import org.sonatype.nexus.scheduling.CancelableSupport.CancelableFlagHolder;
 import org.sonatype.nexus.scheduling.TaskInfo.State;
@@ -35,7 +37,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 public abstract class TaskSupport<T>
     extends ComponentSupport
-    implements Task<T>
+    implements Task<T>, ResourceAwareTask
 {
   private final TaskConfiguration configuration;
 
@@ -95,6 +97,19 @@ public abstract class TaskSupport<T>
     }));
   }
 
+  /**
+   * Returns no resource claims, subclasses should override if they use some resource heavily.
+   */
+  @Override
+  public Set<String> getResourceClaims() {
+    return Collections.emptySet();
+  }
+
+  @Override
+  public int getPriority() {
+    return DEFAULT_PRIORITY;
+  }
+
   @Override
   public final T call() throws Exception {
     MDC.put(TaskSupport.class.getSimpleName(), getClass().getSimpleName());
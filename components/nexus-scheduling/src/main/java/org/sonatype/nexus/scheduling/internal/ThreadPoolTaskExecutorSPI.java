@@ -12,19 +12,29 @@
  */
 package org.sonatype.nexus.scheduling.internal;
 
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
+import org.sonatype.nexus.scheduling.ResourceAwareTask;
 import org.sonatype.nexus.scheduling.Task;
 import org.sonatype.nexus.scheduling.TaskConfiguration;
 import org.sonatype.nexus.scheduling.TaskFactory;
@@ -32,10 +42,16 @@ import org.sonatype.nexus.scheduling.TaskInfo;
 import org.sonatype.nexus.scheduling.schedule.Now;
 import org.sonatype.nexus.scheduling.schedule.Schedule;
 import org.sonatype.nexus.scheduling.spi.TaskExecutorSPI;
+import org.sonatype.nexus.scheduling.spi.TaskResourceLimiter;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import org.eclipse.sisu.Priority;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -44,6 +60,11 @@ import static com.google.common.base.Preconditions.checkNotNull;
 /**
  * Simple SPI using ThreadPoolExecutor that supports only simple execution of background tasks, but not scheduling.
  *
+ * Submitted tasks are queued and started in priority (then submission) order, as long as pool has free thread and
+ * the count of running tasks claiming same resource is under limit of that resource kind (see {@link
+ * ResourceAwareTask} and {@link TaskResourceLimiter}). A queued task reserves the resources it waits for, so tasks
+ * queued after it cannot take them over and starve it. Queue and run times are recorded per task type.
+ *
  * @since 3.0
  */
 @Singleton
@@ -54,6 +75,9 @@ public class ThreadPoolTaskExecutorSPI
     extends ComponentSupport
     implements TaskExecutorSPI
 {
+  private static final int POOL_SIZE = SystemPropertiesHelper.getInteger(
+      ThreadPoolTaskExecutorSPI.class.getName() + ".poolSize", 15);
+
   private final TaskFactory taskFactory;
 
   private final ThreadPoolExecutor executorService;
@@ -62,13 +86,36 @@ public class ThreadPoolTaskExecutorSPI
 
   private final ConcurrentMap<String, Future<?>> taskFutures;
 
+  private final TreeSet<ThreadPoolTaskInfo<?>> queue;
+
+  private final TaskResourceLimiter resourceLimiter;
+
+  private final AtomicLong taskSequence;
+
+  private final MetricRegistry metricRegistry;
+
+  private int running;
+
   @Inject
   public ThreadPoolTaskExecutorSPI(final TaskFactory taskFactory)
   {
     this.taskFactory = checkNotNull(taskFactory);
-    this.executorService = (ThreadPoolExecutor) Executors.newFixedThreadPool(15);
+    this.executorService = (ThreadPoolExecutor) Executors.newFixedThreadPool(POOL_SIZE);
     this.tasks = Maps.newConcurrentMap();
     this.taskFutures = Maps.newConcurrentMap();
+    this.queue = new TreeSet<>(new Comparator<ThreadPoolTaskInfo<?>>()
+    {
+      @Override
+      public int compare(final ThreadPoolTaskInfo<?> o1, final ThreadPoolTaskInfo<?> o2) {
+        if (o1.priority != o2.priority) {
+          return o1.priority > o2.priority ? -1 : 1;
+        }
+        return o1.sequence < o2.sequence ? -1 : (o1.sequence == o2.sequence ? 0 : 1);
+      }
+    });
+    this.resourceLimiter = new TaskResourceLimiter();
+    this.taskSequence = new AtomicLong();
+    this.metricRegistry = SharedMetricRegistries.getOrCreate("nexus");
   }
 
   private class ThreadPoolTaskInfo<T>
@@ -84,12 +131,50 @@ public class ThreadPoolTaskExecutorSPI
 
     private volatile EndState endState;
 
+    private final String typeId;
+
+    private final Set<String> claims;
+
+    private final int priority;
+
+    private final long sequence;
+
+    private final long queuedAt;
+
+    private final FutureTask<T> future;
+
+    private volatile boolean queued;
+
     public ThreadPoolTaskInfo(final Task<T> task, final Schedule schedule) {
       this.task = task;
       this.schedule = schedule;
       this.runStarted = new Date();
       this.runDuration = 0;
       this.endState = null;
+      this.typeId = task.taskConfiguration().getTypeId();
+      if (task instanceof ResourceAwareTask) {
+        this.claims = ImmutableSet.copyOf(((ResourceAwareTask) task).getResourceClaims());
+        this.priority = ((ResourceAwareTask) task).getPriority();
+      }
+      else {
+        this.claims = Collections.emptySet();
+        this.priority = ResourceAwareTask.DEFAULT_PRIORITY;
+      }
+      this.sequence = taskSequence.incrementAndGet();
+      this.queuedAt = System.nanoTime();
+      this.queued = true;
+      this.future = new FutureTask<T>(this)
+      {
+        @Override
+        protected void done() {
+          if (isCancelled()) {
+            // might be canceled while still queued, so call() was never invoked
+            tasks.remove(getId(), ThreadPoolTaskInfo.this);
+            taskFutures.remove(getId(), this);
+            dispatch();
+          }
+        }
+      };
     }
 
     @Override
@@ -154,6 +239,9 @@ public class ThreadPoolTaskExecutorSPI
           if (endState != null) {
             return null;
           }
+          else if (queued) {
+            return RunState.BLOCKED;
+          }
           else {
             return RunState.RUNNING;
           }
@@ -256,9 +344,12 @@ public class ThreadPoolTaskExecutorSPI
       }
     }
     final ThreadPoolTaskInfo<T> taskInfo = new ThreadPoolTaskInfo<>(task, schedule);
-    final Future<T> future = executorService.submit(taskInfo);
     tasks.put(task.getId(), taskInfo);
-    taskFutures.put(task.getId(), future);
+    taskFutures.put(task.getId(), taskInfo.future);
+    synchronized (queue) {
+      queue.add(taskInfo);
+    }
+    dispatch();
     return taskInfo;
   }
 
@@ -269,6 +360,64 @@ public class ThreadPoolTaskExecutorSPI
 
   @Override
   public int getRunningTaskCount() {
-    return tasks.size();
+    synchronized (queue) {
+      return running;
+    }
+  }
+
+  // ==
+
+  /**
+   * Starts queued tasks in queue order, as long as there are free threads in pool and their claimed resources are
+   * available. Resources claimed by a task that cannot be started are reserved for it.
+   */
+  private void dispatch() {
+    synchronized (queue) {
+      final Set<String> reserved = Sets.newHashSet();
+      final Iterator<ThreadPoolTaskInfo<?>> iterator = queue.iterator();
+      while (iterator.hasNext() && running < POOL_SIZE) {
+        final ThreadPoolTaskInfo<?> taskInfo = iterator.next();
+        if (taskInfo.future.isCancelled()) {
+          iterator.remove();
+        }
+        else if (Collections.disjoint(reserved, taskInfo.claims) && resourceLimiter.tryClaim(taskInfo.claims)) {
+          iterator.remove();
+          running++;
+          taskInfo.queued = false;
+          timer(taskInfo, "queued").update(System.nanoTime() - taskInfo.queuedAt, TimeUnit.NANOSECONDS);
+          executorService.execute(worker(taskInfo));
+        }
+        else {
+          reserved.addAll(taskInfo.claims);
+        }
+      }
+    }
+  }
+
+  private Runnable worker(final ThreadPoolTaskInfo<?> taskInfo) {
+    return new Runnable()
+    {
+      @Override
+      public void run() {
+        final long started = System.nanoTime();
+        try {
+          taskInfo.future.run();
+        }
+        finally {
+          timer(taskInfo, "run").update(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+          synchronized (queue) {
+            resourceLimiter.release(taskInfo.claims);
+            running--;
+            // within same lock, so running count does not drop to zero while queued tasks are about to start
+            dispatch();
+          }
+        }
+      }
+    };
+  }
+
+  private Timer timer(final ThreadPoolTaskInfo<?> taskInfo, final String name) {
+    return metricRegistry.timer(
+        MetricRegistry.name(ThreadPoolTaskExecutorSPI.class, taskInfo.typeId, name));
   }
 }
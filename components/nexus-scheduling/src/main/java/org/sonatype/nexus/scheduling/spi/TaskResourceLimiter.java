@@ -0,0 +1,182 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.scheduling.spi;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
+import org.sonatype.nexus.scheduling.ResourceAwareTask;
+import org.sonatype.nexus.scheduling.TaskResources;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Limits the count of concurrently running tasks claiming same resource (see {@link ResourceAwareTask}), to be used
+ * by {@link TaskExecutorSPI} implementations.
+ *
+ * Tasks waiting for their claims are served in priority (then arrival) order, and a waiting task reserves the
+ * resources it waits for, so tasks arriving after it cannot take them over and starve it.
+ *
+ * Limits are configured with {@code org.sonatype.nexus.scheduling.spi.TaskResourceLimiter.resourceLimit} system
+ * property for all resource kinds, overridden by {@code
+ * org.sonatype.nexus.scheduling.spi.TaskResourceLimiter.resourceLimit.<kind>}.
+ *
+ * @since 3.0
+ */
+public class TaskResourceLimiter
+{
+  private static final String CONFIG_PREFIX = TaskResourceLimiter.class.getName() + ".";
+
+  private static final int DEFAULT_RESOURCE_LIMIT = SystemPropertiesHelper.getInteger(
+      CONFIG_PREFIX + "resourceLimit", 1);
+
+  private static final int DEFAULT_REMOTE_RESOURCE_LIMIT = 4;
+
+  /**
+   * Interval (in milliseconds) waiting tasks check for being canceled.
+   */
+  private static final long POLL_INTERVAL = TimeUnit.SECONDS.toMillis(1);
+
+  private final Multiset<String> claimed = HashMultiset.create();
+
+  private final TreeSet<Waiter> waiters = new TreeSet<>(new Comparator<Waiter>()
+  {
+    @Override
+    public int compare(final Waiter o1, final Waiter o2) {
+      if (o1.priority != o2.priority) {
+        return o1.priority > o2.priority ? -1 : 1;
+      }
+      return o1.sequence < o2.sequence ? -1 : (o1.sequence == o2.sequence ? 0 : 1);
+    }
+  });
+
+  private final ConcurrentMap<String, Integer> resourceLimits = Maps.newConcurrentMap();
+
+  private final AtomicLong sequence = new AtomicLong();
+
+  private static class Waiter
+  {
+    private final Set<String> claims;
+
+    private final int priority;
+
+    private final long sequence;
+
+    private Waiter(final Set<String> claims, final int priority, final long sequence) {
+      this.claims = claims;
+      this.priority = priority;
+      this.sequence = sequence;
+    }
+  }
+
+  /**
+   * Takes given claims if they are available and not reserved by a waiting task, without blocking.
+   */
+  public synchronized boolean tryClaim(final Set<String> claims) {
+    checkNotNull(claims);
+    if (isAvailable(claims) && !isReserved(claims, null)) {
+      claimed.addAll(claims);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Takes given claims, waiting for them to become available. Gives up and returns {@code false} if the future of
+   * waiting task gets canceled meanwhile.
+   */
+  public synchronized boolean claim(final Set<String> claims, final int priority, final Future<?> future)
+      throws InterruptedException
+  {
+    checkNotNull(claims);
+    checkNotNull(future);
+    if (claims.isEmpty()) {
+      return true;
+    }
+    final Waiter waiter = new Waiter(claims, priority, sequence.incrementAndGet());
+    waiters.add(waiter);
+    try {
+      while (!future.isCancelled()) {
+        if (isAvailable(claims) && !isReserved(claims, waiter)) {
+          claimed.addAll(claims);
+          return true;
+        }
+        wait(POLL_INTERVAL);
+      }
+      return false;
+    }
+    finally {
+      waiters.remove(waiter);
+      // resources reserved by this waiter might be available to others now
+      notifyAll();
+    }
+  }
+
+  /**
+   * Releases claims taken with {@link #tryClaim(Set)} or {@link #claim(Set, int, Future)}.
+   */
+  public synchronized void release(final Set<String> claims) {
+    for (String claim : claims) {
+      claimed.remove(claim);
+    }
+    notifyAll();
+  }
+
+  /**
+   * Returns the limit of concurrently running tasks claiming same resource of given kind.
+   */
+  public int resourceLimit(final String kind) {
+    Integer limit = resourceLimits.get(kind);
+    if (limit == null) {
+      limit = SystemPropertiesHelper.getInteger(
+          CONFIG_PREFIX + "resourceLimit." + kind,
+          TaskResources.REMOTE.equals(kind) ? DEFAULT_REMOTE_RESOURCE_LIMIT : DEFAULT_RESOURCE_LIMIT
+      );
+      resourceLimits.put(kind, limit);
+    }
+    return limit;
+  }
+
+  private boolean isAvailable(final Set<String> claims) {
+    for (String claim : claims) {
+      if (claimed.count(claim) >= resourceLimit(TaskResources.kind(claim))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns {@code true} if any of claims is reserved by a task waiting ahead of given waiter (or any waiting task,
+   * if waiter is {@code null}).
+   */
+  private boolean isReserved(final Set<String> claims, final Waiter waiter) {
+    for (Waiter ahead : waiter != null ? waiters.headSet(waiter) : waiters) {
+      if (!Collections.disjoint(ahead.claims, claims)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -13,12 +13,15 @@
 package org.sonatype.nexus.scheduling.internal;
 
 import java.lang.annotation.Annotation;
+import java.util.Collections;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 
 import javax.inject.Named;
 
 import org.sonatype.nexus.scheduling.Task;
 import org.sonatype.nexus.scheduling.TaskDescriptorSupport;
+import org.sonatype.nexus.scheduling.TaskResources;
 import org.sonatype.nexus.scheduling.TaskSupport;
 
 import com.google.common.base.Throwables;
@@ -116,4 +119,26 @@ public class Tasks
       return getClass().getSimpleName();
     }
   }
+
+  public static class RepositorySleeperTask
+      extends TaskSupport<String>
+  {
+    static CountDownLatch meWait;
+
+    @Override
+    protected String execute() throws Exception {
+      meWait.await();
+      return getConfiguration().getRepositoryId();
+    }
+
+    @Override
+    public Set<String> getResourceClaims() {
+      return Collections.singleton(TaskResources.repository(getConfiguration().getRepositoryId()));
+    }
+
+    @Override
+    public String getMessage() {
+      return getClass().getSimpleName();
+    }
+  }
 }
@@ -0,0 +1,107 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.scheduling.internal;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Named;
+
+import org.sonatype.nexus.scheduling.Task;
+import org.sonatype.nexus.scheduling.TaskConfiguration;
+import org.sonatype.nexus.scheduling.TaskDescriptor;
+import org.sonatype.nexus.scheduling.TaskInfo;
+import org.sonatype.nexus.scheduling.TaskInfo.RunState;
+import org.sonatype.nexus.scheduling.internal.Tasks.RepositorySleeperTask;
+import org.sonatype.nexus.scheduling.schedule.Now;
+import org.sonatype.nexus.scheduling.spi.TaskExecutorSPI;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.inject.util.Providers;
+import org.eclipse.sisu.BeanEntry;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Tests for {@link ThreadPoolTaskExecutorSPI}.
+ */
+public class ThreadPoolTaskExecutorSPITest
+    extends TestSupport
+{
+  private DefaultTaskScheduler taskScheduler;
+
+  private ThreadPoolTaskExecutorSPI underTest;
+
+  @Before
+  public void prepare() {
+    final BeanEntry<Named, Task> task = Tasks.beanEntry(RepositorySleeperTask.class);
+    final DefaultTaskFactory taskFactory = new DefaultTaskFactory(
+        ImmutableList.of(task), Lists.<TaskDescriptor<?>>newArrayList());
+    underTest = new ThreadPoolTaskExecutorSPI(taskFactory);
+    taskScheduler = new DefaultTaskScheduler(taskFactory, Providers.<TaskExecutorSPI>of(underTest));
+  }
+
+  private TaskInfo<String> submit(final String repositoryId) {
+    final TaskConfiguration taskConfiguration = taskScheduler.createTaskConfigurationInstance(
+        RepositorySleeperTask.class);
+    taskConfiguration.setRepositoryId(repositoryId);
+    return underTest.scheduleTask(taskConfiguration, new Now());
+  }
+
+  @Test
+  public void tasksClaimingSameResourceRunOneByOne() throws Exception {
+    RepositorySleeperTask.meWait = new CountDownLatch(1);
+
+    final TaskInfo<String> first = submit("a");
+    final TaskInfo<String> second = submit("a");
+    final TaskInfo<String> other = submit("b");
+
+    assertThat(first.getCurrentState().getRunState(), equalTo(RunState.RUNNING));
+    assertThat(second.getCurrentState().getRunState(), equalTo(RunState.BLOCKED));
+    assertThat(other.getCurrentState().getRunState(), equalTo(RunState.RUNNING));
+    // queued task is not running
+    assertThat(underTest.getRunningTaskCount(), equalTo(2));
+    assertThat(underTest.listsTasks().size(), equalTo(3));
+
+    final Future<String> firstFuture = first.getCurrentState().getFuture();
+    final Future<String> secondFuture = second.getCurrentState().getFuture();
+    final Future<String> otherFuture = other.getCurrentState().getFuture();
+    RepositorySleeperTask.meWait.countDown();
+
+    assertThat(firstFuture.get(5, TimeUnit.SECONDS), equalTo("a"));
+    assertThat(otherFuture.get(5, TimeUnit.SECONDS), equalTo("b"));
+    assertThat(secondFuture.get(5, TimeUnit.SECONDS), equalTo("a"));
+  }
+
+  @Test
+  public void queuedTaskCanBeCanceled() throws Exception {
+    RepositorySleeperTask.meWait = new CountDownLatch(1);
+
+    final TaskInfo<String> first = submit("a");
+    final TaskInfo<String> second = submit("a");
+
+    assertThat(second.getCurrentState().getRunState(), equalTo(RunState.BLOCKED));
+    assertThat(second.remove(), equalTo(true));
+    assertThat(underTest.getRunningTaskCount(), equalTo(1));
+
+    final Future<String> firstFuture = first.getCurrentState().getFuture();
+    RepositorySleeperTask.meWait.countDown();
+    assertThat(firstFuture.get(5, TimeUnit.SECONDS), equalTo("a"));
+  }
+}
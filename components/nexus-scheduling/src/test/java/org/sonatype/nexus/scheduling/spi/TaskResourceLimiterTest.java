@@ -0,0 +1,138 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.scheduling.spi;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.sonatype.nexus.scheduling.TaskResources;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Tests for {@link TaskResourceLimiter}.
+ */
+public class TaskResourceLimiterTest
+    extends TestSupport
+{
+  private static final Set<String> REPO_A = ImmutableSet.of(TaskResources.repository("a"));
+
+  private static final Set<String> REPO_B = ImmutableSet.of(TaskResources.repository("b"));
+
+  private final TaskResourceLimiter underTest = new TaskResourceLimiter();
+
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  @After
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private Future<Boolean> claimAsync(final Set<String> claims, final int priority, final Future<?> taskFuture) {
+    return executor.submit(new Callable<Boolean>()
+    {
+      @Override
+      public Boolean call() throws Exception {
+        return underTest.claim(claims, priority, taskFuture);
+      }
+    });
+  }
+
+  private static FutureTask<Void> taskFuture() {
+    return new FutureTask<>(new Runnable()
+    {
+      @Override
+      public void run() {
+        // nop
+      }
+    }, null);
+  }
+
+  @Test
+  public void claimsAreLimitedPerResource() throws Exception {
+    assertThat(underTest.tryClaim(REPO_A), equalTo(true));
+    assertThat(underTest.tryClaim(REPO_A), equalTo(false));
+    assertThat(underTest.tryClaim(REPO_B), equalTo(true));
+    assertThat(underTest.tryClaim(ImmutableSet.<String>of()), equalTo(true));
+
+    underTest.release(REPO_A);
+    assertThat(underTest.tryClaim(REPO_A), equalTo(true));
+  }
+
+  @Test
+  public void remoteAllowsMoreClaims() {
+    final Set<String> remote = ImmutableSet.of(TaskResources.REMOTE);
+    for (int i = 0; i < underTest.resourceLimit(TaskResources.REMOTE); i++) {
+      assertThat(underTest.tryClaim(remote), equalTo(true));
+    }
+    assertThat(underTest.tryClaim(remote), equalTo(false));
+  }
+
+  @Test
+  public void waiterGetsClaimOnceReleased() throws Exception {
+    assertThat(underTest.tryClaim(REPO_A), equalTo(true));
+
+    final Future<Boolean> waiter = claimAsync(REPO_A, 0, taskFuture());
+    Thread.sleep(100);
+    assertThat(waiter.isDone(), equalTo(false));
+    // waiting task reserves resource
+    assertThat(underTest.tryClaim(REPO_A), equalTo(false));
+
+    underTest.release(REPO_A);
+    assertThat(waiter.get(5, TimeUnit.SECONDS), equalTo(true));
+    assertThat(underTest.tryClaim(REPO_A), equalTo(false));
+  }
+
+  @Test
+  public void higherPriorityWaiterGoesFirst() throws Exception {
+    assertThat(underTest.tryClaim(REPO_A), equalTo(true));
+
+    final Future<Boolean> low = claimAsync(REPO_A, 0, taskFuture());
+    Thread.sleep(100);
+    final Future<Boolean> high = claimAsync(REPO_A, 10, taskFuture());
+    Thread.sleep(100);
+
+    underTest.release(REPO_A);
+    assertThat(high.get(5, TimeUnit.SECONDS), equalTo(true));
+    assertThat(low.isDone(), equalTo(false));
+
+    underTest.release(REPO_A);
+    assertThat(low.get(5, TimeUnit.SECONDS), equalTo(true));
+  }
+
+  @Test
+  public void canceledWaiterGivesUp() throws Exception {
+    assertThat(underTest.tryClaim(REPO_A), equalTo(true));
+
+    final FutureTask<Void> taskFuture = taskFuture();
+    final Future<Boolean> waiter = claimAsync(REPO_A, 0, taskFuture);
+    Thread.sleep(100);
+    taskFuture.cancel(false);
+
+    assertThat(waiter.get(5, TimeUnit.SECONDS), equalTo(false));
+    // reservation is gone too
+    underTest.release(REPO_A);
+    assertThat(underTest.tryClaim(REPO_A), equalTo(true));
+  }
+}
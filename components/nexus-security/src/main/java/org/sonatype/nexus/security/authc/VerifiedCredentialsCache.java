@@ -0,0 +1,312 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.security.authc;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
+import org.sonatype.nexus.security.SecurityConfigurationChanged;
+import org.sonatype.nexus.security.UserPrincipalsExpired;
+import org.sonatype.sisu.goodies.common.ComponentSupport;
+import org.sonatype.sisu.goodies.eventbus.EventBus;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.Maps;
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.Subscribe;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Short lived cache of credentials that were recently verified by a realm. Build tools usually send Basic auth with
+ * every request without keeping a session, so realms would have to perform an expensive password hash or LDAP bind
+ * for every single request.
+ *
+ * The cache never holds the secrets: entries are keyed by realm name and username, and hold a keyed HMAC of the
+ * secret, using a random key generated on startup that never leaves the JVM. Entries expire after a short TTL, and
+ * are invalidated when {@link UserPrincipalsExpired} (fired on password change, user disable or delete) or
+ * {@link SecurityConfigurationChanged} is posted. Realms having their own invalidation events (like LDAP) should
+ * invoke {@link #invalidateAll(String)}.
+ *
+ * As verification might take a while, realms obtain a {@link #generation()} before verifying, and credentials are not
+ * cached if the user (or realm) was invalidated while being verified, as those might have been verified against
+ * stale data (like the old password).
+ *
+ * @since 3.0
+ */
+@Named
+@Singleton
+public class VerifiedCredentialsCache
+    extends ComponentSupport
+{
+  private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+  private static final boolean ENABLED = SystemPropertiesHelper.getBoolean(
+      VerifiedCredentialsCache.class.getName() + ".enabled", true);
+
+  /**
+   * Time to live (in seconds) of a verified credential.
+   */
+  private static final long TTL_SECONDS = SystemPropertiesHelper.getLong(
+      VerifiedCredentialsCache.class.getName() + ".ttlSeconds", 60L);
+
+  private static final long MAX_SIZE = SystemPropertiesHelper.getLong(
+      VerifiedCredentialsCache.class.getName() + ".maxSize", 10000L);
+
+  private final Cache<Key, byte[]> cache;
+
+  private final AtomicLong generation = new AtomicLong();
+
+  /**
+   * Generation of last invalidation per user. When an entry is evicted, its generation is recorded as if all users
+   * were invalidated, to never cache credentials verified before it.
+   */
+  private final Cache<String, Long> userInvalidations;
+
+  private final ConcurrentMap<String, Long> realmInvalidations = Maps.newConcurrentMap();
+
+  private final AtomicLong allInvalidation = new AtomicLong();
+
+  private final SecretKeySpec hmacKey;
+
+  private final Meter hits;
+
+  private final Meter misses;
+
+  @Inject
+  public VerifiedCredentialsCache(final EventBus eventBus) {
+    this(eventBus, TTL_SECONDS);
+  }
+
+  @VisibleForTesting
+  VerifiedCredentialsCache(final EventBus eventBus, final long ttlSeconds) {
+    this.cache = CacheBuilder.newBuilder()
+        .maximumSize(MAX_SIZE)
+        .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+        .build();
+    this.userInvalidations = CacheBuilder.newBuilder()
+        .maximumSize(MAX_SIZE)
+        .removalListener(new RemovalListener<String, Long>()
+        {
+          @Override
+          public void onRemoval(final RemovalNotification<String, Long> notification) {
+            if (notification.wasEvicted()) {
+              raise(allInvalidation, notification.getValue());
+            }
+          }
+        })
+        .build();
+
+    final byte[] keyBytes = new byte[32];
+    new SecureRandom().nextBytes(keyBytes);
+    this.hmacKey = new SecretKeySpec(keyBytes, HMAC_ALGORITHM);
+
+    final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate("nexus");
+    this.hits = metricRegistry.meter(MetricRegistry.name(VerifiedCredentialsCache.class, "hits"));
+    this.misses = metricRegistry.meter(MetricRegistry.name(VerifiedCredentialsCache.class, "misses"));
+
+    log.debug("enabled={}, ttlSeconds={}, maxSize={}", ENABLED, ttlSeconds, MAX_SIZE);
+    eventBus.register(this);
+  }
+
+  /**
+   * Returns {@code true} if passed in credentials were verified by given realm within the TTL.
+   */
+  public boolean isVerified(final String realmName, final String username, @Nullable final char[] secret) {
+    if (!ENABLED || username == null || secret == null) {
+      return false;
+    }
+    final byte[] cached = cache.getIfPresent(new Key(realmName, username));
+    if (cached != null && MessageDigest.isEqual(cached, hmac(secret))) {
+      hits.mark();
+      return true;
+    }
+    misses.mark();
+    return false;
+  }
+
+  /**
+   * Returns the current generation, to be obtained before verifying credentials and passed to
+   * {@link #verified(String, String, char[], long)} afterwards.
+   */
+  public long generation() {
+    return generation.get();
+  }
+
+  /**
+   * Records that passed in credentials were successfully verified by given realm, unless the user or realm was
+   * invalidated since passed in generation was obtained.
+   */
+  public void verified(final String realmName, final String username, @Nullable final char[] secret,
+                       final long generation)
+  {
+    if (!ENABLED || username == null || secret == null) {
+      return;
+    }
+    if (isInvalidatedSince(realmName, username, generation)) {
+      log.debug("Not caching credentials of {} in realm {}, invalidated while verified", username, realmName);
+      return;
+    }
+    final Key key = new Key(realmName, username);
+    cache.put(key, hmac(secret));
+    // invalidations record their generation before removing entries, so a racing one either removes the entry put
+    // above, or is seen here
+    if (isInvalidatedSince(realmName, username, generation)) {
+      cache.invalidate(key);
+    }
+  }
+
+  private boolean isInvalidatedSince(final String realmName, final String username, final long generation) {
+    final Long user = userInvalidations.getIfPresent(username);
+    final Long realm = realmInvalidations.get(realmName);
+    return allInvalidation.get() > generation
+        || (user != null && user > generation)
+        || (realm != null && realm > generation);
+  }
+
+  /**
+   * Invalidates the verified credentials of given user in all realms.
+   */
+  public void invalidate(final String username) {
+    checkNotNull(username);
+    userInvalidations.put(username, generation.incrementAndGet());
+    // invalidations are rare, and cache is small
+    for (Key key : cache.asMap().keySet()) {
+      if (username.equals(key.username)) {
+        cache.invalidate(key);
+      }
+    }
+  }
+
+  /**
+   * Invalidates all the verified credentials of given realm.
+   */
+  public void invalidateAll(final String realmName) {
+    checkNotNull(realmName);
+    realmInvalidations.put(realmName, generation.incrementAndGet());
+    for (Key key : cache.asMap().keySet()) {
+      if (realmName.equals(key.realmName)) {
+        cache.invalidate(key);
+      }
+    }
+  }
+
+  public void invalidateAll() {
+    raise(allInvalidation, generation.incrementAndGet());
+    // per user and realm invalidations are superseded
+    userInvalidations.invalidateAll();
+    realmInvalidations.clear();
+    cache.invalidateAll();
+  }
+
+  /**
+   * Raises value of passed in counter to passed in value, if lower.
+   */
+  private static void raise(final AtomicLong counter, final long value) {
+    long current;
+    while ((current = counter.get()) < value) {
+      if (counter.compareAndSet(current, value)) {
+        return;
+      }
+    }
+  }
+
+  // ==
+
+  @AllowConcurrentEvents
+  @Subscribe
+  public void on(final UserPrincipalsExpired event) {
+    if (event.getUserId() != null) {
+      invalidate(event.getUserId());
+    }
+    else {
+      invalidateAll();
+    }
+  }
+
+  @AllowConcurrentEvents
+  @Subscribe
+  public void on(final SecurityConfigurationChanged event) {
+    invalidateAll();
+  }
+
+  private byte[] hmac(final char[] secret) {
+    final ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(secret));
+    try {
+      final Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+      mac.init(hmacKey);
+      mac.update(bytes);
+      return mac.doFinal();
+    }
+    catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+    finally {
+      // do not leave encoded secret lying around
+      Arrays.fill(bytes.array(), (byte) 0);
+    }
+  }
+
+  private static class Key
+  {
+    private final String realmName;
+
+    private final String username;
+
+    private Key(final String realmName, final String username) {
+      this.realmName = checkNotNull(realmName);
+      this.username = checkNotNull(username);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      final Key that = (Key) o;
+      return realmName.equals(that.realmName) && username.equals(that.username);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(realmName, username);
+    }
+  }
+}
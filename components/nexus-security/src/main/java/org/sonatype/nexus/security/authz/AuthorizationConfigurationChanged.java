@@ -12,10 +12,56 @@
  */
 package org.sonatype.nexus.security.authz;
 
+import javax.annotation.Nullable;
+
 /**
  * An event fired when the authorization configuration has changed.
+ *
+ * When only the roles of a single user changed, the event carries the user id and source, and cached authorization
+ * data of other users, and of roles and privileges, is still valid.
  */
 public class AuthorizationConfigurationChanged
 {
-  // empty
+  private final String userId;
+
+  private final String source;
+
+  public AuthorizationConfigurationChanged() {
+    this(null, null);
+  }
+
+  /**
+   * Roles of given user changed.
+   *
+   * @since 3.0
+   */
+  public AuthorizationConfigurationChanged(@Nullable final String userId, @Nullable final String source) {
+    this.userId = userId;
+    this.source = source;
+  }
+
+  /**
+   * @return id of user which roles changed, or {@code null} if not a single user change.
+   * @since 3.0
+   */
+  @Nullable
+  public String getUserId() {
+    return userId;
+  }
+
+  /**
+   * @since 3.0
+   */
+  @Nullable
+  public String getSource() {
+    return source;
+  }
+
+  /**
+   * @return {@code true} if only roles of a single user changed.
+   * @since 3.0
+   */
+  public boolean isUserRolesChange() {
+    return userId != null;
+  }
 }
@@ -0,0 +1,170 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.security.authz;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ListMultimap;
+import org.apache.shiro.authz.Permission;
+import org.apache.shiro.authz.permission.WildcardPermission;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Immutable set of granted permissions, indexed for fast {@link #implies(Permission)} checks.
+ *
+ * {@link WildcardPermission}s are indexed by their leading literal parts (parts having a single, non-wildcard
+ * token), up to the first part that is not literal. A granted wildcard permission can only imply a checked one if the
+ * checked permission starts with the same literal parts, hence a check only has to look at the permissions indexed
+ * under the (at most part count + 1) literal prefixes of the checked permission. This way permissions of a
+ * domain (ie. {@code nexus:repository-view:maven2:central}) are not checked against permissions of other domains.
+ *
+ * Other permission types are always checked one by one.
+ *
+ * @since 3.0
+ */
+public class PermissionIndex
+{
+  private static final Splitter PART_SPLITTER = Splitter.on(':');
+
+  private static final String WILDCARD = "*";
+
+  private final Collection<Permission> permissions;
+
+  private final ListMultimap<String, Permission> byPrefix;
+
+  private final List<Permission> others;
+
+  public PermissionIndex(final Collection<? extends Permission> permissions) {
+    checkNotNull(permissions);
+    final ImmutableListMultimap.Builder<String, Permission> byPrefix = ImmutableListMultimap.builder();
+    final ImmutableList.Builder<Permission> others = ImmutableList.builder();
+    for (Permission permission : permissions) {
+      if (permission instanceof WildcardPermission) {
+        byPrefix.put(literalPrefix(permission), permission);
+      }
+      else {
+        others.add(permission);
+      }
+    }
+    this.permissions = Collections.unmodifiableCollection(ImmutableList.copyOf(permissions));
+    this.byPrefix = byPrefix.build();
+    this.others = others.build();
+  }
+
+  /**
+   * Returns the indexed permissions.
+   */
+  public Collection<Permission> getPermissions() {
+    return permissions;
+  }
+
+  public boolean isEmpty() {
+    return permissions.isEmpty();
+  }
+
+  /**
+   * Returns {@code true} if any of indexed permissions implies given permission.
+   */
+  public boolean implies(final Permission permission) {
+    checkNotNull(permission);
+    for (Permission other : others) {
+      if (other.implies(permission)) {
+        return true;
+      }
+    }
+    if (!(permission instanceof WildcardPermission)) {
+      for (Permission granted : byPrefix.values()) {
+        if (granted.implies(permission)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    final StringBuilder prefix = new StringBuilder();
+    if (implies("", permission)) {
+      return true;
+    }
+    for (String rendered : PART_SPLITTER.split(permission.toString())) {
+      final String part = unwrap(rendered);
+      if (!isLiteral(part)) {
+        break;
+      }
+      if (prefix.length() > 0) {
+        prefix.append(':');
+      }
+      prefix.append(part);
+      if (implies(prefix.toString(), permission)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean implies(final String prefix, final Permission permission) {
+    for (Permission granted : byPrefix.get(prefix)) {
+      if (granted.implies(permission)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the leading literal parts of a wildcard permission, based on its string representation (as parts are
+   * not accessible otherwise), joined by {@code :}.
+   */
+  private static String literalPrefix(final Permission permission) {
+    final StringBuilder prefix = new StringBuilder();
+    for (String rendered : PART_SPLITTER.split(permission.toString())) {
+      final String part = unwrap(rendered);
+      if (!isLiteral(part)) {
+        break;
+      }
+      if (prefix.length() > 0) {
+        prefix.append(':');
+      }
+      prefix.append(part);
+    }
+    return prefix.toString();
+  }
+
+  /**
+   * Strips the brackets around part tokens, as rendered by shiro 1.2 (ie. {@code [read, browse]}).
+   */
+  private static String unwrap(final String part) {
+    if (part.length() >= 2 && part.charAt(0) == '[' && part.charAt(part.length() - 1) == ']') {
+      return part.substring(1, part.length() - 1);
+    }
+    return part;
+  }
+
+  /**
+   * Returns {@code true} if part has a single, non-wildcard token.
+   */
+  private static boolean isLiteral(final String part) {
+    return !part.isEmpty() && !WILDCARD.equals(part) && part.indexOf(',') == -1;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" + permissions.size() + " permissions, " + byPrefix.keySet().size()
+        + " prefixes}";
+  }
+}
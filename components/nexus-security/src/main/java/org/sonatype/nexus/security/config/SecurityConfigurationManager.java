@@ -132,4 +132,20 @@ public interface SecurityConfigurationManager
   void cleanRemovedRole(String roleId);
 
   void cleanRemovedPrivilege(String privilegeId);
+
+  /**
+   * Rebuilds the configuration merged from security configuration resources, if any dynamic resource changed.
+   *
+   * @return {@code true} if configuration was rebuilt
+   * @since 3.0
+   */
+  boolean refreshDynamicConfiguration();
+
+  /**
+   * Drops the cached configuration, including the configurations of security configuration resources, to be reloaded
+   * on next access.
+   *
+   * @since 3.0
+   */
+  void clearCache();
 }
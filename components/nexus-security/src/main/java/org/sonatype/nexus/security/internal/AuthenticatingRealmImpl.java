@@ -18,6 +18,7 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
+import org.sonatype.nexus.security.authc.VerifiedCredentialsCache;
 import org.sonatype.nexus.security.config.CUser;
 import org.sonatype.nexus.security.config.SecurityConfigurationManager;
 import org.sonatype.nexus.security.user.UserNotFoundException;
@@ -60,12 +61,16 @@ public class AuthenticatingRealmImpl
 
   private final PasswordService passwordService;
 
+  private final VerifiedCredentialsCache verifiedCredentialsCache;
+
   @Inject
   public AuthenticatingRealmImpl(final SecurityConfigurationManager configuration,
-                                 final PasswordService passwordService)
+                                 final PasswordService passwordService,
+                                 final VerifiedCredentialsCache verifiedCredentialsCache)
   {
     this.configuration = configuration;
     this.passwordService = passwordService;
+    this.verifiedCredentialsCache = verifiedCredentialsCache;
 
     PasswordMatcher passwordMatcher = new PasswordMatcher();
     passwordMatcher.setPasswordService(this.passwordService);
@@ -108,6 +113,22 @@ public class AuthenticatingRealmImpl
     }
   }
 
+  /**
+   * Skips the (intentionally slow) password hash comparison if same credentials were recently verified.
+   */
+  @Override
+  protected void assertCredentialsMatch(final AuthenticationToken token, final AuthenticationInfo info)
+      throws AuthenticationException
+  {
+    UsernamePasswordToken upToken = (UsernamePasswordToken) token;
+    if (verifiedCredentialsCache.isVerified(getName(), upToken.getUsername(), upToken.getPassword())) {
+      return;
+    }
+    long generation = verifiedCredentialsCache.generation();
+    super.assertCredentialsMatch(token, info);
+    verifiedCredentialsCache.verified(getName(), upToken.getUsername(), upToken.getPassword(), generation);
+  }
+
   /**
    * Re-hash user password, and persist changes.
    *
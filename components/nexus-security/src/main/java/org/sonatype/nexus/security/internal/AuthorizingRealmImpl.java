@@ -13,7 +13,9 @@
 package org.sonatype.nexus.security.internal;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -33,7 +35,9 @@ import org.apache.shiro.authc.AuthenticationToken;
 import org.apache.shiro.authc.credential.Sha1CredentialsMatcher;
 import org.apache.shiro.authz.AuthorizationException;
 import org.apache.shiro.authz.AuthorizationInfo;
+import org.apache.shiro.authz.Permission;
 import org.apache.shiro.authz.SimpleAuthorizationInfo;
+import org.apache.shiro.authz.permission.RolePermissionResolver;
 import org.apache.shiro.realm.AuthorizingRealm;
 import org.apache.shiro.realm.Realm;
 import org.apache.shiro.subject.PrincipalCollection;
@@ -44,7 +48,8 @@ import org.slf4j.LoggerFactory;
 /**
  * Default {@link AuthorizingRealm}.
  *
- * This realm ONLY handles authorization.
+ * This realm ONLY handles authorization. Permission checks are done against the indexed role permissions of
+ * {@link RolePermissionResolverImpl}.
  */
 @Singleton
 @Named(AuthorizingRealmImpl.NAME)
@@ -154,6 +159,54 @@ public class AuthorizingRealmImpl
     return new SimpleAuthorizationInfo(roles);
   }
 
+  @Override
+  public boolean isPermitted(final PrincipalCollection principals, final Permission permission) {
+    return isPermitted(permission, getAuthorizationInfo(principals));
+  }
+
+  @Override
+  protected boolean[] isPermitted(final List<Permission> permissions, final AuthorizationInfo info) {
+    final boolean[] result = new boolean[permissions.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = isPermitted(permissions.get(i), info);
+    }
+    return result;
+  }
+
+  @Override
+  protected boolean isPermittedAll(final Collection<Permission> permissions, final AuthorizationInfo info) {
+    for (Permission permission : permissions) {
+      if (!isPermitted(permission, info)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isPermitted(final Permission permission, final AuthorizationInfo info) {
+    if (info == null) {
+      return false;
+    }
+    final RolePermissionResolver resolver = getRolePermissionResolver();
+    if (!(resolver instanceof RolePermissionResolverImpl) || hasPermissions(info)) {
+      // not indexed, let shiro resolve and check all permissions
+      return super.isPermitted(Collections.singletonList(permission), info)[0];
+    }
+    if (info.getRoles() != null) {
+      for (String roleId : info.getRoles()) {
+        if (((RolePermissionResolverImpl) resolver).resolveIndexInRole(roleId).implies(permission)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean hasPermissions(final AuthorizationInfo info) {
+    return (info.getStringPermissions() != null && !info.getStringPermissions().isEmpty())
+        || (info.getObjectPermissions() != null && !info.getObjectPermissions().isEmpty());
+  }
+
   private void cleanUpRealmList(Set<String> realmNames) {
     for (UserManager userManager : this.userManagerMap.values()) {
       String authRealmName = userManager.getAuthenticationRealmName();
@@ -313,7 +313,7 @@ public class DefaultSecuritySystem
     }
 
     // clear the realm authz caches as user might get roles changed
-    eventBus.post(new AuthorizationConfigurationChanged());
+    eventBus.post(new AuthorizationConfigurationChanged(user.getUserId(), user.getSource()));
 
     return user;
   }
@@ -381,7 +381,7 @@ public class DefaultSecuritySystem
       throw new UserNotFoundException(userId);
     }
     // clear the authz realm caches
-    eventBus.post(new AuthorizationConfigurationChanged());
+    eventBus.post(new AuthorizationConfigurationChanged(userId, source));
   }
 
   private User findUser(String userId, UserManager userManager) throws UserNotFoundException {
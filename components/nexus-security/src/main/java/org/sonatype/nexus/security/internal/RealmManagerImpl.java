@@ -13,9 +13,11 @@
 package org.sonatype.nexus.security.internal;
 
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
@@ -29,16 +31,19 @@ import org.sonatype.nexus.security.authz.AuthorizationConfigurationChanged;
 import org.sonatype.nexus.security.realm.RealmConfiguration;
 import org.sonatype.nexus.security.realm.RealmConfigurationStore;
 import org.sonatype.nexus.security.realm.RealmManager;
+import org.sonatype.nexus.security.user.UserManager;
 import org.sonatype.sisu.goodies.common.Mutex;
 import org.sonatype.sisu.goodies.eventbus.EventBus;
 
 import com.google.common.collect.Lists;
 import com.google.common.eventbus.Subscribe;
+import org.apache.shiro.authz.AuthorizationInfo;
 import org.apache.shiro.cache.Cache;
 import org.apache.shiro.mgt.RealmSecurityManager;
 import org.apache.shiro.realm.AuthenticatingRealm;
 import org.apache.shiro.realm.AuthorizingRealm;
 import org.apache.shiro.realm.Realm;
+import org.apache.shiro.subject.PrincipalCollection;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.sonatype.nexus.common.stateguard.StateGuardLifecycleSupport.State.STARTED;
@@ -64,6 +69,8 @@ public class RealmManagerImpl
 
   private final Map<String, Realm> availableRealms;
 
+  private final List<UserManager> userManagers;
+
   private final Mutex lock = new Mutex();
 
   private RealmConfiguration configuration;
@@ -73,7 +80,8 @@ public class RealmManagerImpl
                           final RealmConfigurationStore store,
                           final @Named("initial") Provider<RealmConfiguration> defaults,
                           final RealmSecurityManager realmSecurityManager,
-                          final Map<String, Realm> availableRealms)
+                          final Map<String, Realm> availableRealms,
+                          final List<UserManager> userManagers)
   {
     this.eventBus = checkNotNull(eventBus);
     this.store = checkNotNull(store);
@@ -82,6 +90,7 @@ public class RealmManagerImpl
     log.debug("Defaults: {}", defaults);
     this.realmSecurityManager = checkNotNull(realmSecurityManager);
     this.availableRealms = checkNotNull(availableRealms);
+    this.userManagers = checkNotNull(userManagers);
   }
 
   //
@@ -283,8 +292,12 @@ public class RealmManagerImpl
 
   @Subscribe
   public void onEvent(final AuthorizationConfigurationChanged event) {
-    // TODO: we could do this better, not flushing whole cache for single user roles being updated
-    clearAuthzRealmCaches();
+    if (event.isUserRolesChange()) {
+      clearAuthzRealmCaches(event.getUserId(), event.getSource());
+    }
+    else {
+      clearAuthzRealmCaches();
+    }
   }
 
   @Subscribe
@@ -333,4 +346,48 @@ public class RealmManagerImpl
       }
     }
   }
+
+  /**
+   * Looks up registered {@link AuthorizingRealm}s, and evicts authz cache entries of given user.
+   */
+  private void clearAuthzRealmCaches(final String userId, @Nullable final String source) {
+    Collection<Realm> realms = realmSecurityManager.getRealms();
+    if (realms != null) {
+      for (Realm realm : realms) {
+        if (realm instanceof AuthorizingRealm) {
+          Cache<Object, AuthorizationInfo> cache = ((AuthorizingRealm) realm).getAuthorizationCache();
+          if (cache != null) {
+            // copy keys, as cache might not allow removal while iterating
+            for (Object key : Lists.newArrayList(cache.keys())) {
+              if (key instanceof PrincipalCollection && isUser((PrincipalCollection) key, userId, source)) {
+                log.debug("Evicting {} from cache: {}", userId, cache);
+                cache.remove(key);
+              }
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns {@code true} if principals are of given user from given source. Principals authenticated by a realm not
+   * known to belong to any user source are considered to be of the user regardless of source.
+   */
+  private boolean isUser(final PrincipalCollection principals, final String userId, @Nullable final String source) {
+    if (!userId.equals(String.valueOf(principals.getPrimaryPrincipal()))) {
+      return false;
+    }
+    final Iterator<String> realmNames = principals.getRealmNames().iterator();
+    if (source == null || !realmNames.hasNext()) {
+      return true;
+    }
+    final String primaryRealmName = realmNames.next();
+    for (UserManager userManager : userManagers) {
+      if (primaryRealmName.equals(userManager.getAuthenticationRealmName())) {
+        return source.equals(userManager.getSource());
+      }
+    }
+    return true;
+  }
 }
@@ -14,10 +14,12 @@
 package org.sonatype.nexus.security.internal;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -26,17 +28,17 @@ import javax.inject.Singleton;
 
 import org.sonatype.nexus.security.SecurityConfigurationChanged;
 import org.sonatype.nexus.security.authz.AuthorizationConfigurationChanged;
+import org.sonatype.nexus.security.authz.PermissionIndex;
 import org.sonatype.nexus.security.config.CPrivilege;
 import org.sonatype.nexus.security.config.CRole;
 import org.sonatype.nexus.security.config.SecurityConfigurationManager;
-import org.sonatype.nexus.security.privilege.NoSuchPrivilegeException;
 import org.sonatype.nexus.security.privilege.PrivilegeDescriptor;
-import org.sonatype.nexus.security.role.NoSuchRoleException;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 import org.sonatype.sisu.goodies.eventbus.EventBus;
 
+import com.google.common.base.Stopwatch;
 import com.google.common.collect.Lists;
-import com.google.common.collect.MapMaker;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.eventbus.AllowConcurrentEvents;
 import com.google.common.eventbus.Subscribe;
@@ -47,6 +49,11 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Default {@link RolePermissionResolver}.
+ *
+ * Resolves permissions from a compiled authorization model, where each role is flattened into a
+ * {@link PermissionIndex} of its transitive permissions (own privileges plus privileges of contained roles). The model
+ * is compiled from the whole security configuration on first use, and is dropped on configuration change, including
+ * changes of dynamic security configuration resources, that are checked for on each resolution.
  */
 @Named("default")
 @Singleton
@@ -54,19 +61,21 @@ public class RolePermissionResolverImpl
     extends ComponentSupport
     implements RolePermissionResolver
 {
+  private static final PermissionIndex NO_PERMISSIONS = new PermissionIndex(Collections.<Permission>emptySet());
+
   private final SecurityConfigurationManager configuration;
 
   private final List<PrivilegeDescriptor> privilegeDescriptors;
 
   /**
-   * Privilege-id to permission cache.
+   * Compiled model, {@code null} if it needs to be compiled.
    */
-  private final Map<String,Permission> permissionsCache = new MapMaker().weakValues().makeMap();
+  private volatile Model model;
 
   /**
-   * Role-id to role permissions cache.
+   * Incremented on each invalidation, so a model compiled concurrently with a configuration change is not kept.
    */
-  private final Map<String, Collection<Permission>> rolePermissionsCache = new MapMaker().weakValues().makeMap();
+  private final AtomicLong generation = new AtomicLong();
 
   @Inject
   public RolePermissionResolverImpl(final SecurityConfigurationManager configuration,
@@ -79,18 +88,21 @@ public class RolePermissionResolverImpl
   }
 
   /**
-   * Invalidate caches.
+   * Invalidate compiled model.
    */
   private void invalidate() {
-    permissionsCache.clear();
-    rolePermissionsCache.clear();
-    log.trace("Cache invalidated");
+    generation.incrementAndGet();
+    model = null;
+    log.trace("Model invalidated");
   }
 
   @AllowConcurrentEvents
   @Subscribe
   public void on(final AuthorizationConfigurationChanged event) {
-    invalidate();
+    // roles of a user are not part of the model
+    if (!event.isUserRolesChange()) {
+      invalidate();
+    }
   }
 
   @AllowConcurrentEvents
@@ -101,49 +113,71 @@ public class RolePermissionResolverImpl
 
   @Override
   public Collection<Permission> resolvePermissionsInRole(final String roleString) {
-    checkNotNull(roleString);
-
-    final Set<Permission> permissions = Sets.newLinkedHashSet();
-    final LinkedList<String> rolesToProcess = Lists.newLinkedList();
-    final Set<String> processedRoleIds = Sets.newLinkedHashSet();
-
-    // initial role
-    rolesToProcess.add(roleString);
-
-    while (!rolesToProcess.isEmpty()) {
-      final String roleId = rolesToProcess.removeFirst();
-      if (processedRoleIds.add(roleId)) {
-        try {
-          final CRole role = configuration.readRole(roleId);
-
-          // check memory-sensitive cache (after readRole to allow for the dirty check)
-          final Collection<Permission> cachedPermissions = rolePermissionsCache.get(roleId);
-          if (cachedPermissions != null) {
-            permissions.addAll(cachedPermissions);
-            continue; // use cached results
-          }
+    return resolveIndexInRole(roleString).getPermissions();
+  }
 
-          // process the roles this role has recursively
-          rolesToProcess.addAll(role.getRoles());
+  /**
+   * Returns the indexed transitive permissions of given role. Unknown roles have no permissions.
+   *
+   * @since 3.0
+   */
+  public PermissionIndex resolveIndexInRole(final String roleId) {
+    checkNotNull(roleId);
 
-          // add the permissions this role has
-          for (String privilegeId : role.getPrivileges()) {
-            Permission permission = permission(privilegeId);
-            if (permission != null) {
-              permissions.add(permission);
-            }
-          }
-        }
-        catch (NoSuchRoleException e) {
-          log.trace("Ignoring missing role: {}", roleId, e);
-        }
+    final PermissionIndex index = model().roles.get(roleId);
+    if (index == null) {
+      // role not present in configuration (ie. mapped external role), not kept as role might be added later
+      return NO_PERMISSIONS;
+    }
+    return index;
+  }
+
+  private Model model() {
+    // dynamic resources do not signal their changes, the rebuild of merged configuration does
+    if (configuration.refreshDynamicConfiguration()) {
+      invalidate();
+    }
+    final Model current = model;
+    if (current != null) {
+      return current;
+    }
+    return compile();
+  }
+
+  /**
+   * Compiles the model from current configuration.
+   */
+  private synchronized Model compile() {
+    Model current = model;
+    if (current != null) {
+      return current;
+    }
+    final long compiledGeneration = generation.get();
+    final Stopwatch stopwatch = Stopwatch.createStarted();
+
+    final Map<String, CRole> roles = Maps.newHashMap();
+    for (CRole role : configuration.listRoles()) {
+      roles.put(role.getId(), role);
+    }
+    final Map<String, Permission> permissions = Maps.newHashMap();
+    for (CPrivilege privilege : configuration.listPrivileges()) {
+      PrivilegeDescriptor descriptor = descriptor(privilege.getType());
+      if (descriptor != null) {
+        permissions.put(privilege.getId(), descriptor.createPermission(privilege));
       }
     }
 
-    // cache result of (non-trivial) computation
-    rolePermissionsCache.put(roleString, permissions);
+    current = new Model(roles, permissions);
+    for (String roleId : roles.keySet()) {
+      current.roles.put(roleId, new PermissionIndex(current.resolve(roleId)));
+    }
 
-    return permissions;
+    // configuration might have changed while compiling, in which case model is used only by current caller
+    if (compiledGeneration == generation.get()) {
+      model = current;
+    }
+    log.debug("Compiled {} roles and {} privileges in {}", roles.size(), permissions.size(), stopwatch);
+    return current;
   }
 
   /**
@@ -164,27 +198,57 @@ public class RolePermissionResolverImpl
   }
 
   /**
-   * Returns the permission for the given privilege-id or {@code null}.
+   * Compiled authorization model.
    */
-  @Nullable
-  private Permission permission(final String privilegeId) {
-    assert privilegeId != null;
-
-    Permission permission = permissionsCache.get(privilegeId);
-    if (permission == null) {
-      try {
-        CPrivilege privilege = configuration.readPrivilege(privilegeId);
-        PrivilegeDescriptor descriptor = descriptor(privilege.getType());
-        if (descriptor != null) {
-          permission = descriptor.createPermission(privilege);
-          permissionsCache.put(privilegeId, permission);
+  private class Model
+  {
+    private final Map<String, CRole> configuredRoles;
+
+    private final Map<String, Permission> permissions;
+
+    private final Map<String, PermissionIndex> roles = Maps.newHashMap();
+
+    private Model(final Map<String, CRole> configuredRoles, final Map<String, Permission> permissions) {
+      this.configuredRoles = configuredRoles;
+      this.permissions = permissions;
+    }
+
+    /**
+     * Resolves transitive permissions of a role, by walking the contained roles.
+     */
+    private Set<Permission> resolve(final String roleString) {
+      final Set<Permission> resolved = Sets.newLinkedHashSet();
+      final LinkedList<String> rolesToProcess = Lists.newLinkedList();
+      final Set<String> processedRoleIds = Sets.newHashSet();
+
+      // initial role
+      rolesToProcess.add(roleString);
+
+      while (!rolesToProcess.isEmpty()) {
+        final String roleId = rolesToProcess.removeFirst();
+        if (processedRoleIds.add(roleId)) {
+          final CRole role = configuredRoles.get(roleId);
+          if (role == null) {
+            log.trace("Ignoring missing role: {}", roleId);
+            continue;
+          }
+
+          // process the roles this role has recursively
+          rolesToProcess.addAll(role.getRoles());
+
+          // add the permissions this role has
+          for (String privilegeId : role.getPrivileges()) {
+            final Permission permission = permissions.get(privilegeId);
+            if (permission != null) {
+              resolved.add(permission);
+            }
+            else {
+              log.trace("Ignoring missing privilege: {}", privilegeId);
+            }
+          }
         }
       }
-      catch (NoSuchPrivilegeException e) {
-        log.trace("Ignoring missing privilege: {}", privilegeId, e);
-      }
+      return resolved;
     }
-
-    return permission;
   }
 }
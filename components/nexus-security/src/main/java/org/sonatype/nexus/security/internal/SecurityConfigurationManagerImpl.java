@@ -12,14 +12,16 @@
  */
 package org.sonatype.nexus.security.internal;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -86,6 +88,12 @@ public class SecurityConfigurationManagerImpl
 
   private volatile SecurityConfiguration mergedConfiguration;
 
+  /**
+   * Last configuration of each static and dynamic resource, so only dirty dynamic resources are asked to regenerate
+   * their configuration when merged configuration is rebuilt. Guarded by {@code this}.
+   */
+  private final Map<Object, SecurityConfiguration> resourceConfigurations = new IdentityHashMap<>();
+
   @Inject
   public SecurityConfigurationManagerImpl(final SecurityConfigurationSource configurationSource,
                                           final List<StaticSecurityConfigurationResource> staticResources,
@@ -134,12 +142,12 @@ public class SecurityConfigurationManagerImpl
 
   @Override
   public void createPrivilege(CPrivilege privilege) {
-    createPrivilege(privilege, initializeContext());
+    createPrivilege(privilege, initializePrivilegeContext(privilege.getId()));
   }
 
   private void createPrivilege(CPrivilege privilege, SecurityConfigurationValidationContext context) {
     if (context == null) {
-      context = initializeContext();
+      context = initializePrivilegeContext(privilege.getId());
     }
 
     ValidationResponse vr = validator.validatePrivilege(context, privilege, false);
@@ -155,12 +163,12 @@ public class SecurityConfigurationManagerImpl
 
   @Override
   public void createRole(CRole role) {
-    createRole(role, initializeContext());
+    createRole(role, initializeRoleContext(role));
   }
 
   private void createRole(CRole role, SecurityConfigurationValidationContext context) {
     if (context == null) {
-      context = initializeContext();
+      context = initializeRoleContext(role);
     }
 
     ValidationResponse vr = validator.validateRole(context, role, false);
@@ -176,17 +184,17 @@ public class SecurityConfigurationManagerImpl
 
   @Override
   public void createUser(CUser user, Set<String> roles) {
-    createUser(user, null, roles, initializeContext());
+    createUser(user, null, roles, initializeUserContext(user.getId(), roles));
   }
 
   @Override
   public void createUser(CUser user, String password, Set<String> roles) {
-    createUser(user, password, roles, initializeContext());
+    createUser(user, password, roles, initializeUserContext(user.getId(), roles));
   }
 
   private void createUser(CUser user, String password, Set<String> roles, SecurityConfigurationValidationContext context) {
     if (context == null) {
-      context = initializeContext();
+      context = initializeUserContext(user.getId(), roles);
     }
 
     // set the password if its not null
@@ -274,14 +282,14 @@ public class SecurityConfigurationManagerImpl
 
   @Override
   public void updatePrivilege(CPrivilege privilege) throws NoSuchPrivilegeException {
-    updatePrivilege(privilege, initializeContext());
+    updatePrivilege(privilege, initializePrivilegeContext(privilege.getId()));
   }
 
   private void updatePrivilege(CPrivilege privilege, SecurityConfigurationValidationContext context)
       throws NoSuchPrivilegeException
   {
     if (context == null) {
-      context = initializeContext();
+      context = initializePrivilegeContext(privilege.getId());
     }
 
     ValidationResponse vr = validator.validatePrivilege(context, privilege, true);
@@ -297,12 +305,12 @@ public class SecurityConfigurationManagerImpl
 
   @Override
   public void updateRole(CRole role) throws NoSuchRoleException {
-    updateRole(role, initializeContext());
+    updateRole(role, initializeRoleContext(role));
   }
 
   private void updateRole(CRole role, SecurityConfigurationValidationContext context) throws NoSuchRoleException {
     if (context == null) {
-      context = initializeContext();
+      context = initializeRoleContext(role);
     }
 
     ValidationResponse vr = validator.validateRole(context, role, true);
@@ -330,14 +338,14 @@ public class SecurityConfigurationManagerImpl
 
   @Override
   public void updateUser(CUser user, Set<String> roles) throws UserNotFoundException {
-    updateUser(user, roles, initializeContext());
+    updateUser(user, roles, initializeUserContext(user.getId(), roles));
   }
 
   private void updateUser(CUser user, Set<String> roles, SecurityConfigurationValidationContext context)
       throws UserNotFoundException
   {
     if (context == null) {
-      context = initializeContext();
+      context = initializeUserContext(user.getId(), roles);
     }
 
     ValidationResponse vr = validator.validateUser(context, user, roles, true);
@@ -353,12 +361,12 @@ public class SecurityConfigurationManagerImpl
 
   @Override
   public void createUserRoleMapping(CUserRoleMapping userRoleMapping) {
-    createUserRoleMapping(userRoleMapping, initializeContext());
+    createUserRoleMapping(userRoleMapping, initializeUserRoleMappingContext(userRoleMapping.getRoles()));
   }
 
   private void createUserRoleMapping(CUserRoleMapping userRoleMapping, SecurityConfigurationValidationContext context) {
     if (context == null) {
-      context = this.initializeContext();
+      context = initializeUserRoleMappingContext(userRoleMapping.getRoles());
     }
 
     try {
@@ -417,14 +425,14 @@ public class SecurityConfigurationManagerImpl
 
   @Override
   public void updateUserRoleMapping(CUserRoleMapping userRoleMapping) throws NoSuchRoleMappingException {
-    updateUserRoleMapping(userRoleMapping, initializeContext());
+    updateUserRoleMapping(userRoleMapping, initializeUserRoleMappingContext(userRoleMapping.getRoles()));
   }
 
   private void updateUserRoleMapping(CUserRoleMapping userRoleMapping, SecurityConfigurationValidationContext context)
       throws NoSuchRoleMappingException
   {
     if (context == null) {
-      context = initializeContext();
+      context = initializeUserRoleMappingContext(userRoleMapping.getRoles());
     }
 
     if (readUserRoleMapping(userRoleMapping.getUserId(), userRoleMapping.getSource()) == null) {
@@ -453,28 +461,94 @@ public class SecurityConfigurationManagerImpl
     }
   }
 
-  private SecurityConfigurationValidationContext initializeContext() {
+  /**
+   * Validation context of a user: the user itself (if exists) and its existing roles. Other users are not listed, as
+   * validation only checks the user and the roles it references.
+   */
+  private SecurityConfigurationValidationContext initializeUserContext(final String userId,
+                                                                       final Collection<String> roleIds)
+  {
     SecurityConfigurationValidationContext context = new SecurityConfigurationValidationContext();
 
     context.addExistingUserIds();
+    if (Strings2.isNotEmpty(userId) && getDefaultConfiguration().getUser(userId) != null) {
+      context.getExistingUserIds().add(userId);
+    }
+    addExistingRoles(context, roleIds);
+
+    return context;
+  }
+
+  /**
+   * Validation context of a user/role mapping: its existing roles.
+   */
+  private SecurityConfigurationValidationContext initializeUserRoleMappingContext(final Collection<String> roleIds) {
+    SecurityConfigurationValidationContext context = new SecurityConfigurationValidationContext();
+    addExistingRoles(context, roleIds);
+    return context;
+  }
+
+  /**
+   * Validation context of a privilege: the privilege itself (if exists).
+   */
+  private SecurityConfigurationValidationContext initializePrivilegeContext(final String privilegeId) {
+    SecurityConfigurationValidationContext context = new SecurityConfigurationValidationContext();
+
+    context.addExistingPrivilegeIds();
+    if (Strings2.isNotEmpty(privilegeId) && privilegeExists(privilegeId)) {
+      context.getExistingPrivilegeIds().add(privilegeId);
+    }
+
+    return context;
+  }
+
+  /**
+   * Validation context of a role: all roles (needed to check name uniqueness and containment cycles) and the existing
+   * privileges of the role.
+   */
+  private SecurityConfigurationValidationContext initializeRoleContext(final CRole role) {
+    SecurityConfigurationValidationContext context = new SecurityConfigurationValidationContext();
+
     context.addExistingRoleIds();
     context.addExistingPrivilegeIds();
 
-    for (CUser user : listUsers()) {
-      context.getExistingUserIds().add(user.getId());
+    for (CRole existing : listRoles()) {
+      context.getExistingRoleIds().add(existing.getId());
+      context.getRoleContainmentMap().put(existing.getId(), Lists.newArrayList(existing.getRoles()));
+      context.getExistingRoleNameMap().put(existing.getId(), existing.getName());
     }
 
-    for (CRole role : listRoles()) {
-      context.getExistingRoleIds().add(role.getId());
-      context.getRoleContainmentMap().put(role.getId(), Lists.newArrayList(role.getRoles()));
-      context.getExistingRoleNameMap().put(role.getId(), role.getName());
+    if (role.getPrivileges() != null) {
+      for (String privilegeId : role.getPrivileges()) {
+        if (privilegeExists(privilegeId)) {
+          context.getExistingPrivilegeIds().add(privilegeId);
+        }
+      }
     }
 
-    for (CPrivilege privilege : listPrivileges()) {
-      context.getExistingPrivilegeIds().add(privilege.getId());
+    return context;
+  }
+
+  private void addExistingRoles(final SecurityConfigurationValidationContext context,
+                                @Nullable final Collection<String> roleIds)
+  {
+    context.addExistingRoleIds();
+    if (roleIds != null) {
+      for (String roleId : roleIds) {
+        if (roleId != null && roleExists(roleId)) {
+          context.getExistingRoleIds().add(roleId);
+        }
+      }
     }
+  }
 
-    return context;
+  private boolean roleExists(final String roleId) {
+    return getMergedConfiguration().getRole(roleId) != null || getDefaultConfiguration().getRole(roleId) != null;
+  }
+
+  private boolean privilegeExists(final String privilegeId) {
+    return getMergedConfiguration().getPrivilege(privilegeId) != null
+        || getDefaultConfiguration().getPrivilege(privilegeId) != null;
   }
 
   @Override
@@ -487,6 +561,22 @@ public class SecurityConfigurationManagerImpl
     configCleaner.roleRemoved(getDefaultConfiguration(), roleId);
   }
 
+  @Override
+  public void clearCache() {
+    synchronized (this) {
+      defaultConfiguration = null;
+      mergedConfiguration = null;
+      resourceConfigurations.clear();
+    }
+    eventBus.post(new AuthorizationConfigurationChanged());
+  }
+
+  @Override
+  public boolean refreshDynamicConfiguration() {
+    final SecurityConfiguration configuration = this.mergedConfiguration;
+    return getMergedConfiguration() != configuration;
+  }
+
   private SecurityConfiguration getDefaultConfiguration() {
     // Assign configuration to local variable first, as calls to clearCache can null it out at any time
     SecurityConfiguration configuration = this.defaultConfiguration;
@@ -547,8 +637,18 @@ public class SecurityConfigurationManagerImpl
   private MemorySecurityConfiguration doGetMergedConfiguration() {
     final MemorySecurityConfiguration configuration = new MemorySecurityConfiguration();
 
+    // number of roles can be significant (>15K), so need to speedup lookup roles by roleId
+    final Map<String, CRole> roles = new HashMap<String, CRole>();
+
     for (StaticSecurityConfigurationResource resource : staticResources) {
-      SecurityConfiguration resConfig = resource.getConfiguration();
+      SecurityConfiguration resConfig;
+      if (resourceConfigurations.containsKey(resource)) {
+        resConfig = resourceConfigurations.get(resource);
+      }
+      else {
+        resConfig = resource.getConfiguration();
+        resourceConfigurations.put(resource, resConfig);
+      }
 
       if (resConfig != null) {
         checkState(
@@ -559,12 +659,20 @@ public class SecurityConfigurationManagerImpl
             resConfig.getUserRoleMappings() == null || resConfig.getUserRoleMappings().isEmpty(),
             "Static resources cannot have user/role mappings"
         );
-        appendConfig(configuration, resConfig);
+        appendConfig(configuration, resConfig, roles);
       }
     }
 
     for (DynamicSecurityConfigurationResource resource : dynamicResources) {
-      SecurityConfiguration resConfig = resource.getConfiguration();
+      SecurityConfiguration resConfig;
+      if (resourceConfigurations.containsKey(resource) && !resource.isDirty()) {
+        resConfig = resourceConfigurations.get(resource);
+      }
+      else {
+        log.debug("Regenerating configuration of: {}", resource);
+        resConfig = resource.getConfiguration();
+        resourceConfigurations.put(resource, resConfig);
+      }
 
       if (resConfig != null) {
         checkState(
@@ -575,28 +683,28 @@ public class SecurityConfigurationManagerImpl
             resConfig.getUserRoleMappings() == null || resConfig.getUserRoleMappings().isEmpty(),
             "Dynamic resources cannot have user/role mappings"
         );
-        appendConfig(configuration, resConfig);
+        appendConfig(configuration, resConfig, roles);
       }
     }
 
     return configuration;
   }
 
-  private SecurityConfiguration appendConfig(final SecurityConfiguration to, final SecurityConfiguration from) {
+  /**
+   * Appends privileges and roles of a resource configuration, merging roles with same id.
+   *
+   * @param roles roles appended so far, by id
+   */
+  private SecurityConfiguration appendConfig(final SecurityConfiguration to,
+                                             final SecurityConfiguration from,
+                                             final Map<String, CRole> roles)
+  {
     for (CPrivilege privilege : from.getPrivileges()) {
       privilege.setReadOnly(true);
       to.addPrivilege(privilege);
     }
 
-    // number of roles can be significant (>15K), so need to speedup lookup roles by roleId
-    final Map<String, CRole> roles = new HashMap<String, CRole>();
-    for (CRole role : to.getRoles()) {
-      roles.put(role.getId(), role);
-    }
-
-    for (Iterator<CRole> iterator = from.getRoles().iterator(); iterator.hasNext(); ) {
-      CRole role = iterator.next();
-
+    for (CRole role : from.getRoles()) {
       // need to check if we need to merge the static config
       CRole eachRole = roles.get(role.getId());
       if (eachRole != null) {
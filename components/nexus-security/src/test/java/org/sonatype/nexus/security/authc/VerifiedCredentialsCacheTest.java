@@ -0,0 +1,123 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.security.authc;
+
+import org.sonatype.nexus.security.SecurityConfigurationChanged;
+import org.sonatype.nexus.security.UserPrincipalsExpired;
+import org.sonatype.sisu.goodies.eventbus.EventBus;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Tests for {@link VerifiedCredentialsCache}.
+ */
+public class VerifiedCredentialsCacheTest
+    extends TestSupport
+{
+  @Mock
+  private EventBus eventBus;
+
+  private VerifiedCredentialsCache underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    underTest = new VerifiedCredentialsCache(eventBus, 60L);
+  }
+
+  @Test
+  public void verifiedCredentials() {
+    assertThat(underTest.isVerified("realm", "user", "secret".toCharArray()), is(false));
+    underTest.verified("realm", "user", "secret".toCharArray(), underTest.generation());
+    assertThat(underTest.isVerified("realm", "user", "secret".toCharArray()), is(true));
+  }
+
+  @Test
+  public void differentSecretRealmOrUserNotVerified() {
+    underTest.verified("realm", "user", "secret".toCharArray(), underTest.generation());
+    assertThat(underTest.isVerified("realm", "user", "other".toCharArray()), is(false));
+    assertThat(underTest.isVerified("other", "user", "secret".toCharArray()), is(false));
+    assertThat(underTest.isVerified("realm", "other", "secret".toCharArray()), is(false));
+    assertThat(underTest.isVerified("realm", "user", null), is(false));
+  }
+
+  @Test
+  public void expiredUserPrincipalsInvalidated() {
+    underTest.verified("realm1", "user", "secret".toCharArray(), underTest.generation());
+    underTest.verified("realm2", "user", "secret".toCharArray(), underTest.generation());
+    underTest.verified("realm1", "other", "secret".toCharArray(), underTest.generation());
+
+    underTest.on(new UserPrincipalsExpired("user", "default"));
+
+    assertThat(underTest.isVerified("realm1", "user", "secret".toCharArray()), is(false));
+    assertThat(underTest.isVerified("realm2", "user", "secret".toCharArray()), is(false));
+    assertThat(underTest.isVerified("realm1", "other", "secret".toCharArray()), is(true));
+  }
+
+  @Test
+  public void realmInvalidated() {
+    underTest.verified("realm1", "user", "secret".toCharArray(), underTest.generation());
+    underTest.verified("realm2", "user", "secret".toCharArray(), underTest.generation());
+
+    underTest.invalidateAll("realm1");
+
+    assertThat(underTest.isVerified("realm1", "user", "secret".toCharArray()), is(false));
+    assertThat(underTest.isVerified("realm2", "user", "secret".toCharArray()), is(true));
+
+    underTest.on(new SecurityConfigurationChanged());
+
+    assertThat(underTest.isVerified("realm2", "user", "secret".toCharArray()), is(false));
+  }
+
+  @Test
+  public void userInvalidatedWhileVerifyingNotCached() {
+    final long generation = underTest.generation();
+    underTest.on(new UserPrincipalsExpired("user", "default"));
+    underTest.verified("realm", "user", "secret".toCharArray(), generation);
+    underTest.verified("realm", "other", "secret".toCharArray(), generation);
+
+    assertThat(underTest.isVerified("realm", "user", "secret".toCharArray()), is(false));
+    assertThat(underTest.isVerified("realm", "other", "secret".toCharArray()), is(true));
+
+    // verifications started after invalidation are cached
+    underTest.verified("realm", "user", "secret".toCharArray(), underTest.generation());
+    assertThat(underTest.isVerified("realm", "user", "secret".toCharArray()), is(true));
+  }
+
+  @Test
+  public void realmInvalidatedWhileVerifyingNotCached() {
+    final long generation = underTest.generation();
+    underTest.invalidateAll("realm1");
+    underTest.verified("realm1", "user", "secret".toCharArray(), generation);
+    underTest.verified("realm2", "user", "secret".toCharArray(), generation);
+
+    assertThat(underTest.isVerified("realm1", "user", "secret".toCharArray()), is(false));
+    assertThat(underTest.isVerified("realm2", "user", "secret".toCharArray()), is(true));
+  }
+
+  @Test
+  public void allInvalidatedWhileVerifyingNotCached() {
+    final long generation = underTest.generation();
+    underTest.on(new SecurityConfigurationChanged());
+    underTest.verified("realm", "user", "secret".toCharArray(), generation);
+    underTest.verified("realm", "other", "secret".toCharArray(), generation);
+
+    assertThat(underTest.isVerified("realm", "user", "secret".toCharArray()), is(false));
+    assertThat(underTest.isVerified("realm", "other", "secret".toCharArray()), is(false));
+  }
+}
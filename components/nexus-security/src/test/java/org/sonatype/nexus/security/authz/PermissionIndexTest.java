@@ -0,0 +1,115 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.security.authz;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.apache.shiro.authz.Permission;
+import org.apache.shiro.authz.permission.AllPermission;
+import org.apache.shiro.authz.permission.WildcardPermission;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Tests for {@link PermissionIndex}.
+ */
+public class PermissionIndexTest
+    extends TestSupport
+{
+  private static final List<String> GRANTED = Arrays.asList(
+      "nexus:repository-view:maven2:central:read,browse",
+      "nexus:repository-view:*:releases:read",
+      "nexus:repository-view:npm",
+      "nexus:settings:*",
+      "nexus:users:read",
+      "app:config:read,update",
+      "*:status:read"
+  );
+
+  private static final List<String> CHECKED = Arrays.asList(
+      "nexus:repository-view:maven2:central:read",
+      "nexus:repository-view:maven2:central:browse",
+      "nexus:repository-view:maven2:central:edit",
+      "nexus:repository-view:maven2:central",
+      "nexus:repository-view:maven2:releases:read",
+      "nexus:repository-view:maven2:snapshots:read",
+      "nexus:repository-view:npm:registry:delete",
+      "nexus:repository-view:*:*:read",
+      "nexus:settings:read",
+      "nexus:settings",
+      "nexus:users:read",
+      "nexus:users:read,update",
+      "nexus:users",
+      "nexus",
+      "app:config:update",
+      "app:config:read,update",
+      "other:status:read",
+      "other:status:update",
+      "NEXUS:USERS:READ",
+      "*"
+  );
+
+  private static List<Permission> permissions(final List<String> permissions) {
+    final Permission[] result = new Permission[permissions.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = new WildcardPermission2(permissions.get(i));
+    }
+    return Arrays.asList(result);
+  }
+
+  private static boolean impliedByAny(final List<Permission> granted, final Permission checked) {
+    for (Permission permission : granted) {
+      if (permission.implies(checked)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Test
+  public void sameResultAsCheckingAllPermissions() {
+    final List<Permission> granted = permissions(GRANTED);
+    final PermissionIndex underTest = new PermissionIndex(granted);
+    for (Permission checked : permissions(CHECKED)) {
+      assertThat(checked.toString(), underTest.implies(checked), is(impliedByAny(granted, checked)));
+    }
+  }
+
+  @Test
+  public void eachPermissionImpliesItself() {
+    final List<Permission> granted = permissions(GRANTED);
+    final PermissionIndex underTest = new PermissionIndex(granted);
+    for (Permission permission : granted) {
+      assertThat(permission.toString(), underTest.implies(permission), is(true));
+    }
+  }
+
+  @Test
+  public void nonWildcardPermissions() {
+    final PermissionIndex underTest = new PermissionIndex(Arrays.<Permission>asList(new AllPermission()));
+    assertThat(underTest.implies(new WildcardPermission("nexus:users:read")), is(true));
+    assertThat(new PermissionIndex(permissions(GRANTED)).implies(new AllPermission()), is(false));
+  }
+
+  @Test
+  public void empty() {
+    final PermissionIndex underTest = new PermissionIndex(Arrays.<Permission>asList());
+    assertThat(underTest.isEmpty(), is(true));
+    assertThat(underTest.implies(new WildcardPermission("nexus:users:read")), is(false));
+  }
+}
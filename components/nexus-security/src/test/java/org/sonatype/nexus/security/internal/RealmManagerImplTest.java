@@ -0,0 +1,108 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.security.internal;
+
+import java.util.Collections;
+
+import javax.inject.Provider;
+
+import org.sonatype.nexus.security.authz.AuthorizationConfigurationChanged;
+import org.sonatype.nexus.security.realm.RealmConfiguration;
+import org.sonatype.nexus.security.realm.RealmConfigurationStore;
+import org.sonatype.nexus.security.user.UserManager;
+import org.sonatype.sisu.goodies.eventbus.EventBus;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import org.apache.shiro.authz.AuthorizationInfo;
+import org.apache.shiro.authz.SimpleAuthorizationInfo;
+import org.apache.shiro.cache.MapCache;
+import org.apache.shiro.mgt.RealmSecurityManager;
+import org.apache.shiro.realm.Realm;
+import org.apache.shiro.realm.SimpleAccountRealm;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link RealmManagerImpl}.
+ */
+public class RealmManagerImplTest
+    extends TestSupport
+{
+  @Mock
+  private EventBus eventBus;
+
+  @Mock
+  private RealmConfigurationStore store;
+
+  @Mock
+  private Provider<RealmConfiguration> defaults;
+
+  @Mock
+  private RealmSecurityManager realmSecurityManager;
+
+  @Mock
+  private UserManager defaultUserManager;
+
+  @Mock
+  private UserManager ldapUserManager;
+
+  private MapCache<Object, AuthorizationInfo> cache;
+
+  private RealmManagerImpl underTest;
+
+  @Before
+  public void prepare() {
+    when(defaultUserManager.getSource()).thenReturn("default");
+    when(defaultUserManager.getAuthenticationRealmName()).thenReturn("DefaultRealm");
+    when(ldapUserManager.getSource()).thenReturn("LDAP");
+    when(ldapUserManager.getAuthenticationRealmName()).thenReturn("LdapRealm");
+
+    cache = new MapCache<>("authz", Maps.<Object, AuthorizationInfo>newHashMap());
+    cache.put(new SimplePrincipalCollection("jane", "DefaultRealm"), new SimpleAuthorizationInfo());
+    cache.put(new SimplePrincipalCollection("jane", "LdapRealm"), new SimpleAuthorizationInfo());
+    cache.put(new SimplePrincipalCollection("jane", "OtherRealm"), new SimpleAuthorizationInfo());
+    cache.put(new SimplePrincipalCollection("john", "DefaultRealm"), new SimpleAuthorizationInfo());
+
+    final SimpleAccountRealm realm = new SimpleAccountRealm();
+    realm.setAuthorizationCache(cache);
+    when(realmSecurityManager.getRealms()).thenReturn(ImmutableList.<Realm>of(realm));
+
+    underTest = new RealmManagerImpl(eventBus, store, defaults, realmSecurityManager,
+        Collections.<String, Realm>emptyMap(), ImmutableList.of(defaultUserManager, ldapUserManager));
+  }
+
+  @Test
+  public void evictsOnlyUserOfSource() {
+    underTest.onEvent(new AuthorizationConfigurationChanged("jane", "LDAP"));
+
+    // principals of realms not belonging to any user manager are evicted too
+    assertThat(cache.keys(), containsInAnyOrder(
+        (Object) new SimplePrincipalCollection("jane", "DefaultRealm"),
+        new SimplePrincipalCollection("john", "DefaultRealm")));
+  }
+
+  @Test
+  public void evictsUserOfAnySourceWhenSourceUnknown() {
+    underTest.onEvent(new AuthorizationConfigurationChanged("jane", null));
+
+    assertThat(cache.keys(), containsInAnyOrder((Object) new SimplePrincipalCollection("john", "DefaultRealm")));
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.security.internal;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.sonatype.nexus.security.config.AbstractDynamicSecurityConfigurationResource;
+import org.sonatype.nexus.security.config.CPrivilege;
+import org.sonatype.nexus.security.config.CRole;
+import org.sonatype.nexus.security.config.DynamicSecurityConfigurationResource;
+import org.sonatype.nexus.security.config.MemorySecurityConfiguration;
+import org.sonatype.nexus.security.config.SecurityConfiguration;
+import org.sonatype.nexus.security.config.SecurityConfigurationCleaner;
+import org.sonatype.nexus.security.config.SecurityConfigurationModifier;
+import org.sonatype.nexus.security.config.SecurityConfigurationSource;
+import org.sonatype.nexus.security.config.SecurityConfigurationValidator;
+import org.sonatype.nexus.security.config.StaticSecurityConfigurationResource;
+import org.sonatype.nexus.security.privilege.MethodPrivilegeDescriptor;
+import org.sonatype.nexus.security.privilege.PrivilegeDescriptor;
+import org.sonatype.sisu.goodies.eventbus.EventBus;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+import org.apache.shiro.authc.credential.PasswordService;
+import org.apache.shiro.authz.permission.WildcardPermission;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link RolePermissionResolverImpl}.
+ */
+public class RolePermissionResolverImplTest
+    extends TestSupport
+{
+  private static final String VIEW_ALL_ROLE = "repository-all-view";
+
+  @Mock
+  private SecurityConfigurationSource configurationSource;
+
+  @Mock
+  private SecurityConfigurationCleaner configCleaner;
+
+  @Mock
+  private SecurityConfigurationValidator validator;
+
+  @Mock
+  private PasswordService passwordService;
+
+  @Mock
+  private EventBus eventBus;
+
+  private RepositoriesSecurityConfigurationResource repositories;
+
+  private RolePermissionResolverImpl underTest;
+
+  @Before
+  public void prepare() {
+    when(configurationSource.getConfiguration()).thenReturn(new MemorySecurityConfiguration());
+    repositories = new RepositoriesSecurityConfigurationResource();
+    // events are not delivered, changes of dynamic resource must be detected by resolver itself
+    final SecurityConfigurationManagerImpl configurationManager = new SecurityConfigurationManagerImpl(
+        configurationSource,
+        Collections.<StaticSecurityConfigurationResource>emptyList(),
+        ImmutableList.<DynamicSecurityConfigurationResource>of(repositories),
+        Collections.<SecurityConfigurationModifier>emptyList(),
+        configCleaner,
+        validator,
+        passwordService,
+        eventBus
+    );
+    underTest = new RolePermissionResolverImpl(
+        configurationManager,
+        ImmutableList.<PrivilegeDescriptor>of(new MethodPrivilegeDescriptor()),
+        eventBus
+    );
+  }
+
+  private boolean canView(final String roleId, final String repositoryId) {
+    return underTest.resolveIndexInRole(roleId)
+        .implies(new WildcardPermission("nexus:repository-view:" + repositoryId + ":read"));
+  }
+
+  @Test
+  public void privilegeOfCreatedRepositoryIsGranted() {
+    repositories.add("central");
+    assertThat(canView(VIEW_ALL_ROLE, "central"), equalTo(true));
+    assertThat(canView(VIEW_ALL_ROLE, "releases"), equalTo(false));
+
+    repositories.add("releases");
+    assertThat(canView(VIEW_ALL_ROLE, "releases"), equalTo(true));
+    assertThat(underTest.resolvePermissionsInRole(VIEW_ALL_ROLE).size(), equalTo(2));
+  }
+
+  @Test
+  public void unknownRoleIsResolvedOnceConfigured() {
+    assertThat(underTest.resolveIndexInRole("central-view").isEmpty(), equalTo(true));
+
+    repositories.add("central");
+    assertThat(canView("central-view", "central"), equalTo(true));
+  }
+
+  /**
+   * Dynamic resource generating a view privilege and role per repository, and a role to view all repositories.
+   */
+  private static class RepositoriesSecurityConfigurationResource
+      extends AbstractDynamicSecurityConfigurationResource
+  {
+    private final Set<String> repositoryIds = Sets.newConcurrentHashSet();
+
+    private void add(final String repositoryId) {
+      repositoryIds.add(repositoryId);
+      setDirty(true);
+    }
+
+    @Override
+    protected SecurityConfiguration doGetConfiguration() {
+      final MemorySecurityConfiguration configuration = new MemorySecurityConfiguration();
+      final CRole viewAll = role(VIEW_ALL_ROLE);
+      for (String repositoryId : repositoryIds) {
+        final CPrivilege privilege = new CPrivilege();
+        privilege.setId("repository-" + repositoryId);
+        privilege.setName(privilege.getId());
+        privilege.setType(MethodPrivilegeDescriptor.TYPE);
+        privilege.setProperty(MethodPrivilegeDescriptor.P_METHOD, "read");
+        privilege.setProperty(MethodPrivilegeDescriptor.P_PERMISSION, "nexus:repository-view:" + repositoryId);
+        configuration.addPrivilege(privilege);
+
+        final CRole view = role(repositoryId + "-view");
+        view.addPrivilege(privilege.getId());
+        configuration.addRole(view);
+        viewAll.addRole(view.getId());
+      }
+      configuration.addRole(viewAll);
+      return configuration;
+    }
+
+    private static CRole role(final String id) {
+      final CRole role = new CRole();
+      role.setId(id);
+      role.setName(id);
+      return role;
+    }
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.security.internal;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.sonatype.nexus.common.validation.ValidationResponse;
+import org.sonatype.nexus.security.authz.AuthorizationConfigurationChanged;
+import org.sonatype.nexus.security.config.CPrivilege;
+import org.sonatype.nexus.security.config.CRole;
+import org.sonatype.nexus.security.config.CUser;
+import org.sonatype.nexus.security.config.DynamicSecurityConfigurationResource;
+import org.sonatype.nexus.security.config.MemorySecurityConfiguration;
+import org.sonatype.nexus.security.config.SecurityConfigurationCleaner;
+import org.sonatype.nexus.security.config.SecurityConfigurationModifier;
+import org.sonatype.nexus.security.config.SecurityConfigurationSource;
+import org.sonatype.nexus.security.config.SecurityConfigurationValidationContext;
+import org.sonatype.nexus.security.config.SecurityConfigurationValidator;
+import org.sonatype.nexus.security.config.StaticSecurityConfigurationResource;
+import org.sonatype.sisu.goodies.eventbus.EventBus;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.apache.shiro.authc.credential.PasswordService;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link SecurityConfigurationManagerImpl}.
+ */
+public class SecurityConfigurationManagerImplTest
+    extends TestSupport
+{
+  @Mock
+  private SecurityConfigurationSource configurationSource;
+
+  @Mock
+  private StaticSecurityConfigurationResource staticResource;
+
+  @Mock
+  private SecurityConfigurationCleaner configCleaner;
+
+  @Mock
+  private SecurityConfigurationValidator validator;
+
+  @Mock
+  private PasswordService passwordService;
+
+  @Mock
+  private EventBus eventBus;
+
+  private ArgumentCaptor<SecurityConfigurationValidationContext> context;
+
+  private SecurityConfigurationManagerImpl underTest;
+
+  @Before
+  public void prepare() {
+    final MemorySecurityConfiguration configuration = new MemorySecurityConfiguration();
+    configuration.addPrivilege(privilege("p1"));
+    configuration.addPrivilege(privilege("p2"));
+    configuration.addRole(role("r1", "p1"));
+    configuration.addRole(role("r2", "p2"));
+    configuration.addUser(user("u1"), ImmutableSet.of("r1"));
+    configuration.addUser(user("u2"), ImmutableSet.of("r2"));
+    when(configurationSource.getConfiguration()).thenReturn(configuration);
+
+    final MemorySecurityConfiguration staticConfiguration = new MemorySecurityConfiguration();
+    staticConfiguration.addPrivilege(privilege("static-p"));
+    staticConfiguration.addRole(role("static-r", "static-p"));
+    when(staticResource.getConfiguration()).thenReturn(staticConfiguration);
+
+    context = ArgumentCaptor.forClass(SecurityConfigurationValidationContext.class);
+    when(validator.validateUser(context.capture(), any(CUser.class), anySetOf(String.class), anyBoolean()))
+        .thenReturn(new ValidationResponse());
+    when(validator.validatePrivilege(context.capture(), any(CPrivilege.class), anyBoolean()))
+        .thenReturn(new ValidationResponse());
+    when(validator.validateRole(context.capture(), any(CRole.class), anyBoolean()))
+        .thenReturn(new ValidationResponse());
+
+    underTest = new SecurityConfigurationManagerImpl(
+        configurationSource,
+        ImmutableList.of(staticResource),
+        Collections.<DynamicSecurityConfigurationResource>emptyList(),
+        Collections.<SecurityConfigurationModifier>emptyList(),
+        configCleaner,
+        validator,
+        passwordService,
+        eventBus
+    );
+  }
+
+  @Test
+  public void userContextHasOnlyUserAndItsExistingRoles() throws Exception {
+    underTest.updateUser(user("u1"), ImmutableSet.of("r1", "static-r", "missing"));
+
+    assertThat(context.getValue().getExistingUserIds(), contains("u1"));
+    assertThat(context.getValue().getExistingRoleIds(), containsInAnyOrder("r1", "static-r"));
+    assertThat(context.getValue().getExistingPrivilegeIds(), nullValue());
+  }
+
+  @Test
+  public void newUserContextHasNoUsers() {
+    underTest.createUser(user("u3"), ImmutableSet.of("r2"));
+
+    assertThat(context.getValue().getExistingUserIds(), empty());
+    assertThat(context.getValue().getExistingRoleIds(), contains("r2"));
+  }
+
+  @Test
+  public void privilegeContextHasOnlyPrivilege() throws Exception {
+    underTest.updatePrivilege(privilege("p2"));
+    assertThat(context.getValue().getExistingPrivilegeIds(), contains("p2"));
+
+    underTest.createPrivilege(privilege("p3"));
+    assertThat(context.getValue().getExistingPrivilegeIds(), empty());
+  }
+
+  @Test
+  public void roleContextHasAllRolesAndOnlyReferencedPrivileges() {
+    underTest.createRole(role("r3", "p1", "static-p", "missing"));
+
+    final SecurityConfigurationValidationContext roleContext = context.getValue();
+    assertThat(roleContext.getExistingRoleIds(), containsInAnyOrder("r1", "r2", "static-r"));
+    assertThat(roleContext.getExistingRoleNameMap(), hasKey("static-r"));
+    assertThat(roleContext.getRoleContainmentMap(), hasKey("r2"));
+    assertThat(roleContext.getExistingPrivilegeIds(), containsInAnyOrder("p1", "static-p"));
+  }
+
+  @Test
+  public void clearCacheReloadsResourceConfigurations() throws Exception {
+    assertThat(underTest.listRoles(), hasSize(3));
+    verify(staticResource, times(1)).getConfiguration();
+    verify(configurationSource, times(1)).loadConfiguration();
+
+    underTest.clearCache();
+    verify(eventBus).post(any(AuthorizationConfigurationChanged.class));
+
+    assertThat(underTest.listRoles(), hasSize(3));
+    verify(staticResource, times(2)).getConfiguration();
+    verify(configurationSource, times(2)).loadConfiguration();
+  }
+
+  private static CPrivilege privilege(final String id) {
+    final CPrivilege privilege = new CPrivilege();
+    privilege.setId(id);
+    privilege.setName(id);
+    privilege.setType("method");
+    return privilege;
+  }
+
+  private static CRole role(final String id, final String... privilegeIds) {
+    final CRole role = new CRole();
+    role.setId(id);
+    role.setName(id);
+    for (String privilegeId : privilegeIds) {
+      role.addPrivilege(privilegeId);
+    }
+    return role;
+  }
+
+  private static CUser user(final String id) {
+    final CUser user = new CUser();
+    user.setId(id);
+    user.setFirstName(id);
+    user.setStatus(CUser.STATUS_ACTIVE);
+    return user;
+  }
+}
@@ -40,4 +40,22 @@ public interface WebResourceService
    */
   @Nullable
   WebResource getResource(String path);
+
+  /**
+   * Name of the query parameter carrying the content hash of web-resource. Requests having this parameter matching
+   * the content hash are served with immutable, long-lived caching.
+   *
+   * @since 3.0
+   */
+  String CONTENT_HASH_PARAMETER = "_h";
+
+  /**
+   * Get the content hash of a web-resource by path, to be used as value of {@link #CONTENT_HASH_PARAMETER} in
+   * web-resource URLs.
+   *
+   * @return Content hash or null if not bound, or not cacheable (like generated resources).
+   * @since 3.0
+   */
+  @Nullable
+  String getContentHash(String path);
 }
@@ -0,0 +1,172 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.content.internal;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import org.sonatype.nexus.proxy.item.StorageCollectionItem;
+import org.sonatype.nexus.proxy.item.StorageFileItem;
+import org.sonatype.nexus.proxy.item.StorageItem;
+import org.sonatype.nexus.proxy.item.uid.IsHiddenAttribute;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Immutable, sorted snapshot of the visible children of a collection, as rendered by {@link ContentServlet}. It
+ * holds only the few values needed for rendering (no {@link StorageItem} references), hence is cheap to cache and
+ * to page through.
+ *
+ * @since 3.0
+ */
+public class CollectionListing
+{
+  private final long modified;
+
+  private final String etag;
+
+  private final List<Entry> entries;
+
+  private CollectionListing(final long modified, final String etag, final List<Entry> entries) {
+    this.modified = modified;
+    this.etag = checkNotNull(etag);
+    this.entries = Collections.unmodifiableList(entries);
+  }
+
+  /**
+   * The modification timestamp of the collection this listing was built from.
+   */
+  public long getModified() {
+    return modified;
+  }
+
+  /**
+   * The "shaved" ETag (without quotes) of this listing, that changes whenever any entry name, timestamp or size
+   * changes.
+   */
+  public String getEtag() {
+    return etag;
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Returns all the entries, directories first, then files, both sorted by name.
+   */
+  public List<Entry> getEntries() {
+    return entries;
+  }
+
+  /**
+   * Returns a view of entries for given zero based offset, with at most limit elements.
+   */
+  public List<Entry> getEntries(final int offset, final int limit) {
+    checkArgument(offset >= 0, "Negative offset");
+    checkArgument(limit >= 0, "Negative limit");
+    final int from = Math.min(offset, entries.size());
+    final int to = (int) Math.min((long) from + limit, entries.size());
+    return entries.subList(from, to);
+  }
+
+  /**
+   * Builds a listing out of collection children, filtering out hidden items and duplicate names, as
+   * {@link StorageCollectionItem#list()} of a group might return same name from several members.
+   */
+  public static CollectionListing build(final StorageCollectionItem coll, final Collection<StorageItem> children) {
+    final Set<String> uniqueNames = Sets.newHashSetWithExpectedSize(children.size());
+    final List<Entry> entries = Lists.newArrayListWithCapacity(children.size());
+    for (StorageItem child : children) {
+      if (child.isVirtual() || !child.getRepositoryItemUid().getBooleanAttributeValue(IsHiddenAttribute.class)) {
+        if (uniqueNames.add(child.getName())) {
+          entries.add(new Entry(child.getName(), child instanceof StorageCollectionItem, child.getModified(),
+              child instanceof StorageFileItem ? ((StorageFileItem) child).getLength() : -1));
+        }
+      }
+    }
+    Collections.sort(entries, new EntryComparator());
+
+    final Hasher hasher = Hashing.sha1().newHasher();
+    for (Entry entry : entries) {
+      hasher.putString(entry.getName(), StandardCharsets.UTF_8).putBoolean(entry.isCollection())
+          .putLong(entry.getModified()).putLong(entry.getSize());
+    }
+    return new CollectionListing(coll.getModified(), "{SHA1{" + hasher.hash().toString() + "}}", entries);
+  }
+
+  // ==
+
+  /**
+   * Single child of a listing.
+   */
+  public static class Entry
+  {
+    private final String name;
+
+    private final boolean collection;
+
+    private final long modified;
+
+    private final long size;
+
+    public Entry(final String name, final boolean collection, final long modified, final long size) {
+      this.name = checkNotNull(name);
+      this.collection = collection;
+      this.modified = modified;
+      this.size = size;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public boolean isCollection() {
+      return collection;
+    }
+
+    public long getModified() {
+      return modified;
+    }
+
+    /**
+     * The size in bytes, or -1 for collections.
+     */
+    public long getSize() {
+      return size;
+    }
+  }
+
+  private static class EntryComparator
+      implements Comparator<Entry>
+  {
+    @Override
+    public int compare(final Entry o1, final Entry o2) {
+      if (o1.isCollection() != o2.isCollection()) {
+        // dirs always win
+        return o1.isCollection() ? -1 : 1;
+      }
+      return o1.getName().compareTo(o2.getName());
+    }
+  }
+}
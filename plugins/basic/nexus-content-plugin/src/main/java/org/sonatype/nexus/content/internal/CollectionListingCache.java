@@ -0,0 +1,206 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.content.internal;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
+import org.sonatype.nexus.events.EventSubscriber;
+import org.sonatype.nexus.proxy.ResourceStoreRequest;
+import org.sonatype.nexus.proxy.events.RepositoryGroupMembersChangedEvent;
+import org.sonatype.nexus.proxy.events.RepositoryItemEventCache;
+import org.sonatype.nexus.proxy.events.RepositoryItemEventDelete;
+import org.sonatype.nexus.proxy.events.RepositoryItemEventStore;
+import org.sonatype.nexus.proxy.events.RepositoryRegistryEventRemove;
+import org.sonatype.nexus.proxy.item.RepositoryItemUid;
+import org.sonatype.nexus.proxy.item.StorageCollectionItem;
+import org.sonatype.nexus.proxy.item.StorageItem;
+import org.sonatype.nexus.proxy.repository.GroupRepository;
+import org.sonatype.nexus.proxy.repository.Repository;
+import org.sonatype.nexus.proxy.utils.PathUtils;
+import org.sonatype.sisu.goodies.common.ComponentSupport;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.Subscribe;
+
+/**
+ * Cache of {@link CollectionListing}s, keyed by collection path and then by repository ID along with the request
+ * flags affecting the listing (local only, remote only and group local only). Entries are validated
+ * against the collection modification timestamp for non-group repositories, and are evicted by item events affecting
+ * the collection (in any repository, so group listings sharing the path are evicted too). As group listings merge
+ * member contents, and the group collection timestamp does not reflect them, entries also expire after a while.
+ *
+ * Virtual collections (like the repository root listing) are never cached, as those are filtered by permissions of
+ * the current subject.
+ *
+ * @since 3.0
+ */
+@Singleton
+@Named
+public class CollectionListingCache
+    extends ComponentSupport
+    implements EventSubscriber
+{
+  /**
+   * Maximum count of listing entries (summed across all cached listings) kept in cache.
+   */
+  private static final long MAX_ENTRIES = SystemPropertiesHelper.getLong(
+      CollectionListingCache.class.getName() + ".maxEntries", 500000L);
+
+  /**
+   * Maximum age (in seconds) of a cached listing.
+   */
+  private static final long EXPIRE_SECONDS = SystemPropertiesHelper.getLong(
+      CollectionListingCache.class.getName() + ".expireSeconds", TimeUnit.MINUTES.toSeconds(10));
+
+  private final Cache<String, Map<String, CollectionListing>> cache;
+
+  public CollectionListingCache() {
+    this.cache = CacheBuilder.newBuilder()
+        .maximumWeight(MAX_ENTRIES)
+        .weigher(new Weigher<String, Map<String, CollectionListing>>()
+        {
+          @Override
+          public int weigh(final String path, final Map<String, CollectionListing> listings) {
+            int weight = 1;
+            for (CollectionListing listing : listings.values()) {
+              weight += listing.size();
+            }
+            return weight;
+          }
+        })
+        .expireAfterWrite(EXPIRE_SECONDS, TimeUnit.SECONDS)
+        .build();
+    log.debug("maxEntries={}, expireSeconds={}", MAX_ENTRIES, EXPIRE_SECONDS);
+  }
+
+  /**
+   * Returns the listing of passed in collection, either from cache if still valid, or by listing the collection
+   * (and caching the result, if applicable).
+   */
+  public CollectionListing get(final StorageCollectionItem coll) throws Exception {
+    if (coll.isVirtual()) {
+      return CollectionListing.build(coll, coll.list());
+    }
+
+    final Repository repository = coll.getRepositoryItemUid().getRepository();
+    final boolean group = repository.getRepositoryKind().isFacetAvailable(GroupRepository.class);
+    final String path = key(coll.getRepositoryItemUid().getPath());
+    final String listingKey = listingKey(repository, coll.getResourceStoreRequest());
+    final Map<String, CollectionListing> listings = cache.getIfPresent(path);
+    if (listings != null) {
+      final CollectionListing cached = listings.get(listingKey);
+      if (cached != null && (group || cached.getModified() == coll.getModified())) {
+        return cached;
+      }
+    }
+
+    final CollectionListing listing = CollectionListing.build(coll, coll.list());
+    put(path, listingKey, listing);
+    return listing;
+  }
+
+  /**
+   * Returns the key of listing within the listings of a path: the repository ID and the request flags, as a local
+   * only listing differs from a regular one, and must not be served in place of it (and vice versa).
+   */
+  @VisibleForTesting
+  static String listingKey(final Repository repository, final ResourceStoreRequest request) {
+    return repository.getId()
+        + (request.isRequestLocalOnly() ? ";local" : "")
+        + (request.isRequestRemoteOnly() ? ";remote" : "")
+        + (request.isRequestGroupLocalOnly() ? ";groupLocal" : "");
+  }
+
+  /**
+   * Listings are kept in immutable maps, that are replaced on update, as the weight of cache entry is calculated on
+   * insertion only. Racing puts to same path might drop a listing, which is harmless.
+   */
+  private void put(final String path, final String listingKey, final CollectionListing listing) {
+    final Map<String, CollectionListing> existing = cache.getIfPresent(path);
+    final ImmutableMap.Builder<String, CollectionListing> updated = ImmutableMap.builder();
+    if (existing != null) {
+      for (Map.Entry<String, CollectionListing> entry : existing.entrySet()) {
+        if (!listingKey.equals(entry.getKey())) {
+          updated.put(entry);
+        }
+      }
+    }
+    updated.put(listingKey, listing);
+    cache.put(path, updated.build());
+  }
+
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  // ==
+
+  @Subscribe
+  @AllowConcurrentEvents
+  public void on(final RepositoryItemEventStore evt) {
+    invalidate(evt.getItem());
+  }
+
+  @Subscribe
+  @AllowConcurrentEvents
+  public void on(final RepositoryItemEventCache evt) {
+    invalidate(evt.getItem());
+  }
+
+  @Subscribe
+  @AllowConcurrentEvents
+  public void on(final RepositoryItemEventDelete evt) {
+    invalidate(evt.getItem());
+    if (evt.getItem() instanceof StorageCollectionItem) {
+      cache.invalidate(key(evt.getItem().getRepositoryItemUid().getPath()));
+    }
+  }
+
+  @Subscribe
+  @AllowConcurrentEvents
+  public void on(final RepositoryGroupMembersChangedEvent evt) {
+    invalidateAll();
+  }
+
+  @Subscribe
+  @AllowConcurrentEvents
+  public void on(final RepositoryRegistryEventRemove evt) {
+    invalidateAll();
+  }
+
+  private void invalidate(final StorageItem item) {
+    if (!item.isVirtual()) {
+      cache.invalidate(key(PathUtils.getParentPath(item.getRepositoryItemUid().getPath())));
+    }
+  }
+
+  /**
+   * Normalizes collection path to be used as cache key, as collection requests usually end with a slash.
+   */
+  private static String key(final String path) {
+    if (path.length() > 1 && path.endsWith(RepositoryItemUid.PATH_SEPARATOR)) {
+      return path.substring(0, path.length() - 1);
+    }
+    return path;
+  }
+}
@@ -13,7 +13,6 @@
 package org.sonatype.nexus.content.internal;
 
 import java.io.IOException;
-import java.util.Collection;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -29,10 +28,30 @@ import org.sonatype.nexus.proxy.item.StorageItem;
  */
 public interface ContentRenderer
 {
+  /**
+   * Renders the HTML index page of a collection, with at most {@code limit} entries of the listing starting from
+   * {@code offset}.
+   */
   void renderCollection(final HttpServletRequest request,
                         final HttpServletResponse response,
                         final StorageCollectionItem coll,
-                        final Collection<StorageItem> children)
+                        final CollectionListing listing,
+                        final int offset,
+                        final int limit)
+      throws IOException;
+
+  /**
+   * Renders the JSON representation of a collection, with at most {@code limit} entries of the listing starting from
+   * {@code offset}.
+   *
+   * @since 3.0
+   */
+  void renderCollectionJson(final HttpServletRequest request,
+                            final HttpServletResponse response,
+                            final StorageCollectionItem coll,
+                            final CollectionListing listing,
+                            final int offset,
+                            final int limit)
       throws IOException;
 
   void renderRequestDescription(final HttpServletRequest request,
@@ -16,7 +16,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.security.cert.X509Certificate;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
@@ -106,6 +105,27 @@ public class ContentServlet
    */
   private static final String REQ_QP_FORCE_EXPIRED_VALUE = "expired";
 
+  /**
+   * HTTP query parameter for one based page number of collection listing, used only if
+   * {@link #REQ_QP_LIMIT_PARAMETER} is present.
+   */
+  private static final String REQ_QP_PAGE_PARAMETER = "page";
+
+  /**
+   * HTTP query parameter for the maximum count of entries in a page of collection listing.
+   */
+  private static final String REQ_QP_LIMIT_PARAMETER = "limit";
+
+  /**
+   * HTTP query parameter to select collection listing format.
+   */
+  private static final String REQ_QP_FORMAT_PARAMETER = "format";
+
+  /**
+   * HTTP query parameter value for {@link #REQ_QP_FORMAT_PARAMETER} to get JSON collection listing.
+   */
+  private static final String REQ_QP_FORMAT_JSON_VALUE = "json";
+
   /**
    * A flag setting what should be done if request path retrieval gets a {@link StorageLinkItem} here. If {@code true},
    * this servlet dereference the link (using {@link RepositoryRouter#dereferenceLink(StorageLinkItem)} method), and
@@ -133,17 +153,21 @@ public class ContentServlet
 
   private final ContentRenderer contentRenderer;
 
+  private final CollectionListingCache collectionListingCache;
+
   private final WebUtils webUtils;
 
   @Inject
   public ContentServlet(final SecuritySystem securitySystem,
                         final RepositoryRouter repositoryRouter,
                         final ContentRenderer contentRenderer,
+                        final CollectionListingCache collectionListingCache,
                         final WebUtils webUtils)
   {
     this.securitySystem = checkNotNull(securitySystem);
     this.repositoryRouter = checkNotNull(repositoryRouter);
     this.contentRenderer = checkNotNull(contentRenderer);
+    this.collectionListingCache = checkNotNull(collectionListingCache);
     this.webUtils = checkNotNull(webUtils);
     logger.debug("dereferenceLinks={}", DEREFERENCE_LINKS);
   }
@@ -535,7 +559,9 @@ public class ContentServlet
 
   /**
    * Handles collection response, either redirects (to same URL but appended with slash, if request does not end with
-   * slash), or renders the "index page" out of collection entries.
+   * slash), or renders the "index page" out of collection entries. Listings are served from
+   * {@link CollectionListingCache}, are optionally paged using {@link #REQ_QP_PAGE_PARAMETER} and
+   * {@link #REQ_QP_LIMIT_PARAMETER}, and support conditional GET using ETag.
    */
   protected void doGetCollection(final HttpServletRequest request,
                                  final HttpServletResponse response,
@@ -553,12 +579,64 @@ public class ContentServlet
       // do not perform coll.list(), very expensive, just give what we already know
       return;
     }
+
+    final int limit = getIntParameter(request, REQ_QP_LIMIT_PARAMETER, Integer.MAX_VALUE);
+    final int page = limit == Integer.MAX_VALUE ? 1 : getIntParameter(request, REQ_QP_PAGE_PARAMETER, 1);
+    if (limit < 1 || page < 1) {
+      throw new IllegalArgumentException("Invalid listing page " + page + " or limit " + limit);
+    }
+    final long offset = (long) (page - 1) * limit;
+    final boolean json = isJsonRequest(request);
+
+    // perform fairly expensive operation of fetching children from Nx, unless cached
+    final CollectionListing listing = collectionListingCache.get(coll);
+
+    // listings must not be cached by clients, but can be validated using ETag
+    final String etag = listing.getEtag() + (json ? ";json" : "")
+        + (limit == Integer.MAX_VALUE ? "" : ";" + page + "/" + limit);
     // send no cache headers, as any of these responses should not be cached, ever
     webUtils.addNoCacheResponseHeaders(response);
-    // perform fairly expensive operation of fetching children from Nx
-    final Collection<StorageItem> children = coll.list();
+    // representation is negotiated on Accept header
+    response.setHeader("Vary", "Accept");
+    response.setHeader("ETag", "\"" + etag + "\"");
+    if (etag.equals(coll.getResourceStoreRequest().getIfNoneMatch())) {
+      response.setStatus(SC_NOT_MODIFIED);
+      return;
+    }
+
     // render the page
-    contentRenderer.renderCollection(request, response, coll, children);
+    final int from = (int) Math.min(offset, listing.size());
+    if (json) {
+      contentRenderer.renderCollectionJson(request, response, coll, listing, from, limit);
+    }
+    else {
+      contentRenderer.renderCollection(request, response, coll, listing, from, limit);
+    }
+  }
+
+  /**
+   * Returns {@code true} if client asked for JSON representation of collection, either by query parameter or by
+   * "Accept" header.
+   */
+  protected boolean isJsonRequest(final HttpServletRequest request) {
+    if (REQ_QP_FORMAT_JSON_VALUE.equals(request.getParameter(REQ_QP_FORMAT_PARAMETER))) {
+      return true;
+    }
+    final String accept = request.getHeader("Accept");
+    return accept != null && accept.startsWith("application/json");
+  }
+
+  private int getIntParameter(final HttpServletRequest request, final String name, final int defaultValue) {
+    final String value = request.getParameter(name);
+    if (Strings.isNullOrEmpty(value)) {
+      return defaultValue;
+    }
+    try {
+      return Integer.parseInt(value);
+    }
+    catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid value of parameter " + name + ": " + value);
+    }
   }
 
   /**
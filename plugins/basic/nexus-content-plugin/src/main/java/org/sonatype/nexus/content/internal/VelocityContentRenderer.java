@@ -13,14 +13,10 @@
 package org.sonatype.nexus.content.internal;
 
 import java.io.IOException;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -38,9 +34,7 @@ import org.sonatype.nexus.proxy.ResourceStoreRequest;
 import org.sonatype.nexus.proxy.attributes.Attributes;
 import org.sonatype.nexus.proxy.item.StorageCollectionItem;
 import org.sonatype.nexus.proxy.item.StorageCompositeItem;
-import org.sonatype.nexus.proxy.item.StorageFileItem;
 import org.sonatype.nexus.proxy.item.StorageItem;
-import org.sonatype.nexus.proxy.item.uid.IsHiddenAttribute;
 import org.sonatype.nexus.proxy.repository.GroupItemNotFoundException;
 import org.sonatype.nexus.proxy.repository.Repository;
 import org.sonatype.nexus.web.BaseUrlHolder;
@@ -48,9 +42,11 @@ import org.sonatype.nexus.web.TemplateRenderer;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 import org.sonatype.sisu.goodies.common.Iso8601Date;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -69,49 +65,84 @@ public class VelocityContentRenderer
 
   private final String applicationVersion;
 
+  private final JsonFactory jsonFactory;
+
   @Inject
   public VelocityContentRenderer(final TemplateRenderer templateRenderer,
                                  final Provider<SystemStatus> systemStatusProvider)
   {
     this.templateRenderer = checkNotNull(templateRenderer);
     this.applicationVersion = checkNotNull(systemStatusProvider).get().getVersion();
+    this.jsonFactory = new JsonFactory();
   }
 
   @Override
   public void renderCollection(final HttpServletRequest request,
                                final HttpServletResponse response,
                                final StorageCollectionItem coll,
-                               final Collection<StorageItem> children)
+                               final CollectionListing listing,
+                               final int offset,
+                               final int limit)
       throws IOException
   {
-    final Set<String> uniqueNames = Sets.newHashSetWithExpectedSize(children.size());
-    final List<CollectionEntry> entries = Lists.newArrayListWithCapacity(children.size());
-    
     // use request URL (it does not contain any parameters) as the base URL of collection entries
-    final String collUrl = BaseUrlHolder.get() + request.getServletPath() + request.getPathInfo();
-    for (StorageItem child : children) {
-      if (child.isVirtual() || !child.getRepositoryItemUid().getBooleanAttributeValue(IsHiddenAttribute.class)) {
-        if (!uniqueNames.contains(child.getName())) {
-          final boolean isCollection = child instanceof StorageCollectionItem;
-          final String name = isCollection ? child.getName() + "/" : child.getName();
-          final CollectionEntry entry = new CollectionEntry(name, isCollection, collUrl + name,
-              new Date(child.getModified()), StorageFileItem.class.isAssignableFrom(child
-              .getClass()) ? ((StorageFileItem) child).getLength() : -1, "");
-          entries.add(entry);
-          uniqueNames.add(child.getName());
-        }
-      }
+    final String collUrl = collectionUrl(request);
+    final List<CollectionListing.Entry> page = listing.getEntries(offset, limit);
+    final List<CollectionEntry> entries = Lists.newArrayListWithCapacity(page.size());
+    for (CollectionListing.Entry child : page) {
+      final String name = child.isCollection() ? child.getName() + "/" : child.getName();
+      entries.add(new CollectionEntry(name, child.isCollection(), collUrl + name, new Date(child.getModified()),
+          child.getSize(), ""));
     }
 
-    Collections.sort(entries, new CollectionEntryComparator());
-
     final Map<String, Object> dataModel = createBaseModel();
     dataModel.put("requestPath", coll.getPath());
     dataModel.put("listItems", entries);
+    dataModel.put("totalItems", listing.size());
+    if (offset > 0) {
+      dataModel.put("previousPageUrl", pageUrl(collUrl, Math.max(0, offset - limit), limit));
+    }
+    if ((long) offset + limit < listing.size()) {
+      dataModel.put("nextPageUrl", pageUrl(collUrl, offset + limit, limit));
+    }
     templateRenderer.render(templateRenderer.template("/org/sonatype/nexus/content/internal/repositoryContentHtml.vm",
         getClass().getClassLoader()), dataModel, response);
   }
 
+  @Override
+  public void renderCollectionJson(final HttpServletRequest request,
+                                   final HttpServletResponse response,
+                                   final StorageCollectionItem coll,
+                                   final CollectionListing listing,
+                                   final int offset,
+                                   final int limit)
+      throws IOException
+  {
+    final String collUrl = collectionUrl(request);
+    response.setContentType("application/json");
+    response.setCharacterEncoding("UTF-8");
+    // entries are written as they are iterated, no intermediate model is built
+    try (JsonGenerator generator = jsonFactory.createGenerator(response.getOutputStream(), JsonEncoding.UTF8)) {
+      generator.writeStartObject();
+      generator.writeStringField("path", coll.getPath());
+      generator.writeNumberField("total", listing.size());
+      generator.writeNumberField("offset", offset);
+      generator.writeArrayFieldStart("items");
+      for (CollectionListing.Entry child : listing.getEntries(offset, limit)) {
+        final String name = child.isCollection() ? child.getName() + "/" : child.getName();
+        generator.writeStartObject();
+        generator.writeStringField("name", name);
+        generator.writeBooleanField("collection", child.isCollection());
+        generator.writeStringField("resourceUri", collUrl + name);
+        generator.writeStringField("lastModified", Iso8601Date.format(new Date(child.getModified())));
+        generator.writeNumberField("size", child.getSize());
+        generator.writeEndObject();
+      }
+      generator.writeEndArray();
+      generator.writeEndObject();
+    }
+  }
+
   @Override
   public void renderRequestDescription(final HttpServletRequest request,
                                        final HttpServletResponse response,
@@ -226,6 +257,14 @@ public class VelocityContentRenderer
 
   // ==
 
+  private String collectionUrl(final HttpServletRequest request) {
+    return BaseUrlHolder.get() + request.getServletPath() + request.getPathInfo();
+  }
+
+  private String pageUrl(final String collUrl, final int offset, final int limit) {
+    return collUrl + "?page=" + (offset / limit + 1) + "&limit=" + limit;
+  }
+
   private Map<String, Object> createBaseModel() {
     final Map<String, Object> dataModel = Maps.newHashMap();
     dataModel.put("nexusRoot", BaseUrlHolder.get());
@@ -235,32 +274,6 @@ public class VelocityContentRenderer
 
   // =
 
-  private static class CollectionEntryComparator
-      implements Comparator<CollectionEntry>
-  {
-    @Override
-    public int compare(final CollectionEntry o1, final CollectionEntry o2) {
-      if (o1.isCollection()) {
-        if (o2.isCollection()) {
-          // 2 directories, do a path compare
-          return o1.getName().compareTo(o2.getName());
-        }
-        else {
-          // first item is a dir, second is a file, dirs always win
-          return -1;
-        }
-      }
-      else if (o2.isCollection()) {
-        // first item is a file, second is a dir, dirs always win
-        return 1;
-      }
-      else {
-        // 2 files, do a path compare
-        return o1.getName().compareTo(o2.getName());
-      }
-    }
-  }
-
   /**
    * Entry exposed to template for rendering.
    */
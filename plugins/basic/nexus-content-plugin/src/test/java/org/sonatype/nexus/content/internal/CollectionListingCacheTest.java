@@ -0,0 +1,159 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.content.internal;
+
+import java.util.Collections;
+
+import org.sonatype.nexus.proxy.ResourceStoreRequest;
+import org.sonatype.nexus.proxy.events.RepositoryItemEventStore;
+import org.sonatype.nexus.proxy.item.RepositoryItemUid;
+import org.sonatype.nexus.proxy.item.StorageCollectionItem;
+import org.sonatype.nexus.proxy.item.StorageFileItem;
+import org.sonatype.nexus.proxy.item.StorageItem;
+import org.sonatype.nexus.proxy.repository.GroupRepository;
+import org.sonatype.nexus.proxy.repository.Repository;
+import org.sonatype.nexus.proxy.repository.RepositoryKind;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link CollectionListingCache}.
+ */
+public class CollectionListingCacheTest
+    extends TestSupport
+{
+  @Mock
+  private Repository repository;
+
+  @Mock
+  private RepositoryKind repositoryKind;
+
+  private CollectionListingCache underTest;
+
+  @Before
+  public void setUp() {
+    when(repository.getId()).thenReturn("releases");
+    when(repository.getRepositoryKind()).thenReturn(repositoryKind);
+    when(repositoryKind.isFacetAvailable(GroupRepository.class)).thenReturn(false);
+    underTest = new CollectionListingCache();
+  }
+
+  private StorageCollectionItem collection(final String path, final ResourceStoreRequest request) throws Exception {
+    final RepositoryItemUid uid = mock(RepositoryItemUid.class);
+    when(uid.getRepository()).thenReturn(repository);
+    when(uid.getPath()).thenReturn(path);
+    final StorageCollectionItem coll = mock(StorageCollectionItem.class);
+    when(coll.getRepositoryItemUid()).thenReturn(uid);
+    when(coll.getResourceStoreRequest()).thenReturn(request);
+    when(coll.getModified()).thenReturn(1000L);
+    when(coll.list()).thenReturn(Collections.<StorageItem>emptyList());
+    return coll;
+  }
+
+  private StorageFileItem file(final String path) {
+    final RepositoryItemUid uid = mock(RepositoryItemUid.class);
+    when(uid.getRepository()).thenReturn(repository);
+    when(uid.getPath()).thenReturn(path);
+    final StorageFileItem item = mock(StorageFileItem.class);
+    when(item.getRepositoryItemUid()).thenReturn(uid);
+    return item;
+  }
+
+  @Test
+  public void listingCachedUntilModified() throws Exception {
+    final StorageCollectionItem coll = collection("/org/", new ResourceStoreRequest("/org/"));
+
+    final CollectionListing listing = underTest.get(coll);
+    assertThat(underTest.get(coll), sameInstance(listing));
+    verify(coll, times(1)).list();
+
+    when(coll.getModified()).thenReturn(2000L);
+    assertThat(underTest.get(coll), not(sameInstance(listing)));
+    verify(coll, times(2)).list();
+  }
+
+  @Test
+  public void listingsKeyedByRequestFlags() throws Exception {
+    final ResourceStoreRequest localRequest = new ResourceStoreRequest("/org/");
+    localRequest.setRequestLocalOnly(true);
+    final StorageCollectionItem local = collection("/org/", localRequest);
+    final StorageCollectionItem regular = collection("/org/", new ResourceStoreRequest("/org/"));
+
+    final CollectionListing localListing = underTest.get(local);
+    final CollectionListing regularListing = underTest.get(regular);
+    assertThat(regularListing, not(sameInstance(localListing)));
+    verify(regular, times(1)).list();
+
+    // both listings are kept
+    assertThat(underTest.get(local), sameInstance(localListing));
+    assertThat(underTest.get(regular), sameInstance(regularListing));
+  }
+
+  @Test
+  public void listingKeys() {
+    final ResourceStoreRequest request = new ResourceStoreRequest("/");
+    assertThat(CollectionListingCache.listingKey(repository, request), is("releases"));
+    request.setRequestLocalOnly(true);
+    request.setRequestGroupLocalOnly(true);
+    assertThat(CollectionListingCache.listingKey(repository, request), is("releases;local;groupLocal"));
+  }
+
+  @Test
+  public void storeEventInvalidatesParentListing() throws Exception {
+    final StorageCollectionItem coll = collection("/org/", new ResourceStoreRequest("/org/"));
+    final CollectionListing listing = underTest.get(coll);
+
+    final StorageFileItem child = file("/org/foo.jar");
+    final RepositoryItemEventStore event = mock(RepositoryItemEventStore.class);
+    when(event.getItem()).thenReturn(child);
+    underTest.on(event);
+
+    assertThat(underTest.get(coll), not(sameInstance(listing)));
+    verify(coll, times(2)).list();
+  }
+
+  @Test
+  public void storeEventOfOtherPathKeepsListing() throws Exception {
+    final StorageCollectionItem coll = collection("/org/", new ResourceStoreRequest("/org/"));
+    final CollectionListing listing = underTest.get(coll);
+
+    final StorageFileItem other = file("/com/foo.jar");
+    final RepositoryItemEventStore event = mock(RepositoryItemEventStore.class);
+    when(event.getItem()).thenReturn(other);
+    underTest.on(event);
+
+    assertThat(underTest.get(coll), sameInstance(listing));
+  }
+
+  @Test
+  public void virtualCollectionsNotCached() throws Exception {
+    final StorageCollectionItem coll = collection("/", new ResourceStoreRequest("/"));
+    when(coll.isVirtual()).thenReturn(true);
+
+    underTest.get(coll);
+    underTest.get(coll);
+    verify(coll, times(2)).list();
+  }
+}
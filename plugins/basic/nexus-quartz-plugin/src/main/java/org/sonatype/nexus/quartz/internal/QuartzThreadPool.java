@@ -13,6 +13,7 @@
 package org.sonatype.nexus.quartz.internal;
 
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.Semaphore;
@@ -21,7 +22,9 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.ThreadPoolExecutor.AbortPolicy;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
 import org.sonatype.nexus.security.subject.FakeAlmightySubject;
 import org.sonatype.nexus.threads.NexusExecutorService;
 import org.sonatype.nexus.threads.NexusThreadFactory;
@@ -35,11 +38,23 @@ import static com.google.common.base.Preconditions.checkArgument;
 /**
  * Nexus specific implementation of {@link ThreadPool} that is integrated with Shiro.
  *
+ * Jobs waiting for something else than CPU or IO (like resources claimed by other tasks) should wait using {@link
+ * #parked(Callable)}, that gives their pool slot to other jobs meanwhile. The pool grows over its size by the count of
+ * parked threads, limited by {@code org.sonatype.nexus.quartz.internal.QuartzThreadPool.maxParkedThreads} system
+ * property (defaults to pool size).
+ *
  * @since 3.0
  */
 public class QuartzThreadPool
     implements ThreadPool
 {
+  private static final String MAX_PARKED_THREADS = QuartzThreadPool.class.getName() + ".maxParkedThreads";
+
+  /**
+   * The executor running the job on current thread, if any.
+   */
+  private static final ThreadLocal<NexusThreadPoolExecutor> currentExecutor = new ThreadLocal<>();
+
   /**
    * The "bare" executor (non-Shiro aware), needed to implement blocking logic and gather some stats.
    */
@@ -53,11 +68,14 @@ public class QuartzThreadPool
 
   public QuartzThreadPool(final int poolSize) {
     checkArgument(poolSize > 0, "Pool size must be greater than zero");
-    this.threadPoolExecutor = new NexusThreadPoolExecutor(poolSize, poolSize,
+    final int maxParked = SystemPropertiesHelper.getInteger(MAX_PARKED_THREADS, poolSize);
+    checkArgument(maxParked >= 0, "Max parked threads must not be negative");
+    this.threadPoolExecutor = new NexusThreadPoolExecutor(poolSize, poolSize + maxParked,
         0L, TimeUnit.MILLISECONDS,
         new SynchronousQueue<Runnable>(), // no queuing
         new NexusThreadFactory("qz", "nx-tasks"),
-        new AbortPolicy());
+        new AbortPolicy(),
+        poolSize);
     // wrapper for Shiro integration
     this.nexusExecutorService = NexusExecutorService
         .forFixedSubject(threadPoolExecutor, FakeAlmightySubject.TASK_SUBJECT);
@@ -126,6 +144,19 @@ public class QuartzThreadPool
     // ?
   }
 
+  /**
+   * Invokes a blocking call of a job, while its thread does not occupy a pool slot, so Quartz may start other jobs
+   * meanwhile. Once call returns, it waits for a free slot to continue. If not invoked by a job, or the limit of parked
+   * threads is reached, simply invokes the call.
+   */
+  public static <T> T parked(final Callable<T> callable) throws Exception {
+    final NexusThreadPoolExecutor executor = currentExecutor.get();
+    if (executor == null) {
+      return callable.call();
+    }
+    return executor.parked(callable);
+  }
+
   // ==
 
   /**
@@ -138,14 +169,34 @@ public class QuartzThreadPool
 
     private final Semaphore semaphore;
 
+    private final int maxParked;
+
+    private final AtomicInteger parked = new AtomicInteger();
+
     public NexusThreadPoolExecutor(final int corePoolSize, final int maximumPoolSize, final long keepAliveTime,
                                    final TimeUnit unit,
                                    final BlockingQueue<Runnable> workQueue,
                                    final ThreadFactory threadFactory,
                                    final RejectedExecutionHandler handler)
+    {
+      this(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, handler, maximumPoolSize);
+    }
+
+    /**
+     * Creates executor with {@code slots} threads running at a time, the rest of {@code maximumPoolSize} being
+     * reserved for threads parked by {@link #parked(Callable)}.
+     */
+    public NexusThreadPoolExecutor(final int corePoolSize, final int maximumPoolSize, final long keepAliveTime,
+                                   final TimeUnit unit,
+                                   final BlockingQueue<Runnable> workQueue,
+                                   final ThreadFactory threadFactory,
+                                   final RejectedExecutionHandler handler,
+                                   final int slots)
     {
       super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, handler);
-      this.semaphore = new Semaphore(maximumPoolSize);
+      checkArgument(slots > 0 && slots <= maximumPoolSize, "Slots must be between 1 and maximum pool size");
+      this.semaphore = new Semaphore(slots);
+      this.maxParked = maximumPoolSize - slots;
     }
 
     public Semaphore getSemaphore() {
@@ -156,6 +207,7 @@ public class QuartzThreadPool
     protected void beforeExecute(Thread t, Runnable r) {
       try {
         semaphore.tryAcquire();
+        currentExecutor.set(this);
       }
       finally {
         super.beforeExecute(t, r);
@@ -165,11 +217,31 @@ public class QuartzThreadPool
     @Override
     protected void afterExecute(Runnable r, Throwable t) {
       try {
+        currentExecutor.remove();
         semaphore.release();
       }
       finally {
         super.afterExecute(r, t);
       }
     }
+
+    /**
+     * Invokes the call with slot of current thread released, unless limit of parked threads is reached.
+     */
+    public <T> T parked(final Callable<T> callable) throws Exception {
+      if (parked.incrementAndGet() > maxParked) {
+        parked.decrementAndGet();
+        return callable.call();
+      }
+      semaphore.release();
+      try {
+        return callable.call();
+      }
+      finally {
+        // running jobs never wait for parked ones, so a slot frees up eventually
+        semaphore.acquireUninterruptibly();
+        parked.decrementAndGet();
+      }
+    }
   }
 }
@@ -57,7 +57,8 @@ public class NexusQuartzCustomizer
   @Override
   public void onCreated(final QuartzSupport quartzSupport, final Scheduler scheduler) {
     try {
-      // Install job supporting listeners for each NX task being scheduled
+      // Rebuild the task index from job store, installing job supporting listeners for each NX task being scheduled
+      quartzNexusSchedulerSPIProvider.get().clearTasks();
       final Set<JobKey> jobKeys = scheduler.getJobKeys(jobGroupEquals(QuartzTaskExecutorSPI.QZ_NEXUS_GROUP));
       for (JobKey jobKey : jobKeys) {
         final JobDetail jobDetail = quartzSupport.getScheduler().getJobDetail(jobKey);
@@ -72,4 +73,9 @@ public class NexusQuartzCustomizer
       throw Throwables.propagate(e);
     }
   }
+
+  @Override
+  public void onDestroyed(final QuartzSupport quartzSupport, final Scheduler scheduler) {
+    quartzNexusSchedulerSPIProvider.get().clearTasks();
+  }
 }
\ No newline at end of file
@@ -14,13 +14,18 @@ package org.sonatype.nexus.quartz.internal.nexus;
 
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
 
 import org.sonatype.nexus.quartz.JobSupport;
+import org.sonatype.nexus.quartz.internal.QuartzThreadPool;
 import org.sonatype.nexus.scheduling.Cancelable;
+import org.sonatype.nexus.scheduling.ResourceAwareTask;
 import org.sonatype.nexus.scheduling.Task;
 import org.sonatype.nexus.scheduling.TaskConfiguration;
 import org.sonatype.nexus.scheduling.TaskFactory;
@@ -29,9 +34,14 @@ import org.sonatype.nexus.scheduling.TaskInfo.RunState;
 import org.sonatype.nexus.scheduling.TaskInfo.State;
 import org.sonatype.nexus.scheduling.TaskInterruptedException;
 import org.sonatype.nexus.scheduling.events.TaskEventCanceled;
+import org.sonatype.nexus.scheduling.spi.TaskResourceLimiter;
 import org.sonatype.sisu.goodies.eventbus.EventBus;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
 import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import org.quartz.DisallowConcurrentExecution;
@@ -47,6 +57,10 @@ import static com.google.common.base.Preconditions.checkState;
  * A {#link JobSupport} wrapping NX Task that is also {@link InterruptableJob} (but actual interruption ability depends
  * on underlying NX Task).
  *
+ * Waiting for blocking tasks and claimed resources happens with the Quartz thread parked (see {@link
+ * QuartzThreadPool#parked(Callable)}), so waiting tasks do not hold back other tasks. Queue (waiting) and run times
+ * are recorded per task type.
+ *
  * @since 3.0
  */
 @PersistJobDataAfterExecution
@@ -84,6 +98,8 @@ public class NexusTaskJobSupport<T>
 
   private Task<T> nexusTask;
 
+  private Set<String> claims;
+
   @Inject
   public NexusTaskJobSupport(final EventBus eventBus,
                              final Provider<QuartzTaskExecutorSPI> quartzNexusSchedulerSPIProvider,
@@ -112,16 +128,25 @@ public class NexusTaskJobSupport<T>
 
       try {
         if (!future.isCancelled()) {
+          final long queuedAt = System.nanoTime();
           mayBlock();
-          if (!future.isCancelled()) {
-            future.setRunState(RunState.RUNNING);
+          if (!future.isCancelled() && claimResources()) {
+            timer("queued").update(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
             try {
-              final T result = nexusTask.call();
-              context.setResult(result);
+              future.setRunState(RunState.RUNNING);
+              final long started = System.nanoTime();
+              try {
+                final T result = nexusTask.call();
+                context.setResult(result);
+              }
+              finally {
+                timer("run").update(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                // put back any state task modified to have it persisted
+                context.getJobDetail().getJobDataMap().putAll(nexusTask.taskConfiguration().asMap());
+              }
             }
             finally {
-              // put back any state task modified to have it persisted
-              context.getJobDetail().getJobDataMap().putAll(nexusTask.taskConfiguration().asMap());
+              releaseResources();
             }
           }
         }
@@ -157,26 +182,34 @@ public class NexusTaskJobSupport<T>
   /**
    * Busy waiting if this task declares itself blocking by other, already running tasks.
    */
-  private void mayBlock() {
+  private void mayBlock() throws Exception {
     // filter for running tasks, to be reused
     final OtherRunningTasks<T> otherRunningTasks = new OtherRunningTasks<>(nexusTask);
     List<TaskInfo<?>> blockedBy;
     do {
       blockedBy = nexusTask.isBlockedBy(Lists.newArrayList(Iterables.filter(
-          quartzNexusSchedulerSPIProvider.get().listsTasks(), otherRunningTasks)));
+          quartzNexusSchedulerSPIProvider.get().listRunningTasks(), otherRunningTasks)));
       // wait for them all
       if (blockedBy != null && !blockedBy.isEmpty()) {
         try {
           // will ISEx if canceled!
           future.setRunState(RunState.BLOCKED);
-          for (TaskInfo<?> taskInfo : blockedBy) {
-            try {
-              taskInfo.getCurrentState().getFuture().get();
+          final List<TaskInfo<?>> waitFor = blockedBy;
+          QuartzThreadPool.parked(new Callable<Void>()
+          {
+            @Override
+            public Void call() {
+              for (TaskInfo<?> taskInfo : waitFor) {
+                try {
+                  taskInfo.getCurrentState().getFuture().get();
+                }
+                catch (Exception e) {
+                  // we don't care if other task failed or not, it will report itself
+                }
+              }
+              return null;
             }
-            catch (Exception e) {
-              // we don't care if other task failed or not, it will report itself
-            }
-          }
+          });
         }
         catch (IllegalStateException e) {
           // task got canceled: setRunState threw ISEx
@@ -187,6 +220,54 @@ public class NexusTaskJobSupport<T>
     while (!blockedBy.isEmpty());
   }
 
+  /**
+   * Waits for resources claimed by this task to become available, if it is a {@link ResourceAwareTask}. Returns
+   * {@code false} if task got canceled meanwhile.
+   */
+  private boolean claimResources() throws Exception {
+    if (!(nexusTask instanceof ResourceAwareTask)) {
+      return true;
+    }
+    final ResourceAwareTask resourceAwareTask = (ResourceAwareTask) nexusTask;
+    final Set<String> taskClaims = ImmutableSet.copyOf(resourceAwareTask.getResourceClaims());
+    final TaskResourceLimiter resourceLimiter = quartzNexusSchedulerSPIProvider.get().getResourceLimiter();
+    if (taskClaims.isEmpty() || resourceLimiter.tryClaim(taskClaims)) {
+      claims = taskClaims;
+      return true;
+    }
+    try {
+      // will ISEx if canceled!
+      future.setRunState(RunState.BLOCKED);
+    }
+    catch (IllegalStateException e) {
+      return false;
+    }
+    log.debug("Task {} waiting for resources {}", nexusTask.taskConfiguration().getTaskLogName(), taskClaims);
+    final boolean claimed = QuartzThreadPool.parked(new Callable<Boolean>()
+    {
+      @Override
+      public Boolean call() throws InterruptedException {
+        return resourceLimiter.claim(taskClaims, resourceAwareTask.getPriority(), future);
+      }
+    });
+    if (claimed) {
+      claims = taskClaims;
+    }
+    return claimed;
+  }
+
+  private Timer timer(final String name) {
+    return SharedMetricRegistries.getOrCreate("nexus").timer(
+        MetricRegistry.name(NexusTaskJobSupport.class, nexusTask.taskConfiguration().getTypeId(), name));
+  }
+
+  private void releaseResources() {
+    if (claims != null) {
+      quartzNexusSchedulerSPIProvider.get().getResourceLimiter().release(claims);
+      claims = null;
+    }
+  }
+
   @Override
   public void interrupt() throws UnableToInterruptJobException {
     if (nexusTask instanceof Cancelable) {
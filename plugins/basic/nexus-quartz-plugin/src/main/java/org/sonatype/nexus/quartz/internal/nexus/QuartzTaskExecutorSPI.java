@@ -14,10 +14,11 @@ package org.sonatype.nexus.quartz.internal.nexus;
 
 import java.util.Date;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -25,17 +26,18 @@ import javax.inject.Singleton;
 import org.sonatype.nexus.quartz.QuartzSupport;
 import org.sonatype.nexus.scheduling.TaskConfiguration;
 import org.sonatype.nexus.scheduling.TaskInfo;
+import org.sonatype.nexus.scheduling.TaskInfo.CurrentState;
 import org.sonatype.nexus.scheduling.TaskInfo.State;
 import org.sonatype.nexus.scheduling.TaskRemovedException;
 import org.sonatype.nexus.scheduling.schedule.Now;
 import org.sonatype.nexus.scheduling.schedule.Schedule;
 import org.sonatype.nexus.scheduling.spi.TaskExecutorSPI;
+import org.sonatype.nexus.scheduling.spi.TaskResourceLimiter;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 import org.sonatype.sisu.goodies.eventbus.EventBus;
 
 import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import org.eclipse.sisu.Priority;
 import org.quartz.JobBuilder;
 import org.quartz.JobDataMap;
@@ -48,7 +50,6 @@ import org.quartz.TriggerKey;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
-import static org.quartz.impl.matchers.GroupMatcher.jobGroupEquals;
 import static org.quartz.impl.matchers.KeyMatcher.keyEquals;
 import static org.sonatype.nexus.quartz.internal.nexus.NexusTaskJobSupport.toTaskConfiguration;
 
@@ -56,6 +57,10 @@ import static org.sonatype.nexus.quartz.internal.nexus.NexusTaskJobSupport.toTas
  * Quartz backed implementation of {@link TaskExecutorSPI}. It uses distinct group for NX tasks and relies on
  * {@link QuartzSupport}.
  *
+ * Task infos are kept in an in-memory index (by NX task ID and by job key), maintained as tasks are scheduled and
+ * removed, and rebuilt from the job store when scheduler is created (see {@link NexusQuartzCustomizer}). Hence,
+ * task lookup and listing does not hit the job store.
+ *
  * @since 3.0
  */
 @Singleton
@@ -76,6 +81,12 @@ public class QuartzTaskExecutorSPI
 
   private final NexusScheduleConverter nexusScheduleConverter;
 
+  private final ConcurrentMap<String, NexusTaskInfo<?>> tasksById = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<JobKey, NexusTaskInfo<?>> tasksByJobKey = new ConcurrentHashMap<>();
+
+  private final TaskResourceLimiter resourceLimiter = new TaskResourceLimiter();
+
   @Inject
   public QuartzTaskExecutorSPI(final EventBus eventBus,
                                final QuartzSupport quartzSupport,
@@ -88,36 +99,36 @@ public class QuartzTaskExecutorSPI
 
   @Override
   public <T> TaskInfo<T> getTaskById(final String id) {
-    try {
-      final NexusTaskInfo<T> task = taskByNxTaskId(id);
-      if (task != null && !task.isRemovedOrDone()) {
-        return task;
-      }
-    }
-    catch (IllegalStateException e) {
-      // no listener found in taskByKey, means no job exists
-    }
-    catch (SchedulerException e) {
-      throw Throwables.propagate(e);
+    final NexusTaskInfo<T> task = taskByNxTaskId(id);
+    if (task != null && !task.isRemovedOrDone()) {
+      return task;
     }
     return null;
   }
 
   @Override
   public List<TaskInfo<?>> listsTasks() {
-    try {
-      final List<TaskInfo<?>> result = Lists.newArrayList();
-      final Map<JobKey, NexusTaskInfo<?>> allTasks = allTasks();
-      for (NexusTaskInfo<?> nexusTaskInfo : allTasks.values()) {
-        if (!nexusTaskInfo.isRemovedOrDone()) {
-          result.add(nexusTaskInfo);
-        }
+    final List<TaskInfo<?>> result = Lists.newArrayListWithExpectedSize(tasksById.size());
+    for (NexusTaskInfo<?> nexusTaskInfo : tasksById.values()) {
+      if (!nexusTaskInfo.isRemovedOrDone()) {
+        result.add(nexusTaskInfo);
       }
-      return result;
     }
-    catch (SchedulerException e) {
-      throw Throwables.propagate(e);
+    return result;
+  }
+
+  /**
+   * Returns the list of currently running NX tasks, using single snapshot of current state per task.
+   */
+  public List<TaskInfo<?>> listRunningTasks() {
+    final List<TaskInfo<?>> result = Lists.newArrayList();
+    for (NexusTaskInfo<?> nexusTaskInfo : tasksById.values()) {
+      final CurrentState<?> currentState = nexusTaskInfo.getCurrentState();
+      if (State.RUNNING == currentState.getState() && !nexusTaskInfo.isRemovedOrDone()) {
+        result.add(nexusTaskInfo);
+      }
     }
+    return result;
   }
 
 
@@ -254,44 +265,32 @@ public class QuartzTaskExecutorSPI
 
     quartzSupport.getScheduler().getListenerManager()
         .addJobListener(nexusTaskJobListener, keyEquals(jobDetail.getKey()));
-    return nexusTaskJobListener.getNexusTaskInfo();
+    final NexusTaskInfo<T> nexusTaskInfo = nexusTaskJobListener.getNexusTaskInfo();
+    tasksByJobKey.put(jobDetail.getKey(), nexusTaskInfo);
+    tasksById.put(taskConfiguration.getId(), nexusTaskInfo);
+    return nexusTaskInfo;
   }
 
-  Map<JobKey, NexusTaskInfo<?>> allTasks() throws SchedulerException {
-    final Map<JobKey, NexusTaskInfo<?>> result = Maps.newHashMap();
-    final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
-    Thread.currentThread().setContextClassLoader(QuartzSupport.class.getClassLoader());
-    try {
-      final Set<JobKey> jobKeys = quartzSupport.getScheduler().getJobKeys(jobGroupEquals(QZ_NEXUS_GROUP));
-      for (JobKey jobKey : jobKeys) {
-        final NexusTaskJobListener<?> nexusTaskJobListener = (NexusTaskJobListener<?>) quartzSupport.getScheduler()
-            .getListenerManager().getJobListener(NexusTaskJobListener.listenerName(jobKey));
-        if (nexusTaskJobListener != null) {
-          result.put(jobKey, nexusTaskJobListener.getNexusTaskInfo());
-        }
-      }
-      return result;
-    }
-    finally {
-      Thread.currentThread().setContextClassLoader(classLoader);
-    }
+  /**
+   * Clears the task index, to be invoked when scheduler is (re)created or destroyed, as job listeners holding task
+   * infos are bound to scheduler instance.
+   */
+  void clearTasks() {
+    tasksById.clear();
+    tasksByJobKey.clear();
   }
 
-  <T> NexusTaskInfo<T> taskByNxTaskId(final String id) throws SchedulerException {
-    final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
-    Thread.currentThread().setContextClassLoader(QuartzSupport.class.getClassLoader());
-    try {
-      final Map<JobKey, NexusTaskInfo<?>> allTasks = allTasks();
-      for (NexusTaskInfo<?> task : allTasks.values()) {
-        if (task.getId().equals(id)) {
-          return (NexusTaskInfo<T>) task;
-        }
-      }
-    }
-    finally {
-      Thread.currentThread().setContextClassLoader(classLoader);
-    }
-    return null;
+  /**
+   * Returns the limiter of resources claimed by running NX tasks.
+   */
+  TaskResourceLimiter getResourceLimiter() {
+    return resourceLimiter;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Nullable
+  <T> NexusTaskInfo<T> taskByNxTaskId(final String id) {
+    return (NexusTaskInfo<T>) tasksById.get(id);
   }
 
   boolean cancelJob(final JobKey jobKey) {
@@ -329,6 +328,11 @@ public class QuartzTaskExecutorSPI
     final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
     Thread.currentThread().setContextClassLoader(QuartzSupport.class.getClassLoader());
     try {
+      final NexusTaskInfo<?> nexusTaskInfo = tasksByJobKey.remove(jobKey);
+      if (nexusTaskInfo != null) {
+        // conditional, as ID might already be mapped to the info of updated task
+        tasksById.remove(nexusTaskInfo.getId(), nexusTaskInfo);
+      }
       quartzSupport.getScheduler().getListenerManager().removeJobListener(NexusTaskJobListener.listenerName(jobKey));
       return quartzSupport.getScheduler().unscheduleJob(new TriggerKey(jobKey.getName(), jobKey.getGroup()));
     }
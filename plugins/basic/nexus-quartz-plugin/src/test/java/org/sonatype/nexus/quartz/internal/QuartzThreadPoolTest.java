@@ -0,0 +1,112 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.quartz.internal;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Tests for {@link QuartzThreadPool}.
+ */
+public class QuartzThreadPoolTest
+    extends TestSupport
+{
+  private QuartzThreadPool underTest;
+
+  @Before
+  public void setUp() {
+    underTest = new QuartzThreadPool(1);
+  }
+
+  @After
+  public void tearDown() {
+    underTest.shutdown(false);
+  }
+
+  @Test
+  public void parkedJobGivesUpItsSlot() throws Exception {
+    final CountDownLatch parked = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch resumed = new CountDownLatch(1);
+    assertThat(underTest.runInThread(new Runnable()
+    {
+      @Override
+      public void run() {
+        try {
+          QuartzThreadPool.parked(new Callable<Void>()
+          {
+            @Override
+            public Void call() throws Exception {
+              parked.countDown();
+              release.await();
+              return null;
+            }
+          });
+          resumed.countDown();
+        }
+        catch (Exception e) {
+          throw new RuntimeException(e);
+        }
+      }
+    }), is(true));
+    assertThat(parked.await(5, TimeUnit.SECONDS), is(true));
+
+    // the only slot is free while first job is parked, so second job can run
+    final CountDownLatch second = new CountDownLatch(1);
+    final CountDownLatch secondDone = new CountDownLatch(1);
+    assertThat(underTest.blockForAvailableThreads(), is(1));
+    assertThat(underTest.runInThread(new Runnable()
+    {
+      @Override
+      public void run() {
+        try {
+          second.await();
+        }
+        catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+        finally {
+          secondDone.countDown();
+        }
+      }
+    }), is(true));
+
+    // parked job waits for the slot taken by second job to resume
+    release.countDown();
+    assertThat(resumed.await(200, TimeUnit.MILLISECONDS), is(false));
+    second.countDown();
+    assertThat(secondDone.await(5, TimeUnit.SECONDS), is(true));
+    assertThat(resumed.await(5, TimeUnit.SECONDS), is(true));
+  }
+
+  @Test
+  public void parkedOutsideOfPoolJustCalls() throws Exception {
+    assertThat(QuartzThreadPool.parked(new Callable<String>()
+    {
+      @Override
+      public String call() {
+        return "done";
+      }
+    }), is("done"));
+  }
+}
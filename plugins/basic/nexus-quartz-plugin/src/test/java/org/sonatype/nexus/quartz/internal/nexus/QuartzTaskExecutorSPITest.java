@@ -0,0 +1,178 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.quartz.internal.nexus;
+
+import java.util.List;
+
+import javax.inject.Provider;
+
+import org.sonatype.nexus.quartz.QuartzSupport;
+import org.sonatype.nexus.scheduling.TaskConfiguration;
+import org.sonatype.nexus.scheduling.TaskInfo;
+import org.sonatype.nexus.scheduling.schedule.Manual;
+import org.sonatype.sisu.goodies.eventbus.EventBus;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.ListenerManager;
+import org.quartz.Scheduler;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+import org.quartz.impl.matchers.GroupMatcher;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * UT of {@link QuartzTaskExecutorSPI} task index.
+ */
+public class QuartzTaskExecutorSPITest
+    extends TestSupport
+{
+  @Mock
+  private EventBus eventBus;
+
+  @Mock
+  private QuartzSupport quartzSupport;
+
+  @Mock
+  private Scheduler scheduler;
+
+  @Mock
+  private ListenerManager listenerManager;
+
+  private QuartzTaskExecutorSPI underTest;
+
+  @Before
+  public void prepare() throws Exception {
+    when(quartzSupport.getScheduler()).thenReturn(scheduler);
+    when(scheduler.getListenerManager()).thenReturn(listenerManager);
+    when(scheduler.unscheduleJob(any(TriggerKey.class))).thenReturn(true);
+    underTest = new QuartzTaskExecutorSPI(eventBus, quartzSupport, new NexusScheduleConverter());
+  }
+
+  private TaskConfiguration taskConfiguration(final String id) {
+    final TaskConfiguration taskConfiguration = new TaskConfiguration();
+    taskConfiguration.setId(id);
+    taskConfiguration.setTypeId("test");
+    taskConfiguration.setName("Task " + id);
+    return taskConfiguration;
+  }
+
+  private NexusTaskInfo<?> schedule(final String id) {
+    final TaskInfo<?> taskInfo = underTest.scheduleTask(taskConfiguration(id), new Manual());
+    return (NexusTaskInfo<?>) taskInfo;
+  }
+
+  @Test
+  public void scheduledTaskIsIndexed() {
+    final NexusTaskInfo<?> task = schedule("1");
+
+    assertThat(underTest.taskByNxTaskId("1"), sameInstance((Object) task));
+    assertThat((Object) underTest.getTaskById("1"), sameInstance((Object) task));
+    assertThat(underTest.listsTasks(), contains((TaskInfo<?>) task));
+  }
+
+  @Test
+  public void removedTaskIsUnindexed() throws Exception {
+    final NexusTaskInfo<?> task = schedule("1");
+
+    assertThat(task.remove(), equalTo(true));
+
+    assertThat(underTest.taskByNxTaskId("1"), nullValue());
+    assertThat(underTest.getTaskById("1"), nullValue());
+    assertThat(underTest.listsTasks(), empty());
+    verify(listenerManager).removeJobListener(NexusTaskJobListener.listenerName(task.getJobKey()));
+
+    // removing again by job key is harmless
+    underTest.removeTask(task.getJobKey());
+    assertThat(underTest.listsTasks(), empty());
+  }
+
+  @Test
+  public void updatedTaskReplacesOldOne() {
+    final NexusTaskInfo<?> old = schedule("1");
+    final NexusTaskInfo<?> updated = schedule("1");
+
+    assertThat(updated.getJobKey(), not(equalTo(old.getJobKey())));
+    assertThat(old.isRemovedOrDone(), equalTo(true));
+    assertThat(underTest.taskByNxTaskId("1"), sameInstance((Object) updated));
+    assertThat(underTest.listsTasks(), contains((TaskInfo<?>) updated));
+
+    // late removal of the old job must not unindex the updated task
+    underTest.removeTask(old.getJobKey());
+    assertThat(underTest.taskByNxTaskId("1"), sameInstance((Object) updated));
+  }
+
+  @Test
+  public void indexIsRebuiltOnSchedulerRestart() throws Exception {
+    schedule("1");
+    schedule("2");
+    final ArgumentCaptor<JobDetail> jobDetails = ArgumentCaptor.forClass(JobDetail.class);
+    final ArgumentCaptor<Trigger> triggers = ArgumentCaptor.forClass(Trigger.class);
+    verify(scheduler, times(2)).scheduleJob(jobDetails.capture(), triggers.capture());
+
+    // scheduler destroyed
+    final NexusQuartzCustomizer customizer = new NexusQuartzCustomizer(new Provider<QuartzTaskExecutorSPI>()
+    {
+      @Override
+      public QuartzTaskExecutorSPI get() {
+        return underTest;
+      }
+    });
+    customizer.onDestroyed(quartzSupport, scheduler);
+    assertThat(underTest.listsTasks(), empty());
+    assertThat(underTest.taskByNxTaskId("1"), nullValue());
+
+    // scheduler created again, with jobs loaded from the job store
+    final ImmutableSet.Builder<JobKey> jobKeys = ImmutableSet.builder();
+    for (int i = 0; i < 2; i++) {
+      final JobDetail jobDetail = jobDetails.getAllValues().get(i);
+      final Trigger trigger = triggers.getAllValues().get(i);
+      jobKeys.add(jobDetail.getKey());
+      when(scheduler.getJobDetail(jobDetail.getKey())).thenReturn(jobDetail);
+      when(scheduler.getTrigger(trigger.getKey())).thenReturn(trigger);
+    }
+    when(scheduler.getJobKeys(GroupMatcher.jobGroupEquals(QuartzTaskExecutorSPI.QZ_NEXUS_GROUP)))
+        .thenReturn(jobKeys.build());
+    customizer.onCreated(quartzSupport, scheduler);
+
+    final List<TaskInfo<?>> tasks = underTest.listsTasks();
+    assertThat(tasks.size(), equalTo(2));
+    final NexusTaskInfo<?> task1 = underTest.taskByNxTaskId("1");
+    assertThat(task1, notNullValue());
+    assertThat(task1.getJobKey(), equalTo(jobDetails.getAllValues().get(0).getKey()));
+
+    // rebuilt index is consistent on removal
+    assertThat(task1.remove(), equalTo(true));
+    assertThat(underTest.taskByNxTaskId("1"), nullValue());
+    assertThat(underTest.listsTasks().size(), equalTo(1));
+    assertThat(underTest.taskByNxTaskId("2"), notNullValue());
+  }
+}
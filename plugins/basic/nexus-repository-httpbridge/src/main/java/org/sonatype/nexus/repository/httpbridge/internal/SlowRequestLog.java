@@ -0,0 +1,187 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.httpbridge.internal;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
+import org.sonatype.nexus.repository.view.RequestTimings;
+import org.sonatype.sisu.goodies.common.ComponentSupport;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Log of repository view requests slower than a threshold, keeping the most recent of sampled slow requests along with
+ * the time spent in each handler and in sending the response.
+ *
+ * The log is viewable over JMX, and as gauge {@code slowRequests.recent} in the {@code nexus} metric registry.
+ *
+ * @since 3.0
+ */
+@Named
+@Singleton
+public class SlowRequestLog
+    extends ComponentSupport
+    implements SlowRequestLogMBean
+{
+  /**
+   * Requests taking longer than this (in milliseconds) are slow.
+   */
+  private static final long THRESHOLD_MILLIS = SystemPropertiesHelper.getLong(
+      SlowRequestLog.class.getName() + ".thresholdMillis", 2000L);
+
+  /**
+   * Only every n-th slow request is kept.
+   */
+  private static final int SAMPLE_INTERVAL = Math.max(1, SystemPropertiesHelper.getInteger(
+      SlowRequestLog.class.getName() + ".sampleInterval", 1));
+
+  private static final int MAX_ENTRIES = SystemPropertiesHelper.getInteger(
+      SlowRequestLog.class.getName() + ".maxEntries", 100);
+
+  private static final String JMX_DOMAIN = "org.sonatype.nexus.repository";
+
+  private final long thresholdNanos = TimeUnit.MILLISECONDS.toNanos(THRESHOLD_MILLIS);
+
+  private final AtomicLong count = new AtomicLong();
+
+  private final Deque<String> entries = new LinkedList<>();
+
+  private final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate("nexus");
+
+  private final Meter slowRequests = metricRegistry.meter(name(SlowRequestLog.class, "slowRequests"));
+
+  private ObjectName jmxName;
+
+  public SlowRequestLog() {
+    log.debug("thresholdMillis={}, sampleInterval={}, maxEntries={}", THRESHOLD_MILLIS, SAMPLE_INTERVAL, MAX_ENTRIES);
+  }
+
+  /**
+   * Registers the MBean and the gauge of recent slow requests.
+   */
+  public synchronized void start() {
+    String gaugeName = name(SlowRequestLog.class, "slowRequests", "recent");
+    metricRegistry.remove(gaugeName);
+    metricRegistry.register(gaugeName, new Gauge<List<String>>()
+    {
+      @Override
+      public List<String> getValue() {
+        return getSlowRequests();
+      }
+    });
+    try {
+      jmxName = ObjectName.getInstance(JMX_DOMAIN, "name", SlowRequestLog.class.getSimpleName());
+      ManagementFactory.getPlatformMBeanServer().registerMBean(new StandardMBean(this, SlowRequestLogMBean.class),
+          jmxName);
+    }
+    catch (Exception e) {
+      jmxName = null;
+      log.warn("Problem registering MBean for: {}", getClass().getName(), e);
+    }
+  }
+
+  public synchronized void stop() {
+    metricRegistry.remove(name(SlowRequestLog.class, "slowRequests", "recent"));
+    if (jmxName != null) {
+      try {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(jmxName);
+      }
+      catch (Exception e) {
+        log.warn("Problem unregistering MBean for: {}", getClass().getName(), e);
+      }
+      jmxName = null;
+    }
+  }
+
+  /**
+   * Records a request, if it was slow.
+   *
+   * @param timings     timings of the dispatch, if the request was dispatched.
+   * @param sendNanos   time spent sending the response, including streaming of content.
+   * @param totalNanos  total time of request.
+   */
+  public void record(final String repositoryName,
+                     final String method,
+                     final String uri,
+                     @Nullable final RequestTimings timings,
+                     final long sendNanos,
+                     final long totalNanos)
+  {
+    if (totalNanos < thresholdNanos) {
+      return;
+    }
+    slowRequests.mark();
+    if (count.incrementAndGet() % SAMPLE_INTERVAL != 0) {
+      return;
+    }
+
+    StringBuilder entry = new StringBuilder();
+    entry.append(method).append(' ').append(uri)
+        .append(": repository=").append(repositoryName)
+        .append(", total=").append(TimeUnit.NANOSECONDS.toMillis(totalNanos)).append("ms");
+    if (timings != null) {
+      entry.append(", ").append(timings);
+    }
+    entry.append(", send=").append(TimeUnit.NANOSECONDS.toMillis(sendNanos)).append("ms");
+    log.debug("Slow request: {}", entry);
+
+    synchronized (entries) {
+      entries.addFirst(entry.toString());
+      while (entries.size() > MAX_ENTRIES) {
+        entries.removeLast();
+      }
+    }
+  }
+
+  @Override
+  public long getThresholdMillis() {
+    return THRESHOLD_MILLIS;
+  }
+
+  @Override
+  public long getSlowRequestCount() {
+    return slowRequests.getCount();
+  }
+
+  @Override
+  public List<String> getSlowRequests() {
+    synchronized (entries) {
+      return new ArrayList<>(entries);
+    }
+  }
+
+  @Override
+  public void clear() {
+    synchronized (entries) {
+      entries.clear();
+    }
+  }
+}
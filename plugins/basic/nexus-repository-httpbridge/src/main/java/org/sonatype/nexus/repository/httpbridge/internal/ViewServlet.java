@@ -14,6 +14,7 @@ package org.sonatype.nexus.repository.httpbridge.internal;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -25,30 +26,43 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.sonatype.nexus.events.EventSubscriber;
 import org.sonatype.nexus.repository.Repository;
 import org.sonatype.nexus.repository.http.HttpResponses;
 import org.sonatype.nexus.repository.httpbridge.DefaultHttpResponseSender;
 import org.sonatype.nexus.repository.httpbridge.HttpResponseSender;
+import org.sonatype.nexus.repository.manager.RepositoryDeletedEvent;
 import org.sonatype.nexus.repository.manager.RepositoryManager;
+import org.sonatype.nexus.repository.view.RequestTimings;
 import org.sonatype.nexus.repository.view.Response;
+import org.sonatype.nexus.repository.view.Router;
 import org.sonatype.nexus.repository.view.ViewFacet;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
 import com.google.common.base.Throwables;
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.Subscribe;
 import org.jboss.logging.MDC;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static com.codahale.metrics.MetricRegistry.name;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Repository view servlet.
  *
+ * Time spent sending responses is recorded per repository in the {@code nexus} metric registry, and slow requests are
+ * recorded in the {@link SlowRequestLog}. Timers of deleted repositories are removed.
+ *
  * @since 3.0
  */
 @Named
 @Singleton
 public class ViewServlet
     extends HttpServlet
+    implements EventSubscriber
 {
   private static final Logger log = LoggerFactory.getLogger(ViewServlet.class);
 
@@ -58,24 +72,32 @@ public class ViewServlet
 
   private final DefaultHttpResponseSender defaultHttpResponseSender;
 
+  private final SlowRequestLog slowRequestLog;
+
+  private final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate("nexus");
+
   @Inject
   public ViewServlet(final RepositoryManager repositoryManager,
                      final Map<String, HttpResponseSender> responseSenders,
-                     final DefaultHttpResponseSender defaultHttpResponseSender)
+                     final DefaultHttpResponseSender defaultHttpResponseSender,
+                     final SlowRequestLog slowRequestLog)
   {
     this.repositoryManager = checkNotNull(repositoryManager);
     this.responseSenders = checkNotNull(responseSenders);
     this.defaultHttpResponseSender = checkNotNull(defaultHttpResponseSender);
+    this.slowRequestLog = checkNotNull(slowRequestLog);
   }
 
   @Override
   public void init(final ServletConfig config) throws ServletException {
     super.init(config);
+    slowRequestLog.start();
     log.info("Initialized");
   }
 
   @Override
   public void destroy() {
+    slowRequestLog.stop();
     super.destroy();
     log.info("Destroyed");
   }
@@ -134,13 +156,47 @@ public class ViewServlet
     log.debug("Dispatching to view facet: {}", facet);
 
     // dispatch request and send response
-    final HttpRequestAdapter request = new HttpRequestAdapter(httpRequest,
-        path.getRemainingPath());
-    Response response = facet.dispatch(request);
+    final long start = System.nanoTime();
+    Response response = null;
+    long sendStart = 0;
+    boolean sending = false;
+    try {
+      final HttpRequestAdapter request = new HttpRequestAdapter(httpRequest,
+          path.getRemainingPath());
+      response = facet.dispatch(request);
+
+      HttpResponseSender sender = sender(repo);
+      log.debug("HTTP response sender: {}", sender);
+      sendStart = System.nanoTime();
+      sending = true;
+      sender.send(response, httpResponse);
+    }
+    finally {
+      // record failed requests too, as those timing out are the slowest
+      final long end = System.nanoTime();
+      final long sendNanos = sending ? end - sendStart : 0;
+      if (sending) {
+        metricRegistry.timer(sendTimerName(repo)).update(sendNanos, TimeUnit.NANOSECONDS);
+      }
+      slowRequestLog.record(repo.getName(), httpRequest.getMethod(), httpRequest.getRequestURI(),
+          response != null ? response.getAttributes().get(RequestTimings.class) : null, sendNanos, end - start);
+    }
+  }
+
+  private static String sendTimerName(final Repository repository) {
+    return name(ViewServlet.class, repository.getName(), "send");
+  }
 
-    HttpResponseSender sender = sender(repo);
-    log.debug("HTTP response sender: {}", sender);
-    sender.send(response, httpResponse);
+  /**
+   * Removes the timers of deleted repository.
+   */
+  @Subscribe
+  @AllowConcurrentEvents
+  public void on(final RepositoryDeletedEvent event) {
+    final Repository repository = event.getRepository();
+    log.debug("Removing metrics of deleted repository: {}", repository);
+    metricRegistry.remove(sendTimerName(repository));
+    Router.removeMetrics(repository);
   }
 
   /**
@@ -0,0 +1,79 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.httpbridge.internal;
+
+import java.util.concurrent.TimeUnit;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+
+/**
+ * Tests for {@link SlowRequestLog}.
+ */
+public class SlowRequestLogTest
+    extends TestSupport
+{
+  private final SlowRequestLog underTest = new SlowRequestLog();
+
+  private final long slowNanos = TimeUnit.MILLISECONDS.toNanos(underTest.getThresholdMillis());
+
+  // the meter of slow requests is shared by all logs
+  private final long initialCount = underTest.getSlowRequestCount();
+
+  @Test
+  public void fastRequestsAreNotRecorded() {
+    underTest.record("central", "GET", "/foo", null, 0, slowNanos - 1);
+
+    assertThat(underTest.getSlowRequestCount() - initialCount, equalTo(0L));
+    assertThat(underTest.getSlowRequests(), empty());
+  }
+
+  @Test
+  public void slowRequestsAreRecordedMostRecentFirst() {
+    underTest.record("central", "GET", "/foo", null, TimeUnit.MILLISECONDS.toNanos(10), slowNanos);
+    underTest.record("central", "PUT", "/bar", null, 0, slowNanos + TimeUnit.SECONDS.toNanos(1));
+
+    final long thresholdMillis = underTest.getThresholdMillis();
+    assertThat(underTest.getSlowRequestCount() - initialCount, equalTo(2L));
+    assertThat(underTest.getSlowRequests(), contains(
+        "PUT /bar: repository=central, total=" + (thresholdMillis + 1000) + "ms, send=0ms",
+        "GET /foo: repository=central, total=" + thresholdMillis + "ms, send=10ms"));
+  }
+
+  @Test
+  public void entriesAreBounded() {
+    for (int i = 0; i < 150; i++) {
+      underTest.record("central", "GET", "/foo/" + i, null, 0, slowNanos);
+    }
+
+    assertThat(underTest.getSlowRequests(), hasSize(100));
+    assertThat(underTest.getSlowRequests().get(0), equalTo(
+        "GET /foo/149: repository=central, total=" + underTest.getThresholdMillis() + "ms, send=0ms"));
+  }
+
+  @Test
+  public void clearKeepsCount() {
+    underTest.record("central", "GET", "/foo", null, 0, slowNanos);
+    underTest.clear();
+
+    assertThat(underTest.getSlowRequests(), empty());
+    assertThat(underTest.getSlowRequestCount() - initialCount, equalTo(1L));
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.webresources.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.Nullable;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
+import org.sonatype.nexus.webresources.WebResource;
+import org.sonatype.nexus.webresources.WebResource.Prepareable;
+import org.sonatype.sisu.goodies.common.ComponentSupport;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * In-memory cache of cacheable {@link WebResource} contents, along with their gzip compressed form and content hash.
+ * Content is read, hashed and compressed once, on first request of the resource, and is kept as long as the resource
+ * last modified timestamp does not change.
+ *
+ * Generated (prepareable), non-cacheable and large resources are not cached.
+ *
+ * @since 3.0
+ */
+@Named
+@Singleton
+public class WebResourceCache
+    extends ComponentSupport
+{
+  /**
+   * Maximum total size (in bytes) of cached content, plain and compressed summed.
+   */
+  private static final long MAX_BYTES = SystemPropertiesHelper.getLong(
+      WebResourceCache.class.getName() + ".maxBytes", 64L * 1024 * 1024);
+
+  /**
+   * Resources larger than this (in bytes) are not cached.
+   */
+  private static final long MAX_ENTRY_BYTES = SystemPropertiesHelper.getLong(
+      WebResourceCache.class.getName() + ".maxEntryBytes", 8L * 1024 * 1024);
+
+  private final Cache<String, Content> cache;
+
+  public WebResourceCache() {
+    this.cache = CacheBuilder.newBuilder()
+        .maximumWeight(MAX_BYTES)
+        .weigher(new Weigher<String, Content>()
+        {
+          @Override
+          public int weigh(final String path, final Content content) {
+            return content.getBytes().length + (content.getGzipBytes() != null ? content.getGzipBytes().length : 0);
+          }
+        })
+        .build();
+    log.debug("maxBytes={}, maxEntryBytes={}", MAX_BYTES, MAX_ENTRY_BYTES);
+  }
+
+  /**
+   * Returns the cached content of resource, loading it if needed, or {@code null} if resource is not cacheable.
+   */
+  @Nullable
+  public Content get(final WebResource resource) throws IOException {
+    checkNotNull(resource);
+    if (!resource.isCacheable() || resource instanceof Prepareable || resource.getSize() > MAX_ENTRY_BYTES) {
+      return null;
+    }
+    final Content cached = cache.getIfPresent(resource.getPath());
+    if (cached != null && cached.getLastModified() == resource.getLastModified()) {
+      return cached;
+    }
+
+    final byte[] bytes;
+    try (InputStream in = resource.getInputStream()) {
+      bytes = ByteStreams.toByteArray(in);
+    }
+    if (bytes.length > MAX_ENTRY_BYTES) {
+      return null;
+    }
+    final Content content = new Content(
+        resource.getContentType(),
+        resource.getLastModified(),
+        Hashing.sha1().hashBytes(bytes).toString(),
+        bytes,
+        isCompressible(resource.getContentType()) ? gzip(bytes) : null
+    );
+    cache.put(resource.getPath(), content);
+    log.trace("Cached: {}, {} bytes, gzip {} bytes", resource.getPath(), bytes.length,
+        content.getGzipBytes() != null ? content.getGzipBytes().length : -1);
+    return content;
+  }
+
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  private static boolean isCompressible(@Nullable final String contentType) {
+    if (contentType == null) {
+      return false;
+    }
+    return contentType.startsWith("text/")
+        || contentType.contains("javascript")
+        || contentType.contains("json")
+        || contentType.contains("xml");
+  }
+
+  /**
+   * Returns the gzip compressed bytes, or {@code null} if compression does not pay off.
+   */
+  @Nullable
+  private static byte[] gzip(final byte[] bytes) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 3 + 32);
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      gzip.write(bytes);
+    }
+    return out.size() < bytes.length ? out.toByteArray() : null;
+  }
+
+  /**
+   * Cached content of a web resource.
+   */
+  public static class Content
+  {
+    private final String contentType;
+
+    private final long lastModified;
+
+    private final String hash;
+
+    private final byte[] bytes;
+
+    private final byte[] gzipBytes;
+
+    private Content(@Nullable final String contentType,
+                    final long lastModified,
+                    final String hash,
+                    final byte[] bytes,
+                    @Nullable final byte[] gzipBytes)
+    {
+      this.contentType = contentType;
+      this.lastModified = lastModified;
+      this.hash = checkNotNull(hash);
+      this.bytes = checkNotNull(bytes);
+      this.gzipBytes = gzipBytes;
+    }
+
+    @Nullable
+    public String getContentType() {
+      return contentType;
+    }
+
+    public long getLastModified() {
+      return lastModified;
+    }
+
+    /**
+     * SHA1 of the (uncompressed) content.
+     */
+    public String getHash() {
+      return hash;
+    }
+
+    public byte[] getBytes() {
+      return bytes;
+    }
+
+    /**
+     * The gzip compressed content, or {@code null} if content is not compressible.
+     */
+    @Nullable
+    public byte[] getGzipBytes() {
+      return gzipBytes;
+    }
+  }
+}
@@ -13,6 +13,7 @@
 package org.sonatype.nexus.webresources.internal;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Collection;
@@ -59,18 +60,22 @@ public class WebResourceServiceImpl
 
   private final MimeSupport mimeSupport;
 
+  private final WebResourceCache webResourceCache;
+
   private final Map<String, WebResource> resourcePaths;
 
   @Inject
   public WebResourceServiceImpl(final List<WebResourceBundle> bundles,
                                 final List<WebResource> resources,
                                 final @Named("nexus") Provider<ServletContext> servletContextProvider,
-                                final MimeSupport mimeSupport)
+                                final MimeSupport mimeSupport,
+                                final WebResourceCache webResourceCache)
   {
     this.bundles = checkNotNull(bundles);
     this.resources = checkNotNull(resources);
     this.servletContextProvider = checkNotNull(servletContextProvider);
     this.mimeSupport = checkNotNull(mimeSupport);
+    this.webResourceCache = checkNotNull(webResourceCache);
     this.resourcePaths = Maps.newHashMap();
 
     discoverResources();
@@ -170,4 +175,20 @@ public class WebResourceServiceImpl
 
     return resource;
   }
+
+  @Override
+  public String getContentHash(final String path) {
+    WebResource resource = getResource(path);
+    if (resource == null) {
+      return null;
+    }
+    try {
+      WebResourceCache.Content content = webResourceCache.get(resource);
+      return content != null ? content.getHash() : null;
+    }
+    catch (IOException e) {
+      log.warn("Failed to hash resource: {}", path, e);
+      return null;
+    }
+  }
 }
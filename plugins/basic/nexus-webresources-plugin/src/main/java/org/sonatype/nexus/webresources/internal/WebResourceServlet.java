@@ -14,6 +14,9 @@ package org.sonatype.nexus.webresources.internal;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Priority;
 import javax.inject.Inject;
@@ -29,8 +32,11 @@ import org.sonatype.nexus.web.WebUtils;
 import org.sonatype.nexus.webresources.WebResource;
 import org.sonatype.nexus.webresources.WebResource.Prepareable;
 import org.sonatype.nexus.webresources.WebResourceService;
+import org.sonatype.nexus.webresources.internal.WebResourceCache.Content;
 import org.sonatype.sisu.goodies.common.Time;
 
+import com.google.common.net.HttpHeaders;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,10 +44,16 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static javax.servlet.http.HttpServletResponse.SC_NOT_FOUND;
 import static javax.servlet.http.HttpServletResponse.SC_NOT_MODIFIED;
+import static javax.servlet.http.HttpServletResponse.SC_PARTIAL_CONTENT;
+import static javax.servlet.http.HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE;
 
 /**
  * Provides access to resources via configured {@link WebResourceService}.
  *
+ * Cacheable resources are served from {@link WebResourceCache}, gzip compressed if client accepts it, with ETag (distinct
+ * per encoding) and support for conditional and (single) byte-range requests. Requests carrying the content hash of
+ * resource (see {@link WebResourceService#CONTENT_HASH_PARAMETER}) are served as immutable.
+ *
  * @since 2.8
  */
 @Priority(Integer.MIN_VALUE)
@@ -56,15 +68,21 @@ public class WebResourceServlet
 
   private final WebUtils webUtils;
 
+  private static final long IMMUTABLE_MAX_AGE_SECONDS = TimeUnit.DAYS.toSeconds(365);
+
+  private final WebResourceCache webResourceCache;
+
   private final long maxAgeSeconds;
 
   @Inject
   public WebResourceServlet(final WebResourceService webResources,
                             final WebUtils webUtils,
+                            final WebResourceCache webResourceCache,
                             final @Named("${nexus.webresources.maxAge:-30days}") Time maxAge)
   {
     this.webResources = checkNotNull(webResources);
     this.webUtils = checkNotNull(webUtils);
+    this.webResourceCache = checkNotNull(webResourceCache);
     this.maxAgeSeconds = checkNotNull(maxAge.toSeconds());
     log.info("Max-age: {} ({} seconds)", maxAge, maxAgeSeconds);
   }
@@ -114,6 +132,12 @@ public class WebResourceServlet
     }
     assert resource != null;
 
+    Content content = webResourceCache.get(resource);
+    if (content != null) {
+      serveContent(content, request, response);
+      return;
+    }
+
     String contentType = resource.getContentType();
     if (contentType == null) {
       contentType = WebResource.UNKNOWN_CONTENT_TYPE;
@@ -152,4 +176,207 @@ public class WebResourceServlet
       }
     }
   }
+
+  private void serveContent(final Content content,
+                            final HttpServletRequest request,
+                            final HttpServletResponse response)
+      throws IOException
+  {
+    String contentType = content.getContentType();
+    if (contentType == null) {
+      contentType = WebResource.UNKNOWN_CONTENT_TYPE;
+    }
+    // both variants have own strong ETag, as they differ byte-wise
+    String etag = etag(content.getHash(), false);
+    String gzipEtag = content.getGzipBytes() != null ? etag(content.getHash(), true) : null;
+
+    // ranges are served of identity encoding only
+    String range = request.getHeader(HttpHeaders.RANGE);
+    boolean ranged = range != null && isIfRangeSatisfied(request, content.getLastModified(), etag, gzipEtag);
+    boolean gzip = !ranged && gzipEtag != null && acceptsGzip(request);
+
+    response.setHeader("Content-Type", contentType);
+    response.setDateHeader("Last-Modified", content.getLastModified());
+    response.setHeader(HttpHeaders.ETAG, gzip ? gzipEtag : etag);
+    response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+    if (content.getGzipBytes() != null) {
+      response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    // URLs carrying the content hash will never change content
+    if (content.getHash().equals(request.getParameter(WebResourceService.CONTENT_HASH_PARAMETER))) {
+      response.setHeader("Cache-Control", "public, max-age=" + IMMUTABLE_MAX_AGE_SECONDS + ", immutable");
+    }
+    else {
+      response.setHeader("Cache-Control", "max-age=" + maxAgeSeconds);
+    }
+
+    // handle conditional GETs, if-none-match takes precedence over if-modified-since
+    String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+    if (ifNoneMatch != null) {
+      if (matchesEtag(ifNoneMatch, etag, gzipEtag)) {
+        response.setStatus(SC_NOT_MODIFIED);
+        return;
+      }
+    }
+    else {
+      long ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+      if (ifModifiedSince > -1 && content.getLastModified() <= ifModifiedSince) {
+        response.setStatus(SC_NOT_MODIFIED);
+        return;
+      }
+    }
+
+    byte[] bytes = content.getBytes();
+    int offset = 0;
+    int length = bytes.length;
+
+    if (ranged) {
+      long[] bounds = parseRange(range, bytes.length);
+      if (bounds != null && bounds.length == 0) {
+        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + bytes.length);
+        response.setStatus(SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        return;
+      }
+      if (bounds != null) {
+        offset = (int) bounds[0];
+        length = (int) (bounds[1] - bounds[0] + 1);
+        response.setStatus(SC_PARTIAL_CONTENT);
+        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + bounds[0] + "-" + bounds[1] + "/" + bytes.length);
+      }
+    }
+    else if (gzip) {
+      bytes = content.getGzipBytes();
+      length = bytes.length;
+      response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+    }
+    response.setHeader("Content-Length", String.valueOf(length));
+
+    // send the content only if needed (this method will be called for HEAD requests too)
+    if ("GET".equalsIgnoreCase(request.getMethod())) {
+      try (OutputStream out = response.getOutputStream()) {
+        out.write(bytes, offset, length);
+      }
+    }
+  }
+
+  private static String etag(final String hash, final boolean gzip) {
+    return "\"" + hash + (gzip ? "-gz" : "") + "\"";
+  }
+
+  /**
+   * Returns {@code true} if header lists any of passed in ETags (of which some may be {@code null}).
+   */
+  private static boolean matchesEtag(final String header, final String... etags) {
+    for (String candidate : header.split(",")) {
+      candidate = candidate.trim();
+      if (candidate.startsWith("W/")) {
+        candidate = candidate.substring(2);
+      }
+      if ("*".equals(candidate) || isAnyOf(candidate, etags)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Range applies if there is no If-Range, or it matches ETag of any variant or Last-Modified.
+   */
+  private static boolean isIfRangeSatisfied(final HttpServletRequest request, final long lastModified,
+                                            final String... etags)
+  {
+    String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+    if (ifRange == null) {
+      return true;
+    }
+    if (ifRange.startsWith("\"")) {
+      return isAnyOf(ifRange, etags);
+    }
+    try {
+      long date = request.getDateHeader(HttpHeaders.IF_RANGE);
+      // HTTP dates have seconds resolution
+      return date != -1 && lastModified / 1000 <= date / 1000;
+    }
+    catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  private static boolean isAnyOf(final String candidate, final String... etags) {
+    for (String etag : etags) {
+      if (candidate.equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Parses a single "bytes" range. Returns inclusive bounds, empty array if range is not satisfiable, or {@code null}
+   * if range is malformed or has multiple ranges (in which case the range header is ignored).
+   */
+  private static long[] parseRange(final String header, final long length) {
+    if (!header.startsWith("bytes=") || header.indexOf(',') != -1) {
+      return null;
+    }
+    String spec = header.substring("bytes=".length()).trim();
+    int dash = spec.indexOf('-');
+    if (dash == -1) {
+      return null;
+    }
+    try {
+      String first = spec.substring(0, dash).trim();
+      String last = spec.substring(dash + 1).trim();
+      long start;
+      long end;
+      if (first.isEmpty()) {
+        // suffix range: last N bytes
+        long suffix = Long.parseLong(last);
+        if (suffix <= 0) {
+          return new long[0];
+        }
+        start = Math.max(0, length - suffix);
+        end = length - 1;
+      }
+      else {
+        start = Long.parseLong(first);
+        end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+        if (end < start) {
+          return last.isEmpty() || Long.parseLong(last) >= start ? new long[0] : null;
+        }
+      }
+      if (start >= length) {
+        return new long[0];
+      }
+      return new long[]{start, end};
+    }
+    catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private static boolean acceptsGzip(final HttpServletRequest request) {
+    Enumeration<String> headers = request.getHeaders(HttpHeaders.ACCEPT_ENCODING);
+    while (headers != null && headers.hasMoreElements()) {
+      for (String coding : headers.nextElement().split(",")) {
+        String[] parts = coding.trim().split(";");
+        if ("gzip".equalsIgnoreCase(parts[0].trim())) {
+          for (int i = 1; i < parts.length; i++) {
+            String param = parts[i].trim();
+            if (param.startsWith("q=")) {
+              try {
+                return Double.parseDouble(param.substring(2)) > 0;
+              }
+              catch (NumberFormatException e) {
+                return false;
+              }
+            }
+          }
+          return true;
+        }
+      }
+    }
+    return false;
+  }
 }
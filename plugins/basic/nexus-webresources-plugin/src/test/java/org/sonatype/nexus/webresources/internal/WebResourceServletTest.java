@@ -0,0 +1,326 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.webresources.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.sonatype.nexus.web.WebUtils;
+import org.sonatype.nexus.webresources.WebResource;
+import org.sonatype.nexus.webresources.WebResourceService;
+import org.sonatype.sisu.goodies.common.Time;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.base.Strings;
+import com.google.common.io.ByteStreams;
+import com.google.common.net.HttpHeaders;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link WebResourceServlet} serving cached content.
+ */
+public class WebResourceServletTest
+    extends TestSupport
+{
+  private static final String PATH = "/static/app.css";
+
+  private static final byte[] CONTENT = Strings.repeat("body { color: red; }\n", 100).getBytes(StandardCharsets.UTF_8);
+
+  private static final long LAST_MODIFIED = 1420070400000L;
+
+  @Mock
+  private WebResourceService webResources;
+
+  @Mock
+  private WebUtils webUtils;
+
+  @Mock
+  private WebResource resource;
+
+  private WebResourceServlet underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    when(resource.getPath()).thenReturn(PATH);
+    when(resource.getContentType()).thenReturn(WebResource.CSS);
+    when(resource.getSize()).thenReturn((long) CONTENT.length);
+    when(resource.getLastModified()).thenReturn(LAST_MODIFIED);
+    when(resource.isCacheable()).thenReturn(true);
+    when(resource.getInputStream()).thenAnswer(new Answer<InputStream>()
+    {
+      @Override
+      public InputStream answer(final InvocationOnMock invocation) {
+        return new ByteArrayInputStream(CONTENT);
+      }
+    });
+    when(webResources.getResource(PATH)).thenReturn(resource);
+    underTest = new WebResourceServlet(webResources, webUtils, new WebResourceCache(), Time.days(30));
+  }
+
+  private HttpServletRequest request() {
+    final HttpServletRequest request = mock(HttpServletRequest.class);
+    when(request.getPathInfo()).thenReturn(PATH);
+    when(request.getMethod()).thenReturn("GET");
+    when(request.getDateHeader(anyString())).thenReturn(-1L);
+    return request;
+  }
+
+  /**
+   * Mock response, its body is written to passed in stream.
+   */
+  private HttpServletResponse response(final ByteArrayOutputStream body) throws IOException {
+    final HttpServletResponse response = mock(HttpServletResponse.class);
+    when(response.getOutputStream()).thenReturn(new ServletOutputStream()
+    {
+      @Override
+      public void write(final int b) {
+        body.write(b);
+      }
+
+      @Override
+      public boolean isReady() {
+        return true;
+      }
+
+      @Override
+      public void setWriteListener(final WriteListener writeListener) {
+        // nop
+      }
+    });
+    return response;
+  }
+
+  private String etag() throws Exception {
+    final HttpServletResponse response = response(new ByteArrayOutputStream());
+    underTest.doGet(request(), response);
+    final ArgumentCaptor<String> etag = ArgumentCaptor.forClass(String.class);
+    verify(response).setHeader(eq(HttpHeaders.ETAG), etag.capture());
+    return etag.getValue();
+  }
+
+  @Test
+  public void identityWhenGzipNotAccepted() throws Exception {
+    final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    final HttpServletResponse response = response(body);
+    underTest.doGet(request(), response);
+
+    verify(response, never()).setHeader(eq(HttpHeaders.CONTENT_ENCODING), anyString());
+    verify(response).setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    verify(response).setHeader("Content-Length", String.valueOf(CONTENT.length));
+    assertThat(body.toByteArray(), equalTo(CONTENT));
+  }
+
+  @Test
+  public void gzipWhenAccepted() throws Exception {
+    final HttpServletRequest request = request();
+    when(request.getHeaders(HttpHeaders.ACCEPT_ENCODING))
+        .thenReturn(Collections.enumeration(Collections.singletonList("deflate, gzip")));
+    final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    final HttpServletResponse response = response(body);
+    underTest.doGet(request, response);
+
+    verify(response).setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+    verify(response).setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    verify(response).setHeader("Content-Length", String.valueOf(body.size()));
+    assertThat(body.size() < CONTENT.length, is(true));
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body.toByteArray()))) {
+      assertThat(ByteStreams.toByteArray(in), equalTo(CONTENT));
+    }
+  }
+
+  @Test
+  public void gzipHasOwnEtag() throws Exception {
+    final String etag = etag();
+    final HttpServletRequest request = request();
+    when(request.getHeaders(HttpHeaders.ACCEPT_ENCODING))
+        .thenReturn(Collections.enumeration(Collections.singletonList("gzip")));
+    final HttpServletResponse response = response(new ByteArrayOutputStream());
+    underTest.doGet(request, response);
+
+    verify(response).setHeader(HttpHeaders.ETAG, etag.substring(0, etag.length() - 1) + "-gz\"");
+  }
+
+  @Test
+  public void identityWhenGzipRefused() throws Exception {
+    final HttpServletRequest request = request();
+    when(request.getHeaders(HttpHeaders.ACCEPT_ENCODING))
+        .thenReturn(Collections.enumeration(Collections.singletonList("gzip;q=0, identity")));
+    final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    final HttpServletResponse response = response(body);
+    underTest.doGet(request, response);
+
+    verify(response, never()).setHeader(eq(HttpHeaders.CONTENT_ENCODING), anyString());
+    assertThat(body.toByteArray(), equalTo(CONTENT));
+  }
+
+  @Test
+  public void notModifiedOnMatchingEtag() throws Exception {
+    final String etag = etag();
+    final HttpServletRequest request = request();
+    when(request.getHeader(HttpHeaders.IF_NONE_MATCH)).thenReturn("\"other\", " + etag);
+    final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    final HttpServletResponse response = response(body);
+    underTest.doGet(request, response);
+
+    verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    assertThat(body.size(), is(0));
+  }
+
+  @Test
+  public void notModifiedOnMatchingGzipEtag() throws Exception {
+    final String etag = etag();
+    final HttpServletRequest request = request();
+    when(request.getHeader(HttpHeaders.IF_NONE_MATCH)).thenReturn(etag.substring(0, etag.length() - 1) + "-gz\"");
+    final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    final HttpServletResponse response = response(body);
+    underTest.doGet(request, response);
+
+    verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    assertThat(body.size(), is(0));
+  }
+
+  @Test
+  public void modifiedOnOtherEtagDespiteDate() throws Exception {
+    final HttpServletRequest request = request();
+    when(request.getHeader(HttpHeaders.IF_NONE_MATCH)).thenReturn("\"other\"");
+    when(request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE)).thenReturn(LAST_MODIFIED);
+    final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    final HttpServletResponse response = response(body);
+    underTest.doGet(request, response);
+
+    verify(response, never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    assertThat(body.toByteArray(), equalTo(CONTENT));
+  }
+
+  @Test
+  public void notModifiedSince() throws Exception {
+    final HttpServletRequest request = request();
+    when(request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE)).thenReturn(LAST_MODIFIED);
+    final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    final HttpServletResponse response = response(body);
+    underTest.doGet(request, response);
+
+    verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    assertThat(body.size(), is(0));
+  }
+
+  @Test
+  public void partialContent() throws Exception {
+    final HttpServletRequest request = request();
+    when(request.getHeader(HttpHeaders.RANGE)).thenReturn("bytes=5-9");
+    // ranges are of identity encoding
+    when(request.getHeaders(HttpHeaders.ACCEPT_ENCODING))
+        .thenReturn(Collections.enumeration(Collections.singletonList("gzip")));
+    final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    final HttpServletResponse response = response(body);
+    underTest.doGet(request, response);
+
+    verify(response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+    verify(response).setHeader(HttpHeaders.CONTENT_RANGE, "bytes 5-9/" + CONTENT.length);
+    verify(response).setHeader("Content-Length", "5");
+    verify(response, never()).setHeader(eq(HttpHeaders.CONTENT_ENCODING), anyString());
+    assertThat(body.toString("UTF-8"), equalTo("{ col"));
+  }
+
+  @Test
+  public void partialContentOfSuffix() throws Exception {
+    final HttpServletRequest request = request();
+    when(request.getHeader(HttpHeaders.RANGE)).thenReturn("bytes=-3");
+    final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    final HttpServletResponse response = response(body);
+    underTest.doGet(request, response);
+
+    verify(response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+    verify(response).setHeader(HttpHeaders.CONTENT_RANGE,
+        "bytes " + (CONTENT.length - 3) + "-" + (CONTENT.length - 1) + "/" + CONTENT.length);
+    assertThat(body.toString("UTF-8"), equalTo(" }\n"));
+  }
+
+  @Test
+  public void rangeNotSatisfiable() throws Exception {
+    final HttpServletRequest request = request();
+    when(request.getHeader(HttpHeaders.RANGE)).thenReturn("bytes=" + CONTENT.length + "-");
+    final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    final HttpServletResponse response = response(body);
+    underTest.doGet(request, response);
+
+    verify(response).setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+    verify(response).setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + CONTENT.length);
+    assertThat(body.size(), is(0));
+  }
+
+  @Test
+  public void rangeIgnoredOnIfRangeMismatch() throws Exception {
+    final HttpServletRequest request = request();
+    when(request.getHeader(HttpHeaders.RANGE)).thenReturn("bytes=5-9");
+    when(request.getHeader(HttpHeaders.IF_RANGE)).thenReturn("\"other\"");
+    final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    final HttpServletResponse response = response(body);
+    underTest.doGet(request, response);
+
+    verify(response, never()).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+    assertThat(body.toByteArray(), equalTo(CONTENT));
+  }
+
+  @Test
+  public void partialContentOnIfRangeOfGzipEtag() throws Exception {
+    final String etag = etag();
+    final HttpServletRequest request = request();
+    when(request.getHeader(HttpHeaders.RANGE)).thenReturn("bytes=5-9");
+    when(request.getHeader(HttpHeaders.IF_RANGE)).thenReturn(etag.substring(0, etag.length() - 1) + "-gz\"");
+    final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    final HttpServletResponse response = response(body);
+    underTest.doGet(request, response);
+
+    verify(response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+    verify(response).setHeader(HttpHeaders.ETAG, etag);
+    assertThat(body.toString("UTF-8"), equalTo("{ col"));
+  }
+
+  @Test
+  public void immutableWithContentHash() throws Exception {
+    final String etag = etag();
+    final HttpServletRequest request = request();
+    when(request.getParameter(WebResourceService.CONTENT_HASH_PARAMETER))
+        .thenReturn(etag.substring(1, etag.length() - 1));
+    final HttpServletResponse response = response(new ByteArrayOutputStream());
+    underTest.doGet(request, response);
+
+    verify(response).setHeader("Cache-Control", "public, max-age=31536000, immutable");
+  }
+}
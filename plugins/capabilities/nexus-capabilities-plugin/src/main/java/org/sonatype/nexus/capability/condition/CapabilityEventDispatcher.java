@@ -0,0 +1,137 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.capability.condition;
+
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.nexus.capability.CapabilityContext;
+import org.sonatype.nexus.capability.CapabilityEvent;
+import org.sonatype.nexus.capability.CapabilityIdentity;
+import org.sonatype.nexus.capability.CapabilityType;
+import org.sonatype.sisu.goodies.common.ComponentSupport;
+import org.sonatype.sisu.goodies.eventbus.EventBus;
+
+import com.google.common.collect.Maps;
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.Subscribe;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Dispatches {@link CapabilityEvent}s only to the conditions depending on the capability an event is about: those
+ * registered for its type, and those registered for the capability itself. As opposed to each condition subscribing
+ * to event bus, a change of one capability does not re-evaluate the conditions of all other capabilities.
+ *
+ * Listeners receive events via their {@link Subscribe} annotated methods, same as they would from event bus.
+ *
+ * @since 3.0
+ */
+@Named
+@Singleton
+public class CapabilityEventDispatcher
+    extends ComponentSupport
+{
+  private final EventBus eventBus;
+
+  private final Map<Object, Listeners> listeners = Maps.newHashMap();
+
+  private boolean subscribed;
+
+  private static class Listeners
+  {
+    private final com.google.common.eventbus.EventBus bus;
+
+    private int count;
+
+    private Listeners(final Object key) {
+      this.bus = new com.google.common.eventbus.EventBus(key.toString());
+    }
+  }
+
+  @Inject
+  public CapabilityEventDispatcher(final EventBus eventBus) {
+    this.eventBus = checkNotNull(eventBus);
+  }
+
+  /**
+   * Registers listener for events of capabilities of given type.
+   */
+  public void register(final CapabilityType type, final Object listener) {
+    doRegister(checkNotNull(type), checkNotNull(listener));
+  }
+
+  /**
+   * Registers listener for events of capability with given identity.
+   */
+  public void register(final CapabilityIdentity id, final Object listener) {
+    doRegister(checkNotNull(id), checkNotNull(listener));
+  }
+
+  public void unregister(final CapabilityType type, final Object listener) {
+    doUnregister(checkNotNull(type), checkNotNull(listener));
+  }
+
+  public void unregister(final CapabilityIdentity id, final Object listener) {
+    doUnregister(checkNotNull(id), checkNotNull(listener));
+  }
+
+  @AllowConcurrentEvents
+  @Subscribe
+  public void dispatch(final CapabilityEvent event) {
+    final CapabilityContext context = event.getReference().context();
+    post(context.type(), event);
+    post(context.id(), event);
+  }
+
+  private synchronized void doRegister(final Object key, final Object listener) {
+    if (!subscribed) {
+      // lazily, as conditions are bound only once event bus is up
+      eventBus.register(this);
+      subscribed = true;
+    }
+    Listeners keyListeners = listeners.get(key);
+    if (keyListeners == null) {
+      keyListeners = new Listeners(key);
+      listeners.put(key, keyListeners);
+    }
+    keyListeners.bus.register(listener);
+    keyListeners.count++;
+  }
+
+  private synchronized void doUnregister(final Object key, final Object listener) {
+    final Listeners keyListeners = listeners.get(key);
+    if (keyListeners != null) {
+      keyListeners.bus.unregister(listener);
+      if (--keyListeners.count == 0) {
+        listeners.remove(key);
+      }
+    }
+  }
+
+  private void post(final Object key, final CapabilityEvent event) {
+    if (key == null) {
+      return;
+    }
+    final Listeners keyListeners;
+    synchronized (this) {
+      keyListeners = listeners.get(key);
+    }
+    if (keyListeners != null) {
+      keyListeners.bus.post(event);
+    }
+  }
+}
@@ -22,6 +22,7 @@ import org.sonatype.sisu.goodies.eventbus.EventBus;
 import com.google.common.eventbus.AllowConcurrentEvents;
 import com.google.common.eventbus.Subscribe;
 
+import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
 /**
@@ -34,14 +35,17 @@ public class CapabilityHasNoFailures
     implements CapabilityContextAware
 {
 
+  private final CapabilityEventDispatcher eventDispatcher;
+
   private CapabilityContext context;
 
   private String failingAction;
 
   private Exception failure;
 
-  public CapabilityHasNoFailures(final EventBus eventBus) {
+  public CapabilityHasNoFailures(final EventBus eventBus, final CapabilityEventDispatcher eventDispatcher) {
     super(eventBus);
+    this.eventDispatcher = checkNotNull(eventDispatcher);
   }
 
   @Override
@@ -56,7 +60,7 @@ public class CapabilityHasNoFailures
   @Override
   protected void doBind() {
     checkState(context != null, "Not yet contextualized");
-    getEventBus().register(this);
+    eventDispatcher.register(context.id(), this);
     failingAction = context.failingAction();
     failure = context.failure();
     setSatisfied(failure == null);
@@ -64,7 +68,7 @@ public class CapabilityHasNoFailures
 
   @Override
   public void doRelease() {
-    getEventBus().unregister(this);
+    eventDispatcher.unregister(context.id(), this);
   }
 
   @AllowConcurrentEvents
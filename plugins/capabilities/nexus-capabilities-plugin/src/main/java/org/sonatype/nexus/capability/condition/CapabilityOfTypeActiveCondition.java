@@ -32,11 +32,12 @@ public class CapabilityOfTypeActiveCondition
 {
 
   public CapabilityOfTypeActiveCondition(final EventBus eventBus,
+                                         final CapabilityEventDispatcher eventDispatcher,
                                          final CapabilityDescriptorRegistry descriptorRegistry,
                                          final CapabilityRegistry capabilityRegistry,
                                          final CapabilityType type)
   {
-    super(eventBus, descriptorRegistry, capabilityRegistry, type);
+    super(eventBus, eventDispatcher, descriptorRegistry, capabilityRegistry, type);
   }
 
   @Override
@@ -27,9 +27,11 @@ import com.google.common.eventbus.AllowConcurrentEvents;
 import com.google.common.eventbus.Subscribe;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static org.sonatype.nexus.capability.support.CapabilityReferenceFilterBuilder.capabilities;
 
 /**
- * A condition that is satisfied when a capability of a specified type exists.
+ * A condition that is satisfied when a capability of a specified type exists. It gets events of capabilities of
+ * specified type only (see {@link CapabilityEventDispatcher}), and looks up them by type.
  *
  * @since capabilities 2.0
  */
@@ -37,6 +39,8 @@ public class CapabilityOfTypeExistsCondition
     extends ConditionSupport
 {
 
+  private final CapabilityEventDispatcher eventDispatcher;
+
   private final CapabilityRegistry capabilityRegistry;
 
   private final ReentrantReadWriteLock bindLock;
@@ -46,11 +50,13 @@ public class CapabilityOfTypeExistsCondition
   final String typeName;
 
   public CapabilityOfTypeExistsCondition(final EventBus eventBus,
+                                         final CapabilityEventDispatcher eventDispatcher,
                                          final CapabilityDescriptorRegistry descriptorRegistry,
                                          final CapabilityRegistry capabilityRegistry,
                                          final CapabilityType type)
   {
     super(eventBus);
+    this.eventDispatcher = checkNotNull(eventDispatcher);
     this.capabilityRegistry = checkNotNull(capabilityRegistry);
     this.type = checkNotNull(type);
     final CapabilityDescriptor descriptor = checkNotNull(descriptorRegistry).get(type);
@@ -62,19 +68,17 @@ public class CapabilityOfTypeExistsCondition
   protected void doBind() {
     try {
       bindLock.writeLock().lock();
-      for (final CapabilityReference reference : capabilityRegistry.getAll()) {
-        handle(new CapabilityEvent.Created(capabilityRegistry, reference));
-      }
+      checkAllCapabilities();
     }
     finally {
       bindLock.writeLock().unlock();
     }
-    getEventBus().register(this);
+    eventDispatcher.register(type, this);
   }
 
   @Override
   public void doRelease() {
-    getEventBus().unregister(this);
+    eventDispatcher.unregister(type, this);
   }
 
   @AllowConcurrentEvents
@@ -94,7 +98,7 @@ public class CapabilityOfTypeExistsCondition
   }
 
   void checkAllCapabilities() {
-    for (final CapabilityReference ref : capabilityRegistry.getAll()) {
+    for (final CapabilityReference ref : capabilityRegistry.get(capabilities().withType(type).includeNotExposed())) {
       if (isSatisfiedBy(ref)) {
         setSatisfied(true);
         return;
@@ -37,14 +37,18 @@ public class EvaluableCondition
     implements CapabilityContextAware
 {
 
+  private final CapabilityEventDispatcher eventDispatcher;
+
   private CapabilityIdentity capabilityIdentity;
 
   private final Evaluable evaluable;
 
   public EvaluableCondition(final EventBus eventBus,
+                            final CapabilityEventDispatcher eventDispatcher,
                             final Evaluable evaluable)
   {
     super(eventBus, false);
+    this.eventDispatcher = checkNotNull(eventDispatcher);
     this.evaluable = checkNotNull(evaluable);
   }
 
@@ -60,13 +64,13 @@ public class EvaluableCondition
   @Override
   protected void doBind() {
     checkState(capabilityIdentity != null, "Capability identity not specified");
-    getEventBus().register(this);
+    eventDispatcher.register(capabilityIdentity, this);
     setSatisfied(evaluable.isSatisfied());
   }
 
   @Override
   public void doRelease() {
-    getEventBus().unregister(this);
+    eventDispatcher.unregister(capabilityIdentity, this);
   }
 
   @AllowConcurrentEvents
@@ -22,6 +22,7 @@ import org.sonatype.sisu.goodies.eventbus.EventBus;
 import com.google.common.eventbus.AllowConcurrentEvents;
 import com.google.common.eventbus.Subscribe;
 
+import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
 /**
@@ -35,14 +36,18 @@ public class PassivateCapabilityDuringUpdateCondition
     implements CapabilityContextAware
 {
 
+  private final CapabilityEventDispatcher eventDispatcher;
+
   private CapabilityIdentity id;
 
   private final String[] propertyNames;
 
   public PassivateCapabilityDuringUpdateCondition(final EventBus eventBus,
+                                                  final CapabilityEventDispatcher eventDispatcher,
                                                   final String... propertyNames)
   {
     super(eventBus, true);
+    this.eventDispatcher = checkNotNull(eventDispatcher);
     this.propertyNames = propertyNames == null || propertyNames.length == 0 ? null : propertyNames;
   }
 
@@ -58,12 +63,12 @@ public class PassivateCapabilityDuringUpdateCondition
   @Override
   protected void doBind() {
     checkState(id != null, "Capability identity not specified");
-    getEventBus().register(this);
+    eventDispatcher.register(id, this);
   }
 
   @Override
   public void doRelease() {
-    getEventBus().unregister(this);
+    eventDispatcher.unregister(id, this);
   }
 
   @AllowConcurrentEvents
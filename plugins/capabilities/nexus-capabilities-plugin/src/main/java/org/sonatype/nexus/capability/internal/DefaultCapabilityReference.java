@@ -352,7 +352,10 @@ public class DefaultCapabilityReference
     }
   }
 
-  private void setFailure(final String action, final Exception e) {
+  /**
+   * Records a failure of given action, making capability not satisfy its {@code CapabilityHasNoFailures} condition.
+   */
+  void setFailure(final String action, final Exception e) {
     try {
       stateLock.writeLock().lock();
       failure = checkNotNull(e);
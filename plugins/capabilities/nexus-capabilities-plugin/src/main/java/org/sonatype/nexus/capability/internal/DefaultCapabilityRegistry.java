@@ -15,10 +15,15 @@ package org.sonatype.nexus.capability.internal;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -42,19 +47,29 @@ import org.sonatype.nexus.capability.Validator;
 import org.sonatype.nexus.capability.ValidatorRegistry;
 import org.sonatype.nexus.capability.internal.storage.CapabilityStorage;
 import org.sonatype.nexus.capability.internal.storage.CapabilityStorageItem;
+import org.sonatype.nexus.capability.support.CapabilityReferenceFilterBuilder.CapabilityReferenceFilter;
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
 import org.sonatype.nexus.common.validation.ValidationMessage;
 import org.sonatype.nexus.common.validation.ValidationResponse;
 import org.sonatype.nexus.common.validation.ValidationResponseException;
 import org.sonatype.nexus.configuration.PasswordHelper;
 import org.sonatype.nexus.formfields.Encrypted;
 import org.sonatype.nexus.formfields.FormField;
+import org.sonatype.nexus.threads.NexusExecutorService;
+import org.sonatype.nexus.threads.NexusThreadFactory;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 import org.sonatype.sisu.goodies.eventbus.EventBus;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Predicate;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Collections2;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.lang.String.format;
@@ -63,6 +78,9 @@ import static org.sonatype.nexus.capability.CapabilityType.capabilityType;
 
 /**
  * Default {@link CapabilityRegistry} implementation.
+ *
+ * Registered capabilities are kept in an immutable snapshot (indexed by id, type and property values) that is
+ * replaced on every change, so lookups do not need to lock. Changes are serialized.
  */
 @Singleton
 @Named
@@ -70,6 +88,13 @@ public class DefaultCapabilityRegistry
     extends ComponentSupport
     implements CapabilityRegistry
 {
+  /**
+   * Number of threads used to activate capabilities on load. Set to 1 to activate them sequentially.
+   */
+  private static final int LOAD_THREADS = SystemPropertiesHelper.getInteger(
+      DefaultCapabilityRegistry.class.getName() + ".loadThreads",
+      Math.min(4, Runtime.getRuntime().availableProcessors())
+  );
 
   private final CapabilityStorage capabilityStorage;
 
@@ -87,9 +112,11 @@ public class DefaultCapabilityRegistry
 
   private final PasswordHelper passwordHelper;
 
-  private final Map<CapabilityIdentity, DefaultCapabilityReference> references;
+  private volatile Snapshot snapshot;
+
+  private int loadThreads = LOAD_THREADS;
 
-  private final ReentrantReadWriteLock lock;
+  private final ReentrantLock lock;
 
   @Inject
   DefaultCapabilityRegistry(final CapabilityStorage capabilityStorage,
@@ -110,8 +137,8 @@ public class DefaultCapabilityRegistry
     this.validityConditionHandlerFactory = checkNotNull(validityConditionHandlerFactory);
     this.passwordHelper = checkNotNull(passwordHelper);
 
-    references = new HashMap<CapabilityIdentity, DefaultCapabilityReference>();
-    lock = new ReentrantReadWriteLock();
+    snapshot = new Snapshot(Collections.<CapabilityIdentity, DefaultCapabilityReference>emptyMap());
+    lock = new ReentrantLock();
   }
 
   @Override
@@ -122,7 +149,7 @@ public class DefaultCapabilityRegistry
       throws IOException
   {
     try {
-      lock.writeLock().lock();
+      lock.lock();
 
       final Map<String, String> props = properties == null ? Maps.<String, String>newHashMap() : properties;
 
@@ -144,6 +171,8 @@ public class DefaultCapabilityRegistry
 
       reference.setNotes(notes);
       reference.create(props);
+      // index created properties
+      publish(snapshot.references);
       if (enabled) {
         reference.enable();
         reference.activate();
@@ -152,7 +181,7 @@ public class DefaultCapabilityRegistry
       return reference;
     }
     finally {
-      lock.writeLock().unlock();
+      lock.unlock();
     }
   }
 
@@ -164,7 +193,7 @@ public class DefaultCapabilityRegistry
       throws IOException
   {
     try {
-      lock.writeLock().lock();
+      lock.lock();
 
       final Map<String, String> props = properties == null ? Maps.<String, String>newHashMap() : properties;
 
@@ -193,11 +222,13 @@ public class DefaultCapabilityRegistry
         reference.enable();
         reference.activate();
       }
+      // properties changed, reindex
+      publish(snapshot.references);
 
       return reference;
     }
     finally {
-      lock.writeLock().unlock();
+      lock.unlock();
     }
   }
 
@@ -206,21 +237,24 @@ public class DefaultCapabilityRegistry
       throws IOException
   {
     try {
-      lock.writeLock().lock();
+      lock.lock();
 
       validateId(id);
 
       capabilityStorage.remove(id);
       log.debug("Removed capability with '{}'", id);
 
+      final Map<CapabilityIdentity, DefaultCapabilityReference> references =
+          new LinkedHashMap<CapabilityIdentity, DefaultCapabilityReference>(snapshot.references);
       final DefaultCapabilityReference reference = references.remove(id);
+      publish(references);
       if (reference != null) {
         reference.remove();
       }
       return reference;
     }
     finally {
-      lock.writeLock().unlock();
+      lock.unlock();
     }
   }
 
@@ -229,7 +263,7 @@ public class DefaultCapabilityRegistry
       throws IOException
   {
     try {
-      lock.writeLock().lock();
+      lock.lock();
 
       validateId(id);
 
@@ -237,7 +271,7 @@ public class DefaultCapabilityRegistry
       return update(reference.context().id(), true, reference.notes(), reference.properties());
     }
     finally {
-      lock.writeLock().unlock();
+      lock.unlock();
     }
   }
 
@@ -246,7 +280,7 @@ public class DefaultCapabilityRegistry
       throws IOException
   {
     try {
-      lock.writeLock().lock();
+      lock.lock();
 
       validateId(id);
 
@@ -254,42 +288,49 @@ public class DefaultCapabilityRegistry
       return update(reference.context().id(), false, reference.notes(), reference.properties());
     }
     finally {
-      lock.writeLock().unlock();
+      lock.unlock();
     }
   }
 
   @Override
   public DefaultCapabilityReference get(final CapabilityIdentity id) {
-    try {
-      lock.readLock().lock();
-
-      return references.get(id);
-    }
-    finally {
-      lock.readLock().unlock();
-    }
+    return snapshot.references.get(id);
   }
 
+  /**
+   * Filters all capabilities, or if filter is a {@link CapabilityReferenceFilter}, only the capabilities
+   * having the filtered type / property values (as found via indexes).
+   */
   @Override
   public Collection<DefaultCapabilityReference> get(final Predicate<CapabilityReference> filter) {
-    return unmodifiableCollection(Collections2.filter(getAll(), filter));
+    final Snapshot current = snapshot;
+    Collection<DefaultCapabilityReference> candidates = current.references.values();
+    if (filter instanceof CapabilityReferenceFilter) {
+      final CapabilityReferenceFilter referenceFilter = (CapabilityReferenceFilter) filter;
+      if (referenceFilter.getTypeId() != null) {
+        candidates = current.byType.get(referenceFilter.getTypeId());
+      }
+      for (Entry<String, String> property : referenceFilter.getProperties().entrySet()) {
+        if (property.getKey() != null && property.getValue() != null) {
+          final Collection<DefaultCapabilityReference> withProperty = current.byProperty.get(property);
+          if (withProperty.size() < candidates.size()) {
+            candidates = withProperty;
+          }
+        }
+      }
+    }
+    return unmodifiableCollection(Lists.newArrayList(Collections2.filter(candidates, filter)));
   }
 
   @Override
   public Collection<DefaultCapabilityReference> getAll() {
-    try {
-      lock.readLock().lock();
-
-      return references.values();
-    }
-    finally {
-      lock.readLock().unlock();
-    }
+    return snapshot.references.values();
   }
 
   public void load()
       throws IOException
   {
+    final List<DefaultCapabilityReference> toActivate = Lists.newArrayList();
     final Map<CapabilityIdentity, CapabilityStorageItem> items = capabilityStorage.getAll();
     for (final Map.Entry<CapabilityIdentity, CapabilityStorageItem> entry : items.entrySet()) {
       CapabilityIdentity id = entry.getKey();
@@ -347,11 +388,79 @@ public class DefaultCapabilityRegistry
       reference.setNotes(item.getNotes());
       reference.load(properties);
       if (item.isEnabled()) {
+        toActivate.add(reference);
+      }
+    }
+    // index loaded properties
+    publish(snapshot.references);
+    activate(toActivate);
+    eventBus.post(new AfterLoad(this));
+  }
+
+  /**
+   * Enables and activates loaded capabilities, in parallel if there is more then one load thread. Capabilities
+   * depending on each other are activated by their conditions, regardless of activation order. Activating threads
+   * use the subject and context class loader of loading thread, as capabilities would when activated sequentially.
+   */
+  private void activate(final List<DefaultCapabilityReference> references) {
+    if (loadThreads <= 1 || references.size() <= 1) {
+      for (DefaultCapabilityReference reference : references) {
         reference.enable();
         reference.activate();
       }
+      return;
     }
-    eventBus.post(new AfterLoad(this));
+    final ExecutorService executor = NexusExecutorService.forCurrentSubject(Executors.newFixedThreadPool(
+        Math.min(loadThreads, references.size()), new NexusThreadFactory("capabilities", "Capability activation")
+    ));
+    final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+    try {
+      final List<Future<?>> futures = Lists.newArrayListWithCapacity(references.size());
+      for (final DefaultCapabilityReference reference : references) {
+        futures.add(executor.submit(new Runnable()
+        {
+          @Override
+          public void run() {
+            final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            Thread.currentThread().setContextClassLoader(contextClassLoader);
+            try {
+              reference.enable();
+              reference.activate();
+            }
+            finally {
+              Thread.currentThread().setContextClassLoader(classLoader);
+            }
+          }
+        }));
+      }
+      for (int i = 0; i < futures.size(); i++) {
+        try {
+          futures.get(i).get();
+        }
+        catch (ExecutionException e) {
+          // record on capability, same as a failing capability callback would be, so it is visible in its status
+          final Throwable cause = e.getCause();
+          if (!(cause instanceof Exception)) {
+            throw Throwables.propagate(cause);
+          }
+          references.get(i).setFailure("Activate", (Exception) cause);
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new RuntimeException("Interrupted while activating capabilities", e);
+        }
+      }
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Replaces the snapshot with one containing given references.
+   */
+  private void publish(final Map<CapabilityIdentity, DefaultCapabilityReference> references) {
+    snapshot = new Snapshot(references);
   }
 
   private DefaultCapabilityReference create(final CapabilityIdentity id,
@@ -367,7 +476,10 @@ public class DefaultCapabilityRegistry
 
     final DefaultCapabilityReference reference = createReference(id, type, descriptor, capability);
 
+    final Map<CapabilityIdentity, DefaultCapabilityReference> references =
+        new LinkedHashMap<CapabilityIdentity, DefaultCapabilityReference>(snapshot.references);
     references.put(id, reference);
+    publish(references);
 
     log.debug("Created capability '{}'", capability);
 
@@ -376,6 +488,11 @@ public class DefaultCapabilityRegistry
     return reference;
   }
 
+  @VisibleForTesting
+  void setLoadThreads(final int loadThreads) {
+    this.loadThreads = loadThreads;
+  }
+
   @VisibleForTesting
   DefaultCapabilityReference createReference(final CapabilityIdentity id,
                                              final CapabilityType type,
@@ -505,4 +622,38 @@ public class DefaultCapabilityRegistry
     return decrypted;
   }
 
+  /**
+   * Immutable view of registered capabilities, indexed by type and by property values.
+   */
+  private static class Snapshot
+  {
+    private final Map<CapabilityIdentity, DefaultCapabilityReference> references;
+
+    private final ListMultimap<String, DefaultCapabilityReference> byType;
+
+    private final SetMultimap<Entry<String, String>, DefaultCapabilityReference> byProperty;
+
+    private Snapshot(final Map<CapabilityIdentity, DefaultCapabilityReference> references) {
+      this.references = Collections.unmodifiableMap(
+          new LinkedHashMap<CapabilityIdentity, DefaultCapabilityReference>(references)
+      );
+      final ImmutableListMultimap.Builder<String, DefaultCapabilityReference> byType =
+          ImmutableListMultimap.builder();
+      final ImmutableSetMultimap.Builder<Entry<String, String>, DefaultCapabilityReference> byProperty =
+          ImmutableSetMultimap.builder();
+      for (DefaultCapabilityReference reference : this.references.values()) {
+        byType.put(reference.type().toString(), reference);
+        final Map<String, String> properties = reference.properties();
+        if (properties != null) {
+          for (Entry<String, String> property : properties.entrySet()) {
+            if (property.getKey() != null && property.getValue() != null) {
+              byProperty.put(Maps.immutableEntry(property.getKey(), property.getValue()), reference);
+            }
+          }
+        }
+      }
+      this.byType = byType.build();
+      this.byProperty = byProperty.build();
+    }
+  }
 }
@@ -12,6 +12,7 @@
  */
 package org.sonatype.nexus.capability.support;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -95,6 +96,21 @@ public class CapabilityReferenceFilterBuilder
       return this;
     }
 
+    /**
+     * @since 3.0
+     */
+    public String getTypeId() {
+      return typeId;
+    }
+
+    /**
+     * @return filtered properties (a {@code null} value means property should be present with any value)
+     * @since 3.0
+     */
+    public Map<String, String> getProperties() {
+      return Collections.unmodifiableMap(properties);
+    }
+
     @Override
     public boolean apply(final CapabilityReference input) {
       if (input == null) {
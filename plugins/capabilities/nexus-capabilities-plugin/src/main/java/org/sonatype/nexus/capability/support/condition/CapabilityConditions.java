@@ -21,6 +21,7 @@ import org.sonatype.nexus.capability.CapabilityRegistry;
 import org.sonatype.nexus.capability.CapabilityType;
 import org.sonatype.nexus.capability.Condition;
 import org.sonatype.nexus.capability.Evaluable;
+import org.sonatype.nexus.capability.condition.CapabilityEventDispatcher;
 import org.sonatype.nexus.capability.condition.CapabilityHasNoFailures;
 import org.sonatype.nexus.capability.condition.CapabilityOfTypeActiveCondition;
 import org.sonatype.nexus.capability.condition.CapabilityOfTypeExistsCondition;
@@ -44,16 +45,20 @@ public class CapabilityConditions
 
   private final EventBus eventBus;
 
+  private final CapabilityEventDispatcher eventDispatcher;
+
   private final CapabilityDescriptorRegistry descriptorRegistry;
 
   @Inject
   public CapabilityConditions(final EventBus eventBus,
+                              final CapabilityEventDispatcher eventDispatcher,
                               final CapabilityDescriptorRegistry descriptorRegistry,
                               final CapabilityRegistry capabilityRegistry)
   {
     this.descriptorRegistry = checkNotNull(descriptorRegistry);
     this.capabilityRegistry = checkNotNull(capabilityRegistry);
     this.eventBus = checkNotNull(eventBus);
+    this.eventDispatcher = checkNotNull(eventDispatcher);
   }
 
   /**
@@ -63,7 +68,7 @@ public class CapabilityConditions
    * @return created condition
    */
   public Condition capabilityOfTypeExists(final CapabilityType type) {
-    return new CapabilityOfTypeExistsCondition(eventBus, descriptorRegistry, capabilityRegistry, type);
+    return new CapabilityOfTypeExistsCondition(eventBus, eventDispatcher, descriptorRegistry, capabilityRegistry, type);
   }
 
   /**
@@ -74,7 +79,7 @@ public class CapabilityConditions
    * @return created condition
    */
   public Condition capabilityOfTypeActive(final CapabilityType type) {
-    return new CapabilityOfTypeActiveCondition(eventBus, descriptorRegistry, capabilityRegistry, type);
+    return new CapabilityOfTypeActiveCondition(eventBus, eventDispatcher, descriptorRegistry, capabilityRegistry, type);
   }
 
   /**
@@ -84,7 +89,7 @@ public class CapabilityConditions
    * @return created condition
    */
   public Condition passivateCapabilityDuringUpdate() {
-    return new PassivateCapabilityDuringUpdateCondition(eventBus);
+    return new PassivateCapabilityDuringUpdateCondition(eventBus, eventDispatcher);
   }
 
   /**
@@ -95,7 +100,7 @@ public class CapabilityConditions
    * @return created condition
    */
   public Condition passivateCapabilityWhenPropertyChanged(final String... propertyNames) {
-    return new PassivateCapabilityDuringUpdateCondition(eventBus, propertyNames);
+    return new PassivateCapabilityDuringUpdateCondition(eventBus, eventDispatcher, propertyNames);
   }
 
   /**
@@ -105,7 +110,7 @@ public class CapabilityConditions
    * @since 2.7
    */
   public Condition capabilityHasNoFailures() {
-    return new CapabilityHasNoFailures(eventBus);
+    return new CapabilityHasNoFailures(eventBus, eventDispatcher);
   }
 
   /**
@@ -116,7 +121,7 @@ public class CapabilityConditions
    * @return created condition
    */
   public Condition evaluable(final Evaluable condition) {
-    return new EvaluableCondition(eventBus, condition);
+    return new EvaluableCondition(eventBus, eventDispatcher, condition);
   }
 
 }
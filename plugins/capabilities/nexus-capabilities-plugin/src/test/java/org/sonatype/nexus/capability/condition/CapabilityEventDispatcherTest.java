@@ -0,0 +1,125 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.capability.condition;
+
+import java.util.List;
+
+import org.sonatype.nexus.capability.CapabilityContext;
+import org.sonatype.nexus.capability.CapabilityEvent;
+import org.sonatype.nexus.capability.CapabilityReference;
+import org.sonatype.nexus.capability.CapabilityRegistry;
+import org.sonatype.sisu.goodies.eventbus.EventBus;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.collect.Lists;
+import com.google.common.eventbus.Subscribe;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sonatype.nexus.capability.CapabilityIdentity.capabilityIdentity;
+import static org.sonatype.nexus.capability.CapabilityType.capabilityType;
+
+/**
+ * {@link CapabilityEventDispatcher} UTs.
+ *
+ * @since 3.0
+ */
+public class CapabilityEventDispatcherTest
+    extends TestSupport
+{
+
+  @Mock
+  private EventBus eventBus;
+
+  @Mock
+  private CapabilityRegistry capabilityRegistry;
+
+  private CapabilityEventDispatcher underTest;
+
+  private static class Listener
+  {
+    private final List<CapabilityEvent> events = Lists.newArrayList();
+
+    @Subscribe
+    public void handle(final CapabilityEvent event) {
+      events.add(event);
+    }
+  }
+
+  @Before
+  public void setUp() {
+    underTest = new CapabilityEventDispatcher(eventBus);
+  }
+
+  /**
+   * Events are dispatched only to listeners registered for type or identity of the capability.
+   */
+  @Test
+  public void dispatchesToDependentsOnly() {
+    final Listener ofType = new Listener();
+    final Listener ofOtherType = new Listener();
+    final Listener ofId = new Listener();
+    final Listener ofOtherId = new Listener();
+
+    underTest.register(capabilityType("foo"), ofType);
+    underTest.register(capabilityType("bar"), ofOtherType);
+    underTest.register(capabilityIdentity("1"), ofId);
+    underTest.register(capabilityIdentity("2"), ofOtherId);
+
+    verify(eventBus).register(underTest);
+
+    final CapabilityEvent event = new CapabilityEvent.Created(capabilityRegistry, reference("foo", "1"));
+    underTest.dispatch(event);
+
+    assertThat(ofType.events, contains(event));
+    assertThat(ofId.events, contains(event));
+    assertThat(ofOtherType.events, empty());
+    assertThat(ofOtherId.events, empty());
+  }
+
+  /**
+   * Unregistered listeners do not get events anymore.
+   */
+  @Test
+  public void noDispatchAfterUnregister() {
+    final Listener listener = new Listener();
+
+    underTest.register(capabilityType("foo"), listener);
+    underTest.unregister(capabilityType("foo"), listener);
+    underTest.register(capabilityType("bar"), listener);
+
+    verify(eventBus, times(1)).register(underTest);
+
+    underTest.dispatch(new CapabilityEvent.Created(capabilityRegistry, reference("foo", "1")));
+
+    assertThat(listener.events, empty());
+  }
+
+  private CapabilityReference reference(final String type, final String id) {
+    final CapabilityReference reference = mock(CapabilityReference.class);
+    final CapabilityContext context = mock(CapabilityContext.class);
+    when(reference.context()).thenReturn(context);
+    when(context.type()).thenReturn(capabilityType(type));
+    when(context.id()).thenReturn(capabilityIdentity(id));
+    return reference;
+  }
+
+}
@@ -25,8 +25,11 @@ import org.sonatype.nexus.capability.CapabilityRegistry;
 import org.sonatype.nexus.capability.CapabilityType;
 import org.sonatype.nexus.capability.EventBusTestSupport;
 
+import com.google.common.base.Predicate;
+
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.Matchers;
 import org.mockito.Mock;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -58,13 +61,18 @@ public class CapabilityOfTypeActiveConditionTest
   @Mock
   private CapabilityRegistry capabilityRegistry;
 
+  @Mock
+  private CapabilityEventDispatcher eventDispatcher;
+
+  private CapabilityType capabilityType;
+
   private CapabilityOfTypeActiveCondition underTest;
 
   @Before
   public final void setUpCapabilityOfTypeActiveCondition()
       throws Exception
   {
-    final CapabilityType capabilityType = capabilityType(this.getClass().getName());
+    capabilityType = capabilityType(this.getClass().getName());
 
     when(ref1.context()).thenReturn(mock(CapabilityContext.class));
     when(ref1.context().type()).thenReturn(capabilityType);
@@ -82,11 +90,11 @@ public class CapabilityOfTypeActiveConditionTest
     when(descriptorRegistry.get(capabilityType)).thenReturn(descriptor);
 
     underTest = new CapabilityOfTypeActiveCondition(
-        eventBus, descriptorRegistry, capabilityRegistry, capabilityType
+        eventBus, eventDispatcher, descriptorRegistry, capabilityRegistry, capabilityType
     );
     underTest.bind();
 
-    verify(eventBus).register(underTest);
+    verify(eventDispatcher).register(capabilityType, underTest);
   }
 
   /**
@@ -102,7 +110,7 @@ public class CapabilityOfTypeActiveConditionTest
    */
   @Test
   public void capabilityOfTypeActive01() {
-    doReturn(Arrays.asList(ref1)).when(capabilityRegistry).getAll();
+    doReturn(Arrays.asList(ref1)).when(capabilityRegistry).get(Matchers.<Predicate<CapabilityReference>>any());
     when(ref1.context().isActive()).thenReturn(false);
     underTest.handle(new CapabilityEvent.Created(capabilityRegistry, ref1));
     assertThat(underTest.isSatisfied(), is(false));
@@ -113,7 +121,7 @@ public class CapabilityOfTypeActiveConditionTest
    */
   @Test
   public void capabilityOfTypeActive02() {
-    doReturn(Arrays.asList(ref1)).when(capabilityRegistry).getAll();
+    doReturn(Arrays.asList(ref1)).when(capabilityRegistry).get(Matchers.<Predicate<CapabilityReference>>any());
     when(ref1.context().isActive()).thenReturn(true);
     underTest.handle(new CapabilityEvent.Created(capabilityRegistry, ref1));
 
@@ -125,12 +133,12 @@ public class CapabilityOfTypeActiveConditionTest
    */
   @Test
   public void capabilityOfTypeActive03() {
-    doReturn(Arrays.asList(ref1)).when(capabilityRegistry).getAll();
+    doReturn(Arrays.asList(ref1)).when(capabilityRegistry).get(Matchers.<Predicate<CapabilityReference>>any());
     when(ref1.context().isActive()).thenReturn(true);
     underTest.handle(new CapabilityEvent.Created(capabilityRegistry, ref1));
     assertThat(underTest.isSatisfied(), is(true));
 
-    doReturn(Arrays.asList(ref1, ref2)).when(capabilityRegistry).getAll();
+    doReturn(Arrays.asList(ref1, ref2)).when(capabilityRegistry).get(Matchers.<Predicate<CapabilityReference>>any());
     when(ref2.context().isActive()).thenReturn(true);
     underTest.handle(new CapabilityEvent.Created(capabilityRegistry, ref2));
     assertThat(underTest.isSatisfied(), is(true));
@@ -143,17 +151,17 @@ public class CapabilityOfTypeActiveConditionTest
    */
   @Test
   public void capabilityOfTypeActive04() {
-    doReturn(Arrays.asList(ref1)).when(capabilityRegistry).getAll();
+    doReturn(Arrays.asList(ref1)).when(capabilityRegistry).get(Matchers.<Predicate<CapabilityReference>>any());
     when(ref1.context().isActive()).thenReturn(true);
     underTest.handle(new CapabilityEvent.Created(capabilityRegistry, ref1));
     assertThat(underTest.isSatisfied(), is(true));
 
-    doReturn(Arrays.asList(ref1, ref2)).when(capabilityRegistry).getAll();
+    doReturn(Arrays.asList(ref1, ref2)).when(capabilityRegistry).get(Matchers.<Predicate<CapabilityReference>>any());
     when(ref2.context().isActive()).thenReturn(true);
     underTest.handle(new CapabilityEvent.Created(capabilityRegistry, ref2));
     assertThat(underTest.isSatisfied(), is(true));
 
-    doReturn(Arrays.asList(ref2)).when(capabilityRegistry).getAll();
+    doReturn(Arrays.asList(ref2)).when(capabilityRegistry).get(Matchers.<Predicate<CapabilityReference>>any());
     underTest.handle(new CapabilityEvent.AfterRemove(capabilityRegistry, ref1));
     assertThat(underTest.isSatisfied(), is(true));
 
@@ -165,17 +173,17 @@ public class CapabilityOfTypeActiveConditionTest
    */
   @Test
   public void capabilityOfTypeActive05() {
-    doReturn(Arrays.asList(ref1)).when(capabilityRegistry).getAll();
+    doReturn(Arrays.asList(ref1)).when(capabilityRegistry).get(Matchers.<Predicate<CapabilityReference>>any());
     when(ref1.context().isActive()).thenReturn(true);
     underTest.handle(new CapabilityEvent.Created(capabilityRegistry, ref1));
     assertThat(underTest.isSatisfied(), is(true));
 
-    doReturn(Arrays.asList(ref1, ref2)).when(capabilityRegistry).getAll();
+    doReturn(Arrays.asList(ref1, ref2)).when(capabilityRegistry).get(Matchers.<Predicate<CapabilityReference>>any());
     when(ref2.context().isActive()).thenReturn(true);
     underTest.handle(new CapabilityEvent.Created(capabilityRegistry, ref2));
     assertThat(underTest.isSatisfied(), is(true));
 
-    doReturn(Arrays.asList(ref1, ref2)).when(capabilityRegistry).getAll();
+    doReturn(Arrays.asList(ref1, ref2)).when(capabilityRegistry).get(Matchers.<Predicate<CapabilityReference>>any());
     when(ref1.context().isActive()).thenReturn(true);
     underTest.handle(new CapabilityEvent.BeforePassivated(capabilityRegistry, ref1));
     assertThat(underTest.isSatisfied(), is(true));
@@ -188,12 +196,12 @@ public class CapabilityOfTypeActiveConditionTest
    */
   @Test
   public void capabilityOfTypeActive06() {
-    doReturn(Arrays.asList(ref1)).when(capabilityRegistry).getAll();
+    doReturn(Arrays.asList(ref1)).when(capabilityRegistry).get(Matchers.<Predicate<CapabilityReference>>any());
     when(ref1.context().isActive()).thenReturn(true);
     underTest.handle(new CapabilityEvent.Created(capabilityRegistry, ref1));
     assertThat(underTest.isSatisfied(), is(true));
 
-    doReturn(Collections.emptyList()).when(capabilityRegistry).getAll();
+    doReturn(Collections.emptyList()).when(capabilityRegistry).get(Matchers.<Predicate<CapabilityReference>>any());
     underTest.handle(new CapabilityEvent.AfterRemove(capabilityRegistry, ref1));
     assertThat(underTest.isSatisfied(), is(false));
 
@@ -205,17 +213,17 @@ public class CapabilityOfTypeActiveConditionTest
    */
   @Test
   public void capabilityOfTypeActive07() {
-    doReturn(Arrays.asList(ref1)).when(capabilityRegistry).getAll();
+    doReturn(Arrays.asList(ref1)).when(capabilityRegistry).get(Matchers.<Predicate<CapabilityReference>>any());
     when(ref1.context().isActive()).thenReturn(true);
     underTest.handle(new CapabilityEvent.Created(capabilityRegistry, ref1));
     assertThat(underTest.isSatisfied(), is(true));
 
-    doReturn(Arrays.asList(ref1, ref3)).when(capabilityRegistry).getAll();
+    doReturn(Arrays.asList(ref1, ref3)).when(capabilityRegistry).get(Matchers.<Predicate<CapabilityReference>>any());
     when(ref3.context().isActive()).thenReturn(true);
     underTest.handle(new CapabilityEvent.Created(capabilityRegistry, ref3));
     assertThat(underTest.isSatisfied(), is(true));
 
-    doReturn(Arrays.asList(ref1, ref3)).when(capabilityRegistry).getAll();
+    doReturn(Arrays.asList(ref1, ref3)).when(capabilityRegistry).get(Matchers.<Predicate<CapabilityReference>>any());
     when(ref3.context().isActive()).thenReturn(false);
     underTest.handle(new CapabilityEvent.BeforePassivated(capabilityRegistry, ref3));
     assertThat(underTest.isSatisfied(), is(true));
@@ -230,7 +238,7 @@ public class CapabilityOfTypeActiveConditionTest
   public void releaseRemovesItselfAsHandler() {
     underTest.release();
 
-    verify(eventBus).unregister(underTest);
+    verify(eventDispatcher).unregister(capabilityType, underTest);
   }
 
 }
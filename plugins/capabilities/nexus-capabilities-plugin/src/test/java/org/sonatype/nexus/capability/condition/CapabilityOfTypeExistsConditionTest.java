@@ -24,8 +24,11 @@ import org.sonatype.nexus.capability.CapabilityRegistry;
 import org.sonatype.nexus.capability.CapabilityType;
 import org.sonatype.nexus.capability.EventBusTestSupport;
 
+import com.google.common.base.Predicate;
+
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.Matchers;
 import org.mockito.Mock;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -54,13 +57,18 @@ public class CapabilityOfTypeExistsConditionTest
   @Mock
   private CapabilityRegistry capabilityRegistry;
 
+  @Mock
+  private CapabilityEventDispatcher eventDispatcher;
+
+  private CapabilityType capabilityType;
+
   private CapabilityOfTypeExistsCondition underTest;
 
   @Before
   public final void setUpCapabilityOfTypeExistsCondition()
       throws Exception
   {
-    final CapabilityType capabilityType = capabilityType(this.getClass().getName());
+    capabilityType = capabilityType(this.getClass().getName());
 
     when(ref1.context()).thenReturn(mock(CapabilityContext.class));
     when(ref1.context().type()).thenReturn(capabilityType);
@@ -75,11 +83,11 @@ public class CapabilityOfTypeExistsConditionTest
     when(descriptorRegistry.get(capabilityType)).thenReturn(descriptor);
 
     underTest = new CapabilityOfTypeExistsCondition(
-        eventBus, descriptorRegistry, capabilityRegistry, capabilityType
+        eventBus, eventDispatcher, descriptorRegistry, capabilityRegistry, capabilityType
     );
     underTest.bind();
 
-    verify(eventBus).register(underTest);
+    verify(eventDispatcher).register(capabilityType, underTest);
   }
 
   /**
@@ -95,7 +103,7 @@ public class CapabilityOfTypeExistsConditionTest
    */
   @Test
   public void capabilityOfTypeExists01() {
-    doReturn(Arrays.asList(ref1)).when(capabilityRegistry).getAll();
+    doReturn(Arrays.asList(ref1)).when(capabilityRegistry).get(Matchers.<Predicate<CapabilityReference>>any());
     when(ref1.context().isActive()).thenReturn(true);
     underTest.handle(new CapabilityEvent.Created(capabilityRegistry, ref1));
     assertThat(underTest.isSatisfied(), is(true));
@@ -108,7 +116,7 @@ public class CapabilityOfTypeExistsConditionTest
    */
   @Test
   public void capabilityOfTypeExists02() {
-    doReturn(Arrays.asList(ref1)).when(capabilityRegistry).getAll();
+    doReturn(Arrays.asList(ref1)).when(capabilityRegistry).get(Matchers.<Predicate<CapabilityReference>>any());
     when(ref1.context().isActive()).thenReturn(false);
     underTest.handle(new CapabilityEvent.Created(capabilityRegistry, ref1));
     assertThat(underTest.isSatisfied(), is(true));
@@ -121,11 +129,11 @@ public class CapabilityOfTypeExistsConditionTest
    */
   @Test
   public void capabilityOfTypeExists03() {
-    doReturn(Arrays.asList(ref1)).when(capabilityRegistry).getAll();
+    doReturn(Arrays.asList(ref1)).when(capabilityRegistry).get(Matchers.<Predicate<CapabilityReference>>any());
     underTest.handle(new CapabilityEvent.Created(capabilityRegistry, ref1));
     assertThat(underTest.isSatisfied(), is(true));
 
-    doReturn(Arrays.asList(ref1, ref2)).when(capabilityRegistry).getAll();
+    doReturn(Arrays.asList(ref1, ref2)).when(capabilityRegistry).get(Matchers.<Predicate<CapabilityReference>>any());
     underTest.handle(new CapabilityEvent.Created(capabilityRegistry, ref2));
     assertThat(underTest.isSatisfied(), is(true));
 
@@ -137,15 +145,15 @@ public class CapabilityOfTypeExistsConditionTest
    */
   @Test
   public void capabilityOfTypeExists04() {
-    doReturn(Arrays.asList(ref1)).when(capabilityRegistry).getAll();
+    doReturn(Arrays.asList(ref1)).when(capabilityRegistry).get(Matchers.<Predicate<CapabilityReference>>any());
     underTest.handle(new CapabilityEvent.Created(capabilityRegistry, ref1));
     assertThat(underTest.isSatisfied(), is(true));
 
-    doReturn(Arrays.asList(ref1, ref2)).when(capabilityRegistry).getAll();
+    doReturn(Arrays.asList(ref1, ref2)).when(capabilityRegistry).get(Matchers.<Predicate<CapabilityReference>>any());
     underTest.handle(new CapabilityEvent.Created(capabilityRegistry, ref2));
     assertThat(underTest.isSatisfied(), is(true));
 
-    doReturn(Arrays.asList(ref2)).when(capabilityRegistry).getAll();
+    doReturn(Arrays.asList(ref2)).when(capabilityRegistry).get(Matchers.<Predicate<CapabilityReference>>any());
     underTest.handle(new CapabilityEvent.AfterRemove(capabilityRegistry, ref1));
     assertThat(underTest.isSatisfied(), is(true));
 
@@ -157,11 +165,11 @@ public class CapabilityOfTypeExistsConditionTest
    */
   @Test
   public void capabilityOfTypeExists05() {
-    doReturn(Arrays.asList(ref1)).when(capabilityRegistry).getAll();
+    doReturn(Arrays.asList(ref1)).when(capabilityRegistry).get(Matchers.<Predicate<CapabilityReference>>any());
     underTest.handle(new CapabilityEvent.Created(capabilityRegistry, ref1));
     assertThat(underTest.isSatisfied(), is(true));
 
-    doReturn(Collections.emptyList()).when(capabilityRegistry).getAll();
+    doReturn(Collections.emptyList()).when(capabilityRegistry).get(Matchers.<Predicate<CapabilityReference>>any());
     underTest.handle(new CapabilityEvent.AfterRemove(capabilityRegistry, ref1));
     assertThat(underTest.isSatisfied(), is(false));
 
@@ -175,7 +183,7 @@ public class CapabilityOfTypeExistsConditionTest
   public void releaseRemovesItselfAsHandler() {
     underTest.release();
 
-    verify(eventBus).unregister(underTest);
+    verify(eventDispatcher).unregister(capabilityType, underTest);
   }
 
 }
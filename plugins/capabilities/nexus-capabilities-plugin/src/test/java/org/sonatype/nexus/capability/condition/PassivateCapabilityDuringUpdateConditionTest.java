@@ -49,24 +49,29 @@ public class PassivateCapabilityDuringUpdateConditionTest
   @Mock
   private CapabilityRegistry capabilityRegistry;
 
+  @Mock
+  private CapabilityEventDispatcher eventDispatcher;
+
+  private CapabilityIdentity id;
+
   private PassivateCapabilityDuringUpdateCondition underTest;
 
   @Before
   public final void setUpPassivateCapabilityDuringUpdateCondition()
       throws Exception
   {
-    final CapabilityIdentity id = capabilityIdentity("test");
+    id = capabilityIdentity("test");
 
     final CapabilityContext context = mock(CapabilityContext.class);
     when(context.id()).thenReturn(id);
 
     when(reference.context()).thenReturn(context);
 
-    underTest = new PassivateCapabilityDuringUpdateCondition(eventBus);
+    underTest = new PassivateCapabilityDuringUpdateCondition(eventBus, eventDispatcher);
     underTest.setContext(context);
     underTest.bind();
 
-    verify(eventBus).register(underTest);
+    verify(eventDispatcher).register(id, underTest);
   }
 
   /**
@@ -91,7 +96,7 @@ public class PassivateCapabilityDuringUpdateConditionTest
   public void releaseRemovesItselfAsHandler() {
     underTest.release();
 
-    verify(eventBus).unregister(underTest);
+    verify(eventDispatcher).unregister(id, underTest);
   }
 
   /**
@@ -101,7 +106,7 @@ public class PassivateCapabilityDuringUpdateConditionTest
   public void bindWithoutIdBeingSet() {
     thrown.expect(IllegalStateException.class);
     thrown.expectMessage("Capability identity not specified");
-    new PassivateCapabilityDuringUpdateCondition(eventBus).bind();
+    new PassivateCapabilityDuringUpdateCondition(eventBus, eventDispatcher).bind();
   }
 
   /**
@@ -109,7 +114,7 @@ public class PassivateCapabilityDuringUpdateConditionTest
    */
   @Test
   public void bindAfterContextualization() {
-    new PassivateCapabilityDuringUpdateCondition(eventBus).setContext(reference.context()).bind();
+    new PassivateCapabilityDuringUpdateCondition(eventBus, eventDispatcher).setContext(reference.context()).bind();
   }
 
   /**
@@ -129,7 +134,7 @@ public class PassivateCapabilityDuringUpdateConditionTest
   public void contextualizationWhenAlreadyContextualized() {
     thrown.expect(IllegalStateException.class);
     thrown.expectMessage("Already contextualized");
-    new PassivateCapabilityDuringUpdateCondition(eventBus)
+    new PassivateCapabilityDuringUpdateCondition(eventBus, eventDispatcher)
         .setContext(reference.context())
         .setContext(reference.context());
   }
@@ -22,6 +22,7 @@ import org.sonatype.nexus.capability.CapabilityDescriptorRegistry;
 import org.sonatype.nexus.capability.CapabilityRegistry;
 import org.sonatype.nexus.capability.Condition;
 import org.sonatype.nexus.capability.ConditionEvent;
+import org.sonatype.nexus.capability.condition.CapabilityEventDispatcher;
 import org.sonatype.nexus.capability.internal.condition.NexusIsActiveCondition;
 import org.sonatype.nexus.capability.support.condition.CapabilityConditions;
 import org.sonatype.nexus.capability.support.condition.Conditions;
@@ -94,7 +95,10 @@ public class DefaultCapabilityReferenceTest
 
     final Conditions conditions = new Conditions(
         new LogicalConditions(eventBus),
-        new CapabilityConditions(eventBus, mock(CapabilityDescriptorRegistry.class), mock(CapabilityRegistry.class)),
+        new CapabilityConditions(
+            eventBus, new CapabilityEventDispatcher(eventBus),
+            mock(CapabilityDescriptorRegistry.class), mock(CapabilityRegistry.class)
+        ),
         mock(RepositoryConditions.class),
         new NexusConditions(new NexusIsActiveCondition(eventBus)),
         mock(CryptoConditions.class)
@@ -12,9 +12,14 @@
  */
 package org.sonatype.nexus.capability.internal;
 
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Provider;
 
@@ -41,6 +46,10 @@ import org.sonatype.sisu.litmus.testsupport.TestSupport;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
+import org.apache.shiro.mgt.DefaultSecurityManager;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -52,13 +61,17 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -66,6 +79,7 @@ import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 import static org.sonatype.nexus.capability.CapabilityIdentity.capabilityIdentity;
 import static org.sonatype.nexus.capability.CapabilityType.capabilityType;
+import static org.sonatype.nexus.capability.support.CapabilityReferenceFilterBuilder.capabilities;
 
 /**
  * {@link DefaultCapabilityRegistry} UTs.
@@ -96,6 +110,15 @@ public class DefaultCapabilityRegistryTest
 
   private PasswordHelper passwordHelper;
 
+  private ActivationConditionHandlerFactory achf;
+
+  private final AtomicInteger ids = new AtomicInteger();
+
+  @After
+  public void unbindSubject() {
+    ThreadContext.unbindSubject();
+  }
+
   @Before
   public final void setUpCapabilityRegistry() throws Exception {
     final ValidatorRegistryProvider validatorRegistryProvider = mock(ValidatorRegistryProvider.class);
@@ -119,7 +142,7 @@ public class DefaultCapabilityRegistryTest
 
     when(capabilityDescriptorRegistry.get(CAPABILITY_TYPE)).thenReturn(mock(CapabilityDescriptor.class));
 
-    final ActivationConditionHandlerFactory achf = mock(ActivationConditionHandlerFactory.class);
+    achf = mock(ActivationConditionHandlerFactory.class);
     when(achf.create(Mockito.<DefaultCapabilityReference>any())).thenReturn(
         mock(ActivationConditionHandler.class)
     );
@@ -133,7 +156,7 @@ public class DefaultCapabilityRegistryTest
         {
           @Override
           public CapabilityIdentity answer(final InvocationOnMock invocationOnMock) throws Throwable {
-            return capabilityIdentity(String.valueOf(System.currentTimeMillis()));
+            return capabilityIdentity(String.valueOf(ids.incrementAndGet()));
           }
         }
     );
@@ -444,4 +467,89 @@ public class DefaultCapabilityRegistryTest
     );
   }
 
+  /**
+   * Filtering by type and property values uses indexes kept up to date on add, update and remove.
+   */
+  @Test
+  public void getByTypeAndProperty()
+      throws Exception
+  {
+    final CapabilityReference a = underTest.add(CAPABILITY_TYPE, true, null, ImmutableMap.of("repo", "a"));
+    final CapabilityReference b = underTest.add(CAPABILITY_TYPE, true, null, ImmutableMap.of("repo", "b"));
+
+    assertThat(underTest.get(capabilities().withType(CAPABILITY_TYPE).includeNotExposed()), hasSize(2));
+    assertThat(underTest.get(capabilities().withType(capabilityType("other")).includeNotExposed()), hasSize(0));
+    assertThat(
+        underTest.get(capabilities().withType(CAPABILITY_TYPE).withProperty("repo", "a").includeNotExposed()),
+        contains((Object) a)
+    );
+    assertThat(underTest.get(capabilities().withProperty("repo", "b").includeNotExposed()), contains((Object) b));
+    assertThat(underTest.get(capabilities().withBoundedProperty("repo").includeNotExposed()), hasSize(2));
+
+    underTest.update(a.context().id(), true, null, ImmutableMap.of("repo", "c"));
+    assertThat(underTest.get(capabilities().withProperty("repo", "a").includeNotExposed()), hasSize(0));
+    assertThat(underTest.get(capabilities().withProperty("repo", "c").includeNotExposed()), contains((Object) a));
+
+    underTest.remove(b.context().id());
+    assertThat(underTest.get(capabilities().withProperty("repo", "b").includeNotExposed()), hasSize(0));
+    assertThat(underTest.get(capabilities().withType(CAPABILITY_TYPE).includeNotExposed()), contains((Object) a));
+  }
+
+  /**
+   * Loaded capabilities are activated in parallel with subject and context class loader of loading thread.
+   */
+  @Test
+  public void loadActivatesWithSubjectAndClassLoader()
+      throws Exception
+  {
+    final Map<CapabilityIdentity, CapabilityStorageItem> items = Maps.newLinkedHashMap();
+    for (int i = 0; i < 8; i++) {
+      items.put(capabilityIdentity("c" + i), new CapabilityStorageItem(
+          0, CAPABILITY_TYPE.toString(), true, null, ImmutableMap.of("index", String.valueOf(i))
+      ));
+    }
+    when(capabilityStorage.getAll()).thenReturn(items);
+    underTest.setLoadThreads(4);
+
+    final List<Subject> subjects = new CopyOnWriteArrayList<>();
+    final List<ClassLoader> classLoaders = new CopyOnWriteArrayList<>();
+    final List<Thread> threads = new CopyOnWriteArrayList<>();
+    when(achf.create(Mockito.<DefaultCapabilityReference>any())).thenAnswer(new Answer<ActivationConditionHandler>()
+    {
+      @Override
+      public ActivationConditionHandler answer(final InvocationOnMock invocation) throws Throwable {
+        final ActivationConditionHandler handler = mock(ActivationConditionHandler.class);
+        when(handler.isConditionSatisfied()).thenAnswer(new Answer<Boolean>()
+        {
+          @Override
+          public Boolean answer(final InvocationOnMock invocation) throws Throwable {
+            threads.add(Thread.currentThread());
+            subjects.add(ThreadContext.getSubject());
+            classLoaders.add(Thread.currentThread().getContextClassLoader());
+            return true;
+          }
+        });
+        return handler;
+      }
+    });
+
+    final Subject subject = new Subject.Builder(new DefaultSecurityManager()).buildSubject();
+    ThreadContext.bind(subject);
+    final ClassLoader classLoader = new URLClassLoader(new URL[0]);
+    final ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
+    Thread.currentThread().setContextClassLoader(classLoader);
+    try {
+      underTest.load();
+    }
+    finally {
+      Thread.currentThread().setContextClassLoader(originalClassLoader);
+    }
+
+    assertThat(underTest.get(capabilities().active().includeNotExposed()), hasSize(8));
+    assertThat(threads, not(hasItem(Thread.currentThread())));
+    assertThat(subjects, hasSize(8));
+    assertThat(subjects, everyItem(sameInstance(subject)));
+    assertThat(classLoaders, hasSize(8));
+    assertThat(classLoaders, everyItem(sameInstance(classLoader)));
+  }
 }
@@ -15,6 +15,7 @@ package org.sonatype.nexus.capability.support.condition;
 import org.sonatype.nexus.capability.CapabilityDescriptorRegistry;
 import org.sonatype.nexus.capability.CapabilityRegistry;
 import org.sonatype.nexus.capability.Condition;
+import org.sonatype.nexus.capability.condition.CapabilityEventDispatcher;
 import org.sonatype.nexus.capability.condition.CapabilityOfTypeActiveCondition;
 import org.sonatype.nexus.capability.condition.CapabilityOfTypeExistsCondition;
 import org.sonatype.nexus.capability.condition.PassivateCapabilityDuringUpdateCondition;
@@ -45,8 +46,9 @@ public class CapabilityConditionsTest
   public final void setUpCapabilityConditions() {
     final EventBus eventBus = mock(EventBus.class);
     final CapabilityDescriptorRegistry descriptorRegistry = mock(CapabilityDescriptorRegistry.class);
+    final CapabilityEventDispatcher eventDispatcher = mock(CapabilityEventDispatcher.class);
     final CapabilityRegistry capabilityRegistry = mock(CapabilityRegistry.class);
-    underTest = new CapabilityConditions(eventBus, descriptorRegistry, capabilityRegistry);
+    underTest = new CapabilityConditions(eventBus, eventDispatcher, descriptorRegistry, capabilityRegistry);
   }
 
   /**
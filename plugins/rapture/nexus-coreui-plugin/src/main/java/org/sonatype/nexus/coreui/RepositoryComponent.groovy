@@ -22,6 +22,7 @@ import javax.validation.groups.Default
 import org.sonatype.nexus.common.validation.Create
 import org.sonatype.nexus.common.validation.Update
 import org.sonatype.nexus.common.validation.Validate
+import org.sonatype.nexus.extdirect.CacheableDirectMethod
 import org.sonatype.nexus.extdirect.DirectComponent
 import org.sonatype.nexus.extdirect.DirectComponentSupport
 import org.sonatype.nexus.repository.MissingFacetException
@@ -63,6 +64,7 @@ extends DirectComponentSupport
   }
 
   @DirectMethod
+  @CacheableDirectMethod
   List<ReferenceXO> readRecipes() {
     recipes.collect { key, value ->
       new ReferenceXO(
@@ -27,7 +27,6 @@ import org.sonatype.nexus.extdirect.DirectComponent
 import org.sonatype.nexus.extdirect.DirectComponentSupport
 import org.sonatype.nexus.extdirect.model.PagedResponse
 import org.sonatype.nexus.extdirect.model.StoreLoadParameters
-import org.sonatype.nexus.repository.search.CustomFilterBuilders
 import org.sonatype.nexus.repository.search.SearchService
 
 import javax.annotation.Nullable
@@ -95,6 +94,55 @@ extends DirectComponentSupport
     }
   }
 
+  /**
+   * Versions of components matching configured filters, aggregated by the search server.
+   *
+   * @param parameters store parameters
+   * @return versions of each matching component, ordered by version within component
+   */
+  @DirectMethod
+  @RequiresPermissions('nexus:repositories:read')
+  List<SearchResultVersionXO> readVersions(final @Nullable StoreLoadParameters parameters) {
+    QueryBuilder query = buildQuery(parameters)
+    if (!query) {
+      return null
+    }
+
+    List<SearchResultVersionXO> results = []
+    searchService.versionsByComponent(query).each { groupingKey, versions ->
+      int separator = groupingKey.lastIndexOf(':')
+      versions.eachWithIndex { version, index ->
+        results << new SearchResultVersionXO(
+            groupingKey: groupingKey,
+            group: separator < 0 ? null : groupingKey.substring(0, separator),
+            name: groupingKey.substring(separator + 1),
+            version: version,
+            versionOrder: index
+        )
+      }
+    }
+    return results
+  }
+
+  /**
+   * Counts of components matching configured filters per repository, counted by the search server.
+   *
+   * @param parameters store parameters
+   * @return count of matching components of each repository with any match
+   */
+  @DirectMethod
+  @RequiresPermissions('nexus:repositories:read')
+  List<SearchRepositoryCountXO> readRepositoryCounts(final @Nullable StoreLoadParameters parameters) {
+    QueryBuilder query = buildQuery(parameters)
+    if (!query) {
+      return null
+    }
+
+    return searchService.countByRepository(query).collect { repositoryName, count ->
+      new SearchRepositoryCountXO(repositoryName: repositoryName, count: count)
+    }
+  }
+
   /**
    * Builds a QueryBuilder based on configured filters.
    *
@@ -115,7 +163,7 @@ extends DirectComponentSupport
     if (!queryBuilder.hasClauses() && !filterBuilder.hasClauses()) {
       return null
     }
-    filterBuilder.must(CustomFilterBuilders.visibleToCurrentUserFilter());
+    // no need to filter by visibility, search is restricted to repositories visible to current user
     FilteredQueryBuilder query = QueryBuilders.filteredQuery(
         queryBuilder.hasClauses() ? queryBuilder : null,
         filterBuilder.hasClauses() ? filterBuilder : null
@@ -24,6 +24,7 @@ import org.sonatype.nexus.common.validation.Validate
 import org.sonatype.nexus.common.validation.ValidationMessage
 import org.sonatype.nexus.common.validation.ValidationResponse
 import org.sonatype.nexus.common.validation.ValidationResponseException
+import org.sonatype.nexus.extdirect.CacheableDirectMethod
 import org.sonatype.nexus.extdirect.DirectComponent
 import org.sonatype.nexus.extdirect.DirectComponentSupport
 import org.sonatype.nexus.formfields.Selectable
@@ -87,6 +88,7 @@ class TaskComponent
    * @return a list of task types
    */
   @DirectMethod
+  @CacheableDirectMethod
   @RequiresPermissions('nexus:tasktypes:read')
   List<TaskTypeXO> readTypes() {
     return nexusScheduler.listTaskDescriptors().findAll { descriptor ->
@@ -0,0 +1,143 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.extdirect.internal;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.extdirect.CacheableDirectMethod;
+import org.sonatype.nexus.extdirect.model.Response;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.gson.Gson;
+import org.apache.shiro.SecurityUtils;
+import org.apache.shiro.authz.AuthorizationException;
+import org.apache.shiro.authz.aop.AuthenticatedAnnotationHandler;
+import org.apache.shiro.authz.aop.AuthorizingAnnotationHandler;
+import org.apache.shiro.authz.aop.GuestAnnotationHandler;
+import org.apache.shiro.authz.aop.PermissionAnnotationHandler;
+import org.apache.shiro.authz.aop.RoleAnnotationHandler;
+import org.apache.shiro.authz.aop.UserAnnotationHandler;
+import org.apache.shiro.subject.Subject;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Cache of successful responses of {@link CacheableDirectMethod} methods, keyed by subject principal, method and
+ * parameters.
+ *
+ * Cached responses bypass the invocation of method, and so the security interceptors of it: the Shiro authorization
+ * annotations of method (and its class) are asserted against the current subject before a cached response is served,
+ * so permissions revoked meanwhile apply immediately.
+ *
+ * @since 3.0
+ */
+class DirectResponseCache
+{
+  private static final Gson gson = new Gson();
+
+  private static final List<AuthorizingAnnotationHandler> handlers = ImmutableList.of(
+      new RoleAnnotationHandler(),
+      new PermissionAnnotationHandler(),
+      new AuthenticatedAnnotationHandler(),
+      new UserAnnotationHandler(),
+      new GuestAnnotationHandler()
+  );
+
+  private final Cache<String, CachedResponse> cache;
+
+  DirectResponseCache(final long maxSize) {
+    this.cache = CacheBuilder.newBuilder()
+        .maximumSize(maxSize)
+        .build();
+  }
+
+  /**
+   * Returns the cached response of method invoked with passed in parameters by current subject, or {@code null} if
+   * there is none, or current subject is not authorized to invoke method.
+   */
+  @Nullable
+  Response get(final String name, final Method method, final Object[] parameters) {
+    String key = key(name, parameters);
+    CachedResponse cached = cache.getIfPresent(key);
+    if (cached == null) {
+      return null;
+    }
+    if (cached.expiresAt - System.nanoTime() <= 0) {
+      cache.invalidate(key);
+      return null;
+    }
+    if (!isAuthorized(method)) {
+      // let the invocation fail as usual
+      return null;
+    }
+    return cached.response;
+  }
+
+  /**
+   * Caches a successful response of method invoked with passed in parameters by current subject.
+   */
+  void put(final String name, final Object[] parameters, final Response response, final int ttlSeconds) {
+    checkNotNull(response);
+    if (response.isSuccess()) {
+      cache.put(key(name, parameters),
+          new CachedResponse(response, System.nanoTime() + TimeUnit.SECONDS.toNanos(ttlSeconds)));
+    }
+  }
+
+  /**
+   * Responses are cached per subject principal, as methods may return different data based on permissions.
+   */
+  private static String key(final String name, final Object[] parameters) {
+    Subject subject = SecurityUtils.getSubject();
+    Object principal = subject != null ? subject.getPrincipal() : null;
+    return name + '|' + principal + '|' + gson.toJson(parameters);
+  }
+
+  private static boolean isAuthorized(final Method method) {
+    try {
+      for (AuthorizingAnnotationHandler handler : handlers) {
+        Class<? extends Annotation> annotationClass = handler.getAnnotationClass();
+        Annotation annotation = method.getAnnotation(annotationClass);
+        if (annotation == null) {
+          annotation = method.getDeclaringClass().getAnnotation(annotationClass);
+        }
+        if (annotation != null) {
+          handler.assertAuthorized(annotation);
+        }
+      }
+      return true;
+    }
+    catch (AuthorizationException e) {
+      return false;
+    }
+  }
+
+  private static class CachedResponse
+  {
+    private final Response response;
+
+    private final long expiresAt;
+
+    private CachedResponse(final Response response, final long expiresAt) {
+      this.response = response;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
@@ -16,10 +16,12 @@ import java.util.Map;
 
 import javax.inject.Named;
 
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
 import org.sonatype.nexus.security.FilterChainModule;
 import org.sonatype.nexus.security.anonymous.AnonymousFilter;
 import org.sonatype.nexus.web.SecurityFilter;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Maps;
 import com.google.inject.AbstractModule;
 import com.google.inject.servlet.ServletModule;
@@ -40,6 +42,24 @@ public class ExtDirectModule
 
   private static final String MOUNT_POINT = "/service/extdirect";
 
+  /**
+   * Whether methods of a batched request are executed in parallel.
+   */
+  private static final boolean BATCH_MULTITHREADING = SystemPropertiesHelper.getBoolean(
+      ExtDirectModule.class.getName() + ".batchMultithreading", true);
+
+  private static final int BATCH_MIN_THREADS = SystemPropertiesHelper.getInteger(
+      ExtDirectModule.class.getName() + ".batchMinThreads", 4);
+
+  private static final int BATCH_MAX_THREADS = SystemPropertiesHelper.getInteger(
+      ExtDirectModule.class.getName() + ".batchMaxThreads", 32);
+
+  /**
+   * Maximum number of methods of a single batched request executed in parallel.
+   */
+  private static final int BATCH_MAX_THREADS_PER_REQUEST = SystemPropertiesHelper.getInteger(
+      ExtDirectModule.class.getName() + ".batchMaxThreadsPerRequest", 8);
+
   @Override
   protected void configure() {
     install(new ServletModule()
@@ -50,10 +70,9 @@ public class ExtDirectModule
         config.put(GlobalParameters.PROVIDERS_URL, MOUNT_POINT.substring(1));
         config.put("minify", Boolean.FALSE.toString());
         config.put(GlobalParameters.DEBUG, Boolean.toString(log.isDebugEnabled()));
-        config.put(GlobalParameters.JSON_REQUEST_PROCESSOR_THREAD_CLASS,
-            ExtDirectJsonRequestProcessorThread.class.getName());
         config.put(GlobalParameters.GSON_BUILDER_CONFIGURATOR_CLASS,
             ExtDirectGsonBuilderConfigurator.class.getName());
+        config.putAll(batchConfiguration());
 
         serve(MOUNT_POINT + "*").with(ExtDirectServlet.class, config);
         filter(MOUNT_POINT + "*").through(SecurityFilter.class);
@@ -68,4 +87,21 @@ public class ExtDirectModule
       }
     });
   }
+
+  /**
+   * Batched methods run on a bounded pool, {@link ExtDirectJsonRequestProcessorThread} carries subject and request
+   * scope over to the pool threads.
+   */
+  @VisibleForTesting
+  static Map<String, String> batchConfiguration() {
+    int minThreads = Math.max(1, BATCH_MIN_THREADS);
+    Map<String, String> config = Maps.newHashMap();
+    config.put(GlobalParameters.JSON_REQUEST_PROCESSOR_THREAD_CLASS,
+        ExtDirectJsonRequestProcessorThread.class.getName());
+    config.put("batchRequestsMultithreadingEnabled", Boolean.toString(BATCH_MULTITHREADING));
+    config.put("batchRequestsMinThreadsPoolSize", Integer.toString(minThreads));
+    config.put("batchRequestsMaxThreadsPoolSize", Integer.toString(Math.max(minThreads, BATCH_MAX_THREADS)));
+    config.put("batchRequestsMaxThreadsPerRequest", Integer.toString(Math.max(1, BATCH_MAX_THREADS_PER_REQUEST)));
+    return config;
+  }
 }
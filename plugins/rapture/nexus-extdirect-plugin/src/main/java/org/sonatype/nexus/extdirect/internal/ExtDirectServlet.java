@@ -39,12 +39,17 @@ import javax.validation.ValidationException;
 
 import org.sonatype.nexus.analytics.EventDataBuilder;
 import org.sonatype.nexus.analytics.EventRecorder;
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
 import org.sonatype.nexus.common.validation.ValidationResponseException;
 import org.sonatype.nexus.configuration.ApplicationDirectories;
+import org.sonatype.nexus.extdirect.CacheableDirectMethod;
 import org.sonatype.nexus.extdirect.DirectComponent;
 import org.sonatype.nexus.extdirect.ExtDirectPlugin;
 import org.sonatype.nexus.extdirect.model.Response;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
 import com.google.common.base.Function;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
@@ -84,12 +89,22 @@ public class ExtDirectServlet
 {
   private static final Logger log = LoggerFactory.getLogger(ExtDirectServlet.class);
 
+  /**
+   * Maximum number of cached responses of {@link CacheableDirectMethod} methods.
+   */
+  private static final long RESPONSE_CACHE_MAX_SIZE = SystemPropertiesHelper.getLong(
+      ExtDirectServlet.class.getName() + ".responseCacheMaxSize", 1000);
+
   private final ApplicationDirectories directories;
 
   private final BeanLocator beanLocator;
 
   private final EventRecorder eventRecorder;
 
+  private final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate("nexus");
+
+  private final DirectResponseCache responseCache = new DirectResponseCache(RESPONSE_CACHE_MAX_SIZE);
+
   @Inject
   public ExtDirectServlet(final ApplicationDirectories directories,
                           final BeanLocator beanLocator,
@@ -200,8 +215,23 @@ public class ExtDirectServlet
 
         MDC.put(getClass().getName(), method.getFullName());
 
+        CacheableDirectMethod cacheable = method.getMethod().getAnnotation(CacheableDirectMethod.class);
+        if (cacheable != null) {
+          response = responseCache.get(method.getFullName(), method.getMethod(), parameters);
+          if (response != null) {
+            log.trace("Serving cached response of action method: {}", method.getFullName());
+            MDC.remove(getClass().getName());
+            return response;
+          }
+        }
+
+        Timer.Context timing = metricRegistry.timer(MetricRegistry.name(ExtDirectServlet.class, method.getFullName()))
+            .time();
         try {
           response = asResponse(super.invokeMethod(method, actionInstance, parameters));
+          if (cacheable != null) {
+            responseCache.put(method.getFullName(), parameters, response, cacheable.ttlSeconds());
+          }
         }
         catch (InvocationTargetException e) {
           response = handleException(method, e.getTargetException());
@@ -210,6 +240,8 @@ public class ExtDirectServlet
           response = handleException(method, e);
         }
         finally {
+          timing.stop();
+
           // Record analytics event
           if (eventRecorder != null && builder != null) {
             if (response != null) {
@@ -0,0 +1,121 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.extdirect.internal;
+
+import java.lang.reflect.Method;
+
+import org.sonatype.nexus.extdirect.CacheableDirectMethod;
+import org.sonatype.nexus.extdirect.model.Response;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.apache.shiro.authz.AuthorizationException;
+import org.apache.shiro.authz.annotation.RequiresPermissions;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.sonatype.nexus.extdirect.model.Responses.error;
+import static org.sonatype.nexus.extdirect.model.Responses.success;
+
+/**
+ * Tests for {@link DirectResponseCache}.
+ */
+public class DirectResponseCacheTest
+    extends TestSupport
+{
+  private static final Object[] PARAMETERS = {"maven2"};
+
+  private Method method;
+
+  private Subject subject;
+
+  private DirectResponseCache underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    method = Component.class.getMethod("read", String.class);
+    subject = subject("admin");
+    ThreadContext.bind(subject);
+    underTest = new DirectResponseCache(10);
+  }
+
+  @After
+  public void tearDown() {
+    ThreadContext.unbindSubject();
+  }
+
+  private static Subject subject(final String principal) {
+    Subject subject = mock(Subject.class);
+    when(subject.getPrincipal()).thenReturn(principal);
+    return subject;
+  }
+
+  @Test
+  public void successfulResponseServedFromCache() {
+    Response response = success("data");
+    underTest.put("component.read", PARAMETERS, response, 60);
+
+    assertThat(underTest.get("component.read", method, PARAMETERS), sameInstance(response));
+    assertThat(underTest.get("component.read", method, new Object[]{"npm"}), nullValue());
+    assertThat(underTest.get("component.other", method, PARAMETERS), nullValue());
+  }
+
+  @Test
+  public void failedResponseNotCached() {
+    underTest.put("component.read", PARAMETERS, error("failed"), 60);
+
+    assertThat(underTest.get("component.read", method, PARAMETERS), nullValue());
+  }
+
+  @Test
+  public void expiredResponseNotServed() {
+    underTest.put("component.read", PARAMETERS, success("data"), 0);
+
+    assertThat(underTest.get("component.read", method, PARAMETERS), nullValue());
+  }
+
+  @Test
+  public void responsesCachedPerPrincipal() {
+    underTest.put("component.read", PARAMETERS, success("data"), 60);
+
+    ThreadContext.bind(subject("other"));
+    assertThat(underTest.get("component.read", method, PARAMETERS), nullValue());
+  }
+
+  @Test
+  public void revokedPermissionNotServedFromCache() {
+    Response response = success("data");
+    underTest.put("component.read", PARAMETERS, response, 60);
+    assertThat(underTest.get("component.read", method, PARAMETERS), sameInstance(response));
+
+    doThrow(new AuthorizationException("denied")).when(subject).checkPermission("nexus:component:read");
+    assertThat(underTest.get("component.read", method, PARAMETERS), nullValue());
+  }
+
+  public static class Component
+  {
+    @CacheableDirectMethod
+    @RequiresPermissions("nexus:component:read")
+    public Response read(final String format) {
+      return success(format);
+    }
+  }
+}
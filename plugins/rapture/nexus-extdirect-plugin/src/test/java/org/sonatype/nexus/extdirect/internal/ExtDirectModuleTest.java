@@ -0,0 +1,51 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.extdirect.internal;
+
+import java.util.Map;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.softwarementors.extjs.djn.servlet.DirectJNgineServlet.GlobalParameters;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Tests for {@link ExtDirectModule}.
+ */
+public class ExtDirectModuleTest
+    extends TestSupport
+{
+  @Test
+  public void batchedMethodsRunInParallelOnBoundedPool() {
+    Map<String, String> config = ExtDirectModule.batchConfiguration();
+
+    assertThat(config.get("batchRequestsMultithreadingEnabled"), is("true"));
+    int minThreads = Integer.parseInt(config.get("batchRequestsMinThreadsPoolSize"));
+    int maxThreads = Integer.parseInt(config.get("batchRequestsMaxThreadsPoolSize"));
+    assertThat(minThreads, greaterThanOrEqualTo(1));
+    assertThat(maxThreads, greaterThanOrEqualTo(minThreads));
+    assertThat(Integer.parseInt(config.get("batchRequestsMaxThreadsPerRequest")), greaterThanOrEqualTo(1));
+  }
+
+  @Test
+  public void batchedMethodsRunWithSubjectOfRequest() {
+    Map<String, String> config = ExtDirectModule.batchConfiguration();
+
+    assertThat(config.get(GlobalParameters.JSON_REQUEST_PROCESSOR_THREAD_CLASS),
+        is(ExtDirectJsonRequestProcessorThread.class.getName()));
+  }
+}
@@ -12,6 +12,7 @@
  */
 package org.sonatype.nexus.rapture;
 
+import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
@@ -20,7 +21,7 @@ import org.sonatype.sisu.goodies.common.ComponentSupport;
 import com.google.common.base.Preconditions;
 
 /**
- * Rapture.
+ * Rapture. Settings are published to {@link StateStore} as "uiSettings" state whenever changed.
  *
  * @since 3.0
  */
@@ -30,8 +31,17 @@ public class Rapture
     extends ComponentSupport
 {
 
+  private static final String STATE_KEY = "uiSettings";
+
+  private final StateStore stateStore;
+
   private RaptureSettings settings = new RaptureSettings();
 
+  @Inject
+  public Rapture(final StateStore stateStore) {
+    this.stateStore = Preconditions.checkNotNull(stateStore);
+    stateStore.publish(STATE_KEY, settings);
+  }
 
   public RaptureSettings getSettings() {
     return settings;
@@ -39,10 +49,12 @@ public class Rapture
 
   public void setSettings(final RaptureSettings settings) {
     this.settings = Preconditions.checkNotNull(settings);
+    stateStore.publish(STATE_KEY, settings);
   }
 
   public void resetSettings() {
     this.settings = new RaptureSettings();
+    stateStore.publish(STATE_KEY, settings);
   }
 
 }
@@ -0,0 +1,121 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.rapture;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.sisu.goodies.common.ComponentSupport;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Store of global (not subject or request specific) state values, that components publish whenever the source of
+ * value changes. The hash of value is calculated once on publish, so polls of state only need to compare hashes.
+ *
+ * State that depends on current subject or request should be provided by a {@link StateContributor} instead.
+ *
+ * @since 3.0
+ */
+@Named
+@Singleton
+public class StateStore
+    extends ComponentSupport
+{
+  private static final Gson gson = new GsonBuilder().create();
+
+  private final ConcurrentMap<String, Value> values = new ConcurrentHashMap<String, Value>();
+
+  /**
+   * Publishes a state value, replacing any previously published value with same key. Publishing a value equal (by
+   * its JSON representation) to the current one is a no-op.
+   *
+   * @return {@code true} if the published value differs from the current one.
+   */
+  public boolean publish(final String key, @Nullable final Object value) {
+    checkArgument(key != null && !key.trim().isEmpty(), "Blank state key");
+    if (value == null) {
+      return remove(key);
+    }
+    final Value newValue = new Value(value, hash(value));
+    final Value oldValue = values.put(key, newValue);
+    final boolean changed = oldValue == null || !oldValue.getHash().equals(newValue.getHash());
+    if (changed) {
+      log.debug("State changed: {}", key);
+    }
+    return changed;
+  }
+
+  /**
+   * Removes a state value.
+   *
+   * @return {@code true} if there was a value published with given key.
+   */
+  public boolean remove(final String key) {
+    return values.remove(checkNotNull(key)) != null;
+  }
+
+  /**
+   * Returns an unmodifiable live view of published values.
+   */
+  public Map<String, Value> getValues() {
+    return Collections.unmodifiableMap(values);
+  }
+
+  /**
+   * Calculates the hash of state value, as SHA1 of it's JSON representation.
+   */
+  @Nullable
+  public static String hash(@Nullable final Object value) {
+    if (value != null) {
+      // TODO is there another way to not use serialized json? :D
+      return Hashing.sha1().hashString(gson.toJson(value), Charsets.UTF_8).toString();
+    }
+    return null;
+  }
+
+  /**
+   * Published state value along with its hash.
+   */
+  public static class Value
+  {
+    private final Object value;
+
+    private final String hash;
+
+    private Value(final Object value, final String hash) {
+      this.value = checkNotNull(value);
+      this.hash = checkNotNull(hash);
+    }
+
+    public Object getValue() {
+      return value;
+    }
+
+    public String getHash() {
+      return hash;
+    }
+  }
+}
@@ -17,6 +17,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -25,17 +27,15 @@ import javax.inject.Singleton;
 import javax.servlet.http.HttpSession;
 
 import org.sonatype.nexus.SystemStatus;
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
 import org.sonatype.nexus.extdirect.DirectComponentSupport;
 import org.sonatype.nexus.plugin.PluginIdentity;
 import org.sonatype.nexus.rapture.Rapture;
 import org.sonatype.nexus.rapture.StateContributor;
+import org.sonatype.nexus.rapture.StateStore;
 
-import com.google.common.base.Charsets;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.hash.Hashing;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.softwarementors.extjs.djn.config.annotations.DirectAction;
 import com.softwarementors.extjs.djn.config.annotations.DirectPollMethod;
 import com.softwarementors.extjs.djn.servlet.ssm.WebContextManager;
@@ -47,6 +47,11 @@ import static com.google.common.base.Preconditions.checkNotNull;
 /**
  * State Ext.Direct component.
  *
+ * Global state is published to {@link StateStore} (with hashes calculated once), hence polls only compare hashes of
+ * it. System state that has no change notifications (status, license, plugins) is republished at most once per
+ * refresh period, shared by all polls. Only {@link StateContributor}s (that provide subject specific state) are invoked
+ * on every poll.
+ *
  * @since 3.0
  */
 @Named
@@ -55,8 +60,13 @@ import static com.google.common.base.Preconditions.checkNotNull;
 public class StateComponent
     extends DirectComponentSupport
 {
+  /**
+   * Period (in milliseconds) of republishing system state.
+   */
+  private static final long SYSTEM_STATE_REFRESH_MILLIS = SystemPropertiesHelper.getLong(
+      StateComponent.class.getName() + ".systemStateRefreshMillis", TimeUnit.SECONDS.toMillis(5));
 
-  private final Rapture rapture;
+  private final StateStore stateStore;
 
   private final Provider<SystemStatus> systemStatusProvider;
 
@@ -64,20 +74,25 @@ public class StateComponent
 
   private final List<Provider<StateContributor>> stateContributors;
 
-  private final static Gson gson = new GsonBuilder().create();
+  private final AtomicLong systemStateRefreshed = new AtomicLong(0);
 
   private final static String serverId = String.valueOf(System.nanoTime());
 
   @Inject
   public StateComponent(final Rapture rapture,
+                        final StateStore stateStore,
                         final Provider<SystemStatus> systemStatusProvider,
                         final List<PluginIdentity> pluginIdentities,
                         final List<Provider<StateContributor>> stateContributors)
   {
-    this.rapture = checkNotNull(rapture, "rapture");
+    // rapture publishes "uiSettings" state
+    checkNotNull(rapture, "rapture");
+    this.stateStore = checkNotNull(stateStore);
     this.systemStatusProvider = checkNotNull(systemStatusProvider);
     this.pluginIdentities = checkNotNull(pluginIdentities);
     this.stateContributors = checkNotNull(stateContributors);
+
+    stateStore.publish("serverId", serverId);
   }
 
   @DirectPollMethod(event = "rapture_State_get")
@@ -118,15 +133,32 @@ public class StateComponent
       }
     }
 
-    send(values, hashes, "serverId", serverId);
-    send(values, hashes, "status", getStatus());
-    send(values, hashes, "license", getLicense());
-    send(values, hashes, "uiSettings", rapture.getSettings());
-    send(values, hashes, "plugins", getPlugins());
+    maybeRefreshSystemState();
+    for (Entry<String, StateStore.Value> entry : stateStore.getValues().entrySet()) {
+      sendPublished(values, hashes, entry.getKey(), entry.getValue());
+    }
 
     return values;
   }
 
+  /**
+   * Republishes system state if refresh period elapsed, only one of concurrent polls does it.
+   */
+  private void maybeRefreshSystemState() {
+    final long now = System.currentTimeMillis();
+    final long refreshed = systemStateRefreshed.get();
+    if (now - refreshed >= SYSTEM_STATE_REFRESH_MILLIS && systemStateRefreshed.compareAndSet(refreshed, now)) {
+      try {
+        stateStore.publish("status", getStatus());
+        stateStore.publish("license", getLicense());
+        stateStore.publish("plugins", getPlugins());
+      }
+      catch (Exception e) {
+        log.warn("Failed to refresh system state (ignored)", e);
+      }
+    }
+  }
+
   private StatusXO getStatus() {
     SystemStatus systemStatus = systemStatusProvider.get();
     StatusXO status = new StatusXO();
@@ -167,9 +199,25 @@ public class StateComponent
                     final Map<String, String> hashes,
                     final String key,
                     final Object value)
+  {
+    send(values, hashes, key, value, hash(value));
+  }
+
+  private void sendPublished(final Map<String, Object> values,
+                             final Map<String, String> hashes,
+                             final String key,
+                             final StateStore.Value value)
+  {
+    send(values, hashes, key, value.getValue(), value.getHash());
+  }
+
+  private void send(final Map<String, Object> values,
+                    final Map<String, String> hashes,
+                    final String key,
+                    final Object value,
+                    final String hash)
   {
     values.remove(key);
-    String hash = hash(value);
     if (!ObjectUtils.equals(hash, hashes.get(key))) {
       StateValueXO stateValueXO = new StateValueXO();
       stateValueXO.setHash(hash);
@@ -179,11 +227,7 @@ public class StateComponent
   }
 
   public static String hash(final Object value) {
-    if (value != null) {
-      // TODO is there another way to not use serialized json? :D
-      return Hashing.sha1().hashString(gson.toJson(value), Charsets.UTF_8).toString();
-    }
-    return null;
+    return StateStore.hash(value);
   }
 
   public static boolean shouldSend(final String key, final Object value) {
@@ -193,11 +237,7 @@ public class StateComponent
       if (session != null) {
         String sessionAttribute = "state-digest-" + key;
         String currentDigest = (String) session.getAttribute(sessionAttribute);
-        String newDigest = null;
-        if (value != null) {
-          // TODO is there another way to not use serialized json? :D
-          newDigest = Hashing.sha1().hashString(gson.toJson(value), Charsets.UTF_8).toString();
-        }
+        String newDigest = StateStore.hash(value);
         if (ObjectUtils.equals(currentDigest, newDigest)) {
           shouldSend = false;
         }
@@ -25,6 +25,7 @@ import org.sonatype.nexus.ldap.internal.connector.dao.LdapDAOException;
 import org.sonatype.nexus.ldap.internal.connector.dao.NoLdapUserRolesFoundException;
 import org.sonatype.nexus.ldap.internal.events.LdapClearCacheEvent;
 import org.sonatype.nexus.ldap.internal.realms.LdapManager;
+import org.sonatype.nexus.security.authc.VerifiedCredentialsCache;
 import org.sonatype.sisu.goodies.common.Loggers;
 import org.sonatype.sisu.goodies.eventbus.EventBus;
 
@@ -58,9 +59,15 @@ public class LdapRealm
 
   private final LdapManager ldapManager;
 
+  private final VerifiedCredentialsCache verifiedCredentialsCache;
+
   @Inject
-  public LdapRealm(final EventBus eventBus, final LdapManager ldapManager) {
+  public LdapRealm(final EventBus eventBus,
+                   final LdapManager ldapManager,
+                   final VerifiedCredentialsCache verifiedCredentialsCache)
+  {
     this.ldapManager = checkNotNull(ldapManager);
+    this.verifiedCredentialsCache = checkNotNull(verifiedCredentialsCache);
     setName(LdapPlugin.REALM_NAME);
     setAuthenticationCachingEnabled(true);
     setAuthorizationCachingEnabled(true);
@@ -80,6 +87,7 @@ public class LdapRealm
   public void on(final LdapClearCacheEvent evt) {
     clearIfNonNull(getAuthenticationCache());
     clearIfNonNull(getAuthorizationCache());
+    verifiedCredentialsCache.invalidateAll(getName());
   }
 
   /**
@@ -107,7 +115,12 @@ public class LdapRealm
       throw new AuthenticationException("Password must not be empty");
     }
 
-    this.ldapManager.authenticateUser(username, pass);
+    // skip the LDAP bind if same credentials were recently verified
+    if (!verifiedCredentialsCache.isVerified(getName(), username, upToken.getPassword())) {
+      long generation = verifiedCredentialsCache.generation();
+      this.ldapManager.authenticateUser(username, pass);
+      verifiedCredentialsCache.verified(getName(), username, upToken.getPassword(), generation);
+    }
 
     // creating AuthInfo with plain pass (relates to creds matcher too)
     return new SimpleAuthenticationInfo(username, pass.toCharArray(), getName());
@@ -0,0 +1,316 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.ldap.internal.connector;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.sonatype.nexus.ldap.internal.connector.dao.LdapDAOException;
+import org.sonatype.nexus.ldap.internal.connector.dao.LdapUser;
+import org.sonatype.nexus.ldap.internal.connector.dao.NoLdapUserRolesFoundException;
+import org.sonatype.nexus.ldap.internal.connector.dao.NoSuchLdapGroupException;
+import org.sonatype.nexus.ldap.internal.connector.dao.NoSuchLdapUserException;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.apache.shiro.realm.ldap.LdapContextFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link LdapConnector} that caches user entries (with their membership), user roles, group names and the group list
+ * of the connector it wraps. Entries are refreshed in background once older than refresh period, while the stale value
+ * is still being served, and are expired after the TTL. If refresh fails because the user or group is gone, the entry
+ * is invalidated, while on any other failure (like LDAP server not reachable) the stale value is kept. Concurrent
+ * lookups of same key are coalesced into single LDAP round-trip. Lookups of missing users or groups are not cached.
+ *
+ * Listing and searching of users is not cached, as those are used by UI only.
+ *
+ * @since 3.0
+ */
+public class CachingLdapConnector
+    implements LdapConnector
+{
+  private static final String ALL_GROUPS = "*";
+
+  private final LdapConnector delegate;
+
+  private final LoadingCache<String, LdapUser> users;
+
+  private final LoadingCache<String, Set<String>> userRoles;
+
+  private final LoadingCache<String, String> groupNames;
+
+  private final LoadingCache<String, SortedSet<String>> allGroups;
+
+  private final Timer roundTrips;
+
+  private final Meter hits;
+
+  private final Meter misses;
+
+  public CachingLdapConnector(final LdapConnector delegate,
+                              final long refreshSeconds,
+                              final long ttlSeconds,
+                              final long maxSize,
+                              final Executor refreshExecutor)
+  {
+    this(delegate, refreshSeconds, ttlSeconds, maxSize, refreshExecutor, Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  CachingLdapConnector(final LdapConnector delegate,
+                       final long refreshSeconds,
+                       final long ttlSeconds,
+                       final long maxSize,
+                       final Executor refreshExecutor,
+                       final Ticker ticker)
+  {
+    checkArgument(refreshSeconds > 0 && refreshSeconds <= ttlSeconds);
+    this.delegate = checkNotNull(delegate);
+    checkNotNull(refreshExecutor);
+
+    final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate("nexus");
+    this.roundTrips = metricRegistry.timer(MetricRegistry.name(CachingLdapConnector.class, getIdentifier(), "ldap"));
+    this.hits = metricRegistry.meter(MetricRegistry.name(CachingLdapConnector.class, getIdentifier(), "hits"));
+    this.misses = metricRegistry.meter(MetricRegistry.name(CachingLdapConnector.class, getIdentifier(), "misses"));
+
+    this.users = build(refreshSeconds, ttlSeconds, maxSize, refreshExecutor, ticker,
+        new CacheLoader<String, LdapUser>()
+    {
+      @Override
+      public LdapUser load(final String username) throws Exception {
+        final Timer.Context ctx = roundTrips.time();
+        try {
+          return delegate.getUser(username);
+        }
+        finally {
+          ctx.stop();
+        }
+      }
+    });
+    this.userRoles = build(refreshSeconds, ttlSeconds, maxSize, refreshExecutor, ticker,
+        new CacheLoader<String, Set<String>>()
+    {
+      @Override
+      public Set<String> load(final String userId) throws Exception {
+        final Timer.Context ctx = roundTrips.time();
+        try {
+          return Collections.unmodifiableSet(delegate.getUserRoles(userId));
+        }
+        finally {
+          ctx.stop();
+        }
+      }
+    });
+    this.groupNames = build(refreshSeconds, ttlSeconds, maxSize, refreshExecutor, ticker,
+        new CacheLoader<String, String>()
+    {
+      @Override
+      public String load(final String groupId) throws Exception {
+        final Timer.Context ctx = roundTrips.time();
+        try {
+          return delegate.getGroupName(groupId);
+        }
+        finally {
+          ctx.stop();
+        }
+      }
+    });
+    this.allGroups = build(refreshSeconds, ttlSeconds, 1, refreshExecutor, ticker,
+        new CacheLoader<String, SortedSet<String>>()
+    {
+      @Override
+      public SortedSet<String> load(final String key) throws Exception {
+        final Timer.Context ctx = roundTrips.time();
+        try {
+          return Collections.unmodifiableSortedSet(delegate.getAllGroups());
+        }
+        finally {
+          ctx.stop();
+        }
+      }
+    });
+  }
+
+  private static <V> LoadingCache<String, V> build(final long refreshSeconds,
+                                                   final long ttlSeconds,
+                                                   final long maxSize,
+                                                   final Executor refreshExecutor,
+                                                   final Ticker ticker,
+                                                   final CacheLoader<String, V> loader)
+  {
+    final AtomicReference<LoadingCache<String, V>> cache = new AtomicReference<LoadingCache<String, V>>();
+    cache.set(CacheBuilder.newBuilder()
+        .maximumSize(maxSize)
+        .refreshAfterWrite(refreshSeconds, TimeUnit.SECONDS)
+        .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+        .ticker(ticker)
+        .build(new CacheLoader<String, V>()
+        {
+          @Override
+          public V load(final String key) throws Exception {
+            return loader.load(key);
+          }
+
+          @Override
+          public ListenableFuture<V> reload(final String key, final V oldValue) {
+            final ListenableFutureTask<V> task = ListenableFutureTask.create(new Callable<V>()
+            {
+              @Override
+              public V call() throws Exception {
+                try {
+                  return loader.load(key);
+                }
+                catch (NoSuchLdapUserException | NoSuchLdapGroupException | NoLdapUserRolesFoundException e) {
+                  // entry is gone from LDAP, do not serve the stale value anymore
+                  cache.get().invalidate(key);
+                  throw e;
+                }
+              }
+            });
+            refreshExecutor.execute(task);
+            return task;
+          }
+        }));
+    return cache.get();
+  }
+
+  /**
+   * Invalidates all cached entries.
+   */
+  public void invalidateAll() {
+    users.invalidateAll();
+    userRoles.invalidateAll();
+    groupNames.invalidateAll();
+    allGroups.invalidateAll();
+  }
+
+  @Override
+  public String getIdentifier() {
+    return delegate.getIdentifier();
+  }
+
+  @Override
+  public Set<String> getUserRoles(final String userId)
+      throws LdapDAOException, NoLdapUserRolesFoundException
+  {
+    try {
+      return get(userRoles, userId);
+    }
+    catch (ExecutionException e) {
+      Throwables.propagateIfInstanceOf(e.getCause(), NoLdapUserRolesFoundException.class);
+      throw propagate(e);
+    }
+  }
+
+  @Override
+  public SortedSet<LdapUser> getAllUsers() throws LdapDAOException {
+    return delegate.getAllUsers();
+  }
+
+  @Override
+  public SortedSet<LdapUser> getUsers(final int userCount) throws LdapDAOException {
+    return delegate.getUsers(userCount);
+  }
+
+  @Override
+  public LdapUser getUser(final String username)
+      throws NoSuchLdapUserException, LdapDAOException
+  {
+    try {
+      return get(users, username);
+    }
+    catch (ExecutionException e) {
+      Throwables.propagateIfInstanceOf(e.getCause(), NoSuchLdapUserException.class);
+      throw propagate(e);
+    }
+  }
+
+  @Override
+  public SortedSet<LdapUser> searchUsers(final String username, final Set<String> roleIds)
+      throws LdapDAOException
+  {
+    return delegate.searchUsers(username, roleIds);
+  }
+
+  @Override
+  public SortedSet<String> getAllGroups() throws LdapDAOException {
+    try {
+      return get(allGroups, ALL_GROUPS);
+    }
+    catch (ExecutionException e) {
+      throw propagate(e);
+    }
+  }
+
+  @Override
+  public String getGroupName(final String groupId)
+      throws LdapDAOException, NoSuchLdapGroupException
+  {
+    try {
+      return get(groupNames, groupId);
+    }
+    catch (ExecutionException e) {
+      Throwables.propagateIfInstanceOf(e.getCause(), NoSuchLdapGroupException.class);
+      throw propagate(e);
+    }
+  }
+
+  @Override
+  public LdapContextFactory getLdapContextFactory() throws LdapDAOException {
+    return delegate.getLdapContextFactory();
+  }
+
+  private <V> V get(final LoadingCache<String, V> cache, final String key) throws ExecutionException {
+    // not getIfPresent, that would trigger a refresh of stale entry too
+    if (cache.asMap().containsKey(key)) {
+      hits.mark();
+    }
+    else {
+      misses.mark();
+    }
+    try {
+      return cache.get(key);
+    }
+    catch (UncheckedExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  /**
+   * Rethrows cause of failed load, that is either {@link LdapDAOException} or some unchecked exception.
+   */
+  private static LdapDAOException propagate(final ExecutionException e) throws LdapDAOException {
+    Throwables.propagateIfInstanceOf(e.getCause(), LdapDAOException.class);
+    throw Throwables.propagate(e.getCause());
+  }
+}
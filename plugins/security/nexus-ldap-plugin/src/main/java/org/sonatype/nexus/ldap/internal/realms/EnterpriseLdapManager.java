@@ -17,6 +17,10 @@ import java.util.List;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -26,6 +30,8 @@ import javax.net.ssl.SSLContext;
 import com.sonatype.nexus.ssl.model.TrustStoreKey;
 import com.sonatype.nexus.ssl.plugin.TrustStore;
 
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
+import org.sonatype.nexus.ldap.internal.connector.CachingLdapConnector;
 import org.sonatype.nexus.ldap.internal.connector.DefaultLdapConnector;
 import org.sonatype.nexus.ldap.internal.connector.FailoverLdapConnector;
 import org.sonatype.nexus.ldap.internal.connector.LdapConnector;
@@ -44,6 +50,7 @@ import org.sonatype.nexus.ldap.internal.persist.entity.Connection.Protocol;
 import org.sonatype.nexus.ldap.internal.persist.entity.LdapConfiguration;
 import org.sonatype.nexus.ldap.internal.ssl.SSLLdapContextFactory;
 import org.sonatype.nexus.proxy.events.NexusStoppedEvent;
+import org.sonatype.nexus.threads.NexusThreadFactory;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 import org.sonatype.sisu.goodies.eventbus.EventBus;
 
@@ -65,6 +72,24 @@ public class EnterpriseLdapManager
     extends ComponentSupport
     implements LdapManager
 {
+  /**
+   * Age (in seconds) after which cached LDAP entries are refreshed in background.
+   */
+  private static final long CACHE_REFRESH_SECONDS = SystemPropertiesHelper.getLong(
+      EnterpriseLdapManager.class.getName() + ".cacheRefreshSeconds", 60L);
+
+  /**
+   * Maximum age (in seconds) of cached LDAP entries, stale entries are served until then if refresh fails.
+   */
+  private static final long CACHE_TTL_SECONDS = SystemPropertiesHelper.getLong(
+      EnterpriseLdapManager.class.getName() + ".cacheTtlSeconds", TimeUnit.MINUTES.toSeconds(10));
+
+  private static final long CACHE_MAX_SIZE = SystemPropertiesHelper.getLong(
+      EnterpriseLdapManager.class.getName() + ".cacheMaxSize", 10000L);
+
+  private static final int CACHE_REFRESH_THREADS = SystemPropertiesHelper.getInteger(
+      EnterpriseLdapManager.class.getName() + ".cacheRefreshThreads", 2);
+
   private final LdapAuthenticator ldapAuthenticator;
 
   private final LdapUserDAO ldapUserManager;
@@ -77,7 +102,14 @@ public class EnterpriseLdapManager
 
   private final TrustStore trustStore;
 
-  private List<LdapConnector> ldapConnectors = new ArrayList<LdapConnector>();
+  private final ExecutorService refreshExecutor;
+
+  private final Object connectorsLock = new Object();
+
+  /**
+   * Connectors are read without locking, and are (re)created when list found empty.
+   */
+  private final List<LdapConnector> ldapConnectors = new CopyOnWriteArrayList<LdapConnector>();
 
   @Inject
   public EnterpriseLdapManager(final LdapAuthenticator ldapAuthenticator,
@@ -93,6 +125,8 @@ public class EnterpriseLdapManager
     this.eventBus = checkNotNull(eventBus);
     this.ldapConfigurationManager = checkNotNull(ldapConfigurationManager);
     this.trustStore = checkNotNull(trustStore);
+    this.refreshExecutor = Executors.newFixedThreadPool(CACHE_REFRESH_THREADS,
+        new NexusThreadFactory("ldap", "LDAP cache refresh", Thread.NORM_PRIORITY, true));
 
     this.eventBus.register(this);
   }
@@ -297,11 +331,18 @@ public class EnterpriseLdapManager
 
   // package protected, so we can, inject mock objects for testing
   @VisibleForTesting
-  synchronized List<LdapConnector> getLdapConnectors()
+  List<LdapConnector> getLdapConnectors()
       throws LdapDAOException
   {
-    if (this.ldapConnectors.isEmpty()) {
+    if (!this.ldapConnectors.isEmpty()) {
+      return this.ldapConnectors;
+    }
+    synchronized (connectorsLock) {
+      if (!this.ldapConnectors.isEmpty()) {
+        return this.ldapConnectors;
+      }
 
+      List<LdapConnector> connectors = new ArrayList<LdapConnector>();
       for (LdapConfiguration ldapServer : ldapConfigurationManager.listLdapServerConfigurations()) {
         // first get the connector for the server
         LdapConnector originalLdapConnector =
@@ -319,13 +360,20 @@ public class EnterpriseLdapManager
                   getLdapAuthConfiguration(ldapServer));
         }
 
-        ldapConnectors.add(new FailoverLdapConnector(
+        LdapConnector failoverLdapConnector = new FailoverLdapConnector(
             originalLdapConnector,
             backupLdapConnector,
             ldapServer.getConnection().getConnectionRetryDelay(),
-            ldapServer.getConnection().getMaxIncidentsCount()));
-
+            ldapServer.getConnection().getMaxIncidentsCount());
+
+        connectors.add(new CachingLdapConnector(
+            failoverLdapConnector,
+            CACHE_REFRESH_SECONDS,
+            CACHE_TTL_SECONDS,
+            CACHE_MAX_SIZE,
+            refreshExecutor));
       }
+      this.ldapConnectors.addAll(connectors);
     }
     return this.ldapConnectors;
   }
@@ -378,12 +426,13 @@ public class EnterpriseLdapManager
   @AllowConcurrentEvents
   @Subscribe
   public void onEvent(final LdapClearCacheEvent evt) {
-    // clear the connectors
+    // clear the connectors, along with their caches
     ldapConnectors.clear();
   }
 
   @Subscribe
   public void on(final NexusStoppedEvent event) {
     eventBus.unregister(this);
+    refreshExecutor.shutdownNow();
   }
 }
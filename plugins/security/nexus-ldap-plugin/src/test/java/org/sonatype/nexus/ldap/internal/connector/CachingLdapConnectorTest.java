@@ -0,0 +1,156 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.ldap.internal.connector;
+
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.sonatype.nexus.ldap.internal.connector.dao.LdapDAOException;
+import org.sonatype.nexus.ldap.internal.connector.dao.LdapUser;
+import org.sonatype.nexus.ldap.internal.connector.dao.NoSuchLdapUserException;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link CachingLdapConnector}
+ */
+public class CachingLdapConnectorTest
+    extends TestSupport
+{
+  @Mock
+  private LdapConnector delegate;
+
+  private final AtomicLong nanos = new AtomicLong();
+
+  private CachingLdapConnector underTest;
+
+  @Before
+  public void setUp() {
+    when(delegate.getIdentifier()).thenReturn("test");
+    underTest = new CachingLdapConnector(delegate, 60, 600, 100, MoreExecutors.directExecutor(), new Ticker()
+    {
+      @Override
+      public long read() {
+        return nanos.get();
+      }
+    });
+  }
+
+  private void elapse(final long seconds) {
+    nanos.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+  }
+
+  @Test
+  public void userLookupCached() throws Exception {
+    final LdapUser user = new LdapUser();
+    user.setUsername("jdoe");
+    when(delegate.getUser("jdoe")).thenReturn(user);
+
+    assertThat(underTest.getUser("jdoe"), sameInstance(user));
+    assertThat(underTest.getUser("jdoe"), sameInstance(user));
+    verify(delegate, times(1)).getUser("jdoe");
+
+    underTest.invalidateAll();
+    assertThat(underTest.getUser("jdoe"), sameInstance(user));
+    verify(delegate, times(2)).getUser("jdoe");
+  }
+
+  @Test
+  public void missingUserNotCached() throws Exception {
+    when(delegate.getUser("jdoe")).thenThrow(new NoSuchLdapUserException("jdoe"));
+
+    for (int i = 0; i < 2; i++) {
+      try {
+        underTest.getUser("jdoe");
+        fail("Expected NoSuchLdapUserException");
+      }
+      catch (NoSuchLdapUserException e) {
+        // expected
+      }
+    }
+    verify(delegate, times(2)).getUser("jdoe");
+  }
+
+  @Test
+  public void serverFailurePropagated() throws Exception {
+    when(delegate.getAllGroups()).thenThrow(new LdapDAOException("down"));
+
+    try {
+      underTest.getAllGroups();
+      fail("Expected LdapDAOException");
+    }
+    catch (LdapDAOException e) {
+      assertThat(e.getMessage(), is("down"));
+    }
+  }
+
+  @Test
+  public void groupListCached() throws Exception {
+    final SortedSet<String> groups = new TreeSet<String>();
+    groups.add("alpha");
+    when(delegate.getAllGroups()).thenReturn(groups);
+
+    assertThat(underTest.getAllGroups(), contains("alpha"));
+    assertThat(underTest.getAllGroups(), contains("alpha"));
+    verify(delegate, times(1)).getAllGroups();
+  }
+
+  @Test
+  public void staleUserKeptWhenRefreshFailsOnServerFailure() throws Exception {
+    final LdapUser user = new LdapUser();
+    user.setUsername("jdoe");
+    when(delegate.getUser("jdoe")).thenReturn(user).thenThrow(new LdapDAOException("down"));
+
+    assertThat(underTest.getUser("jdoe"), sameInstance(user));
+    elapse(61);
+    assertThat(underTest.getUser("jdoe"), sameInstance(user));
+    assertThat(underTest.getUser("jdoe"), sameInstance(user));
+    verify(delegate, times(3)).getUser("jdoe");
+  }
+
+  @Test
+  public void staleUserDroppedWhenRefreshFindsItGone() throws Exception {
+    final LdapUser user = new LdapUser();
+    user.setUsername("jdoe");
+    when(delegate.getUser("jdoe")).thenReturn(user).thenThrow(new NoSuchLdapUserException("jdoe"));
+
+    assertThat(underTest.getUser("jdoe"), sameInstance(user));
+    elapse(61);
+    // refresh in progress still serves the stale value, but drops the entry
+    assertThat(underTest.getUser("jdoe"), sameInstance(user));
+    try {
+      underTest.getUser("jdoe");
+      fail("Expected NoSuchLdapUserException");
+    }
+    catch (NoSuchLdapUserException e) {
+      // expected
+    }
+    verify(delegate, times(3)).getUser("jdoe");
+  }
+}